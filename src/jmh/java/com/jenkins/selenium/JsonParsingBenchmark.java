@@ -0,0 +1,150 @@
+package com.jenkins.selenium;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the tree-based and streaming parsers on recorded Jenkins payloads.
+ *
+ * The job list is the recorded {@code api/json?tree=jobs[...]} response scaled up to
+ * {@code jobCount} jobs; the build status is a recorded {@code job/X/N/api/json} response with its
+ * actions, artifacts and change sets. The job with builds is a recorded job whose response lists
+ * {@code buildCount} builds, as returned without a {@code tree} filter. Run with {@code -prof gc}
+ * (the default of the {@code jmh} Gradle task) to compare allocation per operation
+ * ({@code gc.alloc.rate.norm}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonParsingBenchmark {
+    
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    
+    @State(Scope.Benchmark)
+    public static class JobListPayload {
+        @Param({"100", "5000"})
+        public int jobCount;
+        
+        byte[] body;
+        
+        @Setup(Level.Trial)
+        public void load() throws IOException {
+            JsonNode recorded = OBJECT_MAPPER.readTree(resource("payloads/jobs.json"));
+            ArrayNode recordedJobs = (ArrayNode) recorded.get("jobs");
+            
+            ObjectNode root = OBJECT_MAPPER.createObjectNode();
+            root.put("_class", "hudson.model.Hudson");
+            ArrayNode jobs = root.putArray("jobs");
+            for (int i = 0; i < jobCount; i++) {
+                ObjectNode job = recordedJobs.get(i % recordedJobs.size()).deepCopy();
+                String name = job.get("name").asText() + "-" + i;
+                job.put("name", name);
+                job.put("url", "http://localhost:8080/job/" + name + "/");
+                jobs.add(job);
+            }
+            body = OBJECT_MAPPER.writeValueAsBytes(root);
+        }
+    }
+    
+    @State(Scope.Benchmark)
+    public static class BuildPayload {
+        byte[] body;
+        
+        @Setup(Level.Trial)
+        public void load() throws IOException {
+            body = resource("payloads/build.json").readAllBytes();
+        }
+    }
+    
+    /**
+     * A {@code job/X/api/json} response without a tree filter, which lists every retained build
+     */
+    @State(Scope.Benchmark)
+    public static class JobWithBuildsPayload {
+        @Param({"50000"})
+        public int buildCount;
+        
+        byte[] body;
+        
+        @Setup(Level.Trial)
+        public void load() throws IOException {
+            ObjectNode root = ((ArrayNode) OBJECT_MAPPER.readTree(resource("payloads/jobs.json")).get("jobs")).get(0).deepCopy();
+            ArrayNode builds = root.putArray("builds");
+            for (int i = buildCount; i > 0; i--) {
+                ObjectNode build = builds.addObject();
+                build.put("_class", "hudson.model.FreeStyleBuild");
+                build.put("number", i);
+                build.put("url", "http://localhost:8080/job/selenium-tests/" + i + "/");
+            }
+            body = OBJECT_MAPPER.writeValueAsBytes(root);
+        }
+    }
+    
+    private static InputStream resource(String name) {
+        return JsonParsingBenchmark.class.getClassLoader().getResourceAsStream(name);
+    }
+    
+    /**
+     * Body copied into a String, parsed into a tree, then mapped
+     */
+    @Benchmark
+    public JenkinsBuildManager.JobList listJobsStringTree(JobListPayload payload) throws IOException {
+        String body = new String(payload.body, StandardCharsets.UTF_8);
+        return JenkinsBuildManager.parseJobList(OBJECT_MAPPER.readTree(body));
+    }
+    
+    /**
+     * Body stream parsed into a tree, then mapped
+     */
+    @Benchmark
+    public JenkinsBuildManager.JobList listJobsTree(JobListPayload payload) throws IOException {
+        return JenkinsBuildManager.parseJobList(OBJECT_MAPPER.readTree(new ByteArrayInputStream(payload.body)));
+    }
+    
+    @Benchmark
+    public JenkinsBuildManager.JobList listJobsStreaming(JobListPayload payload) throws IOException {
+        return JenkinsJsonParser.readJobList(new ByteArrayInputStream(payload.body));
+    }
+    
+    @Benchmark
+    public JenkinsBuildManager.JobInfo jobWithBuildsTree(JobWithBuildsPayload payload) throws IOException {
+        return JenkinsBuildManager.parseJobInfo(OBJECT_MAPPER.readTree(new ByteArrayInputStream(payload.body)));
+    }
+    
+    @Benchmark
+    public JenkinsBuildManager.JobInfo jobWithBuildsStreaming(JobWithBuildsPayload payload) throws IOException {
+        return JenkinsJsonParser.readJobInfo(new ByteArrayInputStream(payload.body));
+    }
+    
+    @Benchmark
+    public JenkinsBuildManager.BuildStatus buildStatusTree(BuildPayload payload) throws IOException {
+        return JenkinsBuildManager.parseBuildStatus(OBJECT_MAPPER.readTree(new ByteArrayInputStream(payload.body)));
+    }
+    
+    @Benchmark
+    public JenkinsBuildManager.BuildStatus buildStatusStreaming(BuildPayload payload) throws IOException {
+        return JenkinsJsonParser.readBuildStatus(new ByteArrayInputStream(payload.body));
+    }
+}
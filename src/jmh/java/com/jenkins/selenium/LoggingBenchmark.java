@@ -0,0 +1,117 @@
+package com.jenkins.selenium;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.MDC;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Log throughput of parallel test threads writing to a file, as configured in {@code logback.xml}.
+ *
+ * {@code sync} is a plain file appender, where every thread takes the appender lock and waits for
+ * the write. {@code async} puts events on a bounded queue drained by one thread and never blocks;
+ * {@code asyncBlocking} is the same queue, but threads wait when it is full, which shows the
+ * throughput the disk actually sustains. Each variant uses its own logger context and temporary file.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class LoggingBenchmark {
+    
+    @State(Scope.Benchmark)
+    public static class LogPipeline {
+        @Param({"sync", "async", "asyncBlocking"})
+        public String appender;
+        
+        Logger logger;
+        private LoggerContext context;
+        private Path file;
+        
+        @Setup(Level.Trial)
+        public void start() throws IOException {
+            file = Files.createTempFile("selenium-tests", ".log");
+            context = new LoggerContext();
+            
+            PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+            encoder.setContext(context);
+            encoder.setPattern("%d{yyyy-MM-dd HH:mm:ss.SSS} [%thread] %-5level %logger{36} test=%X{test:--} - %msg%n");
+            encoder.start();
+            
+            FileAppender<ILoggingEvent> fileAppender = new FileAppender<>();
+            fileAppender.setContext(context);
+            fileAppender.setFile(file.toString());
+            fileAppender.setEncoder(encoder);
+            fileAppender.start();
+            
+            Appender<ILoggingEvent> root = fileAppender;
+            if (!appender.equals("sync")) {
+                AsyncAppender async = new AsyncAppender();
+                async.setContext(context);
+                async.setQueueSize(8192);
+                async.setNeverBlock(appender.equals("async"));
+                async.addAppender(fileAppender);
+                async.start();
+                root = async;
+            }
+            
+            logger = context.getLogger("com.jenkins.selenium.ParallelRowExecutor");
+            logger.setLevel(ch.qos.logback.classic.Level.INFO);
+            logger.setAdditive(false);
+            logger.addAppender(root);
+        }
+        
+        @TearDown(Level.Trial)
+        public void stop() throws IOException {
+            context.stop();
+            Files.deleteIfExists(file);
+        }
+    }
+    
+    @State(Scope.Thread)
+    public static class TestThread {
+        String testName;
+        
+        @Setup(Level.Trial)
+        public void start() {
+            testName = "search-" + Thread.currentThread().getName();
+            MDC.put("test", testName);
+        }
+    }
+    
+    @Benchmark
+    public void logTestStep(LogPipeline pipeline, TestThread thread) {
+        pipeline.logger.info("Executing test: {}", thread.testName);
+    }
+    
+    @Benchmark
+    public void logFilteredDebug(LogPipeline pipeline, TestThread thread) {
+        // Per-row details like TestDataReader's, below the configured level
+        pipeline.logger.debug("Loaded test data: {}", thread.testName);
+    }
+}
@@ -0,0 +1,74 @@
+package com.jenkins.selenium;
+
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building a request before it is sent: the job path, the URL and the auth header.
+ *
+ * {@code basicAuthPerRequest} encodes the credentials on every call, which the transport avoids by
+ * encoding once when it is created; it is kept as the baseline the cached header is compared to.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestBuildingBenchmark {
+    
+    @State(Scope.Benchmark)
+    public static class Credentials {
+        String username = "admin";
+        String apiToken = "11d2b5c8e9f04a7b3c6d8e1f2a4b5c6d";
+    }
+    
+    @State(Scope.Benchmark)
+    public static class Transport {
+        @Param({"selenium-tests", "team/web app/release 1.2/main"})
+        public String jobName;
+        
+        JenkinsHttpTransport transport;
+        
+        @Setup(Level.Trial)
+        public void open(Credentials credentials) {
+            transport = new JenkinsHttpTransport("http://localhost:8080", credentials.username, credentials.apiToken);
+        }
+        
+        @TearDown(Level.Trial)
+        public void close() {
+            transport.close();
+        }
+    }
+    
+    @Benchmark
+    public String jobPath(Transport state) {
+        return JobPath.of(state.jobName) + "lastBuild/api/json";
+    }
+    
+    @Benchmark
+    public HttpGet getRequest(Transport state) {
+        return state.transport.get(JobPath.of(state.jobName) + "lastBuild/api/json");
+    }
+    
+    @Benchmark
+    public String basicAuthPerRequest(Credentials credentials) {
+        String auth = credentials.username + ":" + credentials.apiToken;
+        return "Basic " + Base64.getEncoder().encodeToString(auth.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,84 @@
+package com.jenkins.selenium;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Loads synthetic CSV data sets of {@code rowCount} rows.
+ *
+ * {@code readTestData} collects every row into a list, as callers of the list API do;
+ * {@code stream} parses rows one at a time as {@code TestRunner} does; {@code countOnly} reads the
+ * file without mapping it to see what parsing costs over I/O. Compare {@code gc.alloc.rate.norm}
+ * across row counts to check that streaming stays flat.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TestDataReaderBenchmark {
+    
+    @State(Scope.Benchmark)
+    public static class CsvFile {
+        @Param({"1000", "100000", "1000000"})
+        public int rowCount;
+        
+        String path;
+        
+        @Setup(Level.Trial)
+        public void write() throws IOException {
+            Path file = Files.createTempFile("testdata", ".csv");
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                writer.write("searchTerm,expectedResult,testName,browser\n");
+                for (int i = 0; i < rowCount; i++) {
+                    writer.write("term " + i + ",\"result, " + i + "\",test" + i + "," + (i % 2 == 0 ? "chrome" : "firefox") + "\n");
+                }
+            }
+            path = file.toString();
+        }
+        
+        @TearDown(Level.Trial)
+        public void delete() throws IOException {
+            Files.deleteIfExists(Path.of(path));
+        }
+    }
+    
+    @Benchmark
+    public List<TestData> readTestData(CsvFile csv) {
+        return TestDataReader.readTestData(csv.path);
+    }
+    
+    @Benchmark
+    public long stream(CsvFile csv) {
+        try (Stream<TestData> rows = TestDataReader.stream(csv.path)) {
+            return rows.filter(row -> row.getBrowser().equals("chrome")).count();
+        }
+    }
+    
+    @Benchmark
+    public long countOnly(CsvFile csv) throws IOException {
+        try (Stream<String> lines = Files.lines(Path.of(csv.path), StandardCharsets.UTF_8)) {
+            return lines.count();
+        }
+    }
+}
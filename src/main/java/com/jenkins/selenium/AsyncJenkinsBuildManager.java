@@ -0,0 +1,604 @@
+package com.jenkins.selenium;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.hc.client5.http.async.AsyncExecCallback;
+import org.apache.hc.client5.http.async.AsyncExecChainHandler;
+import org.apache.hc.client5.http.async.methods.AbstractBinResponseConsumer;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
+import org.apache.hc.client5.http.async.methods.SimpleResponseConsumer;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.ChainElement;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.NameValuePair;
+import org.apache.hc.core5.http.message.BasicNameValuePair;
+import org.apache.hc.core5.http.nio.AsyncDataConsumer;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.net.WWWFormCodec;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking counterpart of {@link JenkinsBuildManager}.
+ *
+ * Requests run on the httpclient5 async I/O reactor (HTTP/2 when negotiated, pooled HTTP/1.1
+ * otherwise) and every operation returns a {@link CompletableFuture}. Waiting for a build is
+ * driven by a small scheduler rather than a sleeping thread, so a single JVM can track thousands
+ * of in-flight builds on a handful of threads.
+ *
+ * Failures follow the same conventions as the blocking client: trigger and wait calls complete
+ * with an unsuccessful {@link JenkinsBuildManager.BuildResult}, lookups complete with {@code null}.
+ * Requests and poll loops are recorded in {@link JenkinsMetrics} like those of the blocking client.
+ *
+ * Requests are admitted by the same {@link ControllerGovernor} as the blocking client's. A request
+ * the governor cannot admit yet is retried on the scheduler, so no thread waits for admission.
+ */
+public class AsyncJenkinsBuildManager {
+    private static final Logger logger = LoggerFactory.getLogger(AsyncJenkinsBuildManager.class);
+    private static final String EXCHANGE_NANOS = "jenkins.async.exchangeNanos";
+    
+    private final String jenkinsUrl;
+    private final String authHeader;
+    private final CloseableHttpAsyncClient httpClient;
+    private final ScheduledExecutorService scheduler;
+    private final BuildPoller poller;
+    private final ObjectMapper objectMapper;
+    private final JenkinsMetrics metrics;
+    private final ControllerGovernor governor;
+    private final Set<CompletableFuture<JenkinsBuildManager.BuildResult>> waits = ConcurrentHashMap.newKeySet();
+    
+    public AsyncJenkinsBuildManager(String jenkinsUrl, String username, String apiToken) {
+        this(jenkinsUrl, username, apiToken, JenkinsHttpTransport.TransportConfig.fromSystemProperties());
+    }
+    
+    public AsyncJenkinsBuildManager(String jenkinsUrl, String username, String apiToken,
+                                    JenkinsHttpTransport.TransportConfig config) {
+        this(jenkinsUrl, username, apiToken, config, null);
+    }
+    
+    /**
+     * Manager with its own governor; null uses the one shared by all clients of the controller
+     */
+    public AsyncJenkinsBuildManager(String jenkinsUrl, String username, String apiToken,
+                                    JenkinsHttpTransport.TransportConfig config, ControllerGovernor governor) {
+        this.jenkinsUrl = JenkinsHttpTransport.baseUrl(jenkinsUrl);
+        this.authHeader = JenkinsHttpTransport.basicAuth(username, apiToken);
+        this.poller = new BuildPoller(this.jenkinsUrl);
+        this.objectMapper = new ObjectMapper();
+        this.metrics = new JenkinsMetrics(this.jenkinsUrl);
+        this.governor = governor != null ? governor : ControllerGovernor.forController(this.jenkinsUrl);
+        
+        int ioThreads = Integer.getInteger("jenkins.http.ioThreads",
+            Math.min(4, Runtime.getRuntime().availableProcessors()));
+        
+        this.httpClient = HttpAsyncClients.custom()
+            .setConnectionManager(PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(config.getMaxTotal())
+                .setMaxConnPerRoute(config.getMaxPerRoute())
+                .setDefaultConnectionConfig(config.connectionConfig())
+                .setDefaultTlsConfig(TlsConfig.custom()
+                    .setVersionPolicy(HttpVersionPolicy.NEGOTIATE)
+                    .build())
+                .build())
+            .setIOReactorConfig(IOReactorConfig.custom()
+                .setIoThreadCount(ioThreads)
+                .build())
+            .setDefaultRequestConfig(config.requestConfig())
+            .addExecInterceptorBefore(ChainElement.MAIN_TRANSPORT.name(), "exchange-latency", exchangeLatency())
+            .evictExpiredConnections()
+            .evictIdleConnections(TimeValue.ofMilliseconds(config.getIdleEvictionMillis()))
+            .build();
+        this.httpClient.start();
+        
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jenkins-async-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Trigger a Jenkins job with parameters
+     */
+    public CompletableFuture<JenkinsBuildManager.BuildResult> triggerJobWithParameters(String jobName, Map<String, String> parameters) {
+        List<NameValuePair> formParameters = new ArrayList<>();
+        for (Map.Entry<String, String> entry : parameters.entrySet()) {
+            formParameters.add(new BasicNameValuePair(entry.getKey(), entry.getValue()));
+        }
+        
+        SimpleHttpRequest post = post(JobPath.of(jobName) + "buildWithParameters")
+            .setBody(WWWFormCodec.format(formParameters, StandardCharsets.UTF_8), ContentType.APPLICATION_FORM_URLENCODED)
+            .build();
+        
+        return trigger(post, jobName, parameters);
+    }
+    
+    /**
+     * Trigger a Jenkins job without parameters
+     */
+    public CompletableFuture<JenkinsBuildManager.BuildResult> triggerJob(String jobName) {
+        return trigger(post(JobPath.of(jobName) + "build").build(), jobName, Map.of());
+    }
+    
+    private CompletableFuture<JenkinsBuildManager.BuildResult> trigger(SimpleHttpRequest post, String jobName,
+                                                                       Map<String, String> parameters) {
+        return execute(post).handle((response, error) -> {
+            if (error != null) {
+                String errorMsg = "Error triggering Jenkins job: " + jobName;
+                logger.error(errorMsg, error);
+                return new JenkinsBuildManager.BuildResult(false, errorMsg, error);
+            }
+            
+            int statusCode = response.getCode();
+            if (statusCode == 200 || statusCode == 201) {
+                Header location = response.getFirstHeader("Location");
+                JenkinsBuildManager.QueuedBuild queuedBuild = location != null
+                    ? JenkinsBuildManager.QueuedBuild.fromLocation(jobName, location.getValue()) : null;
+                logger.info("Successfully triggered Jenkins job: {} with parameters: {} (queue item: {})",
+                    jobName, parameters, queuedBuild != null ? queuedBuild.getQueueId() : "unknown");
+                return new JenkinsBuildManager.BuildResult(true, "Job triggered successfully", queuedBuild);
+            }
+            
+            String errorMsg = "Failed to trigger Jenkins job: " + jobName + ". Status code: " + statusCode;
+            logger.error(errorMsg);
+            return new JenkinsBuildManager.BuildResult(false, errorMsg, null);
+        });
+    }
+    
+    /**
+     * Get detailed job information
+     */
+    public CompletableFuture<JenkinsBuildManager.JobInfo> getJobInfo(String jobName) {
+        return getParsed(JobPath.of(jobName) + "api/json", "job info: " + jobName, JenkinsJsonParser::readJobInfo);
+    }
+    
+    /**
+     * Get build status
+     */
+    public CompletableFuture<JenkinsBuildManager.BuildStatus> getBuildStatus(String jobName, int buildNumber) {
+        return getParsed(JobPath.of(jobName) + buildNumber + "/api/json", "build status: " + jobName + " #" + buildNumber,
+            JenkinsJsonParser::readBuildStatus);
+    }
+    
+    /**
+     * Get last build status
+     */
+    public CompletableFuture<JenkinsBuildManager.BuildStatus> getLastBuildStatus(String jobName) {
+        return getParsed(JobPath.of(jobName) + "lastBuild/api/json", "last build status: " + jobName, JenkinsJsonParser::readBuildStatus);
+    }
+    
+    /**
+     * List all available jobs
+     */
+    public CompletableFuture<JenkinsBuildManager.JobList> listJobs() {
+        return getParsed("api/json?tree=jobs[name,url,color,description,buildable,lastBuild[number,result,building]]", "job list",
+            JenkinsJsonParser::readJobList);
+    }
+    
+    /**
+     * Copy a build's console from {@code start} to an output stream as it arrives, without
+     * buffering the whole log. The stream is written from an I/O reactor thread, so it should not
+     * block. Completes with the offset reached, or {@code null} if the console could not be read.
+     */
+    public CompletableFuture<Long> streamConsoleOutput(String jobName, int buildNumber, long start, OutputStream out) {
+        SimpleHttpRequest request = get(JobPath.of(jobName) + buildNumber + "/logText/progressiveText?start=" + start).build();
+        ConsoleConsumer consumer = new ConsoleConsumer(out);
+        return execute(request, consumer).handle((response, error) -> {
+            if (error != null) {
+                logger.error("Error streaming console output: {} #{}", jobName, buildNumber, error);
+                return null;
+            }
+            if (response.getCode() != 200) {
+                logger.error("Failed to stream console output: {} #{}. Status code: {}", jobName, buildNumber, response.getCode());
+                return null;
+            }
+            metrics.received("console", consumer.getBytes());
+            Header textSize = response.getFirstHeader("X-Text-Size");
+            return textSize != null ? Long.parseLong(textSize.getValue()) : start + consumer.getBytes();
+        });
+    }
+    
+    /**
+     * Refresh a queued build from {@code queue/item/N/api/json}. Completes with false if the
+     * queue item could not be read.
+     */
+    public CompletableFuture<Boolean> refreshQueuedBuild(JenkinsBuildManager.QueuedBuild queuedBuild) {
+        return getJson("queue/item/" + queuedBuild.getQueueId() + "/api/json?tree=id,cancelled,why,executable[number,url]",
+                "queue item: " + queuedBuild.getQueueId())
+            .thenApply(json -> {
+                if (json == null) {
+                    return false;
+                }
+                queuedBuild.update(json);
+                return true;
+            });
+    }
+    
+    /**
+     * Wait for the build created by a trigger call: first until the queue item has a build number,
+     * then until that build (and only that build) completes.
+     */
+    public CompletableFuture<JenkinsBuildManager.BuildResult> waitForJobCompletion(JenkinsBuildManager.QueuedBuild queuedBuild,
+                                                                                int timeoutMinutes) {
+        logger.info("Waiting for queued build completion: {} (queue item: {}, timeout: {} minutes)",
+            queuedBuild.getJobName(), queuedBuild.getQueueId(), timeoutMinutes);
+        
+        CompletableFuture<JenkinsBuildManager.BuildResult> result = newWait();
+        long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(timeoutMinutes);
+        pollQueue(queuedBuild, deadline, new PollingStrategy.PollState(), result);
+        return result;
+    }
+    
+    private void pollQueue(JenkinsBuildManager.QueuedBuild queuedBuild, long deadline, PollingStrategy.PollState state,
+                           CompletableFuture<JenkinsBuildManager.BuildResult> result) {
+        if (result.isDone()) {
+            return;
+        }
+        
+        state.record(null);
+        metrics.pollIteration("queue");
+        refreshQueuedBuild(queuedBuild).whenComplete((refreshed, error) -> {
+            if (refreshed == null || !refreshed) {
+                result.complete(new JenkinsBuildManager.BuildResult(false, "Failed to get queue item status", queuedBuild));
+                return;
+            }
+            
+            if (queuedBuild.isResolved()) {
+                logger.info("Queue item {} started build {} #{}", queuedBuild.getQueueId(),
+                    queuedBuild.getJobName(), queuedBuild.getBuildNumber());
+                String jobName = queuedBuild.getJobName();
+                int buildNumber = queuedBuild.getBuildNumber();
+                poll(() -> getBuildStatus(jobName, buildNumber), deadline, new PollingStrategy.PollState(), result);
+                return;
+            }
+            
+            if (queuedBuild.isCancelled()) {
+                result.complete(new JenkinsBuildManager.BuildResult(false, "Queue item was cancelled", queuedBuild));
+                return;
+            }
+            
+            long pollInterval = JenkinsBuildManager.QUEUE_POLLING.nextDelayMillis(state);
+            if (System.currentTimeMillis() + pollInterval > deadline) {
+                result.complete(new JenkinsBuildManager.BuildResult(false, "Build did not start within timeout period", queuedBuild));
+                return;
+            }
+            
+            schedule(() -> pollQueue(queuedBuild, deadline, state, result), pollInterval, result);
+        });
+    }
+    
+    /**
+     * Wait for job completion with timeout. Polls are scheduled, not slept, so no thread is held
+     * while the build is running. This follows {@code lastBuild}; prefer
+     * {@link #waitForJobCompletion(JenkinsBuildManager.QueuedBuild, int)} for builds triggered here.
+     */
+    public CompletableFuture<JenkinsBuildManager.BuildResult> waitForJobCompletion(String jobName, int timeoutMinutes) {
+        logger.info("Waiting for job completion: {} (timeout: {} minutes)", jobName, timeoutMinutes);
+        
+        CompletableFuture<JenkinsBuildManager.BuildResult> result = newWait();
+        long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(timeoutMinutes);
+        poll(() -> getLastBuildStatus(jobName), deadline, new PollingStrategy.PollState(), result);
+        return result;
+    }
+    
+    /**
+     * Result of a build wait, completed as failed if the client is closed before the build ends
+     */
+    private CompletableFuture<JenkinsBuildManager.BuildResult> newWait() {
+        CompletableFuture<JenkinsBuildManager.BuildResult> result = new CompletableFuture<>();
+        waits.add(result);
+        result.whenComplete((buildResult, error) -> waits.remove(result));
+        return result;
+    }
+    
+    /**
+     * Run the next step of a wait after the delay, or end the wait if the client was closed
+     */
+    private void schedule(Runnable step, long delayMillis, CompletableFuture<JenkinsBuildManager.BuildResult> result) {
+        try {
+            scheduler.schedule(step, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            result.complete(closedResult());
+        }
+    }
+    
+    private static JenkinsBuildManager.BuildResult closedResult() {
+        return new JenkinsBuildManager.BuildResult(false, "Client is closed", null);
+    }
+    
+    private void poll(Supplier<CompletableFuture<JenkinsBuildManager.BuildStatus>> statusSupplier, long deadline,
+                      PollingStrategy.PollState state, CompletableFuture<JenkinsBuildManager.BuildResult> result) {
+        if (result.isDone()) {
+            return;
+        }
+        
+        if (!poller.tryBeginPoll()) {
+            // Controller already has the maximum number of polls in flight
+            schedule(() -> poll(statusSupplier, deadline, state, result), 100, result);
+            return;
+        }
+        
+        metrics.pollIteration("build");
+        statusSupplier.get().whenComplete((status, error) -> {
+            poller.endPoll();
+            state.record(status);
+            
+            if (status == null) {
+                result.complete(new JenkinsBuildManager.BuildResult(false, "Failed to get job status", error));
+                return;
+            }
+            
+            if (!status.isBuilding()) {
+                poller.recordCompletion(state, status);
+                result.complete(JenkinsBuildManager.completedResult(status));
+                return;
+            }
+            
+            long pollInterval = poller.nextDelayMillis(state, deadline);
+            if (System.currentTimeMillis() + pollInterval >= deadline) {
+                logger.warn("Job did not complete within timeout period");
+                result.complete(new JenkinsBuildManager.BuildResult(false, "Job did not complete within timeout period", null));
+                return;
+            }
+            
+            schedule(() -> poll(statusSupplier, deadline, state, result), pollInterval, result);
+        });
+    }
+    
+    /**
+     * Poll counts and detection latency of this manager's build waits
+     */
+    public BuildPoller.PollMetrics getPollMetrics() {
+        return poller.getMetrics();
+    }
+    
+    /**
+     * Request metrics of this controller
+     */
+    public JenkinsMetrics getMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * Close the async client and the poll scheduler. Build waits still running complete as failed.
+     */
+    public void close() {
+        // Drops the scheduled polls, so the waits they belong to are completed here
+        scheduler.shutdownNow();
+        for (CompletableFuture<JenkinsBuildManager.BuildResult> wait : waits) {
+            wait.complete(closedResult());
+        }
+        httpClient.close(CloseMode.GRACEFUL);
+    }
+    
+    private CompletableFuture<JsonNode> getJson(String path, String description) {
+        return getParsed(path, description, objectMapper::readTree);
+    }
+    
+    private <T> CompletableFuture<T> getParsed(String path, String description, BodyParser<T> parser) {
+        return execute(get(path).build()).handle((response, error) -> {
+            if (error != null) {
+                logger.error("Error getting {}", description, error);
+                return null;
+            }
+            if (response.getCode() != 200) {
+                logger.error("Failed to get {}. Status code: {}", description, response.getCode());
+                return null;
+            }
+            try {
+                return parser.parse(response.getBodyBytes());
+            } catch (IOException e) {
+                logger.error("Error parsing {}", description, e);
+                return null;
+            }
+        });
+    }
+    
+    private SimpleRequestBuilder get(String path) {
+        return SimpleRequestBuilder.get(jenkinsUrl + path).setHeader("Authorization", authHeader);
+    }
+    
+    private SimpleRequestBuilder post(String path) {
+        return SimpleRequestBuilder.post(jenkinsUrl + path).setHeader("Authorization", authHeader);
+    }
+    
+    private CompletableFuture<SimpleHttpResponse> execute(SimpleHttpRequest request) {
+        return execute(request, SimpleResponseConsumer.create());
+    }
+    
+    private CompletableFuture<SimpleHttpResponse> execute(SimpleHttpRequest request, AsyncResponseConsumer<SimpleHttpResponse> consumer) {
+        CompletableFuture<SimpleHttpResponse> future = new CompletableFuture<>();
+        admit(request, consumer, future, System.nanoTime());
+        return future;
+    }
+    
+    /**
+     * Send the request once the governor admits it, checking again on the scheduler until then
+     */
+    private void admit(SimpleHttpRequest request, AsyncResponseConsumer<SimpleHttpResponse> consumer,
+                       CompletableFuture<SimpleHttpResponse> future, long admissionStart) {
+        if (future.isDone()) {
+            return;
+        }
+        String endpoint = JenkinsMetrics.endpointOf(request.getPath());
+        ControllerGovernor.EndpointClass endpointClass = ControllerGovernor.EndpointClass.of(endpoint);
+        try {
+            long wait = governor.tryAcquire(endpointClass, admissionStart);
+            if (wait > 0) {
+                scheduler.schedule(() -> admit(request, consumer, future, admissionStart), wait, TimeUnit.NANOSECONDS);
+                return;
+            }
+        } catch (ControllerGovernor.ThrottledException e) {
+            metrics.error(endpoint, e);
+            future.completeExceptionally(e);
+            return;
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new IOException("Client is closed", e));
+            return;
+        }
+        metrics.governorWait(endpointClass, System.nanoTime() - admissionStart);
+        send(request, consumer, future, endpoint, endpointClass);
+    }
+    
+    private void send(SimpleHttpRequest request, AsyncResponseConsumer<SimpleHttpResponse> consumer,
+                      CompletableFuture<SimpleHttpResponse> future, String endpoint, ControllerGovernor.EndpointClass endpointClass) {
+        HttpClientContext context = HttpClientContext.create();
+        long start = System.nanoTime();
+        httpClient.execute(SimpleRequestProducer.create(request), consumer, context, new FutureCallback<SimpleHttpResponse>() {
+            @Override
+            public void completed(SimpleHttpResponse response) {
+                Object latency = context.getAttribute(EXCHANGE_NANOS);
+                Header retryAfter = response.getFirstHeader("Retry-After");
+                governor.onResponse(endpointClass, response.getCode(), latency instanceof Long ? (Long) latency : 0,
+                    retryAfter != null ? retryAfter.getValue() : null);
+                governor.release();
+                // Includes reading the body, which is buffered or streamed by the consumer
+                metrics.response(request.getMethod(), endpoint, response.getCode(), System.nanoTime() - start);
+                byte[] body = response.getBodyBytes();
+                if (body != null) {
+                    metrics.received(endpoint, body.length);
+                }
+                future.complete(response);
+            }
+            
+            @Override
+            public void failed(Exception ex) {
+                if (ex instanceof IOException) {
+                    governor.onFailure(endpointClass, (IOException) ex);
+                }
+                governor.release();
+                metrics.error(endpoint, ex);
+                future.completeExceptionally(ex);
+            }
+            
+            @Override
+            public void cancelled() {
+                governor.release();
+                future.cancel(false);
+            }
+        });
+    }
+    
+    /**
+     * Records the time from sending the request to its response head, without the wait for a
+     * pooled connection, for the governor's latency target
+     */
+    private static AsyncExecChainHandler exchangeLatency() {
+        return (request, entityProducer, scope, chain, callback) -> {
+            long start = System.nanoTime();
+            chain.proceed(request, entityProducer, scope, new AsyncExecCallback() {
+                @Override
+                public AsyncDataConsumer handleResponse(HttpResponse response, EntityDetails entityDetails) throws HttpException, IOException {
+                    scope.clientContext.setAttribute(EXCHANGE_NANOS, System.nanoTime() - start);
+                    return callback.handleResponse(response, entityDetails);
+                }
+                
+                @Override
+                public void handleInformationResponse(HttpResponse response) throws HttpException, IOException {
+                    callback.handleInformationResponse(response);
+                }
+                
+                @Override
+                public void completed() {
+                    callback.completed();
+                }
+                
+                @Override
+                public void failed(Exception cause) {
+                    callback.failed(cause);
+                }
+            });
+        };
+    }
+    
+    /**
+     * Writes a 200 response body to an output stream chunk by chunk; other bodies are discarded.
+     * The result is the response head only.
+     */
+    private static class ConsoleConsumer extends AbstractBinResponseConsumer<SimpleHttpResponse> {
+        private final OutputStream out;
+        private SimpleHttpResponse response;
+        private long bytes;
+        
+        ConsoleConsumer(OutputStream out) {
+            this.out = out;
+        }
+        
+        @Override
+        protected void start(HttpResponse head, ContentType contentType) {
+            response = SimpleHttpResponse.copy(head);
+        }
+        
+        @Override
+        protected int capacityIncrement() {
+            return 64 * 1024;
+        }
+        
+        @Override
+        protected void data(ByteBuffer data, boolean endOfStream) throws IOException {
+            if (response.getCode() != 200) {
+                return;
+            }
+            int length = data.remaining();
+            if (data.hasArray()) {
+                out.write(data.array(), data.arrayOffset() + data.position(), length);
+                data.position(data.limit());
+            } else {
+                byte[] chunk = new byte[length];
+                data.get(chunk);
+                out.write(chunk);
+            }
+            bytes += length;
+        }
+        
+        @Override
+        protected SimpleHttpResponse buildResult() {
+            return response;
+        }
+        
+        @Override
+        public void releaseResources() {
+        }
+        
+        long getBytes() {
+            return bytes;
+        }
+    }
+    
+    @FunctionalInterface
+    private interface BodyParser<T> {
+        T parse(byte[] body) throws IOException;
+    }
+}
@@ -3,112 +3,193 @@ package com.jenkins.selenium;
 import org.openqa.selenium.OutputType;
 import org.openqa.selenium.TakesScreenshot;
 import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.chrome.ChromeOptions;
-import org.openqa.selenium.firefox.FirefoxDriver;
-import org.openqa.selenium.firefox.FirefoxOptions;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.support.ui.WebDriverWait;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.Duration;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Base class for Selenium tests.
+ *
+ * Each TestNG worker thread has its own browser session, so methods running in parallel never
+ * share a driver. The session is started lazily by the first {@link #getDriver()} call on the
+ * thread and kept for the next method on the same thread: {@link #teardownDriver()} only clears
+ * cookies and storage. Sessions are quit when the suite ends, when a test asks for a different
+ * browser, or when the reset fails. A shutdown hook quits whatever is left if the JVM exits early.
+ */
 public class BaseTest {
     protected static final Logger logger = LoggerFactory.getLogger(BaseTest.class);
-    protected WebDriver driver;
-    protected WebDriverWait wait;
     
+    private static final ThreadLocal<DriverSession> session = new ThreadLocal<>();
+    private static final ThreadLocal<String> requestedBrowser = new ThreadLocal<>();
+    // Every live session, so sessions of finished worker threads can be quit at suite end
+    private static final Set<DriverSession> sessions = ConcurrentHashMap.newKeySet();
+    private static volatile WebDriverFactory driverFactory = new BrowserDriverFactory();
+    
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(BaseTest::quitAllDrivers, "webdriver-shutdown"));
+    }
+    
+    /**
+     * Select the browser for the current thread. The session starts on the first {@link #getDriver()} call.
+     */
     protected void setupDriver(String browser) {
         if (browser == null || browser.isEmpty()) {
             browser = "chrome"; // default browser
         }
+        browser = browser.toLowerCase();
+        requestedBrowser.set(browser);
         
-        switch (browser.toLowerCase()) {
-            case "chrome":
-                setupChromeDriver();
-                break;
-            case "firefox":
-                setupFirefoxDriver();
-                break;
-            default:
-                logger.warn("Unknown browser: {}. Using Chrome as default.", browser);
-                setupChromeDriver();
+        DriverSession current = session.get();
+        if (current != null && !current.browser.equals(browser)) {
+            quit(current);
         }
-        
-        wait = new WebDriverWait(driver, Duration.ofSeconds(10));
-        logger.info("WebDriver setup completed for browser: {}", browser);
-    }
-    
-    private void setupChromeDriver() {
-        ChromeOptions options = new ChromeOptions();
-        // Enable headless mode for remote Jenkins
-        options.addArguments("--headless");
-        options.addArguments("--no-sandbox");
-        options.addArguments("--disable-dev-shm-usage");
-        options.addArguments("--disable-gpu");
-        options.addArguments("--window-size=1920,1080");
-        options.addArguments("--disable-extensions");
-        options.addArguments("--disable-plugins");
-        options.addArguments("--disable-images");
-        
-        driver = new ChromeDriver(options);
     }
     
-    private void setupFirefoxDriver() {
-        FirefoxOptions options = new FirefoxOptions();
-        options.addArguments("--headless");
-        options.addArguments("--width=1920");
-        options.addArguments("--height=1080");
-        
-        driver = new FirefoxDriver(options);
+    /**
+     * Driver of the current thread, started on first use
+     */
+    protected WebDriver getDriver() {
+        return currentSession().driver;
+    }
+    
+    protected WebDriverWait getWait() {
+        return currentSession().wait;
+    }
+    
+    /**
+     * Condition-based waits for the current thread's driver
+     */
+    protected PageWaits waits() {
+        return currentSession().waits;
+    }
+    
+    /**
+     * Open a URL in the current thread's driver, counting the page load as navigation time in {@link TestTelemetry}
+     */
+    protected void navigateTo(String url) {
+        WebDriver driver = getDriver();
+        long start = System.nanoTime();
+        try {
+            driver.get(url);
+        } finally {
+            TestTelemetry.addPhase(TestTelemetry.Phase.NAVIGATION, System.nanoTime() - start);
+        }
+    }
+    
+    /**
+     * Whether the current thread has a live session
+     */
+    protected boolean hasDriver() {
+        return session.get() != null;
+    }
+    
+    private static DriverSession currentSession() {
+        DriverSession current = session.get();
+        if (current == null) {
+            String browser = requestedBrowser.get() != null ? requestedBrowser.get() : System.getProperty("browser", "chrome");
+            long start = System.nanoTime();
+            WebDriver driver = driverFactory.create(browser);
+            TestTelemetry.addPhase(TestTelemetry.Phase.DRIVER_STARTUP, System.nanoTime() - start);
+            current = new DriverSession(browser, driver);
+            session.set(current);
+            sessions.add(current);
+            logger.info("WebDriver setup completed for browser: {} on thread: {}", browser, current.thread);
+        }
+        return current;
     }
     
+    /**
+     * Clear cookies and storage so the next method on this thread starts clean. The session is
+     * quit instead if it no longer responds.
+     */
     protected void teardownDriver() {
-        if (driver != null) {
-            driver.quit();
-            logger.info("WebDriver closed successfully");
+        DriverSession current = session.get();
+        if (current != null && !WebDriverPool.reset(current.driver)) {
+            quit(current);
+        }
+    }
+    
+    /**
+     * Quit the current thread's session
+     */
+    protected void quitDriver() {
+        DriverSession current = session.get();
+        if (current != null) {
+            quit(current);
+        }
+    }
+    
+    /**
+     * Quit the sessions of all threads. Called by the test listener when the suite finishes.
+     */
+    public static void quitAllDrivers() {
+        for (DriverSession live : sessions) {
+            quit(live);
+        }
+    }
+    
+    private static void quit(DriverSession target) {
+        if (sessions.remove(target)) {
+            try {
+                target.driver.quit();
+                logger.info("WebDriver closed successfully");
+            } catch (RuntimeException e) {
+                logger.warn("Error closing WebDriver: {}", e.getMessage());
+            }
+        }
+        if (session.get() == target) {
+            session.remove();
+        }
+    }
+    
+    /**
+     * Replace the factory used to start browsers, e.g. with stub drivers in tests
+     */
+    static void setDriverFactory(WebDriverFactory factory) {
+        driverFactory = factory;
+    }
+    
+    private static class DriverSession {
+        private final String browser;
+        private final WebDriver driver;
+        private final WebDriverWait wait;
+        private final PageWaits waits;
+        private final String thread = Thread.currentThread().getName();
+        
+        DriverSession(String browser, WebDriver driver) {
+            this.browser = browser;
+            this.driver = driver;
+            this.wait = new WebDriverWait(driver, Duration.ofSeconds(10));
+            this.waits = new PageWaits(driver);
         }
     }
     
     /**
-     * Capture screenshot and save to file
+     * Capture screenshot and queue it for writing. Only grabbing the image happens on the test
+     * thread; the file is written by {@link ScreenshotWriter} in the background.
      * @param testName Name of the test for file naming
-     * @return Path to the saved screenshot file
+     * @return Path the screenshot will be saved to, or null if it was not taken or dropped
      */
     protected String captureScreenshot(String testName) {
-        if (driver == null) {
+        if (!hasDriver()) {
             logger.warn("Driver is null, cannot capture screenshot");
             return null;
         }
         
         try {
-            // Create screenshots directory
-            String screenshotDir = System.getProperty("selenium.screenshot.dir", "build/screenshots");
-            Path screenshotPath = Paths.get(screenshotDir);
-            Files.createDirectories(screenshotPath);
-            
-            // Generate filename with timestamp
-            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-            String fileName = String.format("%s_%s.png", testName, timestamp);
-            Path filePath = screenshotPath.resolve(fileName);
-            
-            // Capture screenshot
-            TakesScreenshot screenshot = (TakesScreenshot) driver;
+            TakesScreenshot screenshot = (TakesScreenshot) getDriver();
             byte[] screenshotBytes = screenshot.getScreenshotAs(OutputType.BYTES);
             
-            // Save to file
-            Files.write(filePath, screenshotBytes);
-            
-            logger.info("Screenshot captured: {}", filePath.toString());
-            return filePath.toString();
+            Path filePath = ScreenshotWriter.shared().submit(testName, screenshotBytes);
+            return filePath != null ? filePath.toString() : null;
             
-        } catch (IOException e) {
+        } catch (WebDriverException e) {
             logger.error("Failed to capture screenshot: {}", e.getMessage());
             return null;
         }
@@ -0,0 +1,57 @@
+package com.jenkins.selenium;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.firefox.FirefoxDriver;
+import org.openqa.selenium.firefox.FirefoxOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Starts headless Chrome or Firefox with the options used on the Jenkins agents
+ */
+public class BrowserDriverFactory implements WebDriverFactory {
+    private static final Logger logger = LoggerFactory.getLogger(BrowserDriverFactory.class);
+    
+    @Override
+    public WebDriver create(String browser) {
+        if (browser == null || browser.isEmpty()) {
+            browser = "chrome"; // default browser
+        }
+        
+        switch (browser.toLowerCase()) {
+            case "chrome":
+                return createChromeDriver();
+            case "firefox":
+                return createFirefoxDriver();
+            default:
+                logger.warn("Unknown browser: {}. Using Chrome as default.", browser);
+                return createChromeDriver();
+        }
+    }
+    
+    private WebDriver createChromeDriver() {
+        ChromeOptions options = new ChromeOptions();
+        // Enable headless mode for remote Jenkins
+        options.addArguments("--headless");
+        options.addArguments("--no-sandbox");
+        options.addArguments("--disable-dev-shm-usage");
+        options.addArguments("--disable-gpu");
+        options.addArguments("--window-size=1920,1080");
+        options.addArguments("--disable-extensions");
+        options.addArguments("--disable-plugins");
+        options.addArguments("--disable-images");
+        
+        return new ChromeDriver(options);
+    }
+    
+    private WebDriver createFirefoxDriver() {
+        FirefoxOptions options = new FirefoxOptions();
+        options.addArguments("--headless");
+        options.addArguments("--width=1920");
+        options.addArguments("--height=1080");
+        
+        return new FirefoxDriver(options);
+    }
+}
@@ -0,0 +1,155 @@
+package com.jenkins.selenium;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs status polls for build waiters: picks the delay between polls from a {@link PollingStrategy},
+ * caps the number of polls in flight against one controller, and records poll metrics.
+ *
+ * The in-flight cap is shared by every poller in the JVM that talks to the same controller URL, so
+ * all of them must be created with the same limit.
+ */
+public class BuildPoller {
+    private static final Logger logger = LoggerFactory.getLogger(BuildPoller.class);
+    private static final Map<String, InFlightLimit> IN_FLIGHT_BY_CONTROLLER = new ConcurrentHashMap<>();
+    
+    private final PollingStrategy strategy;
+    private final Semaphore inFlight;
+    private final PollMetrics metrics = new PollMetrics();
+    
+    public BuildPoller(String jenkinsUrl) {
+        this(jenkinsUrl, PollingStrategy.fromSystemProperties(), Integer.getInteger("jenkins.poll.maxInFlight", 8));
+    }
+    
+    /**
+     * @throws IllegalArgumentException if another poller already capped this controller at a different limit
+     */
+    public BuildPoller(String jenkinsUrl, PollingStrategy strategy, int maxInFlightPolls) {
+        this.strategy = strategy;
+        String url = JenkinsHttpTransport.baseUrl(jenkinsUrl);
+        InFlightLimit limit = IN_FLIGHT_BY_CONTROLLER.computeIfAbsent(url, key -> new InFlightLimit(maxInFlightPolls));
+        if (limit.max != maxInFlightPolls) {
+            throw new IllegalArgumentException("Polls to " + url + " are already capped at " + limit.max
+                + " in flight, cannot cap them at " + maxInFlightPolls);
+        }
+        this.inFlight = limit.permits;
+    }
+    
+    /**
+     * Run one poll request, blocking while the controller already has the maximum number of polls in flight
+     */
+    public <T> T poll(Supplier<T> request) throws InterruptedException {
+        inFlight.acquire();
+        try {
+            metrics.polls.increment();
+            return request.get();
+        } finally {
+            inFlight.release();
+        }
+    }
+    
+    /**
+     * Non-blocking variant of {@link #poll(Supplier)} for async waiters. Returns false if the cap is
+     * reached; the caller should retry after a short delay and must call {@link #endPoll()} otherwise.
+     */
+    public boolean tryBeginPoll() {
+        if (!inFlight.tryAcquire()) {
+            metrics.throttled.increment();
+            return false;
+        }
+        metrics.polls.increment();
+        return true;
+    }
+    
+    public void endPoll() {
+        inFlight.release();
+    }
+    
+    /**
+     * Delay before the next poll, never beyond the deadline
+     */
+    public long nextDelayMillis(PollingStrategy.PollState state, long deadline) {
+        long delay = strategy.nextDelayMillis(state);
+        return Math.max(0, Math.min(delay, deadline - System.currentTimeMillis()));
+    }
+    
+    /**
+     * Record that a wait saw its build finish. Detection latency is the time between the build's
+     * end (start timestamp plus duration) and now.
+     */
+    public void recordCompletion(PollingStrategy.PollState state, JenkinsBuildManager.BuildStatus status) {
+        metrics.completedWaits.increment();
+        metrics.pollsPerWait.add(state.getAttempts());
+        if (status.getTimestamp() > 0 && status.getDuration() > 0) {
+            long latency = Math.max(0, System.currentTimeMillis() - (status.getTimestamp() + status.getDuration()));
+            metrics.recordDetectionLatency(latency);
+            logger.debug("Build #{} finished {} ms before it was detected ({} polls)",
+                status.getBuildNumber(), latency, state.getAttempts());
+        }
+    }
+    
+    public PollMetrics getMetrics() {
+        return metrics;
+    }
+    
+    private static final class InFlightLimit {
+        private final int max;
+        private final Semaphore permits;
+        
+        InFlightLimit(int max) {
+            this.max = max;
+            this.permits = new Semaphore(max, true);
+        }
+    }
+    
+    /**
+     * Poll counters and detection latency statistics
+     */
+    public static class PollMetrics {
+        private final LongAdder polls = new LongAdder();
+        private final LongAdder throttled = new LongAdder();
+        private final LongAdder completedWaits = new LongAdder();
+        private final LongAdder pollsPerWait = new LongAdder();
+        private final LongAdder latencySamples = new LongAdder();
+        private final LongAdder latencyTotal = new LongAdder();
+        private final AtomicLong latencyMax = new AtomicLong();
+        
+        void recordDetectionLatency(long latencyMillis) {
+            latencySamples.increment();
+            latencyTotal.add(latencyMillis);
+            latencyMax.accumulateAndGet(latencyMillis, Math::max);
+        }
+        
+        public long getPollCount() { return polls.sum(); }
+        public long getThrottledCount() { return throttled.sum(); }
+        public long getCompletedWaits() { return completedWaits.sum(); }
+        
+        public double getAveragePollsPerWait() {
+            long waits = completedWaits.sum();
+            return waits == 0 ? 0 : (double) pollsPerWait.sum() / waits;
+        }
+        
+        public double getAverageDetectionLatencyMillis() {
+            long samples = latencySamples.sum();
+            return samples == 0 ? 0 : (double) latencyTotal.sum() / samples;
+        }
+        
+        public long getMaxDetectionLatencyMillis() { return latencyMax.get(); }
+        
+        @Override
+        public String toString() {
+            return String.format("PollMetrics{polls=%d, throttled=%d, completedWaits=%d, pollsPerWait=%.1f, "
+                    + "avgDetectionLatencyMs=%.0f, maxDetectionLatencyMs=%d}",
+                getPollCount(), getThrottledCount(), getCompletedWaits(), getAveragePollsPerWait(),
+                getAverageDetectionLatencyMillis(), getMaxDetectionLatencyMillis());
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.jenkins.selenium;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Central scheduler that multiplexes many build waiters onto one batched request per tick.
+ *
+ * Instead of every waiter polling {@code job/X/N/api/json} on its own thread, waiters register
+ * interest in a (job, build) pair and get a future. Each tick issues a single
+ * {@code api/json?tree=jobs[name,builds[...]{0,N}]} request per folder that holds watched jobs
+ * and completes the futures of all watched builds that have finished, so controller load per tick
+ * does not grow with the number of builds watched. Jobs are identified by their full name, e.g.
+ * {@code team/app/main}. Builds that have scrolled out of the last N builds are looked up individually.
+ *
+ * A registration lives as long as at least one caller still waits on it: once every future handed
+ * out for a build has timed out or been cancelled, the build is dropped from the next tick.
+ */
+public class BuildWatcher {
+    private static final Logger logger = LoggerFactory.getLogger(BuildWatcher.class);
+    
+    private final JenkinsHttpTransport transport;
+    private final JenkinsBuildManager buildManager;
+    private final ObjectMapper objectMapper;
+    private final ScheduledExecutorService scheduler;
+    private final int buildWindow;
+    private final Map<String, Map<Integer, Watch>> watches = new ConcurrentHashMap<>();
+    private final LongAdder ticks = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+    
+    public BuildWatcher(JenkinsHttpTransport transport) {
+        this(transport, Long.getLong("jenkins.watch.tickMillis", 5000), Integer.getInteger("jenkins.watch.buildWindow", 25));
+    }
+    
+    /**
+     * @param tickMillis interval between batched status requests
+     * @param buildWindow how many of each job's most recent builds the batched request returns
+     */
+    public BuildWatcher(JenkinsHttpTransport transport, long tickMillis, int buildWindow) {
+        this.transport = transport;
+        this.buildManager = new JenkinsBuildManager(transport);
+        this.objectMapper = new ObjectMapper();
+        this.buildWindow = buildWindow;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jenkins-build-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Watch a build. The future completes with the build's final status once it is no longer
+     * building. Several callers watching the same build share one registration; cancelling the
+     * returned future, or letting it time out, releases this caller's share of it.
+     */
+    public CompletableFuture<JenkinsBuildManager.BuildStatus> watch(String jobName, int buildNumber) {
+        Watch[] registered = new Watch[1];
+        watches.compute(jobName, (name, jobWatches) -> {
+            Map<Integer, Watch> updated = jobWatches != null ? jobWatches : new ConcurrentHashMap<>();
+            Watch watch = updated.computeIfAbsent(buildNumber, number -> new Watch());
+            watch.waiters++;
+            registered[0] = watch;
+            return updated;
+        });
+        Watch watch = registered[0];
+        
+        // Hand out a dependent future so one caller cancelling does not affect the others
+        CompletableFuture<JenkinsBuildManager.BuildStatus> dependent = watch.future.thenApply(status -> status);
+        dependent.whenComplete((status, error) -> {
+            if (!watch.future.isDone()) {
+                release(jobName, buildNumber, watch);
+            }
+        });
+        return dependent;
+    }
+    
+    private void release(String jobName, int buildNumber, Watch watch) {
+        watches.computeIfPresent(jobName, (name, jobWatches) -> {
+            if (--watch.waiters == 0 && jobWatches.remove(buildNumber, watch)) {
+                watch.future.cancel(false);
+                logger.debug("Stopped watching {} #{}, no callers left", jobName, buildNumber);
+            }
+            return jobWatches.isEmpty() ? null : jobWatches;
+        });
+    }
+    
+    /**
+     * Wait for a build through the watcher and map its final status like
+     * {@link JenkinsBuildManager#waitForBuildCompletion(String, int, int)}
+     */
+    public CompletableFuture<JenkinsBuildManager.BuildResult> waitForCompletion(String jobName, int buildNumber, int timeoutMinutes) {
+        return waitForCompletion(jobName, buildNumber, timeoutMinutes, TimeUnit.MINUTES);
+    }
+    
+    public CompletableFuture<JenkinsBuildManager.BuildResult> waitForCompletion(String jobName, int buildNumber,
+                                                                             long timeout, TimeUnit unit) {
+        CompletableFuture<JenkinsBuildManager.BuildStatus> watched = watch(jobName, buildNumber);
+        CompletableFuture<JenkinsBuildManager.BuildResult> result = watched
+            .orTimeout(timeout, unit)
+            .handle((status, error) -> {
+                if (error == null) {
+                    return JenkinsBuildManager.completedResult(status);
+                }
+                if (error instanceof TimeoutException) {
+                    logger.warn("Build {} #{} did not complete within timeout period", jobName, buildNumber);
+                    return new JenkinsBuildManager.BuildResult(false, "Job did not complete within timeout period", null);
+                }
+                return new JenkinsBuildManager.BuildResult(false, "Failed to watch build: " + error.getMessage(), error);
+            });
+        // Cancelling the result does not reach the watched future by itself
+        result.whenComplete((buildResult, error) -> watched.cancel(false));
+        return result;
+    }
+    
+    /**
+     * Number of builds currently being watched
+     */
+    public int getWatchCount() {
+        return watches.values().stream().mapToInt(Map::size).sum();
+    }
+    
+    public long getTickCount() { return ticks.sum(); }
+    public long getRequestCount() { return requests.sum(); }
+    
+    void tick() {
+        for (String jobName : watches.keySet()) {
+            watches.computeIfPresent(jobName, (name, jobWatches) -> jobWatches.isEmpty() ? null : jobWatches);
+        }
+        if (watches.isEmpty()) {
+            return;
+        }
+        ticks.increment();
+        transport.getMetrics().pollIteration("watcher");
+        
+        // One batched request per folder that contains watched jobs
+        Set<String> folders = new HashSet<>();
+        for (String jobName : watches.keySet()) {
+            int slash = jobName.lastIndexOf('/');
+            folders.add(slash < 0 ? "" : jobName.substring(0, slash));
+        }
+        
+        // Range braces must be percent-encoded, the HTTP client rejects them in a raw query
+        String tree = "jobs[name,builds[number,url,result,building,duration,estimatedDuration,timestamp]%7B0," + buildWindow + "%7D]";
+        for (String folder : folders) {
+            try {
+                requests.increment();
+                JsonNode root = transport.execute(transport.get(JobPath.of(folder) + "api/json?tree=" + tree), response -> {
+                    if (response.getCode() != 200) {
+                        logger.warn("Build watcher tick failed for folder '{}'. Status code: {}", folder, response.getCode());
+                        return null;
+                    }
+                    return objectMapper.readTree(response.getEntity().getContent());
+                });
+                if (root != null) {
+                    update(folder, root);
+                }
+            } catch (IOException | RuntimeException e) {
+                // Keep ticking; waiters are bounded by their own timeouts
+                logger.warn("Build watcher tick failed: {}", e.getMessage());
+            }
+        }
+    }
+    
+    private void update(String folder, JsonNode root) {
+        for (JsonNode jobNode : root.path("jobs")) {
+            String jobName = JobPath.child(folder, jobNode.path("name").asText());
+            Map<Integer, Watch> jobWatches = watches.get(jobName);
+            if (jobWatches == null || jobWatches.isEmpty()) {
+                continue;
+            }
+            
+            int oldestInWindow = Integer.MAX_VALUE;
+            for (JsonNode buildNode : jobNode.path("builds")) {
+                int number = buildNode.path("number").asInt();
+                oldestInWindow = Math.min(oldestInWindow, number);
+                Watch watch = jobWatches.get(number);
+                if (watch != null && !buildNode.path("building").asBoolean(true)) {
+                    watch.future.complete(JenkinsBuildManager.parseBuildStatus(buildNode));
+                }
+            }
+            
+            // Builds older than the window are no longer in the batched response
+            int windowStart = jobNode.path("builds").size() < buildWindow ? 0 : oldestInWindow;
+            for (Map.Entry<Integer, Watch> entry : jobWatches.entrySet()) {
+                if (!entry.getValue().future.isDone() && entry.getKey() < windowStart) {
+                    JenkinsBuildManager.BuildStatus status = buildManager.getBuildStatus(jobName, entry.getKey());
+                    requests.increment();
+                    if (status != null && !status.isBuilding()) {
+                        entry.getValue().future.complete(status);
+                    }
+                }
+            }
+            
+            jobWatches.values().removeIf(watch -> watch.future.isDone());
+        }
+    }
+    
+    /**
+     * Stop ticking and fail any outstanding watches
+     */
+    public void close() {
+        scheduler.shutdownNow();
+        for (Map<Integer, Watch> jobWatches : watches.values()) {
+            jobWatches.values().forEach(watch -> watch.future.completeExceptionally(new IllegalStateException("Build watcher closed")));
+        }
+        watches.clear();
+    }
+    
+    /**
+     * One watched build, shared by all callers waiting on it
+     */
+    private static final class Watch {
+        private final CompletableFuture<JenkinsBuildManager.BuildStatus> future = new CompletableFuture<>();
+        // Only changed inside watches.compute for the job, which serialises callers per job
+        private int waiters;
+    }
+}
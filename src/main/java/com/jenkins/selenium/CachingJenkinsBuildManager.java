@@ -0,0 +1,314 @@
+package com.jenkins.selenium;
+
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.core5.http.Header;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Build manager that caches the read calls {@link #getJobInfo(String)},
+ * {@link #getBuildStatus(String, int)}, {@link #getLastBuildStatus(String)} and {@link #listJobs()}.
+ *
+ * Entries are kept in a size-bounded LRU map with a TTL per kind of resource. Finished builds are
+ * immutable and pinned: they never expire and are never fetched again, only size eviction can drop
+ * them. When an entry has expired and Jenkins sent an {@code ETag} or {@code Last-Modified}
+ * validator with it, the refresh is a conditional request and a 304 reuses the cached value.
+ *
+ * Every call returns its own copy of the cached object, so callers may modify what they get.
+ * A 304 counts as a revalidation rather than a miss: the body came from the cache, only the
+ * round trip was paid.
+ */
+public class CachingJenkinsBuildManager extends JenkinsBuildManager {
+    private static final Logger logger = LoggerFactory.getLogger(CachingJenkinsBuildManager.class);
+    
+    private final JenkinsHttpTransport transport;
+    private final CacheConfig config;
+    private final LruCache cache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder revalidated = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    
+    public CachingJenkinsBuildManager(String jenkinsUrl, String username, String apiToken) {
+        super(jenkinsUrl, username, apiToken);
+        this.transport = getTransport();
+        this.config = CacheConfig.fromSystemProperties();
+        this.cache = new LruCache(config.getMaxEntries());
+    }
+    
+    public CachingJenkinsBuildManager(JenkinsHttpTransport transport) {
+        this(transport, CacheConfig.fromSystemProperties());
+    }
+    
+    public CachingJenkinsBuildManager(JenkinsHttpTransport transport, CacheConfig config) {
+        super(transport);
+        this.transport = transport;
+        this.config = config;
+        this.cache = new LruCache(config.getMaxEntries());
+    }
+    
+    @Override
+    public JobInfo getJobInfo(String jobName) {
+        return fetch("job:" + jobName, JobPath.of(jobName) + "api/json", config.getJobTtlMillis(),
+            JenkinsJsonParser::readJobInfo, "job info: " + jobName);
+    }
+    
+    @Override
+    public BuildStatus getBuildStatus(String jobName, int buildNumber) {
+        return fetch(buildKey(jobName, buildNumber), JobPath.of(jobName) + buildNumber + "/api/json",
+            config.getRunningBuildTtlMillis(), JenkinsJsonParser::readBuildStatus, "build status: " + jobName + " #" + buildNumber);
+    }
+    
+    @Override
+    public BuildStatus getLastBuildStatus(String jobName) {
+        BuildStatus status = fetch("lastBuild:" + jobName, JobPath.of(jobName) + "lastBuild/api/json",
+            config.getLastBuildTtlMillis(), JenkinsJsonParser::readBuildStatus, "last build status: " + jobName);
+        if (status != null && !status.isBuilding()) {
+            // Lets a later getBuildStatus for the same number skip the request
+            cache.put(buildKey(jobName, status.getBuildNumber()), new CacheEntry(copyOf(status), null, null, 0, true));
+        }
+        return status;
+    }
+    
+    @Override
+    public JobList listJobs() {
+        return fetch("jobs", "api/json?tree=jobs[name,url,color,description,buildable,lastBuild[number,result,building]]",
+            config.getJobListTtlMillis(), JenkinsJsonParser::readJobList, "job list");
+    }
+    
+    /**
+     * Triggering a build changes the job's last build and queue state, so its cached job info,
+     * last build and the job list are dropped
+     */
+    @Override
+    public BuildResult triggerJobWithParameters(String jobName, Map<String, String> parameters) {
+        invalidateJob(jobName);
+        return super.triggerJobWithParameters(jobName, parameters);
+    }
+    
+    @Override
+    public BuildResult triggerJob(String jobName) {
+        invalidateJob(jobName);
+        return super.triggerJob(jobName);
+    }
+    
+    public void invalidateJob(String jobName) {
+        cache.remove("job:" + jobName);
+        cache.remove("lastBuild:" + jobName);
+        cache.remove("jobs");
+    }
+    
+    public void clearCache() {
+        cache.clear();
+    }
+    
+    private static String buildKey(String jobName, int buildNumber) {
+        return "build:" + jobName + "#" + buildNumber;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private <T> T fetch(String key, String path, long ttlMillis, BodyParser<T> parser, String description) {
+        long now = System.currentTimeMillis();
+        CacheEntry cached = cache.get(key);
+        if (cached != null && (cached.pinned || now < cached.expiresAt)) {
+            hits.increment();
+            return (T) copyOf(cached.value);
+        }
+        
+        HttpGet get = transport.get(path);
+        if (cached != null && cached.etag != null) {
+            get.setHeader("If-None-Match", cached.etag);
+        }
+        if (cached != null && cached.lastModified != null) {
+            get.setHeader("If-Modified-Since", cached.lastModified);
+        }
+        
+        try {
+            return transport.execute(get, response -> {
+                int statusCode = response.getCode();
+                if (statusCode == 304 && cached != null) {
+                    revalidated.increment();
+                    cache.put(key, new CacheEntry(cached.value, cached.etag, cached.lastModified, now + ttlMillis, false));
+                    return (T) copyOf(cached.value);
+                }
+                misses.increment();
+                if (statusCode != 200) {
+                    logger.error("Failed to get {}. Status code: {}", description, statusCode);
+                    return null;
+                }
+                
+                T value = parser.parse(response.getEntity().getContent());
+                boolean pinned = value instanceof BuildStatus && !((BuildStatus) value).isBuilding() && key.startsWith("build:");
+                cache.put(key, new CacheEntry(value, headerValue(response.getFirstHeader("ETag")),
+                    headerValue(response.getFirstHeader("Last-Modified")), now + ttlMillis, pinned));
+                logger.debug("Fetched {}{}", description, pinned ? " (pinned)" : "");
+                return (T) copyOf(value);
+            });
+            
+        } catch (IOException e) {
+            misses.increment();
+            logger.error("Error getting {}", description, e);
+            return null;
+        }
+    }
+    
+    private static Object copyOf(Object value) {
+        if (value instanceof JobInfo) {
+            return copyOf((JobInfo) value);
+        }
+        if (value instanceof BuildStatus) {
+            BuildStatus status = (BuildStatus) value;
+            BuildStatus copy = new BuildStatus();
+            copy.setBuildNumber(status.getBuildNumber());
+            copy.setResult(status.getResult());
+            copy.setBuilding(status.isBuilding());
+            copy.setDuration(status.getDuration());
+            copy.setEstimatedDuration(status.getEstimatedDuration());
+            copy.setTimestamp(status.getTimestamp());
+            copy.setUrl(status.getUrl());
+            return copy;
+        }
+        if (value instanceof JobList) {
+            JobList copy = new JobList();
+            ((JobList) value).getJobs().forEach(job -> copy.addJob(copyOf(job)));
+            return copy;
+        }
+        return value;
+    }
+    
+    private static JobInfo copyOf(JobInfo job) {
+        JobInfo copy = new JobInfo();
+        copy.setName(job.getName());
+        copy.setFullName(job.getFullName());
+        copy.setDescription(job.getDescription());
+        copy.setUrl(job.getUrl());
+        copy.setColor(job.getColor());
+        copy.setBuildable(job.isBuildable());
+        copy.setLastBuildNumber(job.getLastBuildNumber());
+        copy.setLastBuildUrl(job.getLastBuildUrl());
+        copy.setLastBuildResult(job.getLastBuildResult());
+        copy.setLastBuildBuilding(job.isLastBuildBuilding());
+        return copy;
+    }
+    
+    private static String headerValue(Header header) {
+        return header != null ? header.getValue() : null;
+    }
+    
+    public long getHitCount() { return hits.sum(); }
+    public long getMissCount() { return misses.sum(); }
+    public long getRevalidatedCount() { return revalidated.sum(); }
+    public long getEvictionCount() { return evictions.sum(); }
+    public int getCacheSize() { return cache.size(); }
+    
+    /**
+     * Share of calls answered from the cache, including those revalidated with a 304
+     */
+    public double getHitRate() {
+        long served = getHitCount() + getRevalidatedCount();
+        long total = served + getMissCount();
+        return total > 0 ? (double) served / total : 0;
+    }
+    
+    /**
+     * Hit, miss, revalidation and eviction counts as one line for logging
+     */
+    public String getCacheStats() {
+        return String.format("CacheStats{size=%d, hits=%d, misses=%d, revalidated=%d, evictions=%d, hitRate=%.1f%%}",
+            getCacheSize(), getHitCount(), getMissCount(), getRevalidatedCount(), getEvictionCount(), getHitRate() * 100);
+    }
+    
+    @FunctionalInterface
+    private interface BodyParser<T> {
+        T parse(InputStream body) throws IOException;
+    }
+    
+    private static class CacheEntry {
+        private final Object value;
+        private final String etag;
+        private final String lastModified;
+        private final long expiresAt;
+        private final boolean pinned;
+        
+        CacheEntry(Object value, String etag, String lastModified, long expiresAt, boolean pinned) {
+            this.value = value;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.expiresAt = expiresAt;
+            this.pinned = pinned;
+        }
+    }
+    
+    /**
+     * Access-ordered map that drops the least recently used entry once full
+     */
+    private class LruCache {
+        private final Map<String, CacheEntry> entries;
+        
+        LruCache(int maxEntries) {
+            this.entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                    if (size() > maxEntries) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+        
+        synchronized CacheEntry get(String key) { return entries.get(key); }
+        synchronized void put(String key, CacheEntry entry) { entries.put(key, entry); }
+        synchronized void remove(String key) { entries.remove(key); }
+        synchronized void clear() { entries.clear(); }
+        synchronized int size() { return entries.size(); }
+    }
+    
+    /**
+     * Cache size and TTLs
+     */
+    public static class CacheConfig {
+        private int maxEntries = 1000;
+        private long jobTtlMillis = 30_000;
+        private long jobListTtlMillis = 60_000;
+        private long lastBuildTtlMillis = 2_000;
+        private long runningBuildTtlMillis = 0;
+        
+        public static CacheConfig fromSystemProperties() {
+            CacheConfig config = new CacheConfig();
+            config.setMaxEntries(Integer.getInteger("jenkins.cache.maxEntries", config.getMaxEntries()));
+            config.setJobTtlMillis(Long.getLong("jenkins.cache.jobTtl", config.getJobTtlMillis()));
+            config.setJobListTtlMillis(Long.getLong("jenkins.cache.jobListTtl", config.getJobListTtlMillis()));
+            config.setLastBuildTtlMillis(Long.getLong("jenkins.cache.lastBuildTtl", config.getLastBuildTtlMillis()));
+            config.setRunningBuildTtlMillis(Long.getLong("jenkins.cache.runningBuildTtl", config.getRunningBuildTtlMillis()));
+            return config;
+        }
+        
+        // Getters and setters
+        public int getMaxEntries() { return maxEntries; }
+        public void setMaxEntries(int maxEntries) { this.maxEntries = maxEntries; }
+        
+        public long getJobTtlMillis() { return jobTtlMillis; }
+        public void setJobTtlMillis(long jobTtlMillis) { this.jobTtlMillis = jobTtlMillis; }
+        
+        public long getJobListTtlMillis() { return jobListTtlMillis; }
+        public void setJobListTtlMillis(long jobListTtlMillis) { this.jobListTtlMillis = jobListTtlMillis; }
+        
+        public long getLastBuildTtlMillis() { return lastBuildTtlMillis; }
+        public void setLastBuildTtlMillis(long lastBuildTtlMillis) { this.lastBuildTtlMillis = lastBuildTtlMillis; }
+        
+        /**
+         * TTL of builds that were still running when fetched. The default of 0 means every call
+         * revalidates, so build waits always see fresh status.
+         */
+        public long getRunningBuildTtlMillis() { return runningBuildTtlMillis; }
+        public void setRunningBuildTtlMillis(long runningBuildTtlMillis) { this.runningBuildTtlMillis = runningBuildTtlMillis; }
+    }
+}
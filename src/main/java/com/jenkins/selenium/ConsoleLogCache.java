@@ -0,0 +1,271 @@
+package com.jenkins.selenium;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLEncoder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * On-disk cache of build console logs, keyed by job and build number.
+ *
+ * Logs are streamed from the progressiveText endpoint straight into a {@link FileChannel}, and
+ * searches run over a memory-mapped view of the file, so neither fetching nor grepping a log puts
+ * its text on the heap. Finished builds never change, so once their log is on disk it is never
+ * fetched again. Logs of running builds are re-fetched on every call into a snapshot file of the
+ * caller's own, which is deleted when the channel it was handed out as is closed.
+ */
+public class ConsoleLogCache {
+    private static final Logger logger = LoggerFactory.getLogger(ConsoleLogCache.class);
+    
+    // Size of each mapped window while searching; lines are never split across windows
+    private static final long MAP_WINDOW = 64L * 1024 * 1024;
+    
+    private final JenkinsBuildManager buildManager;
+    private final Path cacheDir;
+    private final ConcurrentHashMap<Path, Object> fetchLocks = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder fetches = new LongAdder();
+    
+    public ConsoleLogCache(JenkinsBuildManager buildManager) {
+        this(buildManager, Paths.get(System.getProperty("jenkins.console.cacheDir", "build/console-cache")));
+    }
+    
+    public ConsoleLogCache(JenkinsBuildManager buildManager, Path cacheDir) {
+        this.buildManager = buildManager;
+        this.cacheDir = cacheDir;
+    }
+    
+    /**
+     * Path of the cached console log of a finished build, fetching it first if it is not cached.
+     * Empty if the build is still running, whose log is not final yet; use
+     * {@link #openConsoleLog(String, int)} to read a snapshot of it.
+     */
+    public Optional<Path> getConsoleLog(String jobName, int buildNumber) throws IOException {
+        Path logFile = logFile(jobName, buildNumber);
+        if (Files.exists(logFile)) {
+            hits.increment();
+            return Optional.of(logFile);
+        }
+        JenkinsBuildManager.BuildStatus status = buildManager.getBuildStatus(jobName, buildNumber);
+        if (status == null || status.isBuilding()) {
+            return Optional.empty();
+        }
+        // Downloads the finished log into the cache
+        openConsoleLog(jobName, buildNumber).close();
+        return Files.exists(logFile) ? Optional.of(logFile) : Optional.empty();
+    }
+    
+    /**
+     * Open the console log of a build for reading. Finished builds are read from the cache, which
+     * is filled first if needed. Running builds are fetched into a snapshot file of this caller's
+     * own that is deleted when the channel is closed, so always close it.
+     */
+    public FileChannel openConsoleLog(String jobName, int buildNumber) throws IOException {
+        Path logFile = logFile(jobName, buildNumber);
+        if (Files.exists(logFile)) {
+            hits.increment();
+            return FileChannel.open(logFile, StandardOpenOption.READ);
+        }
+        
+        // One fetch per finished build even if several threads ask for it at once
+        Object lock = fetchLocks.computeIfAbsent(logFile, path -> new Object());
+        try {
+            synchronized (lock) {
+                if (Files.exists(logFile)) {
+                    hits.increment();
+                    return FileChannel.open(logFile, StandardOpenOption.READ);
+                }
+                return fetch(jobName, buildNumber, logFile);
+            }
+        } finally {
+            fetchLocks.remove(logFile, lock);
+        }
+    }
+    
+    private FileChannel fetch(String jobName, int buildNumber, Path logFile) throws IOException {
+        // Ask for the status first: if the build had already finished, the log we fetch is final
+        JenkinsBuildManager.BuildStatus status = buildManager.getBuildStatus(jobName, buildNumber);
+        boolean finished = status != null && !status.isBuilding();
+        
+        Files.createDirectories(logFile.getParent());
+        Path partFile = Files.createTempFile(logFile.getParent(), buildNumber + "-", finished ? ".part" : ".running");
+        
+        fetches.increment();
+        try (InputStream in = buildManager.openConsoleStream(jobName, buildNumber, 0, false);
+             ReadableByteChannel source = Channels.newChannel(in);
+             FileChannel target = FileChannel.open(partFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = 0;
+            long transferred;
+            while ((transferred = target.transferFrom(source, position, MAP_WINDOW)) > 0) {
+                position += transferred;
+            }
+            logger.debug("Fetched {} bytes of console output for {} #{}", position, jobName, buildNumber);
+        } catch (IOException e) {
+            Files.deleteIfExists(partFile);
+            throw e;
+        }
+        
+        if (!finished) {
+            // Still running: hand out the snapshot but do not cache it
+            try {
+                return FileChannel.open(partFile, StandardOpenOption.READ, StandardOpenOption.DELETE_ON_CLOSE);
+            } catch (IOException e) {
+                Files.deleteIfExists(partFile);
+                throw e;
+            }
+        }
+        try {
+            Files.move(partFile, logFile, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(partFile, logFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        logger.info("Cached console output for job: {}, build: {}", jobName, buildNumber);
+        return FileChannel.open(logFile, StandardOpenOption.READ);
+    }
+    
+    /**
+     * Whole console log of a build as a string. Prefer {@link #getConsoleLog(String, int)} or the
+     * search methods for large logs.
+     */
+    public String readConsole(String jobName, int buildNumber) throws IOException {
+        try (FileChannel channel = openConsoleLog(jobName, buildNumber)) {
+            return new String(Channels.newInputStream(channel).readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+    
+    /**
+     * First line of a build's console that contains the given text, e.g. {@code "FAILED"}
+     */
+    public Optional<LineMatch> findFirst(String jobName, int buildNumber, String text) throws IOException {
+        List<LineMatch> matches = grep(jobName, buildNumber, text, 1);
+        return matches.isEmpty() ? Optional.empty() : Optional.of(matches.get(0));
+    }
+    
+    /**
+     * Lines of a build's console that contain the given text, at most maxMatches of them
+     */
+    public List<LineMatch> grep(String jobName, int buildNumber, String text, int maxMatches) throws IOException {
+        try (FileChannel channel = openConsoleLog(jobName, buildNumber)) {
+            return search(channel, text, maxMatches);
+        }
+    }
+    
+    /**
+     * Search a log file line by line through a memory-mapped view. Only matching lines are decoded.
+     */
+    public static List<LineMatch> search(Path logFile, String text, int maxMatches) throws IOException {
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            return search(channel, text, maxMatches);
+        }
+    }
+    
+    /**
+     * Search an open log file, see {@link #search(Path, String, int)}
+     */
+    public static List<LineMatch> search(FileChannel channel, String text, int maxMatches) throws IOException {
+        byte[] needle = text.getBytes(StandardCharsets.UTF_8);
+        List<LineMatch> matches = new ArrayList<>();
+        long size = channel.size();
+        long windowStart = 0;
+        long lineNumber = 0;
+        
+        while (windowStart < size && matches.size() < maxMatches) {
+            long windowSize = Math.min(MAP_WINDOW, size - windowStart);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize);
+            boolean lastWindow = windowStart + windowSize == size;
+            
+            int lineStart = 0;
+            for (int i = 0; i < windowSize && matches.size() < maxMatches; i++) {
+                boolean endOfLine = window.get(i) == '\n';
+                boolean endOfData = lastWindow && i == windowSize - 1;
+                if (!endOfLine && !endOfData) {
+                    continue;
+                }
+                int lineEnd = endOfLine ? i : i + 1;
+                lineNumber++;
+                if (indexOf(window, lineStart, lineEnd, needle) >= 0) {
+                    matches.add(new LineMatch(lineNumber, windowStart + lineStart, decode(window, lineStart, lineEnd)));
+                }
+                lineStart = i + 1;
+            }
+            
+            // Continue from the start of the line cut off by the window, unless one line fills the whole window
+            long next = lineStart > 0 ? windowStart + lineStart : windowStart + windowSize;
+            windowStart = lastWindow ? size : next;
+        }
+        return matches;
+    }
+    
+    private static int indexOf(MappedByteBuffer buffer, int from, int to, byte[] needle) {
+        outer:
+        for (int i = from; i <= to - needle.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (buffer.get(i + j) != needle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+    
+    private static String decode(MappedByteBuffer buffer, int from, int to) {
+        if (to > from && buffer.get(to - 1) == '\r') {
+            to--;
+        }
+        byte[] line = new byte[to - from];
+        for (int i = 0; i < line.length; i++) {
+            line[i] = buffer.get(from + i);
+        }
+        return new String(line, StandardCharsets.UTF_8);
+    }
+    
+    private Path logFile(String jobName, int buildNumber) {
+        return cacheDir.resolve(URLEncoder.encode(jobName, StandardCharsets.UTF_8)).resolve(buildNumber + ".log");
+    }
+    
+    public long getHitCount() { return hits.sum(); }
+    public long getFetchCount() { return fetches.sum(); }
+    
+    /**
+     * A console line that matched a search
+     */
+    public static class LineMatch {
+        private final long lineNumber;
+        private final long byteOffset;
+        private final String line;
+        
+        public LineMatch(long lineNumber, long byteOffset, String line) {
+            this.lineNumber = lineNumber;
+            this.byteOffset = byteOffset;
+            this.line = line;
+        }
+        
+        public long getLineNumber() { return lineNumber; }
+        public long getByteOffset() { return byteOffset; }
+        public String getLine() { return line; }
+        
+        @Override
+        public String toString() {
+            return lineNumber + ": " + line;
+        }
+    }
+}
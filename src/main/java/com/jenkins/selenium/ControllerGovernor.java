@@ -0,0 +1,403 @@
+package com.jenkins.selenium;
+
+import org.apache.hc.client5.http.utils.DateUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client-side limits on the requests sent to one Jenkins controller.
+ *
+ * Each request takes a token from the bucket of its {@link EndpointClass} and one of the
+ * controller's in-flight permits; callers block until both are available. Async clients use
+ * {@link #tryAcquire(EndpointClass, long)} instead, which never blocks and says how long to wait.
+ * While a 429 or 503 {@code Retry-After} period is running, no request is sent at all. The rate of
+ * each class adapts to the controller (AIMD): responses slower than the latency target, response
+ * timeouts and 429/503 halve it, at most once per decrease interval and not below the minimum rate.
+ * Fast responses raise it by {@code increase} requests per second each second, back up to the
+ * configured rate.
+ *
+ * A request counts as in flight until its response headers arrive. One governor is shared by every
+ * transport in the JVM that talks to the same controller URL, see {@link #forController(String)}.
+ */
+public class ControllerGovernor {
+    private static final Logger logger = LoggerFactory.getLogger(ControllerGovernor.class);
+    private static final Map<String, ControllerGovernor> BY_CONTROLLER = new ConcurrentHashMap<>();
+    private static final long IN_FLIGHT_RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    
+    /**
+     * Rate-limited groups of endpoints
+     */
+    public enum EndpointClass {
+        TRIGGER, STATUS, CONSOLE;
+        
+        /**
+         * Class of a {@link JenkinsMetrics#endpointOf(String)} endpoint
+         */
+        public static EndpointClass of(String endpoint) {
+            switch (endpoint) {
+                case "trigger":
+                    return TRIGGER;
+                case "console":
+                    return CONSOLE;
+                default:
+                    return STATUS;
+            }
+        }
+    }
+    
+    private final GovernorConfig config;
+    private final Semaphore inFlight;
+    private final Map<EndpointClass, TokenBucket> buckets = new EnumMap<>(EndpointClass.class);
+    private volatile long pausedUntilNanos = System.nanoTime();
+    
+    public ControllerGovernor(GovernorConfig config) {
+        this.config = config;
+        this.inFlight = new Semaphore(config.getMaxInFlight(), true);
+        buckets.put(EndpointClass.TRIGGER, new TokenBucket(config.getTriggerRate()));
+        buckets.put(EndpointClass.STATUS, new TokenBucket(config.getStatusRate()));
+        buckets.put(EndpointClass.CONSOLE, new TokenBucket(config.getConsoleRate()));
+    }
+    
+    /**
+     * Governor shared by all clients of a controller, configured from system properties on first use
+     */
+    public static ControllerGovernor forController(String jenkinsUrl) {
+        return BY_CONTROLLER.computeIfAbsent(jenkinsUrl, url -> new ControllerGovernor(GovernorConfig.fromSystemProperties()));
+    }
+    
+    /**
+     * Wait for a token of the class and an in-flight permit. Every successful call must be paired
+     * with {@link #release()}.
+     *
+     * @return nanoseconds spent waiting
+     * @throws ThrottledException if the request could not be admitted within {@code maxWait}
+     */
+    public long acquire(EndpointClass endpointClass) throws IOException {
+        long start = System.nanoTime();
+        if (!config.isEnabled()) {
+            return 0;
+        }
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(config.getMaxWaitMillis());
+        try {
+            long pause;
+            while ((pause = pausedUntilNanos - System.nanoTime()) > 0) {
+                if (System.nanoTime() + pause > deadline) {
+                    throw new ThrottledException("Jenkins asked to retry after " + TimeUnit.NANOSECONDS.toMillis(pause) + " ms");
+                }
+                TimeUnit.NANOSECONDS.sleep(pause);
+            }
+            
+            long wait = buckets.get(endpointClass).reserve(System.nanoTime(), deadline - System.nanoTime());
+            if (wait < 0) {
+                throw new ThrottledException("No " + endpointClass.name().toLowerCase() + " request slot within "
+                    + config.getMaxWaitMillis() + " ms (rate " + String.format("%.1f", getRate(endpointClass)) + "/s)");
+            }
+            TimeUnit.NANOSECONDS.sleep(wait);
+            
+            if (!inFlight.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                throw new ThrottledException(config.getMaxInFlight() + " requests still in flight after " + config.getMaxWaitMillis() + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to send a Jenkins request");
+        }
+        return System.nanoTime() - start;
+    }
+    
+    /**
+     * Non-blocking {@link #acquire(EndpointClass)}: takes a token of the class and an in-flight
+     * permit only if both are free now. A result of 0 admits the request and must be paired with
+     * {@link #release()}; otherwise the caller should try again after that many nanoseconds.
+     *
+     * @param startNanos {@link System#nanoTime()} of the first attempt, for the {@code maxWait} limit
+     * @throws ThrottledException if the request could not be admitted within {@code maxWait}
+     */
+    public long tryAcquire(EndpointClass endpointClass, long startNanos) throws ThrottledException {
+        if (!config.isEnabled()) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        long deadline = startNanos + TimeUnit.MILLISECONDS.toNanos(config.getMaxWaitMillis());
+        long wait = pausedUntilNanos - now;
+        if (wait > 0) {
+            if (now + wait > deadline) {
+                throw new ThrottledException("Jenkins asked to retry after " + TimeUnit.NANOSECONDS.toMillis(wait) + " ms");
+            }
+            return wait;
+        }
+        
+        if (!inFlight.tryAcquire()) {
+            if (now + IN_FLIGHT_RETRY_NANOS > deadline) {
+                throw new ThrottledException(config.getMaxInFlight() + " requests still in flight after " + config.getMaxWaitMillis() + " ms");
+            }
+            return IN_FLIGHT_RETRY_NANOS;
+        }
+        wait = buckets.get(endpointClass).tryTake(now);
+        if (wait == 0) {
+            return 0;
+        }
+        inFlight.release();
+        if (now + wait > deadline) {
+            throw new ThrottledException("No " + endpointClass.name().toLowerCase() + " request slot within "
+                + config.getMaxWaitMillis() + " ms (rate " + String.format("%.1f", getRate(endpointClass)) + "/s)");
+        }
+        return wait;
+    }
+    
+    /**
+     * Return the in-flight permit taken by {@link #acquire(EndpointClass)} or {@link #tryAcquire(EndpointClass, long)}
+     */
+    public void release() {
+        if (config.isEnabled()) {
+            inFlight.release();
+        }
+    }
+    
+    /**
+     * Adjust rates to a response. {@code retryAfter} is the response's {@code Retry-After} header, or null.
+     */
+    public void onResponse(EndpointClass endpointClass, int status, long latencyNanos, String retryAfter) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (status == 429 || status == 503) {
+            long pauseMillis = retryAfterMillis(retryAfter, config.getMaxRetryAfterMillis());
+            if (pauseMillis > 0) {
+                synchronized (this) {
+                    pausedUntilNanos = Math.max(pausedUntilNanos, now + TimeUnit.MILLISECONDS.toNanos(pauseMillis));
+                }
+            }
+            for (EndpointClass each : EndpointClass.values()) {
+                decrease(each, now, "status " + status);
+            }
+        } else if (TimeUnit.NANOSECONDS.toMillis(latencyNanos) > config.getLatencyTargetMillis()) {
+            decrease(endpointClass, now, "latency " + TimeUnit.NANOSECONDS.toMillis(latencyNanos) + " ms");
+        } else if (status < 500) {
+            buckets.get(endpointClass).increase(config.getIncrease(), ceiling(endpointClass));
+        }
+    }
+    
+    /**
+     * Adjust rates to a request that got no response. Only response timeouts count as congestion.
+     */
+    public void onFailure(EndpointClass endpointClass, IOException error) {
+        if (config.isEnabled() && error instanceof SocketTimeoutException) {
+            decrease(endpointClass, System.nanoTime(), "timeout");
+        }
+    }
+    
+    /**
+     * Current rate of the class in requests per second
+     */
+    public double getRate(EndpointClass endpointClass) {
+        return buckets.get(endpointClass).getRate();
+    }
+    
+    /**
+     * Requests currently in flight
+     */
+    public int getInFlight() {
+        return config.getMaxInFlight() - inFlight.availablePermits();
+    }
+    
+    /**
+     * Remaining {@code Retry-After} pause in milliseconds, 0 if requests may be sent
+     */
+    public long getPauseMillis() {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(pausedUntilNanos - System.nanoTime()));
+    }
+    
+    /**
+     * Delay requested by a {@code Retry-After} value (seconds or an HTTP date), capped at {@code maxMillis}
+     */
+    static long retryAfterMillis(String retryAfter, long maxMillis) {
+        if (retryAfter == null || retryAfter.trim().isEmpty()) {
+            return 0;
+        }
+        String value = retryAfter.trim();
+        long millis;
+        try {
+            millis = TimeUnit.SECONDS.toMillis(Long.parseLong(value));
+        } catch (NumberFormatException e) {
+            Instant date = DateUtils.parseStandardDate(value);
+            if (date == null) {
+                return 0;
+            }
+            millis = date.toEpochMilli() - System.currentTimeMillis();
+        }
+        return Math.max(0, Math.min(millis, maxMillis));
+    }
+    
+    private double ceiling(EndpointClass endpointClass) {
+        switch (endpointClass) {
+            case TRIGGER:
+                return config.getTriggerRate();
+            case CONSOLE:
+                return config.getConsoleRate();
+            default:
+                return config.getStatusRate();
+        }
+    }
+    
+    private void decrease(EndpointClass endpointClass, long now, String reason) {
+        TokenBucket bucket = buckets.get(endpointClass);
+        if (bucket.decrease(now, config.getDecreaseFactor(), config.getMinRate(), TimeUnit.MILLISECONDS.toNanos(config.getDecreaseIntervalMillis()))) {
+            logger.info("Jenkins {} rate lowered to {}/s ({})", endpointClass.name().toLowerCase(),
+                String.format("%.1f", bucket.getRate()), reason);
+        }
+    }
+    
+    /**
+     * Token bucket whose capacity is one second of requests at the current rate
+     */
+    private static class TokenBucket {
+        private double rate;
+        private double tokens;
+        private long lastRefillNanos = System.nanoTime();
+        private long lastDecreaseNanos = lastRefillNanos - TimeUnit.DAYS.toNanos(1);
+        
+        TokenBucket(double rate) {
+            this.rate = rate;
+            this.tokens = Math.max(1, rate);
+        }
+        
+        /**
+         * Take a token, going into debt if none is left. Returns how long the caller must wait
+         * before sending, or -1 (taking nothing) if that is longer than {@code maxWaitNanos}.
+         */
+        synchronized long reserve(long now, long maxWaitNanos) {
+            tokens = Math.min(Math.max(1, rate), tokens + (now - lastRefillNanos) / 1e9 * rate);
+            lastRefillNanos = now;
+            long wait = tokens >= 1 ? 0 : (long) ((1 - tokens) / rate * 1e9);
+            if (wait > maxWaitNanos) {
+                return -1;
+            }
+            tokens -= 1;
+            return wait;
+        }
+        
+        /**
+         * Take a token if one is left. Returns 0 if taken, otherwise how long until one is.
+         */
+        synchronized long tryTake(long now) {
+            tokens = Math.min(Math.max(1, rate), tokens + (now - lastRefillNanos) / 1e9 * rate);
+            lastRefillNanos = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return Math.max(1, (long) ((1 - tokens) / rate * 1e9));
+        }
+        
+        synchronized void increase(double step, double ceiling) {
+            rate = Math.min(ceiling, rate + step / Math.max(1, rate));
+        }
+        
+        synchronized boolean decrease(long now, double factor, double floor, long intervalNanos) {
+            if (now - lastDecreaseNanos < intervalNanos || rate <= floor) {
+                return false;
+            }
+            rate = Math.max(floor, rate * factor);
+            lastDecreaseNanos = now;
+            return true;
+        }
+        
+        synchronized double getRate() {
+            return rate;
+        }
+    }
+    
+    /**
+     * The governor could not admit a request within its maximum wait. An
+     * {@link InterruptedIOException}, so the client's retry strategy does not retry it.
+     */
+    public static class ThrottledException extends InterruptedIOException {
+        private static final long serialVersionUID = 1L;
+        
+        public ThrottledException(String message) {
+            super(message);
+        }
+    }
+    
+    /**
+     * Rates in requests per second and limits. Defaults can be overridden with
+     * {@code -Djenkins.governor.*} system properties.
+     */
+    public static class GovernorConfig {
+        private boolean enabled = true;
+        private double triggerRate = 5;
+        private double statusRate = 20;
+        private double consoleRate = 10;
+        private double minRate = 0.5;
+        private double increase = 1;
+        private double decreaseFactor = 0.5;
+        private long decreaseIntervalMillis = 1000;
+        private long latencyTargetMillis = 2000;
+        private int maxInFlight = 16;
+        private long maxWaitMillis = 60_000;
+        private long maxRetryAfterMillis = 120_000;
+        
+        public static GovernorConfig fromSystemProperties() {
+            GovernorConfig config = new GovernorConfig();
+            config.setEnabled(Boolean.parseBoolean(System.getProperty("jenkins.governor.enabled", String.valueOf(config.isEnabled()))));
+            config.setTriggerRate(Double.parseDouble(System.getProperty("jenkins.governor.triggerRate", String.valueOf(config.getTriggerRate()))));
+            config.setStatusRate(Double.parseDouble(System.getProperty("jenkins.governor.statusRate", String.valueOf(config.getStatusRate()))));
+            config.setConsoleRate(Double.parseDouble(System.getProperty("jenkins.governor.consoleRate", String.valueOf(config.getConsoleRate()))));
+            config.setMinRate(Double.parseDouble(System.getProperty("jenkins.governor.minRate", String.valueOf(config.getMinRate()))));
+            config.setIncrease(Double.parseDouble(System.getProperty("jenkins.governor.increase", String.valueOf(config.getIncrease()))));
+            config.setLatencyTargetMillis(Long.getLong("jenkins.governor.latencyTarget", config.getLatencyTargetMillis()));
+            config.setMaxInFlight(Integer.getInteger("jenkins.governor.maxInFlight", config.getMaxInFlight()));
+            config.setMaxWaitMillis(Long.getLong("jenkins.governor.maxWait", config.getMaxWaitMillis()));
+            config.setMaxRetryAfterMillis(Long.getLong("jenkins.governor.maxRetryAfter", config.getMaxRetryAfterMillis()));
+            return config;
+        }
+        
+        // Getters and setters
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+        
+        public double getTriggerRate() { return triggerRate; }
+        public void setTriggerRate(double triggerRate) { this.triggerRate = triggerRate; }
+        
+        public double getStatusRate() { return statusRate; }
+        public void setStatusRate(double statusRate) { this.statusRate = statusRate; }
+        
+        public double getConsoleRate() { return consoleRate; }
+        public void setConsoleRate(double consoleRate) { this.consoleRate = consoleRate; }
+        
+        public double getMinRate() { return minRate; }
+        public void setMinRate(double minRate) { this.minRate = minRate; }
+        
+        public double getIncrease() { return increase; }
+        public void setIncrease(double increase) { this.increase = increase; }
+        
+        public double getDecreaseFactor() { return decreaseFactor; }
+        public void setDecreaseFactor(double decreaseFactor) { this.decreaseFactor = decreaseFactor; }
+        
+        public long getDecreaseIntervalMillis() { return decreaseIntervalMillis; }
+        public void setDecreaseIntervalMillis(long decreaseIntervalMillis) { this.decreaseIntervalMillis = decreaseIntervalMillis; }
+        
+        public long getLatencyTargetMillis() { return latencyTargetMillis; }
+        public void setLatencyTargetMillis(long latencyTargetMillis) { this.latencyTargetMillis = latencyTargetMillis; }
+        
+        public int getMaxInFlight() { return maxInFlight; }
+        public void setMaxInFlight(int maxInFlight) { this.maxInFlight = maxInFlight; }
+        
+        public long getMaxWaitMillis() { return maxWaitMillis; }
+        public void setMaxWaitMillis(long maxWaitMillis) { this.maxWaitMillis = maxWaitMillis; }
+        
+        public long getMaxRetryAfterMillis() { return maxRetryAfterMillis; }
+        public void setMaxRetryAfterMillis(long maxRetryAfterMillis) { this.maxRetryAfterMillis = maxRetryAfterMillis; }
+    }
+}
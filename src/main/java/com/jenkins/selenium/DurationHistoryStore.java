@@ -0,0 +1,370 @@
+package com.jenkins.selenium;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Local history of test and build durations and outcomes.
+ *
+ * Every record is appended as one tab-separated line ({@code kind, key, timestamp, duration,
+ * outcome}) to a single file, so several processes can record into the same file. In memory only
+ * the last {@code window} records per key are kept. Once the file holds more than four times the
+ * live records it is compacted: rewritten with just the live records and swapped in with an atomic
+ * rename.
+ *
+ * Schedulers use it for longest-first ordering ({@link #longestFirst}) and for shard balancing
+ * ({@link #rowWeights()}, a snapshot taken before the shards start). Durations are the median of
+ * the recent passing runs, so one slow or aborted run does not skew the estimate.
+ */
+public class DurationHistoryStore implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(DurationHistoryStore.class);
+    
+    public enum Kind { TEST, BUILD }
+    
+    /**
+     * ERROR is a failure of the environment (driver startup, lost session) rather than of the test
+     */
+    public enum Outcome { PASSED, FAILED, SKIPPED, ERROR }
+    
+    private static final Object JVM_FILE_LOCK = new Object();
+    
+    private final Path file;
+    private final int window;
+    private final Map<String, History> histories = new HashMap<>();
+    private long fileRecords;
+    
+    /**
+     * Store at {@code selenium.history.file} (default {@code .test-history/durations.tsv}) keeping
+     * {@code selenium.history.window} records per key (default 20)
+     */
+    public static DurationHistoryStore open() {
+        return open(Paths.get(System.getProperty("selenium.history.file", ".test-history/durations.tsv")),
+            Integer.getInteger("selenium.history.window", 20));
+    }
+    
+    public static DurationHistoryStore open(Path file, int window) {
+        DurationHistoryStore store = new DurationHistoryStore(file, window);
+        try {
+            store.load();
+        } catch (IOException e) {
+            logger.warn("Could not read duration history {}: {}", file, e.getMessage());
+        }
+        return store;
+    }
+    
+    private DurationHistoryStore(Path file, int window) {
+        this.file = file;
+        this.window = Math.max(1, window);
+    }
+    
+    private synchronized void load() throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                fileRecords++;
+                String[] fields = line.split("\t");
+                if (fields.length != 5) {
+                    continue;
+                }
+                try {
+                    Kind kind = Kind.valueOf(fields[0]);
+                    addToWindow(kind, unescape(fields[1]),
+                        new Run(Long.parseLong(fields[2]), Long.parseLong(fields[3]), Outcome.valueOf(fields[4])));
+                } catch (IllegalArgumentException e) {
+                    // Torn or foreign line, dropped at the next compaction
+                    logger.debug("Skipping history line: {}", line);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        logger.info("Loaded duration history of {} keys from {}", histories.size(), file);
+    }
+    
+    /**
+     * Append one run to the history
+     */
+    public synchronized void record(Kind kind, String key, long durationMillis, Outcome outcome) {
+        Run run = new Run(System.currentTimeMillis(), durationMillis, outcome);
+        addToWindow(kind, key, run);
+        
+        String line = kind + "\t" + escape(key) + "\t" + run.timestamp + "\t" + run.duration + "\t" + outcome + "\n";
+        try {
+            withFileLock(true, () -> {
+                // One write per line: appends from several processes do not interleave
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                    channel.write(ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8)));
+                }
+            });
+            fileRecords++;
+        } catch (IOException e) {
+            logger.warn("Could not append to duration history {}: {}", file, e.getMessage());
+        }
+    }
+    
+    private void addToWindow(Kind kind, String key, Run run) {
+        histories.computeIfAbsent(kind + ":" + key, k -> new History()).add(run);
+    }
+    
+    /**
+     * History of a key, or null if it never ran
+     */
+    public synchronized History get(Kind kind, String key) {
+        History history = histories.get(kind + ":" + key);
+        return history != null ? history.copy() : null;
+    }
+    
+    /**
+     * Median duration of the recent passing runs, or {@code defaultMillis} if there are none
+     */
+    public synchronized long expectedDuration(Kind kind, String key, long defaultMillis) {
+        History history = histories.get(kind + ":" + key);
+        return history != null ? history.getMedianDuration(defaultMillis) : defaultMillis;
+    }
+    
+    /**
+     * Items ordered longest expected duration first. Items without history count as the median of
+     * the known ones, so new tests are neither starved nor front-loaded.
+     */
+    public <T> List<T> longestFirst(Collection<T> items, Kind kind, Function<T, String> key) {
+        long unknown = typicalDuration(kind);
+        List<T> ordered = new ArrayList<>(items);
+        ordered.sort(Comparator.comparingLong((T item) -> expectedDuration(kind, key.apply(item), unknown)).reversed());
+        return ordered;
+    }
+    
+    /**
+     * Expected duration of each test row by test name, for {@link ShardPlanner.Strategy#DURATION}.
+     * The weights are copied when called, so runs recorded afterwards do not change them.
+     */
+    public synchronized ShardPlanner.WeightSnapshot rowWeights() {
+        long unknown = Math.max(1, typicalDuration(Kind.TEST));
+        String prefix = Kind.TEST + ":";
+        Map<String, Long> weights = new HashMap<>();
+        histories.forEach((key, history) -> {
+            if (key.startsWith(prefix)) {
+                weights.put(key.substring(prefix.length()), Math.max(1, history.getMedianDuration(unknown)));
+            }
+        });
+        return new ShardPlanner.WeightSnapshot(weights, unknown);
+    }
+    
+    /**
+     * Median of the expected durations of all keys of a kind, 0 if there are none
+     */
+    public synchronized long typicalDuration(Kind kind) {
+        String prefix = kind + ":";
+        long[] durations = histories.entrySet().stream()
+            .filter(entry -> entry.getKey().startsWith(prefix))
+            .mapToLong(entry -> entry.getValue().getMedianDuration(-1))
+            .filter(duration -> duration >= 0)
+            .sorted()
+            .toArray();
+        return durations.length == 0 ? 0 : durations[durations.length / 2];
+    }
+    
+    /**
+     * Rewrite the file with only the live records if it has grown well past them
+     */
+    public synchronized void compactIfNeeded() {
+        long live = histories.values().stream().mapToLong(history -> history.runs.size()).sum();
+        if (fileRecords > Math.max(1000, live * 4)) {
+            compact();
+        }
+    }
+    
+    /**
+     * Rewrite the file with only the live records
+     */
+    public synchronized void compact() {
+        Path tempFile = file.resolveSibling(file.getFileName() + ".compact");
+        try {
+            withFileLock(false, () -> {
+                // Pick up what other processes appended since this one loaded
+                histories.clear();
+                fileRecords = 0;
+                load();
+                
+                long written = 0;
+                try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                    for (Map.Entry<String, History> entry : histories.entrySet()) {
+                        int separator = entry.getKey().indexOf(':');
+                        String kind = entry.getKey().substring(0, separator);
+                        String key = escape(entry.getKey().substring(separator + 1));
+                        for (Run run : entry.getValue().runs) {
+                            writer.write(kind + "\t" + key + "\t" + run.timestamp + "\t" + run.duration + "\t" + run.outcome + "\n");
+                            written++;
+                        }
+                    }
+                }
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                logger.info("Compacted duration history {} from {} to {} records", file, fileRecords, written);
+                fileRecords = written;
+            });
+        } catch (IOException e) {
+            logger.warn("Could not compact duration history {}: {}", file, e.getMessage());
+        }
+    }
+    
+    @Override
+    public void close() {
+        compactIfNeeded();
+    }
+    
+    /**
+     * Run an action holding a lock on the sibling {@code .lock} file: shared for appends, exclusive
+     * for compaction, so no process appends to a file that is being replaced
+     */
+    private void withFileLock(boolean shared, FileAction action) throws IOException {
+        Path lockFile = file.resolveSibling(file.getFileName() + ".lock");
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        // File locks are held per JVM, so threads of one JVM take turns
+        synchronized (JVM_FILE_LOCK) {
+            try (FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                FileLock lock = lockChannel.lock(0, Long.MAX_VALUE, shared);
+                try {
+                    action.run();
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+    
+    @FunctionalInterface
+    private interface FileAction {
+        void run() throws IOException;
+    }
+    
+    private static String escape(String key) {
+        return key.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n");
+    }
+    
+    private static String unescape(String key) {
+        StringBuilder result = new StringBuilder(key.length());
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c == '\\' && i + 1 < key.length()) {
+                char next = key.charAt(++i);
+                result.append(next == 't' ? '\t' : next == 'n' ? '\n' : next);
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+    
+    private static class Run {
+        private final long timestamp;
+        private final long duration;
+        private final Outcome outcome;
+        
+        Run(long timestamp, long duration, Outcome outcome) {
+            this.timestamp = timestamp;
+            this.duration = duration;
+            this.outcome = outcome;
+        }
+    }
+    
+    /**
+     * Recent runs of one test or job, oldest first
+     */
+    public class History {
+        private final Deque<Run> runs = new ArrayDeque<>();
+        
+        private void add(Run run) {
+            runs.addLast(run);
+            if (runs.size() > window) {
+                runs.removeFirst();
+            }
+        }
+        
+        private History copy() {
+            History copy = new History();
+            copy.runs.addAll(runs);
+            return copy;
+        }
+        
+        public int getCount() {
+            return runs.size();
+        }
+        
+        public long getMedianDuration(long defaultMillis) {
+            long[] durations = runs.stream()
+                .filter(run -> run.outcome == Outcome.PASSED)
+                .mapToLong(run -> run.duration)
+                .toArray();
+            if (durations.length == 0) {
+                return defaultMillis;
+            }
+            Arrays.sort(durations);
+            return durations[durations.length / 2];
+        }
+        
+        public Outcome getLastOutcome() {
+            return runs.isEmpty() ? null : runs.getLast().outcome;
+        }
+        
+        public long getLastTimestamp() {
+            return runs.isEmpty() ? 0 : runs.getLast().timestamp;
+        }
+        
+        /**
+         * Share of recent runs that failed or errored
+         */
+        public double getFailureRate() {
+            if (runs.isEmpty()) {
+                return 0;
+            }
+            return (double) runs.stream().filter(run -> run.outcome == Outcome.FAILED || run.outcome == Outcome.ERROR).count() / runs.size();
+        }
+        
+        /**
+         * Share of consecutive runs that switched between pass and fail; high for flaky tests
+         */
+        public double getFlipRate() {
+            int flips = 0;
+            int pairs = 0;
+            Boolean previous = null;
+            for (Run run : runs) {
+                if (run.outcome == Outcome.SKIPPED) {
+                    continue;
+                }
+                boolean passed = run.outcome == Outcome.PASSED;
+                if (previous != null) {
+                    pairs++;
+                    if (passed != previous) {
+                        flips++;
+                    }
+                }
+                previous = passed;
+            }
+            return pairs == 0 ? 0 : (double) flips / pairs;
+        }
+    }
+}
@@ -4,45 +4,42 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.Base64;
 
 public class JenkinsAPI {
     private static final Logger logger = LoggerFactory.getLogger(JenkinsAPI.class);
     
-    private final String jenkinsUrl;
-    private final String username;
-    private final String apiToken;
-    private final CloseableHttpClient httpClient;
+    private final JenkinsHttpTransport transport;
+    private final boolean ownsTransport;
     private final ObjectMapper objectMapper;
+    private final ProgressiveConsoleReader consoleReader;
     
     public JenkinsAPI(String jenkinsUrl, String username, String apiToken) {
-        this.jenkinsUrl = jenkinsUrl.endsWith("/") ? jenkinsUrl : jenkinsUrl + "/";
-        this.username = username;
-        this.apiToken = apiToken;
-        this.httpClient = HttpClients.createDefault();
+        this(new JenkinsHttpTransport(jenkinsUrl, username, apiToken), true);
+    }
+    
+    public JenkinsAPI(JenkinsHttpTransport transport) {
+        this(transport, false);
+    }
+    
+    private JenkinsAPI(JenkinsHttpTransport transport, boolean ownsTransport) {
+        this.transport = transport;
+        this.ownsTransport = ownsTransport;
         this.objectMapper = new ObjectMapper();
+        this.consoleReader = new ProgressiveConsoleReader(transport);
     }
     
     public String triggerJob(String jobName) {
-        String triggerUrl = jenkinsUrl + "job/" + jobName + "/buildWithParameters";
-        String auth = username + ":" + apiToken;
-        String encodedAuth = Base64.getEncoder().encodeToString(auth.getBytes(StandardCharsets.UTF_8));
+        HttpPost post = transport.post(JobPath.of(jobName) + "buildWithParameters");
         
         try {
-            HttpPost post = new HttpPost(triggerUrl);
-            post.setHeader("Authorization", "Basic " + encodedAuth);
-            post.setHeader("Content-Type", "application/x-www-form-urlencoded");
-            
-            CloseableHttpResponse response = httpClient.execute(post);
-            int statusCode = response.getCode();
+            int statusCode = transport.execute(post, response -> response.getCode());
             
             if (statusCode == 200 || statusCode == 201) {
                 logger.info("Successfully triggered Jenkins job: {}", jobName);
@@ -59,27 +56,21 @@ public class JenkinsAPI {
     }
     
     public String getJobStatus(String jobName) {
-        String statusUrl = jenkinsUrl + "job/" + jobName + "/lastBuild/api/json";
-        String auth = username + ":" + apiToken;
-        String encodedAuth = Base64.getEncoder().encodeToString(auth.getBytes(StandardCharsets.UTF_8));
+        HttpGet get = transport.get(JobPath.of(jobName) + "lastBuild/api/json");
         
         try {
-            HttpGet get = new HttpGet(statusUrl);
-            get.setHeader("Authorization", "Basic " + encodedAuth);
-            
-            CloseableHttpResponse response = httpClient.execute(get);
-            int statusCode = response.getCode();
-            
-            if (statusCode == 200) {
-                String responseBody = new String(response.getEntity().getContent().readAllBytes(), StandardCharsets.UTF_8);
-                JsonNode jsonNode = objectMapper.readTree(responseBody);
+            return transport.execute(get, response -> {
+                int statusCode = response.getCode();
+                if (statusCode != 200) {
+                    logger.error("Failed to get job status: {}. Status code: {}", jobName, statusCode);
+                    return "UNKNOWN";
+                }
+                
+                JsonNode jsonNode = objectMapper.readTree(response.getEntity().getContent());
                 String result = jsonNode.get("result").asText();
                 logger.info("Job status for {}: {}", jobName, result);
                 return result;
-            } else {
-                logger.error("Failed to get job status: {}. Status code: {}", jobName, statusCode);
-                return "UNKNOWN";
-            }
+            });
             
         } catch (IOException e) {
             logger.error("Error getting job status: {}", jobName, e);
@@ -87,26 +78,35 @@ public class JenkinsAPI {
         }
     }
     
-    public String getJobConsoleOutput(String jobName) {
-        String consoleUrl = jenkinsUrl + "job/" + jobName + "/lastBuild/consoleText";
-        String auth = username + ":" + apiToken;
-        String encodedAuth = Base64.getEncoder().encodeToString(auth.getBytes(StandardCharsets.UTF_8));
+    /**
+     * Last build of a job, including the timestamp and estimated duration polling strategies use.
+     * Returns null if it could not be read.
+     */
+    public JenkinsBuildManager.BuildStatus getLastBuildStatus(String jobName) {
+        HttpGet get = transport.get(JobPath.of(jobName) + "lastBuild/api/json");
         
         try {
-            HttpGet get = new HttpGet(consoleUrl);
-            get.setHeader("Authorization", "Basic " + encodedAuth);
-            
-            CloseableHttpResponse response = httpClient.execute(get);
-            int statusCode = response.getCode();
+            return transport.execute(get, response -> {
+                int statusCode = response.getCode();
+                if (statusCode != 200) {
+                    logger.error("Failed to get last build status: {}. Status code: {}", jobName, statusCode);
+                    return null;
+                }
+                return JenkinsJsonParser.readBuildStatus(response.getEntity().getContent());
+            });
             
-            if (statusCode == 200) {
-                String consoleOutput = new String(response.getEntity().getContent().readAllBytes(), StandardCharsets.UTF_8);
-                logger.info("Retrieved console output for job: {}", jobName);
-                return consoleOutput;
-            } else {
-                logger.error("Failed to get console output: {}. Status code: {}", jobName, statusCode);
-                return "Failed to retrieve console output";
-            }
+        } catch (IOException e) {
+            logger.error("Error getting last build status: {}", jobName, e);
+            return null;
+        }
+    }
+    
+    public String getJobConsoleOutput(String jobName) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try {
+            streamJobConsoleOutput(jobName, buffer);
+            logger.info("Retrieved console output for job: {}", jobName);
+            return buffer.toString(StandardCharsets.UTF_8);
             
         } catch (IOException e) {
             logger.error("Error getting console output: {}", jobName, e);
@@ -114,11 +114,16 @@ public class JenkinsAPI {
         }
     }
     
+    /**
+     * Copy the last build's console to an output stream without holding the whole log in memory
+     */
+    public long streamJobConsoleOutput(String jobName, OutputStream out) throws IOException {
+        return consoleReader.copyTo(JobPath.of(jobName) + "lastBuild/", 0, false, out);
+    }
+    
     public void close() {
-        try {
-            httpClient.close();
-        } catch (IOException e) {
-            logger.error("Error closing HTTP client", e);
+        if (ownsTransport) {
+            transport.close();
         }
     }
 }
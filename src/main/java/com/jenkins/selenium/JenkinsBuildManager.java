@@ -4,17 +4,27 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.entity.UrlEncodedFormEntity;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.NameValuePair;
+import org.apache.hc.core5.http.message.BasicNameValuePair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.Base64;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 /**
  * Enhanced Jenkins Build Manager with comprehensive REST API integration
@@ -22,86 +32,80 @@ import java.util.concurrent.TimeUnit;
 public class JenkinsBuildManager {
     private static final Logger logger = LoggerFactory.getLogger(JenkinsBuildManager.class);
     
-    private final String jenkinsUrl;
-    private final String username;
-    private final String apiToken;
-    private final CloseableHttpClient httpClient;
+    // Queue items usually leave the queue within seconds, so start fast and back off
+    static final PollingStrategy QUEUE_POLLING = PollingStrategy.exponentialBackoff(250, 5000, 2, 0.2);
+    
+    private final JenkinsHttpTransport transport;
+    private final boolean ownsTransport;
+    private final BuildPoller poller;
     private final ObjectMapper objectMapper;
+    private final ProgressiveConsoleReader consoleReader;
+    private volatile BuildWatcher buildWatcher;
     
     public JenkinsBuildManager(String jenkinsUrl, String username, String apiToken) {
-        this.jenkinsUrl = jenkinsUrl.endsWith("/") ? jenkinsUrl : jenkinsUrl + "/";
-        this.username = username;
-        this.apiToken = apiToken;
-        this.httpClient = HttpClients.createDefault();
+        this(new JenkinsHttpTransport(jenkinsUrl, username, apiToken), true);
+    }
+    
+    /**
+     * Create a build manager on top of a shared transport. The transport is not closed by {@link #close()}.
+     */
+    public JenkinsBuildManager(JenkinsHttpTransport transport) {
+        this(transport, false);
+    }
+    
+    private JenkinsBuildManager(JenkinsHttpTransport transport, boolean ownsTransport) {
+        this.transport = transport;
+        this.ownsTransport = ownsTransport;
+        this.poller = new BuildPoller(transport.getJenkinsUrl());
         this.objectMapper = new ObjectMapper();
+        this.consoleReader = new ProgressiveConsoleReader(transport);
     }
     
     /**
      * Trigger a Jenkins job with parameters
      */
     public BuildResult triggerJobWithParameters(String jobName, Map<String, String> parameters) {
-        String triggerUrl = jenkinsUrl + "job/" + jobName + "/buildWithParameters";
-        String auth = username + ":" + apiToken;
-        String encodedAuth = Base64.getEncoder().encodeToString(auth.getBytes(StandardCharsets.UTF_8));
+        HttpPost post = transport.post(JobPath.of(jobName) + "buildWithParameters");
         
-        try {
-            HttpPost post = new HttpPost(triggerUrl);
-            post.setHeader("Authorization", "Basic " + encodedAuth);
-            post.setHeader("Content-Type", "application/x-www-form-urlencoded");
-            
-            // Build parameter string
-            StringBuilder paramString = new StringBuilder();
-            for (Map.Entry<String, String> entry : parameters.entrySet()) {
-                if (paramString.length() > 0) {
-                    paramString.append("&");
-                }
-                paramString.append(entry.getKey()).append("=").append(entry.getValue());
-            }
-            
-            post.setEntity(new org.apache.hc.core5.http.io.entity.StringEntity(paramString.toString(), StandardCharsets.UTF_8));
-            
-            CloseableHttpResponse response = httpClient.execute(post);
-            int statusCode = response.getCode();
-            
-            if (statusCode == 200 || statusCode == 201) {
-                logger.info("Successfully triggered Jenkins job: {} with parameters: {}", jobName, parameters);
-                return new BuildResult(true, "Job triggered successfully", null);
-            } else {
-                String errorMsg = "Failed to trigger Jenkins job: " + jobName + ". Status code: " + statusCode;
-                logger.error(errorMsg);
-                return new BuildResult(false, errorMsg, null);
-            }
-            
-        } catch (IOException e) {
-            String errorMsg = "Error triggering Jenkins job: " + jobName;
-            logger.error(errorMsg, e);
-            return new BuildResult(false, errorMsg, e);
+        List<NameValuePair> formParameters = new ArrayList<>();
+        for (Map.Entry<String, String> entry : parameters.entrySet()) {
+            formParameters.add(new BasicNameValuePair(entry.getKey(), entry.getValue()));
         }
+        post.setEntity(new UrlEncodedFormEntity(formParameters, StandardCharsets.UTF_8));
+        
+        return executeTrigger(post, jobName, parameters);
     }
     
     /**
      * Trigger a Jenkins job without parameters
      */
     public BuildResult triggerJob(String jobName) {
-        String triggerUrl = jenkinsUrl + "job/" + jobName + "/build";
-        String auth = username + ":" + apiToken;
-        String encodedAuth = Base64.getEncoder().encodeToString(auth.getBytes(StandardCharsets.UTF_8));
-        
+        return executeTrigger(transport.post(JobPath.of(jobName) + "build"), jobName, Map.of());
+    }
+    
+    /**
+     * Send a trigger request. On success the result data is the {@link QueuedBuild} that Jenkins
+     * created for it, resolved from the Location header, so callers can follow exactly this build.
+     */
+    private BuildResult executeTrigger(HttpPost post, String jobName, Map<String, String> parameters) {
         try {
-            HttpPost post = new HttpPost(triggerUrl);
-            post.setHeader("Authorization", "Basic " + encodedAuth);
-            post.setHeader("Content-Type", "application/x-www-form-urlencoded");
-            
-            CloseableHttpResponse response = httpClient.execute(post);
-            int statusCode = response.getCode();
+            BuildResult result = transport.execute(post, response -> {
+                int statusCode = response.getCode();
+                if (statusCode != 200 && statusCode != 201) {
+                    return new BuildResult(false, "Failed to trigger Jenkins job: " + jobName + ". Status code: " + statusCode, null);
+                }
+                Header location = response.getFirstHeader("Location");
+                QueuedBuild queuedBuild = location != null ? QueuedBuild.fromLocation(jobName, location.getValue()) : null;
+                return new BuildResult(true, "Job triggered successfully", queuedBuild);
+            });
             
-            if (statusCode == 200 || statusCode == 201) {
-                logger.info("Successfully triggered Jenkins job: {}", jobName);
-                return new BuildResult(true, "Job triggered successfully", null);
+            if (result.isSuccess()) {
+                logger.info("Successfully triggered Jenkins job: {} with parameters: {} (queue item: {})",
+                    jobName, parameters, result.getData() != null ? ((QueuedBuild) result.getData()).getQueueId() : "unknown");
+                return result;
             } else {
-                String errorMsg = "Failed to trigger Jenkins job: " + jobName + ". Status code: " + statusCode;
-                logger.error(errorMsg);
-                return new BuildResult(false, errorMsg, null);
+                logger.error(result.getMessage());
+                return result;
             }
             
         } catch (IOException e) {
@@ -115,43 +119,21 @@ public class JenkinsBuildManager {
      * Get detailed job information
      */
     public JobInfo getJobInfo(String jobName) {
-        String infoUrl = jenkinsUrl + "job/" + jobName + "/api/json";
-        String auth = username + ":" + apiToken;
-        String encodedAuth = Base64.getEncoder().encodeToString(auth.getBytes(StandardCharsets.UTF_8));
+        HttpGet get = transport.get(JobPath.of(jobName) + "api/json");
         
         try {
-            HttpGet get = new HttpGet(infoUrl);
-            get.setHeader("Authorization", "Basic " + encodedAuth);
-            
-            CloseableHttpResponse response = httpClient.execute(get);
-            int statusCode = response.getCode();
-            
-            if (statusCode == 200) {
-                String responseBody = new String(response.getEntity().getContent().readAllBytes(), StandardCharsets.UTF_8);
-                JsonNode jsonNode = objectMapper.readTree(responseBody);
-                
-                JobInfo jobInfo = new JobInfo();
-                jobInfo.setName(jsonNode.get("name").asText());
-                jobInfo.setDescription(jsonNode.has("description") ? jsonNode.get("description").asText() : "");
-                jobInfo.setUrl(jsonNode.get("url").asText());
-                jobInfo.setColor(jsonNode.get("color").asText());
-                jobInfo.setBuildable(jsonNode.get("buildable").asBoolean());
-                
-                // Get last build info
-                if (jsonNode.has("lastBuild") && !jsonNode.get("lastBuild").isNull()) {
-                    JsonNode lastBuild = jsonNode.get("lastBuild");
-                    jobInfo.setLastBuildNumber(lastBuild.get("number").asInt());
-                    jobInfo.setLastBuildUrl(lastBuild.get("url").asText());
-                    jobInfo.setLastBuildResult(lastBuild.has("result") ? lastBuild.get("result").asText() : "UNKNOWN");
-                    jobInfo.setLastBuildBuilding(lastBuild.has("building") ? lastBuild.get("building").asBoolean() : false);
+            return transport.execute(get, response -> {
+                int statusCode = response.getCode();
+                if (statusCode != 200) {
+                    logger.error("Failed to get job info: {}. Status code: {}", jobName, statusCode);
+                    return null;
                 }
                 
+                JobInfo jobInfo = JenkinsJsonParser.readJobInfo(response.getEntity().getContent());
+                
                 logger.info("Retrieved job info for: {}", jobName);
                 return jobInfo;
-            } else {
-                logger.error("Failed to get job info: {}. Status code: {}", jobName, statusCode);
-                return null;
-            }
+            });
             
         } catch (IOException e) {
             logger.error("Error getting job info: {}", jobName, e);
@@ -163,35 +145,20 @@ public class JenkinsBuildManager {
      * Get build status
      */
     public BuildStatus getBuildStatus(String jobName, int buildNumber) {
-        String statusUrl = jenkinsUrl + "job/" + jobName + "/" + buildNumber + "/api/json";
-        String auth = username + ":" + apiToken;
-        String encodedAuth = Base64.getEncoder().encodeToString(auth.getBytes(StandardCharsets.UTF_8));
+        HttpGet get = transport.get(JobPath.of(jobName) + buildNumber + "/api/json");
         
         try {
-            HttpGet get = new HttpGet(statusUrl);
-            get.setHeader("Authorization", "Basic " + encodedAuth);
-            
-            CloseableHttpResponse response = httpClient.execute(get);
-            int statusCode = response.getCode();
-            
-            if (statusCode == 200) {
-                String responseBody = new String(response.getEntity().getContent().readAllBytes(), StandardCharsets.UTF_8);
-                JsonNode jsonNode = objectMapper.readTree(responseBody);
-                
-                BuildStatus status = new BuildStatus();
-                status.setBuildNumber(jsonNode.get("number").asInt());
-                status.setResult(jsonNode.has("result") ? jsonNode.get("result").asText() : "UNKNOWN");
-                status.setBuilding(jsonNode.has("building") ? jsonNode.get("building").asBoolean() : false);
-                status.setDuration(jsonNode.has("duration") ? jsonNode.get("duration").asLong() : 0);
-                status.setTimestamp(jsonNode.has("timestamp") ? jsonNode.get("timestamp").asLong() : 0);
-                status.setUrl(jsonNode.get("url").asText());
+            return transport.execute(get, response -> {
+                int statusCode = response.getCode();
+                if (statusCode != 200) {
+                    logger.error("Failed to get build status: {} #{}. Status code: {}", jobName, buildNumber, statusCode);
+                    return null;
+                }
                 
+                BuildStatus status = JenkinsJsonParser.readBuildStatus(response.getEntity().getContent());
                 logger.info("Retrieved build status for job: {}, build: {}", jobName, buildNumber);
                 return status;
-            } else {
-                logger.error("Failed to get build status: {} #{}. Status code: {}", jobName, buildNumber, statusCode);
-                return null;
-            }
+            });
             
         } catch (IOException e) {
             logger.error("Error getting build status: {} #{}", jobName, buildNumber, e);
@@ -203,35 +170,20 @@ public class JenkinsBuildManager {
      * Get last build status
      */
     public BuildStatus getLastBuildStatus(String jobName) {
-        String statusUrl = jenkinsUrl + "job/" + jobName + "/lastBuild/api/json";
-        String auth = username + ":" + apiToken;
-        String encodedAuth = Base64.getEncoder().encodeToString(auth.getBytes(StandardCharsets.UTF_8));
+        HttpGet get = transport.get(JobPath.of(jobName) + "lastBuild/api/json");
         
         try {
-            HttpGet get = new HttpGet(statusUrl);
-            get.setHeader("Authorization", "Basic " + encodedAuth);
-            
-            CloseableHttpResponse response = httpClient.execute(get);
-            int statusCode = response.getCode();
-            
-            if (statusCode == 200) {
-                String responseBody = new String(response.getEntity().getContent().readAllBytes(), StandardCharsets.UTF_8);
-                JsonNode jsonNode = objectMapper.readTree(responseBody);
-                
-                BuildStatus status = new BuildStatus();
-                status.setBuildNumber(jsonNode.get("number").asInt());
-                status.setResult(jsonNode.has("result") ? jsonNode.get("result").asText() : "UNKNOWN");
-                status.setBuilding(jsonNode.has("building") ? jsonNode.get("building").asBoolean() : false);
-                status.setDuration(jsonNode.has("duration") ? jsonNode.get("duration").asLong() : 0);
-                status.setTimestamp(jsonNode.has("timestamp") ? jsonNode.get("timestamp").asLong() : 0);
-                status.setUrl(jsonNode.get("url").asText());
+            return transport.execute(get, response -> {
+                int statusCode = response.getCode();
+                if (statusCode != 200) {
+                    logger.error("Failed to get last build status: {}. Status code: {}", jobName, statusCode);
+                    return null;
+                }
                 
+                BuildStatus status = JenkinsJsonParser.readBuildStatus(response.getEntity().getContent());
                 logger.info("Retrieved last build status for job: {}", jobName);
                 return status;
-            } else {
-                logger.error("Failed to get last build status: {}. Status code: {}", jobName, statusCode);
-                return null;
-            }
+            });
             
         } catch (IOException e) {
             logger.error("Error getting last build status: {}", jobName, e);
@@ -239,29 +191,61 @@ public class JenkinsBuildManager {
         }
     }
     
+    /*
+     * Tree-based parsers for responses that are already a JsonNode, such as the nested builds of
+     * a BuildWatcher tick. Whole responses are parsed with JenkinsJsonParser instead.
+     */
+    static JobInfo parseJobInfo(JsonNode jsonNode) {
+        JobInfo jobInfo = new JobInfo();
+        jobInfo.setName(jsonNode.get("name").asText());
+        if (jsonNode.has("fullName")) {
+            jobInfo.setFullName(jsonNode.get("fullName").asText());
+        }
+        jobInfo.setDescription(jsonNode.has("description") ? jsonNode.get("description").asText() : "");
+        jobInfo.setUrl(jsonNode.get("url").asText());
+        jobInfo.setColor(jsonNode.get("color").asText());
+        jobInfo.setBuildable(jsonNode.get("buildable").asBoolean());
+        
+        // Get last build info
+        if (jsonNode.has("lastBuild") && !jsonNode.get("lastBuild").isNull()) {
+            JsonNode lastBuild = jsonNode.get("lastBuild");
+            jobInfo.setLastBuildNumber(lastBuild.get("number").asInt());
+            jobInfo.setLastBuildUrl(lastBuild.has("url") ? lastBuild.get("url").asText() : null);
+            jobInfo.setLastBuildResult(lastBuild.has("result") ? lastBuild.get("result").asText() : "UNKNOWN");
+            jobInfo.setLastBuildBuilding(lastBuild.has("building") ? lastBuild.get("building").asBoolean() : false);
+        }
+        return jobInfo;
+    }
+    
+    static JobList parseJobList(JsonNode jsonNode) {
+        JobList jobList = new JobList();
+        for (JsonNode jobNode : jsonNode.get("jobs")) {
+            jobList.addJob(parseJobInfo(jobNode));
+        }
+        return jobList;
+    }
+    
+    static BuildStatus parseBuildStatus(JsonNode jsonNode) {
+        BuildStatus status = new BuildStatus();
+        status.setBuildNumber(jsonNode.get("number").asInt());
+        status.setResult(jsonNode.has("result") ? jsonNode.get("result").asText() : "UNKNOWN");
+        status.setBuilding(jsonNode.has("building") ? jsonNode.get("building").asBoolean() : false);
+        status.setDuration(jsonNode.has("duration") ? jsonNode.get("duration").asLong() : 0);
+        status.setEstimatedDuration(jsonNode.has("estimatedDuration") ? jsonNode.get("estimatedDuration").asLong() : 0);
+        status.setTimestamp(jsonNode.has("timestamp") ? jsonNode.get("timestamp").asLong() : 0);
+        status.setUrl(jsonNode.get("url").asText());
+        return status;
+    }
+    
     /**
      * Get console output for a specific build
      */
     public String getConsoleOutput(String jobName, int buildNumber) {
-        String consoleUrl = jenkinsUrl + "job/" + jobName + "/" + buildNumber + "/consoleText";
-        String auth = username + ":" + apiToken;
-        String encodedAuth = Base64.getEncoder().encodeToString(auth.getBytes(StandardCharsets.UTF_8));
-        
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
         try {
-            HttpGet get = new HttpGet(consoleUrl);
-            get.setHeader("Authorization", "Basic " + encodedAuth);
-            
-            CloseableHttpResponse response = httpClient.execute(get);
-            int statusCode = response.getCode();
-            
-            if (statusCode == 200) {
-                String consoleOutput = new String(response.getEntity().getContent().readAllBytes(), StandardCharsets.UTF_8);
-                logger.info("Retrieved console output for job: {}, build: {}", jobName, buildNumber);
-                return consoleOutput;
-            } else {
-                logger.error("Failed to get console output: {} #{}. Status code: {}", jobName, buildNumber, statusCode);
-                return "Failed to retrieve console output";
-            }
+            streamConsoleOutput(jobName, buildNumber, 0, false, buffer);
+            logger.info("Retrieved console output for job: {}, build: {}", jobName, buildNumber);
+            return buffer.toString(StandardCharsets.UTF_8);
             
         } catch (IOException e) {
             logger.error("Error getting console output: {} #{}", jobName, buildNumber, e);
@@ -273,25 +257,11 @@ public class JenkinsBuildManager {
      * Get console output for the last build
      */
     public String getLastBuildConsoleOutput(String jobName) {
-        String consoleUrl = jenkinsUrl + "job/" + jobName + "/lastBuild/consoleText";
-        String auth = username + ":" + apiToken;
-        String encodedAuth = Base64.getEncoder().encodeToString(auth.getBytes(StandardCharsets.UTF_8));
-        
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
         try {
-            HttpGet get = new HttpGet(consoleUrl);
-            get.setHeader("Authorization", "Basic " + encodedAuth);
-            
-            CloseableHttpResponse response = httpClient.execute(get);
-            int statusCode = response.getCode();
-            
-            if (statusCode == 200) {
-                String consoleOutput = new String(response.getEntity().getContent().readAllBytes(), StandardCharsets.UTF_8);
-                logger.info("Retrieved console output for last build of job: {}", jobName);
-                return consoleOutput;
-            } else {
-                logger.error("Failed to get console output: {}. Status code: {}", jobName, statusCode);
-                return "Failed to retrieve console output";
-            }
+            streamLastBuildConsoleOutput(jobName, 0, false, buffer);
+            logger.info("Retrieved console output for last build of job: {}", jobName);
+            return buffer.toString(StandardCharsets.UTF_8);
             
         } catch (IOException e) {
             logger.error("Error getting console output: {}", jobName, e);
@@ -300,39 +270,184 @@ public class JenkinsBuildManager {
     }
     
     /**
-     * Wait for job completion with timeout
+     * Copy a build's console to an output stream chunk by chunk instead of buffering the whole log.
+     *
+     * @param start byte offset to start from; pass the value returned by a previous call to resume
+     * @param follow keep streaming until the build finishes
+     * @return the offset reached
      */
-    public BuildResult waitForJobCompletion(String jobName, int timeoutMinutes) {
-        logger.info("Waiting for job completion: {} (timeout: {} minutes)", jobName, timeoutMinutes);
-        
-        long timeoutMillis = TimeUnit.MINUTES.toMillis(timeoutMinutes);
-        long startTime = System.currentTimeMillis();
-        long pollInterval = 10000; // 10 seconds
+    public long streamConsoleOutput(String jobName, int buildNumber, long start, boolean follow, OutputStream out) throws IOException {
+        return consoleReader.copyTo(JobPath.of(jobName) + buildNumber + "/", start, follow, out);
+    }
+    
+    /**
+     * Copy the last build's console to an output stream, see {@link #streamConsoleOutput(String, int, long, boolean, OutputStream)}
+     */
+    public long streamLastBuildConsoleOutput(String jobName, long start, boolean follow, OutputStream out) throws IOException {
+        return consoleReader.copyTo(JobPath.of(jobName) + "lastBuild/", start, follow, out);
+    }
+    
+    /**
+     * Open a build's console as an input stream, see {@link ProgressiveConsoleReader#open(String, long, boolean)}
+     */
+    public ProgressiveConsoleReader.ConsoleInputStream openConsoleStream(String jobName, int buildNumber, long start, boolean follow) {
+        return consoleReader.open(JobPath.of(jobName) + buildNumber + "/", start, follow);
+    }
+    
+    /**
+     * Refresh a queued build from {@code queue/item/N/api/json}. Returns false if the queue item
+     * could not be read, e.g. because Jenkins already discarded it.
+     */
+    public boolean refreshQueuedBuild(QueuedBuild queuedBuild) {
+        HttpGet get = transport.get("queue/item/" + queuedBuild.getQueueId() + "/api/json?tree=id,cancelled,why,executable[number,url]");
         
-        while (System.currentTimeMillis() - startTime < timeoutMillis) {
-            BuildStatus status = getLastBuildStatus(jobName);
+        try {
+            return transport.execute(get, response -> {
+                int statusCode = response.getCode();
+                if (statusCode != 200) {
+                    logger.error("Failed to get queue item: {} for job: {}. Status code: {}",
+                        queuedBuild.getQueueId(), queuedBuild.getJobName(), statusCode);
+                    return false;
+                }
+                
+                queuedBuild.update(objectMapper.readTree(response.getEntity().getContent()));
+                return true;
+            });
             
-            if (status == null) {
-                return new BuildResult(false, "Failed to get job status", null);
+        } catch (IOException e) {
+            logger.error("Error getting queue item: {} for job: {}", queuedBuild.getQueueId(), queuedBuild.getJobName(), e);
+            return false;
+        }
+    }
+    
+    /**
+     * Wait until a queued build has been assigned a build number
+     */
+    public BuildResult resolveQueuedBuild(QueuedBuild queuedBuild, int timeoutMinutes) {
+        return resolveQueuedBuild(queuedBuild, System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(timeoutMinutes));
+    }
+    
+    private BuildResult resolveQueuedBuild(QueuedBuild queuedBuild, long deadline) {
+        PollingStrategy.PollState state = new PollingStrategy.PollState();
+        
+        while (!queuedBuild.isResolved()) {
+            transport.getMetrics().pollIteration("queue");
+            if (!refreshQueuedBuild(queuedBuild)) {
+                return new BuildResult(false, "Failed to get queue item status", queuedBuild);
             }
-            
-            if (!status.isBuilding()) {
-                if ("SUCCESS".equals(status.getResult())) {
-                    logger.info("Job completed successfully!");
-                    return new BuildResult(true, "Job completed successfully", status);
-                } else if ("FAILURE".equals(status.getResult()) || "ABORTED".equals(status.getResult())) {
-                    logger.error("Job failed with status: {}", status.getResult());
-                    return new BuildResult(false, "Job failed with status: " + status.getResult(), status);
-                } else {
-                    logger.warn("Job completed with unexpected status: {}", status.getResult());
-                    return new BuildResult(false, "Job completed with status: " + status.getResult(), status);
-                }
+            if (queuedBuild.isResolved()) {
+                break;
+            }
+            if (queuedBuild.isCancelled()) {
+                logger.warn("Queue item {} for job {} was cancelled", queuedBuild.getQueueId(), queuedBuild.getJobName());
+                return new BuildResult(false, "Queue item was cancelled", queuedBuild);
+            }
+            state.record(null);
+            long pollInterval = QUEUE_POLLING.nextDelayMillis(state);
+            if (System.currentTimeMillis() + pollInterval > deadline) {
+                logger.warn("Queue item {} did not start within timeout period", queuedBuild.getQueueId());
+                return new BuildResult(false, "Build did not start within timeout period", queuedBuild);
             }
             
-            logger.info("Job is still building... ({}s elapsed)", 
-                (System.currentTimeMillis() - startTime) / 1000);
+            logger.debug("Queue item {} is waiting: {}", queuedBuild.getQueueId(), queuedBuild.getWhy());
             
             try {
+                Thread.sleep(pollInterval);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new BuildResult(false, "Wait interrupted", queuedBuild);
+            }
+        }
+        
+        logger.info("Queue item {} started build {} #{}", queuedBuild.getQueueId(), queuedBuild.getJobName(), queuedBuild.getBuildNumber());
+        return new BuildResult(true, "Build started", queuedBuild);
+    }
+    
+    /**
+     * Wait for the build created by a trigger call. Only that build is polled, so concurrent
+     * triggers of the same job never pick up each other's builds.
+     */
+    public BuildResult waitForJobCompletion(QueuedBuild queuedBuild, int timeoutMinutes) {
+        logger.info("Waiting for queued build completion: {} (queue item: {}, timeout: {} minutes)",
+            queuedBuild.getJobName(), queuedBuild.getQueueId(), timeoutMinutes);
+        
+        long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(timeoutMinutes);
+        BuildResult resolved = resolveQueuedBuild(queuedBuild, deadline);
+        if (!resolved.isSuccess()) {
+            return resolved;
+        }
+        
+        return waitForBuild(queuedBuild.getJobName(), queuedBuild.getBuildNumber(), deadline);
+    }
+    
+    /**
+     * Wait for a specific build to complete
+     */
+    public BuildResult waitForBuildCompletion(String jobName, int buildNumber, int timeoutMinutes) {
+        logger.info("Waiting for build completion: {} #{} (timeout: {} minutes)", jobName, buildNumber, timeoutMinutes);
+        return waitForBuild(jobName, buildNumber, System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(timeoutMinutes));
+    }
+    
+    /**
+     * Route waits for specific builds through a shared {@link BuildWatcher}, so many concurrent
+     * waiters cost one batched request per tick instead of one poll each. Pass null to poll directly.
+     */
+    public void setBuildWatcher(BuildWatcher buildWatcher) {
+        this.buildWatcher = buildWatcher;
+    }
+    
+    private BuildResult waitForBuild(String jobName, int buildNumber, long deadline) {
+        BuildWatcher watcher = buildWatcher;
+        if (watcher == null) {
+            return waitForStatus(() -> getBuildStatus(jobName, buildNumber), deadline);
+        }
+        
+        CompletableFuture<BuildResult> result = watcher.waitForCompletion(jobName, buildNumber,
+            Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            return new BuildResult(false, "Wait interrupted", null);
+        } catch (ExecutionException e) {
+            return new BuildResult(false, "Failed to watch build: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+    
+    /**
+     * Wait for job completion with timeout. This follows {@code lastBuild}, which may belong to a
+     * different trigger; prefer {@link #waitForJobCompletion(QueuedBuild, int)} when the build was
+     * triggered through this manager.
+     */
+    public BuildResult waitForJobCompletion(String jobName, int timeoutMinutes) {
+        logger.info("Waiting for job completion: {} (timeout: {} minutes)", jobName, timeoutMinutes);
+        return waitForStatus(() -> getLastBuildStatus(jobName),
+            System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(timeoutMinutes));
+    }
+    
+    private BuildResult waitForStatus(Supplier<BuildStatus> statusSupplier, long deadline) {
+        PollingStrategy.PollState state = new PollingStrategy.PollState();
+        
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                transport.getMetrics().pollIteration("build");
+                BuildStatus status = poller.poll(statusSupplier);
+                state.record(status);
+                
+                if (status == null) {
+                    return new BuildResult(false, "Failed to get job status", null);
+                }
+                
+                if (!status.isBuilding()) {
+                    poller.recordCompletion(state, status);
+                    return completedResult(status);
+                }
+                
+                long pollInterval = poller.nextDelayMillis(state, deadline);
+                logger.info("Job is still building... ({}s elapsed, next poll in {} ms)", 
+                    state.getElapsedMillis() / 1000, pollInterval);
+                
                 Thread.sleep(pollInterval);
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
@@ -344,50 +459,38 @@ public class JenkinsBuildManager {
         return new BuildResult(false, "Job did not complete within timeout period", null);
     }
     
+    static BuildResult completedResult(BuildStatus status) {
+        if ("SUCCESS".equals(status.getResult())) {
+            logger.info("Job completed successfully!");
+            return new BuildResult(true, "Job completed successfully", status);
+        } else if ("FAILURE".equals(status.getResult()) || "ABORTED".equals(status.getResult())) {
+            logger.error("Job failed with status: {}", status.getResult());
+            return new BuildResult(false, "Job failed with status: " + status.getResult(), status);
+        } else {
+            logger.warn("Job completed with unexpected status: {}", status.getResult());
+            return new BuildResult(false, "Job completed with status: " + status.getResult(), status);
+        }
+    }
+    
     /**
      * List all available jobs
      */
     public JobList listJobs() {
-        String jobsUrl = jenkinsUrl + "api/json?tree=jobs[name,url,color,description,buildable,lastBuild[number,result,building]]";
-        String auth = username + ":" + apiToken;
-        String encodedAuth = Base64.getEncoder().encodeToString(auth.getBytes(StandardCharsets.UTF_8));
+        HttpGet get = transport.get("api/json?tree=jobs[name,url,color,description,buildable,lastBuild[number,result,building]]");
         
         try {
-            HttpGet get = new HttpGet(jobsUrl);
-            get.setHeader("Authorization", "Basic " + encodedAuth);
-            
-            CloseableHttpResponse response = httpClient.execute(get);
-            int statusCode = response.getCode();
-            
-            if (statusCode == 200) {
-                String responseBody = new String(response.getEntity().getContent().readAllBytes(), StandardCharsets.UTF_8);
-                JsonNode jsonNode = objectMapper.readTree(responseBody);
-                
-                JobList jobList = new JobList();
-                for (JsonNode jobNode : jsonNode.get("jobs")) {
-                    JobInfo jobInfo = new JobInfo();
-                    jobInfo.setName(jobNode.get("name").asText());
-                    jobInfo.setUrl(jobNode.get("url").asText());
-                    jobInfo.setColor(jobNode.get("color").asText());
-                    jobInfo.setDescription(jobNode.has("description") ? jobNode.get("description").asText() : "");
-                    jobInfo.setBuildable(jobNode.get("buildable").asBoolean());
-                    
-                    if (jobNode.has("lastBuild") && !jobNode.get("lastBuild").isNull()) {
-                        JsonNode lastBuild = jobNode.get("lastBuild");
-                        jobInfo.setLastBuildNumber(lastBuild.get("number").asInt());
-                        jobInfo.setLastBuildResult(lastBuild.has("result") ? lastBuild.get("result").asText() : "UNKNOWN");
-                        jobInfo.setLastBuildBuilding(lastBuild.has("building") ? lastBuild.get("building").asBoolean() : false);
-                    }
-                    
-                    jobList.addJob(jobInfo);
+            return transport.execute(get, response -> {
+                int statusCode = response.getCode();
+                if (statusCode != 200) {
+                    logger.error("Failed to list jobs. Status code: {}", statusCode);
+                    return null;
                 }
                 
+                JobList jobList = JenkinsJsonParser.readJobList(response.getEntity().getContent());
+                
                 logger.info("Retrieved {} jobs", jobList.getJobs().size());
                 return jobList;
-            } else {
-                logger.error("Failed to list jobs. Status code: {}", statusCode);
-                return null;
-            }
+            });
             
         } catch (IOException e) {
             logger.error("Error listing jobs", e);
@@ -396,13 +499,35 @@ public class JenkinsBuildManager {
     }
     
     /**
-     * Close the HTTP client
+     * Stream every job on the controller, including jobs in folders and multibranch pipelines.
+     * Close the stream if it is not consumed to the end.
+     *
+     * @see JobDiscovery
+     */
+    public Stream<JobInfo> discoverJobs() {
+        return new JobDiscovery(transport).stream();
+    }
+    
+    /**
+     * Transport this manager sends its requests through
+     */
+    JenkinsHttpTransport getTransport() {
+        return transport;
+    }
+    
+    /**
+     * Poll counts and detection latency of this manager's build waits
+     */
+    public BuildPoller.PollMetrics getPollMetrics() {
+        return poller.getMetrics();
+    }
+    
+    /**
+     * Close the HTTP transport if this manager created it
      */
     public void close() {
-        try {
-            httpClient.close();
-        } catch (IOException e) {
-            logger.error("Error closing HTTP client", e);
+        if (ownsTransport) {
+            transport.close();
         }
     }
     
@@ -424,8 +549,62 @@ public class JenkinsBuildManager {
         public Object getData() { return data; }
     }
     
+    /**
+     * Handle for a build that was put into the Jenkins queue by a trigger call
+     */
+    public static class QueuedBuild {
+        private static final Pattern QUEUE_ITEM_PATTERN = Pattern.compile("/queue/item/(\\d+)/?$");
+        
+        private final String jobName;
+        private final long queueId;
+        private final String queueUrl;
+        private volatile int buildNumber;
+        private volatile String buildUrl;
+        private volatile boolean cancelled;
+        private volatile String why;
+        
+        public QueuedBuild(String jobName, long queueId, String queueUrl) {
+            this.jobName = jobName;
+            this.queueId = queueId;
+            this.queueUrl = queueUrl;
+        }
+        
+        /**
+         * Build a handle from the Location header returned by build/buildWithParameters,
+         * e.g. {@code http://jenkins/queue/item/42/}. Returns null if the header is not a queue item URL.
+         */
+        public static QueuedBuild fromLocation(String jobName, String location) {
+            Matcher matcher = QUEUE_ITEM_PATTERN.matcher(location);
+            if (!matcher.find()) {
+                logger.warn("Unexpected queue location for job {}: {}", jobName, location);
+                return null;
+            }
+            return new QueuedBuild(jobName, Long.parseLong(matcher.group(1)), location);
+        }
+        
+        void update(JsonNode queueItem) {
+            cancelled = queueItem.path("cancelled").asBoolean(false);
+            why = queueItem.hasNonNull("why") ? queueItem.get("why").asText() : null;
+            JsonNode executable = queueItem.path("executable");
+            if (executable.hasNonNull("number")) {
+                buildUrl = executable.hasNonNull("url") ? executable.get("url").asText() : null;
+                buildNumber = executable.get("number").asInt();
+            }
+        }
+        
+        public String getJobName() { return jobName; }
+        public long getQueueId() { return queueId; }
+        public String getQueueUrl() { return queueUrl; }
+        public int getBuildNumber() { return buildNumber; }
+        public String getBuildUrl() { return buildUrl; }
+        public boolean isCancelled() { return cancelled; }
+        public String getWhy() { return why; }
+        public boolean isResolved() { return buildNumber > 0; }
+    }
+    
     public static class JobInfo {
         private String name;
+        private String fullName;
         private String description;
         private String url;
         private String color;
@@ -439,6 +618,12 @@ public class JenkinsBuildManager {
         public String getName() { return name; }
         public void setName(String name) { this.name = name; }
         
+        /**
+         * Name including folders, e.g. {@code team/app/main}; the plain name for top-level jobs
+         */
+        public String getFullName() { return fullName != null ? fullName : name; }
+        public void setFullName(String fullName) { this.fullName = fullName; }
+        
         public String getDescription() { return description; }
         public void setDescription(String description) { this.description = description; }
         
@@ -469,6 +654,7 @@ public class JenkinsBuildManager {
         private String result;
         private boolean building;
         private long duration;
+        private long estimatedDuration;
         private long timestamp;
         private String url;
         
@@ -485,6 +671,9 @@ public class JenkinsBuildManager {
         public long getDuration() { return duration; }
         public void setDuration(long duration) { this.duration = duration; }
         
+        public long getEstimatedDuration() { return estimatedDuration; }
+        public void setEstimatedDuration(long estimatedDuration) { this.estimatedDuration = estimatedDuration; }
+        
         public long getTimestamp() { return timestamp; }
         public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
         
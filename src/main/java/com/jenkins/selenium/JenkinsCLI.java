@@ -3,9 +3,13 @@ package com.jenkins.selenium;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.stream.Stream;
 
 /**
  * Command Line Interface for Jenkins Build Management
@@ -13,13 +17,15 @@ import java.util.Scanner;
 public class JenkinsCLI {
     private static final Logger logger = LoggerFactory.getLogger(JenkinsCLI.class);
     
-    private final JenkinsBuildManager buildManager;
+    private final CachingJenkinsBuildManager buildManager;
+    private final ConsoleLogCache consoleCache;
     private final Scanner scanner;
     private final String jenkinsUrl;
     
     public JenkinsCLI(String jenkinsUrl, String username, String apiToken) {
         this.jenkinsUrl = jenkinsUrl;
-        this.buildManager = new JenkinsBuildManager(jenkinsUrl, username, apiToken);
+        this.buildManager = new CachingJenkinsBuildManager(jenkinsUrl, username, apiToken);
+        this.consoleCache = new ConsoleLogCache(buildManager);
         this.scanner = new Scanner(System.in);
     }
     
@@ -85,6 +91,7 @@ public class JenkinsCLI {
                 case "quit":
                 case "exit":
                     logger.info("Exiting Jenkins CLI");
+                    logger.info("Jenkins response cache: {}", buildManager.getCacheStats());
                     buildManager.close();
                     return;
                 default:
@@ -135,30 +142,29 @@ public class JenkinsCLI {
     
     private void listJobs() {
         System.out.println("\nFetching jobs...");
-        JenkinsBuildManager.JobList jobList = buildManager.listJobs();
-        
-        if (jobList == null) {
-            System.out.println("Failed to retrieve jobs list.");
-            return;
-        }
         
         System.out.println("\nAvailable Jobs:");
-        System.out.println("-".repeat(80));
-        System.out.printf("%-30s %-15s %-10s %-15s%n", "Job Name", "Status", "Buildable", "Last Build");
-        System.out.println("-".repeat(80));
-        
-        for (JenkinsBuildManager.JobInfo job : jobList.getJobs()) {
-            String status = job.getLastBuildResult() != null ? job.getLastBuildResult() : "N/A";
-            String buildable = job.isBuildable() ? "Yes" : "No";
-            String lastBuild = job.getLastBuildNumber() > 0 ? 
-                "#" + job.getLastBuildNumber() : "N/A";
-            
-            System.out.printf("%-30s %-15s %-10s %-15s%n", 
-                job.getName(), status, buildable, lastBuild);
+        System.out.println("-".repeat(90));
+        System.out.printf("%-40s %-15s %-10s %-15s%n", "Job Name", "Status", "Buildable", "Last Build");
+        System.out.println("-".repeat(90));
+        
+        // Jobs are printed as they are discovered, including those inside folders
+        int total = 0;
+        try (Stream<JenkinsBuildManager.JobInfo> jobs = buildManager.discoverJobs()) {
+            for (JenkinsBuildManager.JobInfo job : (Iterable<JenkinsBuildManager.JobInfo>) jobs::iterator) {
+                String status = job.getLastBuildResult() != null ? job.getLastBuildResult() : "N/A";
+                String buildable = job.isBuildable() ? "Yes" : "No";
+                String lastBuild = job.getLastBuildNumber() > 0 ? 
+                    "#" + job.getLastBuildNumber() : "N/A";
+                
+                System.out.printf("%-40s %-15s %-10s %-15s%n", 
+                    job.getFullName(), status, buildable, lastBuild);
+                total++;
+            }
         }
         
-        System.out.println("-".repeat(80));
-        System.out.println("Total jobs: " + jobList.size());
+        System.out.println("-".repeat(90));
+        System.out.println("Total jobs: " + total);
     }
     
     private void triggerJob() {
@@ -175,6 +181,7 @@ public class JenkinsCLI {
         
         if (result.isSuccess()) {
             System.out.println("✓ " + result.getMessage());
+            printQueueItem(result);
         } else {
             System.out.println("✗ " + result.getMessage());
         }
@@ -222,11 +229,19 @@ public class JenkinsCLI {
         
         if (result.isSuccess()) {
             System.out.println("✓ " + result.getMessage());
+            printQueueItem(result);
         } else {
             System.out.println("✗ " + result.getMessage());
         }
     }
     
+    private void printQueueItem(JenkinsBuildManager.BuildResult result) {
+        if (result.getData() instanceof JenkinsBuildManager.QueuedBuild) {
+            JenkinsBuildManager.QueuedBuild queuedBuild = (JenkinsBuildManager.QueuedBuild) result.getData();
+            System.out.println("Queued as item #" + queuedBuild.getQueueId() + " (" + queuedBuild.getQueueUrl() + ")");
+        }
+    }
+    
     private void getJobStatus() {
         System.out.print("\nEnter job name: ");
         String jobName = scanner.nextLine().trim();
@@ -266,13 +281,17 @@ public class JenkinsCLI {
         System.out.print("Enter build number (or Enter for last build): ");
         String buildNumberStr = scanner.nextLine().trim();
         
-        String consoleOutput;
+        int buildNumber;
         if (buildNumberStr.isEmpty()) {
-            consoleOutput = buildManager.getLastBuildConsoleOutput(jobName);
+            JenkinsBuildManager.BuildStatus lastBuild = buildManager.getLastBuildStatus(jobName);
+            if (lastBuild == null) {
+                System.out.println("Failed to get last build of job: " + jobName);
+                return;
+            }
+            buildNumber = lastBuild.getBuildNumber();
         } else {
             try {
-                int buildNumber = Integer.parseInt(buildNumberStr);
-                consoleOutput = buildManager.getConsoleOutput(jobName, buildNumber);
+                buildNumber = Integer.parseInt(buildNumberStr);
             } catch (NumberFormatException e) {
                 System.out.println("Invalid build number.");
                 return;
@@ -281,7 +300,16 @@ public class JenkinsCLI {
         
         System.out.println("\nConsole Output:");
         System.out.println("=".repeat(80));
-        System.out.println(consoleOutput);
+        try {
+            // Served from the local console cache; finished builds are only downloaded once
+            try (FileChannel consoleLog = consoleCache.openConsoleLog(jobName, buildNumber)) {
+                Channels.newInputStream(consoleLog).transferTo(System.out);
+            }
+            System.out.println();
+        } catch (IOException e) {
+            logger.error("Error getting console output: {}", jobName, e);
+            System.out.println("Error retrieving console output");
+        }
         System.out.println("=".repeat(80));
     }
     
@@ -0,0 +1,371 @@
+package com.jenkins.selenium;
+
+import org.apache.hc.client5.http.classic.ExecChainHandler;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.ChainElement;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import org.apache.hc.core5.http.io.entity.HttpEntityWrapper;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Pooled HTTP transport shared by the Jenkins REST clients.
+ *
+ * All requests go through {@link #execute(ClassicHttpRequest, HttpClientResponseHandler)}, which
+ * releases the response and consumes the entity once the handler returns, so connections always
+ * go back to the pool for keep-alive reuse.
+ *
+ * Every request attempt, including automatic retries, is recorded in {@link JenkinsMetrics}: two
+ * exec interceptors around the connect step time the pool lease and catch requests that never got
+ * a connection, and one in front of the transport times the exchange and counts body bytes.
+ *
+ * Each attempt must also be admitted by the controller's {@link ControllerGovernor}, which
+ * rate-limits requests per endpoint class, caps requests in flight and honours {@code Retry-After}.
+ */
+public class JenkinsHttpTransport implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(JenkinsHttpTransport.class);
+    
+    private static final String LEASE_START = "jenkins.metrics.leaseStart";
+    private static final String CONNECTED = "jenkins.metrics.connected";
+    private static final String EXCHANGE_NANOS = "jenkins.metrics.exchangeNanos";
+    
+    private final String jenkinsUrl;
+    private final String authHeader;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final JenkinsMetrics metrics;
+    private final ControllerGovernor governor;
+    
+    public JenkinsHttpTransport(String jenkinsUrl, String username, String apiToken) {
+        this(jenkinsUrl, username, apiToken, TransportConfig.fromSystemProperties());
+    }
+    
+    public JenkinsHttpTransport(String jenkinsUrl, String username, String apiToken, TransportConfig config) {
+        this(jenkinsUrl, username, apiToken, config, null);
+    }
+    
+    /**
+     * Transport with its own governor; null uses the one shared by all clients of the controller
+     */
+    public JenkinsHttpTransport(String jenkinsUrl, String username, String apiToken, TransportConfig config,
+                                ControllerGovernor governor) {
+        this.jenkinsUrl = baseUrl(jenkinsUrl);
+        this.authHeader = basicAuth(username, apiToken);
+        this.metrics = new JenkinsMetrics(this.jenkinsUrl);
+        this.governor = governor != null ? governor : ControllerGovernor.forController(this.jenkinsUrl);
+        
+        this.connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(config.getMaxTotal())
+            .setMaxConnPerRoute(config.getMaxPerRoute())
+            .setDefaultConnectionConfig(config.connectionConfig())
+            .build();
+        
+        this.httpClient = HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(config.requestConfig())
+            .evictExpiredConnections()
+            .evictIdleConnections(TimeValue.ofMilliseconds(config.getIdleEvictionMillis()))
+            .addExecInterceptorAfter(ChainElement.RETRY.name(), "governor", governed())
+            .addExecInterceptorBefore(ChainElement.CONNECT.name(), "metrics-lease", leaseMetrics())
+            .addExecInterceptorAfter(ChainElement.CONNECT.name(), "metrics-connected", connectedMetrics())
+            .addExecInterceptorBefore(ChainElement.MAIN_TRANSPORT.name(), "metrics-exchange", exchangeMetrics())
+            .build();
+        
+        logger.debug("Created Jenkins HTTP transport for {} (maxTotal: {}, maxPerRoute: {})",
+            this.jenkinsUrl, config.getMaxTotal(), config.getMaxPerRoute());
+    }
+    
+    /**
+     * Controller URL with a trailing slash, as used by every client of the controller
+     */
+    static String baseUrl(String jenkinsUrl) {
+        return jenkinsUrl.endsWith("/") ? jenkinsUrl : jenkinsUrl + "/";
+    }
+    
+    /**
+     * Basic authentication header for a user and API token
+     */
+    static String basicAuth(String username, String apiToken) {
+        String auth = username + ":" + apiToken;
+        return "Basic " + Base64.getEncoder().encodeToString(auth.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Base URL of the controller, always ending with a slash
+     */
+    public String getJenkinsUrl() {
+        return jenkinsUrl;
+    }
+    
+    /**
+     * Authenticated GET for a path relative to the controller root
+     */
+    public HttpGet get(String path) {
+        HttpGet get = new HttpGet(jenkinsUrl + path);
+        get.setHeader("Authorization", authHeader);
+        return get;
+    }
+    
+    /**
+     * Authenticated form POST for a path relative to the controller root
+     */
+    public HttpPost post(String path) {
+        HttpPost post = new HttpPost(jenkinsUrl + path);
+        post.setHeader("Authorization", authHeader);
+        post.setHeader("Content-Type", "application/x-www-form-urlencoded");
+        return post;
+    }
+    
+    /**
+     * Execute a request and hand the response to the handler. The response is closed and its
+     * entity fully consumed afterwards, even if the handler throws.
+     */
+    public <T> T execute(ClassicHttpRequest request, HttpClientResponseHandler<? extends T> handler) throws IOException {
+        return httpClient.execute(request, handler);
+    }
+    
+    /**
+     * Execute a request and return the open response, for bodies that are consumed incrementally.
+     * The caller must close the response (try-with-resources) to return the connection to the pool.
+     */
+    public ClassicHttpResponse open(ClassicHttpRequest request) throws IOException {
+        return httpClient.executeOpen(null, request, null);
+    }
+    
+    /**
+     * Request metrics of this controller
+     */
+    public JenkinsMetrics getMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * Limits applied to this transport's requests
+     */
+    public ControllerGovernor getGovernor() {
+        return governor;
+    }
+    
+    /**
+     * Snapshot of the connection pool (leased, pending, available, max)
+     */
+    public PoolStats getPoolStats() {
+        return connectionManager.getTotalStats();
+    }
+    
+    private ExecChainHandler governed() {
+        return (request, scope, chain) -> {
+            String endpoint = JenkinsMetrics.endpointOf(request.getPath());
+            ControllerGovernor.EndpointClass endpointClass = ControllerGovernor.EndpointClass.of(endpoint);
+            try {
+                metrics.governorWait(endpointClass, governor.acquire(endpointClass));
+            } catch (IOException e) {
+                metrics.error(endpoint, e);
+                throw e;
+            }
+            scope.clientContext.removeAttribute(EXCHANGE_NANOS);
+            try {
+                ClassicHttpResponse response = chain.proceed(request, scope);
+                // The controller's latency, measured by the exchange step without the wait for a pooled connection
+                Object latency = scope.clientContext.getAttribute(EXCHANGE_NANOS);
+                Header retryAfter = response.getFirstHeader("Retry-After");
+                governor.onResponse(endpointClass, response.getCode(), latency instanceof Long ? (Long) latency : 0,
+                    retryAfter != null ? retryAfter.getValue() : null);
+                return response;
+            } catch (IOException e) {
+                governor.onFailure(endpointClass, e);
+                throw e;
+            } finally {
+                governor.release();
+            }
+        };
+    }
+    
+    private ExecChainHandler leaseMetrics() {
+        return (request, scope, chain) -> {
+            scope.clientContext.setAttribute(LEASE_START, System.nanoTime());
+            scope.clientContext.removeAttribute(CONNECTED);
+            try {
+                return chain.proceed(request, scope);
+            } catch (IOException e) {
+                // Failures after the connect step are counted by the exchange interceptor
+                if (scope.clientContext.getAttribute(CONNECTED) == null) {
+                    metrics.error(JenkinsMetrics.endpointOf(request.getPath()), e);
+                }
+                throw e;
+            }
+        };
+    }
+    
+    private ExecChainHandler connectedMetrics() {
+        return (request, scope, chain) -> {
+            scope.clientContext.setAttribute(CONNECTED, Boolean.TRUE);
+            Object leaseStart = scope.clientContext.getAttribute(LEASE_START);
+            if (leaseStart instanceof Long) {
+                metrics.connectionAcquired(System.nanoTime() - (Long) leaseStart);
+            }
+            return chain.proceed(request, scope);
+        };
+    }
+    
+    private ExecChainHandler exchangeMetrics() {
+        return (request, scope, chain) -> {
+            String endpoint = JenkinsMetrics.endpointOf(request.getPath());
+            long start = System.nanoTime();
+            ClassicHttpResponse response;
+            try {
+                response = chain.proceed(request, scope);
+            } catch (IOException e) {
+                metrics.error(endpoint, e);
+                throw e;
+            }
+            long latency = System.nanoTime() - start;
+            scope.clientContext.setAttribute(EXCHANGE_NANOS, latency);
+            metrics.response(request.getMethod(), endpoint, response.getCode(), latency);
+            if (response.getEntity() != null) {
+                response.setEntity(new CountingEntity(response.getEntity(), endpoint));
+            }
+            return response;
+        };
+    }
+    
+    @Override
+    public void close() {
+        httpClient.close(CloseMode.GRACEFUL);
+        logger.debug("Closed Jenkins HTTP transport for {}", jenkinsUrl);
+    }
+    
+    /**
+     * Entity that adds the body bytes read to the received bytes metric
+     */
+    private class CountingEntity extends HttpEntityWrapper {
+        private final String endpoint;
+        
+        CountingEntity(HttpEntity entity, String endpoint) {
+            super(entity);
+            this.endpoint = endpoint;
+        }
+        
+        @Override
+        public InputStream getContent() throws IOException {
+            InputStream content = super.getContent();
+            return content == null ? null : new FilterInputStream(content) {
+                @Override
+                public int read() throws IOException {
+                    int read = super.read();
+                    if (read != -1) {
+                        metrics.received(endpoint, 1);
+                    }
+                    return read;
+                }
+                
+                @Override
+                public int read(byte[] buffer, int off, int len) throws IOException {
+                    int read = super.read(buffer, off, len);
+                    if (read > 0) {
+                        metrics.received(endpoint, read);
+                    }
+                    return read;
+                }
+            };
+        }
+    }
+    
+    /**
+     * Connection pool and timeout settings. Defaults can be overridden with
+     * {@code -Djenkins.http.*} system properties.
+     */
+    public static class TransportConfig {
+        private int maxTotal = 50;
+        private int maxPerRoute = 20;
+        private long connectTimeoutMillis = 10_000;
+        private long socketTimeoutMillis = 60_000;
+        private long leaseTimeoutMillis = 30_000;
+        private long keepAliveMillis = 60_000;
+        private long idleEvictionMillis = 30_000;
+        private long timeToLiveMillis = 300_000;
+        
+        public static TransportConfig fromSystemProperties() {
+            TransportConfig config = new TransportConfig();
+            config.setMaxTotal(Integer.getInteger("jenkins.http.maxTotal", config.getMaxTotal()));
+            config.setMaxPerRoute(Integer.getInteger("jenkins.http.maxPerRoute", config.getMaxPerRoute()));
+            config.setConnectTimeoutMillis(Long.getLong("jenkins.http.connectTimeout", config.getConnectTimeoutMillis()));
+            config.setSocketTimeoutMillis(Long.getLong("jenkins.http.socketTimeout", config.getSocketTimeoutMillis()));
+            config.setLeaseTimeoutMillis(Long.getLong("jenkins.http.leaseTimeout", config.getLeaseTimeoutMillis()));
+            config.setKeepAliveMillis(Long.getLong("jenkins.http.keepAlive", config.getKeepAliveMillis()));
+            config.setIdleEvictionMillis(Long.getLong("jenkins.http.idleEviction", config.getIdleEvictionMillis()));
+            config.setTimeToLiveMillis(Long.getLong("jenkins.http.timeToLive", config.getTimeToLiveMillis()));
+            return config;
+        }
+        
+        /**
+         * Connect, socket and time-to-live settings of pooled connections
+         */
+        ConnectionConfig connectionConfig() {
+            return ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMillis))
+                .setSocketTimeout(Timeout.ofMilliseconds(socketTimeoutMillis))
+                .setTimeToLive(TimeValue.ofMilliseconds(timeToLiveMillis))
+                .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                .build();
+        }
+        
+        /**
+         * Lease, response and keep-alive settings applied to every request
+         */
+        RequestConfig requestConfig() {
+            return RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(leaseTimeoutMillis))
+                .setResponseTimeout(Timeout.ofMilliseconds(socketTimeoutMillis))
+                .setConnectionKeepAlive(TimeValue.ofMilliseconds(keepAliveMillis))
+                .build();
+        }
+        
+        // Getters and setters
+        public int getMaxTotal() { return maxTotal; }
+        public void setMaxTotal(int maxTotal) { this.maxTotal = maxTotal; }
+        
+        public int getMaxPerRoute() { return maxPerRoute; }
+        public void setMaxPerRoute(int maxPerRoute) { this.maxPerRoute = maxPerRoute; }
+        
+        public long getConnectTimeoutMillis() { return connectTimeoutMillis; }
+        public void setConnectTimeoutMillis(long connectTimeoutMillis) { this.connectTimeoutMillis = connectTimeoutMillis; }
+        
+        public long getSocketTimeoutMillis() { return socketTimeoutMillis; }
+        public void setSocketTimeoutMillis(long socketTimeoutMillis) { this.socketTimeoutMillis = socketTimeoutMillis; }
+        
+        public long getLeaseTimeoutMillis() { return leaseTimeoutMillis; }
+        public void setLeaseTimeoutMillis(long leaseTimeoutMillis) { this.leaseTimeoutMillis = leaseTimeoutMillis; }
+        
+        public long getKeepAliveMillis() { return keepAliveMillis; }
+        public void setKeepAliveMillis(long keepAliveMillis) { this.keepAliveMillis = keepAliveMillis; }
+        
+        public long getIdleEvictionMillis() { return idleEvictionMillis; }
+        public void setIdleEvictionMillis(long idleEvictionMillis) { this.idleEvictionMillis = idleEvictionMillis; }
+        
+        public long getTimeToLiveMillis() { return timeToLiveMillis; }
+        public void setTimeToLiveMillis(long timeToLiveMillis) { this.timeToLiveMillis = timeToLiveMillis; }
+    }
+}
@@ -0,0 +1,228 @@
+package com.jenkins.selenium;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * Streaming parsers for Jenkins API responses.
+ *
+ * These read the response with Jackson's {@link JsonParser} token by token and fill the POJOs
+ * directly, so no intermediate {@code JsonNode} tree or String copy of the body is built. Unknown
+ * fields are skipped without being materialised, which matters for {@code api/json} job lists on
+ * controllers with thousands of jobs. Field values are mapped the same way as the tree-based
+ * parsers in {@link JenkinsBuildManager}.
+ */
+public class JenkinsJsonParser {
+    
+    // Thread-safe and expensive to create, so shared
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    
+    private JenkinsJsonParser() {
+    }
+    
+    public static JenkinsBuildManager.JobList readJobList(InputStream in) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            return parseJobList(parser);
+        }
+    }
+    
+    public static JenkinsBuildManager.JobList readJobList(byte[] body) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            return parseJobList(parser);
+        }
+    }
+    
+    public static JenkinsBuildManager.JobInfo readJobInfo(InputStream in) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            expectObject(parser, parser.nextToken());
+            return parseJobInfo(parser);
+        }
+    }
+    
+    public static JenkinsBuildManager.JobInfo readJobInfo(byte[] body) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            expectObject(parser, parser.nextToken());
+            return parseJobInfo(parser);
+        }
+    }
+    
+    public static JenkinsBuildManager.BuildStatus readBuildStatus(InputStream in) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            expectObject(parser, parser.nextToken());
+            return parseBuildStatus(parser);
+        }
+    }
+    
+    public static JenkinsBuildManager.BuildStatus readBuildStatus(byte[] body) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            expectObject(parser, parser.nextToken());
+            return parseBuildStatus(parser);
+        }
+    }
+    
+    /**
+     * Hand each job of a {@code {"jobs": [...]}} response to an action as soon as it is parsed,
+     * without collecting the page into a list
+     *
+     * @return number of jobs in the response
+     */
+    public static int forEachJob(InputStream in, Consumer<JenkinsBuildManager.JobInfo> action) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            expectObject(parser, parser.nextToken());
+            int count = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("jobs".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        action.accept(parseJobInfo(parser));
+                        count++;
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return count;
+        }
+    }
+    
+    /**
+     * Parse {@code {"jobs": [...]}}, skipping every other top-level field
+     */
+    static JenkinsBuildManager.JobList parseJobList(JsonParser parser) throws IOException {
+        expectObject(parser, parser.nextToken());
+        JenkinsBuildManager.JobList jobList = new JenkinsBuildManager.JobList();
+        
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("jobs".equals(field) && value == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    jobList.addJob(parseJobInfo(parser));
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return jobList;
+    }
+    
+    /**
+     * Parse a job object. The parser must be positioned on its START_OBJECT and is left on the
+     * matching END_OBJECT.
+     */
+    static JenkinsBuildManager.JobInfo parseJobInfo(JsonParser parser) throws IOException {
+        JenkinsBuildManager.JobInfo jobInfo = new JenkinsBuildManager.JobInfo();
+        jobInfo.setDescription("");
+        
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "name":
+                    jobInfo.setName(parser.getText());
+                    break;
+                case "fullName":
+                    jobInfo.setFullName(parser.getText());
+                    break;
+                case "description":
+                    jobInfo.setDescription(parser.getText());
+                    break;
+                case "url":
+                    jobInfo.setUrl(parser.getText());
+                    break;
+                case "color":
+                    jobInfo.setColor(parser.getText());
+                    break;
+                case "buildable":
+                    jobInfo.setBuildable(parser.getValueAsBoolean());
+                    break;
+                case "lastBuild":
+                    if (value == JsonToken.START_OBJECT) {
+                        parseLastBuild(parser, jobInfo);
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return jobInfo;
+    }
+    
+    private static void parseLastBuild(JsonParser parser, JenkinsBuildManager.JobInfo jobInfo) throws IOException {
+        jobInfo.setLastBuildResult("UNKNOWN");
+        
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "number":
+                    jobInfo.setLastBuildNumber(parser.getValueAsInt());
+                    break;
+                case "url":
+                    jobInfo.setLastBuildUrl(parser.getText());
+                    break;
+                case "result":
+                    jobInfo.setLastBuildResult(parser.getText());
+                    break;
+                case "building":
+                    jobInfo.setLastBuildBuilding(parser.getValueAsBoolean());
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+    }
+    
+    /**
+     * Parse a build object. The parser must be positioned on its START_OBJECT and is left on the
+     * matching END_OBJECT.
+     */
+    static JenkinsBuildManager.BuildStatus parseBuildStatus(JsonParser parser) throws IOException {
+        JenkinsBuildManager.BuildStatus status = new JenkinsBuildManager.BuildStatus();
+        status.setResult("UNKNOWN");
+        
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "number":
+                    status.setBuildNumber(parser.getValueAsInt());
+                    break;
+                case "result":
+                    status.setResult(parser.getText());
+                    break;
+                case "building":
+                    status.setBuilding(parser.getValueAsBoolean());
+                    break;
+                case "duration":
+                    status.setDuration(parser.getValueAsLong());
+                    break;
+                case "estimatedDuration":
+                    status.setEstimatedDuration(parser.getValueAsLong());
+                    break;
+                case "timestamp":
+                    status.setTimestamp(parser.getValueAsLong());
+                    break;
+                case "url":
+                    status.setUrl(parser.getText());
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return status;
+    }
+    
+    private static void expectObject(JsonParser parser, JsonToken token) throws JsonParseException {
+        if (token != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected a JSON object but found " + token);
+        }
+    }
+}
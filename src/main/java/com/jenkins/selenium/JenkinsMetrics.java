@@ -0,0 +1,168 @@
+package com.jenkins.selenium;
+
+import org.apache.hc.client5.http.ConnectTimeoutException;
+import org.apache.hc.core5.http.ConnectionRequestTimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+
+/**
+ * Metrics of the calls a client makes to one Jenkins controller.
+ *
+ * Every request is tagged with the controller ({@code host:port}) and an endpoint class derived from
+ * its path, so the numbers show what drives controller load:
+ * <ul>
+ *   <li>{@code jenkins_http_request_duration_seconds{endpoint,method}}: time until the response headers arrive</li>
+ *   <li>{@code jenkins_http_responses_total{endpoint,status}}: responses by status code, including retried 429/503s</li>
+ *   <li>{@code jenkins_http_errors_total{endpoint,kind}}: requests without a response, by {@code throttled},
+ *       {@code lease_timeout}, {@code connect_timeout}, {@code connect}, {@code timeout} or {@code io}</li>
+ *   <li>{@code jenkins_http_received_bytes_total{endpoint}}: response body bytes read</li>
+ *   <li>{@code jenkins_http_connection_acquire_seconds}: wait for a pooled connection, plus connect time for new ones</li>
+ *   <li>{@code jenkins_governor_wait_seconds{class}}: wait for the {@link ControllerGovernor} to admit a request</li>
+ *   <li>{@code jenkins_poll_iterations_total{loop}}: status requests made by the {@code queue}, {@code build},
+ *       {@code console} and {@code watcher} loops</li>
+ * </ul>
+ * Metrics go to a process-wide {@link MetricsRegistry}, an in-memory {@link PrometheusRegistry} unless
+ * replaced; {@link #writePrometheusFile()} dumps it to {@code jenkins.metrics.file}.
+ */
+public class JenkinsMetrics {
+    private static final Logger logger = LoggerFactory.getLogger(JenkinsMetrics.class);
+    
+    public static final String REQUEST_DURATION = "jenkins_http_request_duration_seconds";
+    public static final String RESPONSES = "jenkins_http_responses_total";
+    public static final String ERRORS = "jenkins_http_errors_total";
+    public static final String RECEIVED_BYTES = "jenkins_http_received_bytes_total";
+    public static final String CONNECTION_ACQUIRE = "jenkins_http_connection_acquire_seconds";
+    public static final String POLL_ITERATIONS = "jenkins_poll_iterations_total";
+    public static final String GOVERNOR_WAIT = "jenkins_governor_wait_seconds";
+    
+    private static final Pattern BUILD_PATH = Pattern.compile(".*/job/[^/]+/\\d+/.*");
+    
+    private static volatile MetricsRegistry registry = new PrometheusRegistry();
+    
+    private final String controller;
+    
+    public JenkinsMetrics(String jenkinsUrl) {
+        URI uri = URI.create(jenkinsUrl);
+        this.controller = uri.getPort() == -1 ? String.valueOf(uri.getHost()) : uri.getHost() + ":" + uri.getPort();
+    }
+    
+    public static MetricsRegistry getRegistry() {
+        return registry;
+    }
+    
+    /**
+     * Send all client metrics to another registry, e.g. a Micrometer adapter or {@link MetricsRegistry#noop()}
+     */
+    public static void setRegistry(MetricsRegistry registry) {
+        JenkinsMetrics.registry = registry;
+    }
+    
+    /**
+     * Write the registry in Prometheus text format to {@code jenkins.metrics.file} (default
+     * {@code build/metrics/jenkins-client.prom}). Does nothing for registries other than {@link PrometheusRegistry}.
+     */
+    public static void writePrometheusFile() {
+        MetricsRegistry current = registry;
+        if (!(current instanceof PrometheusRegistry)) {
+            return;
+        }
+        Path file = Paths.get(System.getProperty("jenkins.metrics.file", "build/metrics/jenkins-client.prom"));
+        try {
+            ((PrometheusRegistry) current).writeTo(file);
+            logger.info("Jenkins client metrics written to {}", file);
+        } catch (IOException e) {
+            logger.warn("Could not write Jenkins client metrics to {}: {}", file, e.getMessage());
+        }
+    }
+    
+    /**
+     * Endpoint class of a request path: {@code trigger}, {@code queue}, {@code console},
+     * {@code lastBuild}, {@code build}, {@code job}, {@code jobs} (root job list) or {@code other}
+     */
+    public static String endpointOf(String path) {
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        if (path.contains("/queue/item/")) {
+            return "queue";
+        }
+        if (path.endsWith("/build") || path.endsWith("/buildWithParameters")) {
+            return "trigger";
+        }
+        if (path.contains("/logText/") || path.endsWith("/consoleText")) {
+            return "console";
+        }
+        if (path.contains("/lastBuild/")) {
+            return "lastBuild";
+        }
+        if (BUILD_PATH.matcher(path).matches()) {
+            return "build";
+        }
+        if (path.contains("/job/")) {
+            return "job";
+        }
+        return path.endsWith("/api/json") ? "jobs" : "other";
+    }
+    
+    /**
+     * Kind of failure for a request that got no response
+     */
+    static String errorKind(Throwable error) {
+        if (error instanceof ControllerGovernor.ThrottledException) {
+            return "throttled";
+        }
+        if (error instanceof ConnectionRequestTimeoutException) {
+            return "lease_timeout";
+        }
+        if (error instanceof ConnectTimeoutException) {
+            return "connect_timeout";
+        }
+        if (error instanceof ConnectException) {
+            return "connect";
+        }
+        if (error instanceof SocketTimeoutException || error instanceof TimeoutException) {
+            return "timeout";
+        }
+        return "io";
+    }
+    
+    public void response(String method, String endpoint, int status, long durationNanos) {
+        MetricsRegistry current = registry;
+        current.record(REQUEST_DURATION, durationNanos, "controller", controller, "endpoint", endpoint, "method", method);
+        current.increment(RESPONSES, 1, "controller", controller, "endpoint", endpoint, "status", String.valueOf(status));
+    }
+    
+    public void error(String endpoint, Throwable error) {
+        registry.increment(ERRORS, 1, "controller", controller, "endpoint", endpoint, "kind", errorKind(error));
+    }
+    
+    public void received(String endpoint, long bytes) {
+        registry.increment(RECEIVED_BYTES, bytes, "controller", controller, "endpoint", endpoint);
+    }
+    
+    public void connectionAcquired(long durationNanos) {
+        registry.record(CONNECTION_ACQUIRE, durationNanos, "controller", controller);
+    }
+    
+    public void governorWait(ControllerGovernor.EndpointClass endpointClass, long durationNanos) {
+        registry.record(GOVERNOR_WAIT, durationNanos, "controller", controller, "class", endpointClass.name().toLowerCase());
+    }
+    
+    public void pollIteration(String loop) {
+        registry.increment(POLL_ITERATIONS, 1, "controller", controller, "loop", loop);
+    }
+    
+    public String getController() {
+        return controller;
+    }
+}
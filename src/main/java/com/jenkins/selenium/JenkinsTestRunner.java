@@ -3,8 +3,19 @@ package com.jenkins.selenium;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Enhanced Test Runner that integrates with Jenkins for automated testing
@@ -12,12 +23,16 @@ import java.util.Map;
 public class JenkinsTestRunner {
     private static final Logger logger = LoggerFactory.getLogger(JenkinsTestRunner.class);
     
-    private final JenkinsBuildManager buildManager;
+    private final CachingJenkinsBuildManager buildManager;
+    private final ConsoleLogCache consoleCache;
     private final String defaultJobName;
+    private final DurationHistoryStore history;
     
     public JenkinsTestRunner(String jenkinsUrl, String username, String apiToken, String defaultJobName) {
-        this.buildManager = new JenkinsBuildManager(jenkinsUrl, username, apiToken);
+        this.buildManager = new CachingJenkinsBuildManager(jenkinsUrl, username, apiToken);
+        this.consoleCache = new ConsoleLogCache(buildManager);
         this.defaultJobName = defaultJobName;
+        this.history = DurationHistoryStore.open();
     }
     
     public static void main(String[] args) {
@@ -48,10 +63,21 @@ public class JenkinsTestRunner {
             System.exit(1);
         }
         
+        int shardCount = Integer.getInteger("jenkins.shards", 1);
+        ShardPlanner.Strategy strategy = null;
+        try {
+            strategy = ShardPlanner.Strategy.of(System.getProperty("jenkins.shards.strategy", "count"));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage() + " (-Djenkins.shards.strategy)");
+            System.exit(1);
+        }
+        
         JenkinsTestRunner runner = new JenkinsTestRunner(jenkinsUrl, username, apiToken, jobName);
         
         try {
-            TestResult result = runner.runTests(browser, csvFile, waitForCompletion, timeoutMinutes);
+            TestResult result = shardCount > 1
+                ? runner.runShardedTests(browser, csvFile, shardCount, strategy, timeoutMinutes)
+                : runner.runTests(browser, csvFile, waitForCompletion, timeoutMinutes);
             System.exit(result.isSuccess() ? 0 : 1);
         } finally {
             runner.close();
@@ -70,6 +96,13 @@ public class JenkinsTestRunner {
         parameters.put("BROWSER", browser);
         parameters.put("CSV_FILE", csvFile);
         
+        return runBuild(parameters, waitForCompletion, timeoutMinutes);
+    }
+    
+    /**
+     * Trigger the job with the parameters and optionally wait for the build
+     */
+    private TestResult runBuild(Map<String, String> parameters, boolean waitForCompletion, int timeoutMinutes) {
         // Trigger the job
         logger.info("Triggering Jenkins job: {}", defaultJobName);
         JenkinsBuildManager.BuildResult triggerResult = buildManager.triggerJobWithParameters(defaultJobName, parameters);
@@ -83,7 +116,17 @@ public class JenkinsTestRunner {
         
         if (waitForCompletion) {
             logger.info("Waiting for job completion (timeout: {} minutes)", timeoutMinutes);
-            JenkinsBuildManager.BuildResult waitResult = buildManager.waitForJobCompletion(defaultJobName, timeoutMinutes);
+            JenkinsBuildManager.BuildResult waitResult;
+            if (triggerResult.getData() instanceof JenkinsBuildManager.QueuedBuild) {
+                // Follow the build created by this trigger, not whatever lastBuild happens to be
+                JenkinsBuildManager.QueuedBuild queuedBuild = (JenkinsBuildManager.QueuedBuild) triggerResult.getData();
+                waitResult = buildManager.waitForJobCompletion(queuedBuild, timeoutMinutes);
+            } else {
+                logger.warn("Jenkins did not return a queue item, falling back to lastBuild polling");
+                waitResult = buildManager.waitForJobCompletion(defaultJobName, timeoutMinutes);
+            }
+            
+            recordBuild(parameters, waitResult);
             
             if (waitResult.isSuccess()) {
                 logger.info("Job completed successfully");
@@ -98,6 +141,29 @@ public class JenkinsTestRunner {
         }
     }
     
+    /**
+     * Keep the finished build's duration, keyed by job and shard, for later scheduling
+     */
+    private void recordBuild(Map<String, String> parameters, JenkinsBuildManager.BuildResult waitResult) {
+        if (!(waitResult.getData() instanceof JenkinsBuildManager.BuildStatus)) {
+            return;
+        }
+        JenkinsBuildManager.BuildStatus status = (JenkinsBuildManager.BuildStatus) waitResult.getData();
+        String key = defaultJobName;
+        if (parameters.containsKey("SHARD_INDEX")) {
+            key += "[" + parameters.get("SHARD_INDEX") + "/" + parameters.get("SHARD_TOTAL") + "]";
+        }
+        DurationHistoryStore.Outcome outcome;
+        if ("SUCCESS".equals(status.getResult())) {
+            outcome = DurationHistoryStore.Outcome.PASSED;
+        } else if ("ABORTED".equals(status.getResult()) || "NOT_BUILT".equals(status.getResult())) {
+            outcome = DurationHistoryStore.Outcome.SKIPPED;
+        } else {
+            outcome = DurationHistoryStore.Outcome.FAILED;
+        }
+        history.record(DurationHistoryStore.Kind.BUILD, key, status.getDuration(), outcome);
+    }
+    
     /**
      * Run tests with default parameters
      */
@@ -150,6 +216,20 @@ public class JenkinsTestRunner {
      */
     public TestResults getTestResults() {
         JenkinsBuildManager.BuildStatus buildStatus = buildManager.getLastBuildStatus(defaultJobName);
+        
+        if (buildStatus != null && !buildStatus.isBuilding()) {
+            // Finished build: keep the console on disk and load it only if asked for
+            try {
+                Optional<Path> consoleLog = consoleCache.getConsoleLog(defaultJobName, buildStatus.getBuildNumber());
+                if (consoleLog.isPresent()) {
+                    return new TestResults(buildStatus.getResult(), false, buildStatus.getUrl(),
+                        buildStatus.getDuration(), buildStatus.getTimestamp(), consoleLog.get());
+                }
+            } catch (IOException e) {
+                logger.warn("Could not cache console output of {} #{}: {}", defaultJobName, buildStatus.getBuildNumber(), e.getMessage());
+            }
+        }
+        
         String consoleOutput = buildManager.getLastBuildConsoleOutput(defaultJobName);
         
         return new TestResults(
@@ -163,19 +243,84 @@ public class JenkinsTestRunner {
     }
     
     /**
-     * Run multiple test scenarios
+     * Split the CSV data set over {@code shardCount} builds and wait for all of them. Each build gets
+     * {@code SHARD_INDEX}, {@code SHARD_TOTAL} and {@code SHARD_STRATEGY} and runs only its slice of
+     * the rows (see {@link ShardPlanner}). Duration sharding also passes every build the same
+     * {@code SHARD_WEIGHTS}, taken from the duration history once before the first build starts.
+     * The run passes only if every shard passes; the result data holds each shard's result.
      */
-    public Map<String, TestResult> runMultipleTestScenarios(Map<String, TestScenario> scenarios) {
-        Map<String, TestResult> results = new HashMap<>();
+    public TestResult runShardedTests(String browser, String csvFile, int shardCount, ShardPlanner.Strategy strategy, int timeoutMinutes) {
+        logger.info("Running {} in {} shards by {}", csvFile, shardCount, strategy.name().toLowerCase());
+        String shardWeights;
+        if (strategy == ShardPlanner.Strategy.DURATION) {
+            ShardPlanner.WeightSnapshot snapshot = history.rowWeights();
+            logger.info("Weighting rows by the recorded durations of {} tests", snapshot.size());
+            shardWeights = snapshot.encode();
+        } else {
+            shardWeights = null;
+        }
+        
+        Map<String, TestScenario> shards = new LinkedHashMap<>();
+        for (int shard = 0; shard < shardCount; shard++) {
+            shards.put("shard-" + shard, TestScenario.create(browser, csvFile));
+        }
+        
+        // Each shard waits up to timeoutMinutes for its own build
+        ScenarioExecutor executor = new ScenarioExecutor(shardCount, TimeUnit.MINUTES.toMillis(timeoutMinutes + 1));
+        Map<String, TestResult> results = executor.run(shards, (shardName, scenario) -> {
+            int shard = Integer.parseInt(shardName.substring("shard-".length()));
+            Map<String, String> parameters = new HashMap<>();
+            parameters.put("BROWSER", browser);
+            parameters.put("CSV_FILE", csvFile);
+            parameters.put("SHARD_INDEX", String.valueOf(shard));
+            parameters.put("SHARD_TOTAL", String.valueOf(shardCount));
+            parameters.put("SHARD_STRATEGY", strategy.name().toLowerCase());
+            if (shardWeights != null) {
+                parameters.put("SHARD_WEIGHTS", shardWeights);
+            }
+            return runBuild(parameters, true, timeoutMinutes);
+        });
         
+        return mergeShardResults(results);
+    }
+    
+    /**
+     * One verdict for a sharded run
+     */
+    static TestResult mergeShardResults(Map<String, TestResult> results) {
+        Map<String, TestResult> ordered = new TreeMap<>(Comparator.comparingInt((String name) -> name.length()).thenComparing(name -> name));
+        ordered.putAll(results);
+        
+        List<String> failed = new ArrayList<>();
+        ordered.forEach((shardName, result) -> {
+            if (!result.isSuccess()) {
+                failed.add(shardName + ": " + result.getMessage());
+            }
+        });
+        
+        String message = String.format("%d of %d shards passed", ordered.size() - failed.size(), ordered.size());
+        if (failed.isEmpty()) {
+            logger.info("Sharded run passed: {}", message);
+            return new TestResult(true, message, ordered);
+        }
+        logger.error("Sharded run failed: {}. Failed shards: {}", message, failed);
+        return new TestResult(false, message + "; failed: " + String.join("; ", failed), ordered);
+    }
+    
+    /**
+     * Run multiple test scenarios concurrently, see {@link ScenarioExecutor}
+     */
+    public Map<String, TestResult> runMultipleTestScenarios(Map<String, TestScenario> scenarios) {
+        return runMultipleTestScenarios(scenarios, new ScenarioExecutor());
+    }
+    
+    /**
+     * Run multiple test scenarios on the given executor
+     */
+    public Map<String, TestResult> runMultipleTestScenarios(Map<String, TestScenario> scenarios, ScenarioExecutor executor) {
         logger.info("Running {} test scenarios", scenarios.size());
         
-        for (Map.Entry<String, TestScenario> entry : scenarios.entrySet()) {
-            String scenarioName = entry.getKey();
-            TestScenario scenario = entry.getValue();
-            
-            logger.info("Running scenario: {}", scenarioName);
-            
+        Map<String, TestResult> results = executor.run(scenarios, (scenarioName, scenario) -> {
             TestResult result = runTests(
                 scenario.getBrowser(),
                 scenario.getCsvFile(),
@@ -183,23 +328,27 @@ public class JenkinsTestRunner {
                 scenario.getTimeoutMinutes()
             );
             
-            results.put(scenarioName, result);
-            
             if (result.isSuccess()) {
                 logger.info("Scenario '{}' completed successfully", scenarioName);
             } else {
                 logger.error("Scenario '{}' failed: {}", scenarioName, result.getMessage());
             }
-        }
+            return result;
+        });
         
         return results;
     }
     
     /**
-     * Close the build manager
+     * Close the build manager and write the client metrics file
      */
     public void close() {
+        logger.info("Jenkins poll metrics: {}", buildManager.getPollMetrics());
+        logger.info("Console cache: {} hits, {} fetches", consoleCache.getHitCount(), consoleCache.getFetchCount());
+        logger.info("Jenkins response cache: {}", buildManager.getCacheStats());
+        history.close();
         buildManager.close();
+        JenkinsMetrics.writePrometheusFile();
     }
     
     // Inner classes for data structures
@@ -243,14 +392,51 @@ public class JenkinsTestRunner {
     }
     
     public static class TestResults extends TestStatus {
-        private final String consoleOutput;
+        private final Path consoleLog;
+        private String consoleOutput;
         
         public TestResults(String result, boolean building, String url, long duration, long timestamp, String consoleOutput) {
             super(result, building, url, duration, timestamp);
+            this.consoleLog = null;
             this.consoleOutput = consoleOutput;
         }
         
-        public String getConsoleOutput() { return consoleOutput; }
+        /**
+         * Results whose console output stays in a cached log file until it is first requested
+         */
+        public TestResults(String result, boolean building, String url, long duration, long timestamp, Path consoleLog) {
+            super(result, building, url, duration, timestamp);
+            this.consoleLog = consoleLog;
+        }
+        
+        public synchronized String getConsoleOutput() {
+            if (consoleOutput == null && consoleLog != null) {
+                try {
+                    consoleOutput = Files.readString(consoleLog, StandardCharsets.UTF_8);
+                } catch (IOException e) {
+                    logger.error("Error reading cached console output: {}", consoleLog, e);
+                    return "Error retrieving console output";
+                }
+            }
+            return consoleOutput;
+        }
+        
+        /**
+         * Cached console log file, or null if the console output was fetched as a string
+         */
+        public Path getConsoleLog() { return consoleLog; }
+        
+        /**
+         * First console line containing the given text, searched without loading the log onto the heap when it is cached
+         */
+        public Optional<String> findFirstLine(String text) throws IOException {
+            if (consoleLog != null) {
+                List<ConsoleLogCache.LineMatch> matches = ConsoleLogCache.search(consoleLog, text, 1);
+                return matches.isEmpty() ? Optional.empty() : Optional.of(matches.get(0).getLine());
+            }
+            String output = getConsoleOutput();
+            return output == null ? Optional.empty() : output.lines().filter(line -> line.contains(text)).findFirst();
+        }
     }
     
     public static class TestScenario {
@@ -3,6 +3,8 @@ package com.jenkins.selenium;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.TimeUnit;
+
 public class JenkinsTrigger {
     private static final Logger logger = LoggerFactory.getLogger(JenkinsTrigger.class);
     
@@ -33,36 +35,40 @@ public class JenkinsTrigger {
             if ("SUCCESS".equals(result)) {
                 logger.info("Waiting for job to complete...");
                 
-                // Wait for job to complete (poll every 10 seconds for up to 10 minutes)
-                int maxAttempts = 60; // 10 minutes
-                int attempt = 0;
+                // Wait for job to complete (up to 10 minutes), backing off between polls
+                PollingStrategy pollingStrategy = PollingStrategy.fromSystemProperties();
+                PollingStrategy.PollState pollState = new PollingStrategy.PollState();
+                long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(10);
+                boolean completed = false;
                 
-                while (attempt < maxAttempts) {
-                    Thread.sleep(10000); // Wait 10 seconds
-                    String status = jenkinsAPI.getJobStatus(jobName);
+                while (!completed && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(Math.min(pollingStrategy.nextDelayMillis(pollState), 
+                        Math.max(0, deadline - System.currentTimeMillis())));
+                    // The full build status carries the estimated duration the ETA strategy schedules by
+                    JenkinsBuildManager.BuildStatus buildStatus = jenkinsAPI.getLastBuildStatus(jobName);
+                    pollState.record(buildStatus);
+                    String status = buildStatus != null ? String.valueOf(buildStatus.getResult()) : "UNKNOWN";
                     
                     if ("SUCCESS".equals(status)) {
                         logger.info("Job completed successfully!");
-                        break;
+                        completed = true;
                     } else if ("FAILURE".equals(status) || "ABORTED".equals(status)) {
                         logger.error("Job failed with status: {}", status);
-                        break;
+                        completed = true;
                     } else if ("UNKNOWN".equals(status)) {
                         logger.warn("Job status unknown, continuing to wait...");
                     } else {
-                        logger.info("Job status: {}, continuing to wait...", status);
+                        logger.info("Job status: {}, continuing to wait... ({} polls)", status, pollState.getAttempts());
                     }
-                    
-                    attempt++;
                 }
                 
-                if (attempt >= maxAttempts) {
+                if (!completed) {
                     logger.warn("Job did not complete within timeout period");
                 }
                 
                 // Get console output
-                String consoleOutput = jenkinsAPI.getJobConsoleOutput(jobName);
-                logger.info("Job console output:\n{}", consoleOutput);
+                logger.info("Job console output:");
+                jenkinsAPI.streamJobConsoleOutput(jobName, System.out);
                 
             } else {
                 logger.error("Failed to trigger Jenkins job");
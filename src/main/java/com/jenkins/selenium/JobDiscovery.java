@@ -0,0 +1,232 @@
+package com.jenkins.selenium;
+
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Discovers every job on a controller, including jobs inside folders, multibranch pipelines and
+ * organization folders.
+ *
+ * Folders are walked in parallel by a small pool. Each folder is read in pages with
+ * {@code tree=jobs[...]{from,to}}, and every page is parsed with a streaming parser. Jobs are
+ * handed to the consumer through a bounded queue, so memory use is flat no matter how many jobs
+ * the controller has: when the consumer falls behind, the walkers wait.
+ *
+ * Containers are recognised by the missing {@code color} property. Only buildable items have
+ * one, so a tree query never returns it for folders.
+ */
+public class JobDiscovery {
+    private static final Logger logger = LoggerFactory.getLogger(JobDiscovery.class);
+    
+    private static final String JOB_TREE = "_class,name,fullName,url,color,description,buildable,lastBuild[number,result,building]";
+    
+    // Marks the end of the walk in the result queue
+    private static final JenkinsBuildManager.JobInfo END = new JenkinsBuildManager.JobInfo();
+    
+    private final JenkinsHttpTransport transport;
+    private final int threads;
+    private final int pageSize;
+    private final int bufferSize;
+    
+    public JobDiscovery(JenkinsHttpTransport transport) {
+        this(transport, Integer.getInteger("jenkins.discovery.threads", 4),
+            Integer.getInteger("jenkins.discovery.pageSize", 200),
+            Integer.getInteger("jenkins.discovery.buffer", 1000));
+    }
+    
+    /**
+     * @param threads folders walked in parallel; each holds one pooled connection while reading a page
+     * @param pageSize jobs per {@code {from,to}} page
+     * @param bufferSize jobs discovered ahead of the consumer
+     */
+    public JobDiscovery(JenkinsHttpTransport transport, int threads, int pageSize, int bufferSize) {
+        this.transport = transport;
+        this.threads = threads;
+        this.pageSize = pageSize;
+        this.bufferSize = bufferSize;
+    }
+    
+    /**
+     * Start walking the controller. The iterator must be closed if it is not read to the end.
+     */
+    public JobIterator discover() {
+        return discover("");
+    }
+    
+    /**
+     * Start walking below a folder, given by its full name
+     */
+    public JobIterator discover(String folderFullName) {
+        JobIterator iterator = new JobIterator();
+        iterator.submitFolder(folderFullName);
+        return iterator;
+    }
+    
+    /**
+     * All jobs as a stream. Close it, e.g. with try-with-resources, to stop the walk early.
+     */
+    public Stream<JenkinsBuildManager.JobInfo> stream() {
+        JobIterator iterator = discover();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.NONNULL), false)
+            .onClose(iterator::close);
+    }
+    
+    /**
+     * Iterator over discovered jobs, in the order the walkers find them
+     */
+    public class JobIterator implements Iterator<JenkinsBuildManager.JobInfo>, AutoCloseable {
+        private final ExecutorService executor;
+        private final BlockingQueue<JenkinsBuildManager.JobInfo> results = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicInteger pendingFolders = new AtomicInteger();
+        private final LongAdder folders = new LongAdder();
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder failedFolders = new LongAdder();
+        private volatile boolean closed;
+        private JenkinsBuildManager.JobInfo next;
+        private boolean finished;
+        
+        JobIterator() {
+            AtomicInteger threadCount = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "jenkins-job-discovery-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            if (finished) {
+                return false;
+            }
+            try {
+                JenkinsBuildManager.JobInfo job = results.take();
+                if (job == END) {
+                    finished = true;
+                    close();
+                    return false;
+                }
+                next = job;
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                finished = true;
+                close();
+                return false;
+            }
+        }
+        
+        @Override
+        public JenkinsBuildManager.JobInfo next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            JenkinsBuildManager.JobInfo job = next;
+            next = null;
+            return job;
+        }
+        
+        public long getFolderCount() { return folders.sum(); }
+        public long getRequestCount() { return requests.sum(); }
+        public long getFailedFolderCount() { return failedFolders.sum(); }
+        
+        /**
+         * Stop the walk
+         */
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                executor.shutdownNow();
+                results.clear();
+            }
+        }
+        
+        private void submitFolder(String folderFullName) {
+            // Counted before the parent finishes, so the count only reaches zero once the whole tree is walked
+            pendingFolders.incrementAndGet();
+            folders.increment();
+            executor.execute(() -> walkFolder(folderFullName));
+        }
+        
+        private void walkFolder(String folderFullName) {
+            try {
+                for (int from = 0; !closed; from += pageSize) {
+                    if (readPage(folderFullName, from, from + pageSize) < pageSize) {
+                        break;
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                if (!closed) {
+                    failedFolders.increment();
+                    logger.warn("Failed to list jobs in folder '{}': {}", folderFullName, e.getMessage());
+                }
+            } finally {
+                if (pendingFolders.decrementAndGet() == 0) {
+                    enqueue(END);
+                }
+            }
+        }
+        
+        private int readPage(String folderFullName, int from, int to) throws IOException {
+            // {from,to} with percent-encoded braces
+            HttpGet get = transport.get(JobPath.of(folderFullName) + "api/json?tree=jobs[" + JOB_TREE + "]%7B" + from + "," + to + "%7D");
+            requests.increment();
+            return transport.execute(get, response -> {
+                int statusCode = response.getCode();
+                if (statusCode != 200) {
+                    throw new IOException("Status code: " + statusCode);
+                }
+                return JenkinsJsonParser.forEachJob(response.getEntity().getContent(), job -> accept(folderFullName, job));
+            });
+        }
+        
+        private void accept(String folderFullName, JenkinsBuildManager.JobInfo job) {
+            if (job.getFullName().equals(job.getName())) {
+                job.setFullName(JobPath.child(folderFullName, job.getName()));
+            }
+            if (job.getColor() == null) {
+                submitFolder(job.getFullName());
+            } else if (!enqueue(job)) {
+                // Abort the page being parsed
+                throw new CancellationException("Job discovery closed");
+            }
+        }
+        
+        /**
+         * Wait for room in the result queue; false if the walk was closed meanwhile
+         */
+        private boolean enqueue(JenkinsBuildManager.JobInfo job) {
+            try {
+                while (!closed) {
+                    if (results.offer(job, 100, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.jenkins.selenium;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Builds controller-relative URL paths for jobs.
+ *
+ * Jobs inside folders and multibranch pipelines are addressed by their full name, e.g.
+ * {@code team/app/main}, which maps to {@code job/team/job/app/job/main/}. A plain top-level name
+ * maps to {@code job/name/} as before.
+ */
+public class JobPath {
+    
+    private JobPath() {
+    }
+    
+    /**
+     * Path of a job, always ending with "/"
+     *
+     * @param fullName job name, with folders separated by "/"
+     */
+    public static String of(String fullName) {
+        StringBuilder path = new StringBuilder();
+        for (String segment : fullName.split("/")) {
+            if (!segment.isEmpty()) {
+                path.append("job/").append(encode(segment)).append('/');
+            }
+        }
+        return path.toString();
+    }
+    
+    /**
+     * Full name of a job inside a folder; an empty or null folder means top level
+     */
+    public static String child(String folderFullName, String name) {
+        return folderFullName == null || folderFullName.isEmpty() ? name : folderFullName + "/" + name;
+    }
+    
+    private static String encode(String segment) {
+        // Path segments use %20 for spaces, not the form encoding '+'
+        return URLEncoder.encode(segment, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+}
@@ -0,0 +1,38 @@
+package com.jenkins.selenium;
+
+/**
+ * Sink for client metrics.
+ *
+ * Metrics are named Prometheus-style ({@code jenkins_http_responses_total}) and tagged with
+ * key/value pairs, e.g. {@code record("jenkins_http_request_duration_seconds", nanos, "endpoint",
+ * "build")}. {@link PrometheusRegistry} keeps them in memory and renders the text format; other
+ * backends (Micrometer, StatsD) can be plugged in by implementing the two methods and passing the
+ * registry to {@link JenkinsMetrics#setRegistry(MetricsRegistry)}.
+ */
+public interface MetricsRegistry {
+    
+    /**
+     * Add to a counter
+     */
+    void increment(String name, long amount, String... tags);
+    
+    /**
+     * Record one duration in a timer
+     */
+    void record(String name, long durationNanos, String... tags);
+    
+    /**
+     * Registry that drops everything
+     */
+    static MetricsRegistry noop() {
+        return new MetricsRegistry() {
+            @Override
+            public void increment(String name, long amount, String... tags) {
+            }
+            
+            @Override
+            public void record(String name, long durationNanos, String... tags) {
+            }
+        };
+    }
+}
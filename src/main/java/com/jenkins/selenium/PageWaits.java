@@ -0,0 +1,152 @@
+package com.jenkins.selenium;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.ExpectedCondition;
+import org.openqa.selenium.support.ui.WebDriverWait;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Condition-based waits for test flows, used instead of fixed sleeps.
+ *
+ * Each wait polls its condition every {@code selenium.wait.pollMillis} (default 100 ms) and
+ * returns as soon as it holds, or throws {@link TimeoutException} after its timeout. Every wait,
+ * successful or not, records its duration in {@link WaitTimings} under the condition name and adds
+ * it to the running test's wait time in {@link TestTelemetry}.
+ */
+public class PageWaits {
+    private static final Logger logger = LoggerFactory.getLogger(PageWaits.class);
+    
+    // Number of resources the page has loaded so far, -1 while the document is still loading
+    private static final String RESOURCE_COUNT_SCRIPT =
+        "return document.readyState === 'complete' && window.performance"
+            + " ? window.performance.getEntriesByType('resource').length : -1;";
+    
+    private final WebDriver driver;
+    private final Duration timeout;
+    private final Duration pollInterval;
+    private final WaitTimings timings;
+    
+    public PageWaits(WebDriver driver) {
+        this(driver, Duration.ofMillis(Long.getLong("selenium.wait.timeout", 10_000)),
+            Duration.ofMillis(Long.getLong("selenium.wait.pollMillis", 100)), WaitTimings.shared());
+    }
+    
+    /**
+     * @param timeout default timeout of every wait
+     * @param pollInterval delay between condition checks
+     */
+    public PageWaits(WebDriver driver, Duration timeout, Duration pollInterval, WaitTimings timings) {
+        this.driver = driver;
+        this.timeout = timeout;
+        this.pollInterval = pollInterval;
+        this.timings = timings;
+    }
+    
+    /**
+     * Wait until the URL contains any of the fragments, and return it
+     */
+    public String urlContains(String... fragments) {
+        return urlContains(timeout, fragments);
+    }
+    
+    public String urlContains(Duration timeout, String... fragments) {
+        return until("urlContains", timeout, webDriver -> {
+            String url = webDriver.getCurrentUrl();
+            for (String fragment : fragments) {
+                if (url != null && url.contains(fragment)) {
+                    return url;
+                }
+            }
+            return null;
+        });
+    }
+    
+    /**
+     * Wait until the title contains the text, ignoring case, and return it
+     */
+    public String titleContains(String text) {
+        return titleContains(timeout, text);
+    }
+    
+    public String titleContains(Duration timeout, String text) {
+        String expected = text.toLowerCase();
+        return until("titleContains", timeout, webDriver -> {
+            String title = webDriver.getTitle();
+            return title != null && title.toLowerCase().contains(expected) ? title : null;
+        });
+    }
+    
+    /**
+     * Wait until at least {@code minCount} elements match, and return them
+     */
+    public List<WebElement> elementCount(By locator, int minCount) {
+        return elementCount(timeout, locator, minCount);
+    }
+    
+    public List<WebElement> elementCount(Duration timeout, By locator, int minCount) {
+        return until("elementCount", timeout, webDriver -> {
+            List<WebElement> elements = webDriver.findElements(locator);
+            return elements.size() >= minCount ? elements : null;
+        });
+    }
+    
+    /**
+     * Wait until the document has loaded and no new resource (XHR, fetch, image, script) has
+     * started for {@code quietPeriod}
+     */
+    public void networkIdle(Duration quietPeriod) {
+        networkIdle(timeout, quietPeriod);
+    }
+    
+    public void networkIdle(Duration timeout, Duration quietPeriod) {
+        if (!(driver instanceof JavascriptExecutor)) {
+            logger.debug("Driver cannot run scripts, skipping network idle wait");
+            return;
+        }
+        long[] last = {-1, 0}; // resource count, time it last changed
+        until("networkIdle", timeout, webDriver -> {
+            Object result = ((JavascriptExecutor) webDriver).executeScript(RESOURCE_COUNT_SCRIPT);
+            long count = result instanceof Number ? ((Number) result).longValue() : -1;
+            long now = System.currentTimeMillis();
+            if (count < 0 || count != last[0]) {
+                last[0] = count;
+                last[1] = now;
+                return null;
+            }
+            return now - last[1] >= quietPeriod.toMillis() ? Boolean.TRUE : null;
+        });
+    }
+    
+    /**
+     * Wait for any condition, recording its duration under {@code name}
+     */
+    public <T> T until(String name, Duration timeout, ExpectedCondition<T> condition) {
+        WebDriverWait wait = new WebDriverWait(driver, timeout, pollInterval);
+        wait.ignoring(NoSuchElementException.class, StaleElementReferenceException.class);
+        
+        long start = System.nanoTime();
+        boolean timedOut = false;
+        try {
+            return wait.until(condition);
+        } catch (TimeoutException e) {
+            timedOut = true;
+            throw e;
+        } finally {
+            long nanos = System.nanoTime() - start;
+            long millis = nanos / 1_000_000;
+            timings.record(name, millis, timedOut);
+            TestTelemetry.addPhase(TestTelemetry.Phase.WAIT, nanos);
+            logger.debug("Wait {} {} after {}ms", name, timedOut ? "timed out" : "done", millis);
+        }
+    }
+}
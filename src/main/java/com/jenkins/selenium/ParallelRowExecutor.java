@@ -0,0 +1,255 @@
+package com.jenkins.selenium;
+
+import org.openqa.selenium.NoSuchSessionException;
+import org.openqa.selenium.SessionNotCreatedException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.remote.UnreachableBrowserException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Runs CSV test rows in parallel, each on a driver leased from a {@link WebDriverPool}.
+ *
+ * A row that loses its session ({@link NoSuchSessionException}, {@link SessionNotCreatedException},
+ * {@link UnreachableBrowserException}) marks its driver broken, so the session is quit instead of
+ * being handed to the next row. Other failures, including element lookups and wait timeouts, are
+ * failures of the test and leave the driver in the pool.
+ * Each row's duration and outcome can be recorded in a {@link DurationHistoryStore}. After a
+ * configurable number of consecutive infrastructure failures the run is aborted, since every
+ * remaining row would fail the same way.
+ */
+public class ParallelRowExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(ParallelRowExecutor.class);
+    
+    private final WebDriverPool pool;
+    private final int parallelism;
+    private final DurationHistoryStore history;
+    private final AtomicInteger consecutiveInfraFailures = new AtomicInteger();
+    private int abortAfterInfraFailures = Integer.getInteger("selenium.abortAfterInfraFailures", 0);
+    
+    public ParallelRowExecutor(WebDriverPool pool) {
+        this(pool, null);
+    }
+    
+    /**
+     * @param history where each row's duration and outcome is recorded; may be null
+     */
+    public ParallelRowExecutor(WebDriverPool pool, DurationHistoryStore history) {
+        this(pool, Integer.getInteger("selenium.parallelism", 4), history);
+    }
+    
+    public ParallelRowExecutor(WebDriverPool pool, int parallelism) {
+        this(pool, parallelism, null);
+    }
+    
+    public ParallelRowExecutor(WebDriverPool pool, int parallelism, DurationHistoryStore history) {
+        this.pool = pool;
+        this.parallelism = Math.max(1, parallelism);
+        this.history = history;
+    }
+    
+    /**
+     * Stop the run after this many infrastructure failures in a row (driver startup errors, lost
+     * sessions); rows not yet started are skipped. 0 never aborts.
+     */
+    public void setAbortAfterInfraFailures(int abortAfterInfraFailures) {
+        this.abortAfterInfraFailures = abortAfterInfraFailures;
+    }
+    
+    /**
+     * Infrastructure failures since the last row that passed or failed on its own
+     */
+    int getConsecutiveInfraFailures() {
+        return consecutiveInfraFailures.get();
+    }
+    
+    /**
+     * Runs one row on a leased driver
+     */
+    @FunctionalInterface
+    public interface RowTask {
+        void run(WebDriver driver, TestData testData) throws Exception;
+    }
+    
+    /**
+     * Run every row and wait for all of them
+     */
+    public Summary run(List<TestData> rows, RowTask task) throws InterruptedException {
+        return run(rows.stream(), task);
+    }
+    
+    /**
+     * Run rows as they are read from the stream and wait for all of them. At most twice the
+     * parallelism rows are read ahead of the workers, so a lazily parsed CSV is never held in memory.
+     */
+    public Summary run(Stream<TestData> rows, RowTask task) throws InterruptedException {
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "row-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Semaphore readAhead = new Semaphore(parallelism * 2);
+        
+        Summary summary = new Summary();
+        try {
+            Iterator<TestData> iterator = rows.iterator();
+            while (!summary.aborted && iterator.hasNext()) {
+                TestData row = iterator.next();
+                readAhead.acquire();
+                executor.execute(() -> {
+                    try {
+                        runRow(row, task, summary);
+                    } finally {
+                        readAhead.release();
+                    }
+                });
+            }
+            // Rows the loop stopped reading are skipped too, so the summary accounts for every row
+            int unread = 0;
+            while (iterator.hasNext()) {
+                iterator.next();
+                unread++;
+            }
+            if (unread > 0) {
+                summary.skipped.addAndGet(unread);
+                logger.warn("Skipping {} unread tests - run aborted", unread);
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        return summary;
+    }
+    
+    private void runRow(TestData row, RowTask task, Summary summary) {
+        if (summary.aborted) {
+            summary.skipped.incrementAndGet();
+            logger.warn("Skipping test: {} - run aborted", row.getTestName());
+            return;
+        }
+        
+        MDC.put("test", row.getTestName());
+        logger.info("Executing test: {}", row.getTestName());
+        long start = System.currentTimeMillis();
+        DurationHistoryStore.Outcome outcome;
+        try {
+            outcome = runOnLeasedDriver(row, task, summary);
+        } finally {
+            MDC.remove("test");
+        }
+        
+        if (history != null) {
+            history.record(DurationHistoryStore.Kind.TEST, row.getTestName(), System.currentTimeMillis() - start, outcome);
+        }
+        if (outcome == DurationHistoryStore.Outcome.ERROR) {
+            int infraFailures = consecutiveInfraFailures.incrementAndGet();
+            if (abortAfterInfraFailures > 0 && infraFailures >= abortAfterInfraFailures && !summary.aborted) {
+                summary.abort(infraFailures + " consecutive infrastructure failures, last in " + row.getTestName());
+                logger.error("Aborting run: {}", summary.getAbortReason());
+            }
+        } else if (outcome != DurationHistoryStore.Outcome.SKIPPED) {
+            consecutiveInfraFailures.set(0);
+        }
+    }
+    
+    /**
+     * True when the browser session itself was lost, as opposed to a failure of the test
+     */
+    static boolean isSessionFailure(Throwable error) {
+        return error instanceof NoSuchSessionException || error instanceof SessionNotCreatedException
+            || error instanceof UnreachableBrowserException;
+    }
+    
+    private DurationHistoryStore.Outcome runOnLeasedDriver(TestData row, RowTask task, Summary summary) {
+        WebDriverPool.PooledDriver lease;
+        try {
+            lease = pool.acquire(row.getBrowser());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            summary.recordFailure(row.getTestName());
+            logger.error("Test interrupted: {}", row.getTestName());
+            return DurationHistoryStore.Outcome.SKIPPED;
+        } catch (RuntimeException e) {
+            // The browser did not start or no session became free
+            summary.recordFailure(row.getTestName());
+            logger.error("Test failed: {} - No driver: {}", row.getTestName(), e.getMessage());
+            return DurationHistoryStore.Outcome.ERROR;
+        }
+        
+        // Closed after the catch blocks, which may mark the driver broken
+        try {
+            task.run(lease.getDriver(), row);
+            summary.passed.incrementAndGet();
+            logger.info("Test passed: {}", row.getTestName());
+            return DurationHistoryStore.Outcome.PASSED;
+        } catch (NoSuchSessionException | SessionNotCreatedException | UnreachableBrowserException e) {
+            // A lost or broken session: the environment failed, not the test
+            lease.markBroken();
+            summary.recordFailure(row.getTestName());
+            logger.error("Test failed: {} - Error: {}", row.getTestName(), e.getMessage());
+            return DurationHistoryStore.Outcome.ERROR;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            summary.recordFailure(row.getTestName());
+            logger.error("Test interrupted: {}", row.getTestName());
+            return DurationHistoryStore.Outcome.SKIPPED;
+        } catch (Exception | AssertionError e) {
+            summary.recordFailure(row.getTestName());
+            logger.error("Test failed: {} - Error: {}", row.getTestName(), e.getMessage());
+            return DurationHistoryStore.Outcome.FAILED;
+        } finally {
+            lease.close();
+        }
+    }
+    
+    /**
+     * Pass, fail and skip counts of a run
+     */
+    public static class Summary {
+        private final AtomicInteger passed = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+        private final List<String> failedTests = new ArrayList<>();
+        private volatile boolean aborted;
+        private volatile String abortReason;
+        
+        private synchronized void abort(String reason) {
+            if (!aborted) {
+                abortReason = reason;
+                aborted = true;
+            }
+        }
+        
+        private void recordFailure(String testName) {
+            failed.incrementAndGet();
+            synchronized (failedTests) {
+                failedTests.add(testName);
+            }
+        }
+        
+        public int getPassed() { return passed.get(); }
+        public int getFailed() { return failed.get(); }
+        public int getSkipped() { return skipped.get(); }
+        public boolean isAborted() { return aborted; }
+        public String getAbortReason() { return abortReason; }
+        
+        public List<String> getFailedTests() {
+            synchronized (failedTests) {
+                return new ArrayList<>(failedTests);
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.jenkins.selenium;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides how long to wait before the next status poll of a running build
+ */
+public interface PollingStrategy {
+    
+    /**
+     * Delay before the next poll, in milliseconds
+     */
+    long nextDelayMillis(PollState state);
+    
+    static PollingStrategy fixed(long delayMillis) {
+        return state -> delayMillis;
+    }
+    
+    static PollingStrategy exponentialBackoff(long initialDelayMillis, long maxDelayMillis, double multiplier, double jitter) {
+        return new ExponentialBackoff(initialDelayMillis, maxDelayMillis, multiplier, jitter);
+    }
+    
+    static PollingStrategy estimatedDuration(long minDelayMillis, long maxDelayMillis, PollingStrategy fallback) {
+        return new EstimatedDuration(minDelayMillis, maxDelayMillis, fallback);
+    }
+    
+    /**
+     * Strategy selected with {@code -Djenkins.poll.strategy=eta|backoff|fixed} (default: eta).
+     * Delay bounds come from {@code jenkins.poll.minDelay} and {@code jenkins.poll.maxDelay}.
+     */
+    static PollingStrategy fromSystemProperties() {
+        long minDelay = Long.getLong("jenkins.poll.minDelay", 1000);
+        long maxDelay = Long.getLong("jenkins.poll.maxDelay", 30000);
+        PollingStrategy backoff = exponentialBackoff(minDelay, maxDelay, 1.5, 0.2);
+        
+        switch (System.getProperty("jenkins.poll.strategy", "eta").toLowerCase()) {
+            case "fixed":
+                return fixed(Long.getLong("jenkins.poll.interval", 10000));
+            case "backoff":
+                return backoff;
+            default:
+                return estimatedDuration(minDelay, maxDelay, backoff);
+        }
+    }
+    
+    /**
+     * Randomise a delay by up to +/- jitter (a fraction of the delay) so that many waiters started
+     * together do not poll the controller in lock step
+     */
+    static long applyJitter(long delayMillis, double jitter) {
+        if (jitter <= 0 || delayMillis <= 0) {
+            return delayMillis;
+        }
+        double factor = 1 + ThreadLocalRandom.current().nextDouble(-jitter, jitter);
+        return Math.max(1, (long) (delayMillis * factor));
+    }
+    
+    /**
+     * Exponential backoff: initial, initial * multiplier, ... capped at max, with jitter
+     */
+    class ExponentialBackoff implements PollingStrategy {
+        private final long initialDelayMillis;
+        private final long maxDelayMillis;
+        private final double multiplier;
+        private final double jitter;
+        
+        public ExponentialBackoff(long initialDelayMillis, long maxDelayMillis, double multiplier, double jitter) {
+            this.initialDelayMillis = initialDelayMillis;
+            this.maxDelayMillis = maxDelayMillis;
+            this.multiplier = multiplier;
+            this.jitter = jitter;
+        }
+        
+        @Override
+        public long nextDelayMillis(PollState state) {
+            double delay = initialDelayMillis * Math.pow(multiplier, Math.max(0, state.getAttempts() - 1));
+            return applyJitter((long) Math.min(maxDelayMillis, delay), jitter);
+        }
+    }
+    
+    /**
+     * Schedules the next poll around the build's expected end time (start timestamp plus the
+     * job's historical estimatedDuration). Overdue builds are polled more often the closer they
+     * are to the estimate and back off as they overrun it. Falls back to another strategy when
+     * Jenkins has no estimate yet.
+     */
+    class EstimatedDuration implements PollingStrategy {
+        private final long minDelayMillis;
+        private final long maxDelayMillis;
+        private final PollingStrategy fallback;
+        
+        public EstimatedDuration(long minDelayMillis, long maxDelayMillis, PollingStrategy fallback) {
+            this.minDelayMillis = minDelayMillis;
+            this.maxDelayMillis = maxDelayMillis;
+            this.fallback = fallback;
+        }
+        
+        @Override
+        public long nextDelayMillis(PollState state) {
+            JenkinsBuildManager.BuildStatus status = state.getLastStatus();
+            if (status == null || status.getTimestamp() <= 0 || status.getEstimatedDuration() <= 0) {
+                return fallback.nextDelayMillis(state);
+            }
+            
+            long remaining = status.getTimestamp() + status.getEstimatedDuration() - System.currentTimeMillis();
+            long delay = remaining > 0 ? remaining : minDelayMillis + (-remaining) / 4;
+            return applyJitter(Math.max(minDelayMillis, Math.min(maxDelayMillis, delay)), 0.1);
+        }
+    }
+    
+    /**
+     * What a strategy knows about the wait so far
+     */
+    class PollState {
+        private final long startTime = System.currentTimeMillis();
+        private int attempts;
+        private JenkinsBuildManager.BuildStatus lastStatus;
+        
+        public void record(JenkinsBuildManager.BuildStatus status) {
+            attempts++;
+            if (status != null) {
+                lastStatus = status;
+            }
+        }
+        
+        public long getStartTime() { return startTime; }
+        public long getElapsedMillis() { return System.currentTimeMillis() - startTime; }
+        public int getAttempts() { return attempts; }
+        public JenkinsBuildManager.BuildStatus getLastStatus() { return lastStatus; }
+    }
+}
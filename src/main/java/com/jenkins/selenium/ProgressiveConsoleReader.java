@@ -0,0 +1,206 @@
+package com.jenkins.selenium;
+
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.Header;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Incremental console reader built on Jenkins' {@code logText/progressiveText?start=N} endpoint.
+ *
+ * Each request returns the log from byte offset N onwards plus two headers: {@code X-Text-Size}
+ * (the offset to continue from) and {@code X-More-Data} (true while the build is still writing).
+ * The response body is streamed straight through, so memory use is bounded by the copy buffer no
+ * matter how large the log is, and any read can resume from a previously returned offset.
+ *
+ * Permalinks such as {@code lastBuild/} are resolved to a build number before the first chunk is
+ * read, so a build started while the stream is open cannot take over the rest of the log.
+ */
+public class ProgressiveConsoleReader {
+    private static final Logger logger = LoggerFactory.getLogger(ProgressiveConsoleReader.class);
+    private static final Pattern PERMALINK = Pattern.compile("(.*/)(last[A-Za-z]*Build)/");
+    
+    private final JenkinsHttpTransport transport;
+    private final long pollMillis;
+    
+    public ProgressiveConsoleReader(JenkinsHttpTransport transport) {
+        this(transport, Long.getLong("jenkins.console.pollMillis", 2000));
+    }
+    
+    /**
+     * @param pollMillis delay before asking again when a running build has produced no new output
+     */
+    public ProgressiveConsoleReader(JenkinsHttpTransport transport, long pollMillis) {
+        this.transport = transport;
+        this.pollMillis = pollMillis;
+    }
+    
+    /**
+     * Open the console of a build as a stream.
+     *
+     * @param buildPath path of the build relative to the controller, e.g. {@code job/my-job/42/}
+     *                  or {@code job/my-job/lastBuild/}
+     * @param start byte offset to start from, 0 for the beginning of the log
+     * @param follow keep reading until the build has finished; otherwise stop at the current end of the log
+     */
+    public ConsoleInputStream open(String buildPath, long start, boolean follow) {
+        String path = buildPath.endsWith("/") ? buildPath : buildPath + "/";
+        return new ConsoleInputStream(path, start, follow);
+    }
+    
+    /**
+     * Copy the console of a build to an output stream in fixed-size chunks
+     *
+     * @return the offset reached, to resume from later
+     */
+    public long copyTo(String buildPath, long start, boolean follow, OutputStream out) throws IOException {
+        try (ConsoleInputStream in = open(buildPath, start, follow)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            out.flush();
+            return in.getOffset();
+        }
+    }
+    
+    /**
+     * Console stream that issues one progressiveText request per chunk and keeps at most one
+     * response open at a time
+     */
+    public class ConsoleInputStream extends InputStream {
+        private String buildPath;
+        private final boolean follow;
+        private long offset;
+        private long nextOffset;
+        private boolean moreData = true;
+        private boolean receivedData = true;
+        private boolean finished;
+        private ClassicHttpResponse response;
+        private InputStream body;
+        
+        ConsoleInputStream(String buildPath, long start, boolean follow) {
+            this.buildPath = buildPath;
+            this.follow = follow;
+            this.offset = start;
+            this.nextOffset = start;
+        }
+        
+        /**
+         * Byte offset of the next byte this stream will return
+         */
+        public long getOffset() {
+            return offset;
+        }
+        
+        /**
+         * Whether Jenkins reported that the build is still writing to the log
+         */
+        public boolean isMoreData() {
+            return moreData;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int read = read(single, 0, 1);
+            return read == -1 ? -1 : single[0] & 0xff;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int off, int len) throws IOException {
+            while (!finished) {
+                if (body != null) {
+                    int read = body.read(buffer, off, len);
+                    if (read > 0) {
+                        offset += read;
+                        receivedData = true;
+                        return read;
+                    }
+                    closeResponse();
+                    offset = Math.max(offset, nextOffset);
+                    if (!moreData || !follow) {
+                        finished = true;
+                        break;
+                    }
+                }
+                openNextChunk();
+            }
+            return -1;
+        }
+        
+        private void openNextChunk() throws IOException {
+            if (!receivedData) {
+                // Running build without new output yet
+                try {
+                    Thread.sleep(pollMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while following console of " + buildPath);
+                }
+            }
+            receivedData = false;
+            if (PERMALINK.matcher(buildPath).matches()) {
+                buildPath = resolvePermalink(buildPath);
+            }
+            
+            transport.getMetrics().pollIteration("console");
+            response = transport.open(transport.get(buildPath + "logText/progressiveText?start=" + offset));
+            int statusCode = response.getCode();
+            if (statusCode != 200) {
+                closeResponse();
+                finished = true;
+                throw new IOException("Failed to read console output of " + buildPath + ". Status code: " + statusCode);
+            }
+            
+            Header textSize = response.getFirstHeader("X-Text-Size");
+            Header more = response.getFirstHeader("X-More-Data");
+            nextOffset = textSize != null ? Long.parseLong(textSize.getValue().trim()) : offset;
+            moreData = more != null && Boolean.parseBoolean(more.getValue().trim());
+            body = response.getEntity() != null ? response.getEntity().getContent() : InputStream.nullInputStream();
+            logger.debug("Console chunk for {} from offset {} to {} (more data: {})", buildPath, offset, nextOffset, moreData);
+        }
+        
+        /**
+         * Replace a permalink such as {@code job/x/lastBuild/} with the build it points to now
+         */
+        private String resolvePermalink(String path) throws IOException {
+            Matcher matcher = PERMALINK.matcher(path);
+            matcher.matches();
+            Integer number = transport.execute(transport.get(path + "api/json?tree=number"), resolved -> {
+                if (resolved.getCode() != 200) {
+                    return null;
+                }
+                return JenkinsJsonParser.readBuildStatus(resolved.getEntity().getContent()).getBuildNumber();
+            });
+            if (number == null) {
+                finished = true;
+                throw new IOException("Failed to resolve " + matcher.group(2) + " of " + matcher.group(1));
+            }
+            logger.debug("Resolved {} to build #{}", path, number);
+            return matcher.group(1) + number + "/";
+        }
+        
+        private void closeResponse() throws IOException {
+            body = null;
+            if (response != null) {
+                response.close();
+                response = null;
+            }
+        }
+        
+        @Override
+        public void close() throws IOException {
+            finished = true;
+            closeResponse();
+        }
+    }
+}
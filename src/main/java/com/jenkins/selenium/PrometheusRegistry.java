@@ -0,0 +1,183 @@
+package com.jenkins.selenium;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory {@link MetricsRegistry} that renders the Prometheus text format.
+ *
+ * Counters are plain sums; timers are histograms with fixed buckets from 5 ms to 60 s, reported in
+ * seconds with {@code _bucket}, {@code _sum} and {@code _count} series, so p50/p99 per endpoint can
+ * be computed with {@code histogram_quantile}. {@link #writeTo(Path)} writes a file for the
+ * node_exporter textfile collector or for archiving with the build, no scrape endpoint needed.
+ */
+public class PrometheusRegistry implements MetricsRegistry {
+    
+    private static final double[] BUCKETS_SECONDS = {0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60};
+    
+    private final Map<MetricKey, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<MetricKey, Histogram> timers = new ConcurrentHashMap<>();
+    
+    @Override
+    public void increment(String name, long amount, String... tags) {
+        counters.computeIfAbsent(new MetricKey(name, tags), key -> new LongAdder()).add(amount);
+    }
+    
+    @Override
+    public void record(String name, long durationNanos, String... tags) {
+        timers.computeIfAbsent(new MetricKey(name, tags), key -> new Histogram()).record(durationNanos);
+    }
+    
+    /**
+     * Current value of a counter, 0 if it was never incremented
+     */
+    public long getCount(String name, String... tags) {
+        LongAdder counter = counters.get(new MetricKey(name, tags));
+        return counter != null ? counter.sum() : 0;
+    }
+    
+    /**
+     * Number of durations recorded in a timer
+     */
+    public long getTimerCount(String name, String... tags) {
+        Histogram histogram = timers.get(new MetricKey(name, tags));
+        return histogram != null ? histogram.count.sum() : 0;
+    }
+    
+    /**
+     * All metrics in the Prometheus text exposition format
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder();
+        
+        Map<String, Map<String, Long>> counterFamilies = new TreeMap<>();
+        counters.forEach((key, value) -> counterFamilies.computeIfAbsent(key.name, name -> new TreeMap<>()).put(key.labels(null), value.sum()));
+        counterFamilies.forEach((name, series) -> {
+            out.append("# TYPE ").append(name).append(" counter\n");
+            series.forEach((labels, value) -> out.append(name).append(labels).append(' ').append(value).append('\n'));
+        });
+        
+        Map<String, Map<MetricKey, Histogram>> timerFamilies = new TreeMap<>();
+        timers.forEach((key, value) -> timerFamilies.computeIfAbsent(key.name, name -> new TreeMap<>()).put(key, value));
+        timerFamilies.forEach((name, series) -> {
+            out.append("# TYPE ").append(name).append(" histogram\n");
+            series.forEach((key, histogram) -> histogram.appendTo(out, key));
+        });
+        return out.toString();
+    }
+    
+    /**
+     * Write {@link #scrape()} to a file, replacing it atomically so readers never see half a file
+     */
+    public void writeTo(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tempFile = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        Files.write(tempFile, scrape().getBytes(StandardCharsets.UTF_8));
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    private static String seconds(double value) {
+        return value == Math.rint(value) && !Double.isInfinite(value) ? String.valueOf((long) value) : String.valueOf(value);
+    }
+    
+    private static class Histogram {
+        private final LongAdder[] buckets = new LongAdder[BUCKETS_SECONDS.length];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sumNanos = new LongAdder();
+        
+        Histogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+        
+        void record(long nanos) {
+            double seconds = nanos / 1e9;
+            for (int i = 0; i < BUCKETS_SECONDS.length; i++) {
+                if (seconds <= BUCKETS_SECONDS[i]) {
+                    buckets[i].increment();
+                    break;
+                }
+            }
+            count.increment();
+            sumNanos.add(nanos);
+        }
+        
+        void appendTo(StringBuilder out, MetricKey key) {
+            // Buckets are stored individually and reported cumulatively
+            long cumulative = 0;
+            for (int i = 0; i < BUCKETS_SECONDS.length; i++) {
+                cumulative += buckets[i].sum();
+                out.append(key.name).append("_bucket").append(key.labels(seconds(BUCKETS_SECONDS[i])))
+                    .append(' ').append(cumulative).append('\n');
+            }
+            long total = count.sum();
+            out.append(key.name).append("_bucket").append(key.labels("+Inf")).append(' ').append(total).append('\n');
+            out.append(key.name).append("_sum").append(key.labels(null)).append(' ').append(sumNanos.sum() / 1e9).append('\n');
+            out.append(key.name).append("_count").append(key.labels(null)).append(' ').append(total).append('\n');
+        }
+    }
+    
+    private static class MetricKey implements Comparable<MetricKey> {
+        private final String name;
+        private final String[] tags;
+        
+        MetricKey(String name, String[] tags) {
+            if (tags.length % 2 != 0) {
+                throw new IllegalArgumentException("Tags of " + name + " must be key/value pairs");
+            }
+            this.name = name;
+            this.tags = tags.clone();
+        }
+        
+        /**
+         * Label set in braces, with {@code le} appended for histogram buckets
+         */
+        String labels(String le) {
+            if (tags.length == 0 && le == null) {
+                return "";
+            }
+            StringBuilder labels = new StringBuilder("{");
+            for (int i = 0; i < tags.length; i += 2) {
+                labels.append(i > 0 ? "," : "").append(tags[i]).append("=\"").append(escape(tags[i + 1])).append('"');
+            }
+            if (le != null) {
+                labels.append(tags.length > 0 ? "," : "").append("le=\"").append(le).append('"');
+            }
+            return labels.append('}').toString();
+        }
+        
+        private static String escape(String value) {
+            return String.valueOf(value).replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        }
+        
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof MetricKey)) {
+                return false;
+            }
+            MetricKey key = (MetricKey) other;
+            return name.equals(key.name) && Arrays.equals(tags, key.tags);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, Arrays.hashCode(tags));
+        }
+        
+        @Override
+        public int compareTo(MetricKey other) {
+            return labels(null).compareTo(other.labels(null));
+        }
+    }
+}
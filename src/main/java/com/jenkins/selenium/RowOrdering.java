@@ -0,0 +1,91 @@
+package com.jenkins.selenium;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Order in which test rows run.
+ *
+ * {@link Mode#FILE} keeps the file order. {@link Mode#FAIL_FAST} runs risky rows first so a broken
+ * build shows up in the first seconds: rows whose last run failed, then rows that flip between
+ * pass and fail, then rows that fail often. Only the risky rows are held in memory; the others
+ * follow in file order from a second pass over the data.
+ */
+public class RowOrdering {
+    private static final Logger logger = LoggerFactory.getLogger(RowOrdering.class);
+    
+    public enum Mode { FILE, FAIL_FAST }
+    
+    private RowOrdering() {
+    }
+    
+    /**
+     * Mode from {@code selenium.order}: {@code file} (default) or {@code failfast}
+     */
+    public static Mode modeFromSystemProperties() {
+        String order = System.getProperty("selenium.order", "file").trim().toLowerCase();
+        return "failfast".equals(order) || "fail_fast".equals(order) ? Mode.FAIL_FAST : Mode.FILE;
+    }
+    
+    /**
+     * Rows in the given order. {@code rows} may be called twice, and every stream it returns
+     * must contain the same rows.
+     */
+    public static Stream<TestData> order(Mode mode, Supplier<Stream<TestData>> rows, DurationHistoryStore history) {
+        if (mode == Mode.FILE || history == null) {
+            return rows.get();
+        }
+        
+        List<RiskyRow> risky = new ArrayList<>();
+        try (Stream<TestData> firstPass = rows.get()) {
+            firstPass.forEach(row -> {
+                double risk = risk(history.get(DurationHistoryStore.Kind.TEST, row.getTestName()));
+                if (risk > 0) {
+                    risky.add(new RiskyRow(row, risk));
+                }
+            });
+        }
+        // Stable sort: equally risky rows keep their file order
+        risky.sort(Comparator.comparingDouble((RiskyRow row) -> row.risk).reversed());
+        logger.info("Running {} recently failed or flaky rows first", risky.size());
+        
+        Set<String> riskyNames = new HashSet<>();
+        risky.forEach(row -> riskyNames.add(row.row.getTestName()));
+        return Stream.concat(risky.stream().map(row -> row.row),
+            rows.get().filter(row -> !riskyNames.contains(row.getTestName())));
+    }
+    
+    /**
+     * 0 for a row that has only passed or never ran. A failed last run outweighs any flakiness,
+     * and flakiness outweighs a steady failure rate.
+     */
+    static double risk(DurationHistoryStore.History history) {
+        if (history == null || history.getCount() == 0) {
+            return 0;
+        }
+        double risk = history.getFlipRate() + history.getFailureRate() / 2;
+        DurationHistoryStore.Outcome last = history.getLastOutcome();
+        if (last == DurationHistoryStore.Outcome.FAILED || last == DurationHistoryStore.Outcome.ERROR) {
+            risk += 2;
+        }
+        return risk;
+    }
+    
+    private static class RiskyRow {
+        private final TestData row;
+        private final double risk;
+        
+        RiskyRow(TestData row, double risk) {
+            this.row = row;
+            this.risk = risk;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.jenkins.selenium;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs test scenarios concurrently with a cap on how many run at once.
+ *
+ * Scenarios are queued round-robin by browser, so one browser with many scenarios cannot hold
+ * every slot while the others wait. A fixed number of workers take scenarios from the queue in
+ * order, and each result is put in a concurrent map as soon as its scenario finishes. When the
+ * overall deadline passes, in-flight scenarios are interrupted and those not yet started are
+ * reported as cancelled. Workers run on virtual threads when the JDK has them.
+ */
+public class ScenarioExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(ScenarioExecutor.class);
+    
+    private final int parallelism;
+    private final long deadlineMillis;
+    
+    public ScenarioExecutor() {
+        this(Integer.getInteger("jenkins.scenarios.parallelism", 4),
+            TimeUnit.MINUTES.toMillis(Long.getLong("jenkins.scenarios.deadlineMinutes", 60)));
+    }
+    
+    /**
+     * @param parallelism maximum number of scenarios running at once
+     * @param deadlineMillis overall time budget for all scenarios
+     */
+    public ScenarioExecutor(int parallelism, long deadlineMillis) {
+        this.parallelism = Math.max(1, parallelism);
+        this.deadlineMillis = deadlineMillis;
+    }
+    
+    /**
+     * Runs one scenario and reports its result
+     */
+    @FunctionalInterface
+    public interface ScenarioTask {
+        JenkinsTestRunner.TestResult run(String scenarioName, JenkinsTestRunner.TestScenario scenario);
+    }
+    
+    /**
+     * Run all scenarios and wait until they finish or the deadline passes
+     */
+    public Map<String, JenkinsTestRunner.TestResult> run(Map<String, JenkinsTestRunner.TestScenario> scenarios, ScenarioTask task) {
+        return start(scenarios, task).await();
+    }
+    
+    /**
+     * Start running the scenarios and return at once. Results appear in
+     * {@link ScenarioRun#getResults()} as scenarios finish.
+     */
+    public ScenarioRun start(Map<String, JenkinsTestRunner.TestScenario> scenarios, ScenarioTask task) {
+        ScenarioRun run = new ScenarioRun(scenarios, fairOrder(scenarios), task);
+        run.startWorkers();
+        return run;
+    }
+    
+    /**
+     * Interleave scenarios by browser: first scenario of each browser, then the second of each, ...
+     */
+    static List<String> fairOrder(Map<String, JenkinsTestRunner.TestScenario> scenarios) {
+        Map<String, Deque<String>> byBrowser = new LinkedHashMap<>();
+        for (Map.Entry<String, JenkinsTestRunner.TestScenario> entry : scenarios.entrySet()) {
+            String browser = String.valueOf(entry.getValue().getBrowser()).toLowerCase();
+            byBrowser.computeIfAbsent(browser, key -> new ArrayDeque<>()).add(entry.getKey());
+        }
+        
+        List<String> order = new ArrayList<>(scenarios.size());
+        while (order.size() < scenarios.size()) {
+            for (Deque<String> names : byBrowser.values()) {
+                if (!names.isEmpty()) {
+                    order.add(names.poll());
+                }
+            }
+        }
+        return order;
+    }
+    
+    /**
+     * Virtual-thread-per-task executor on JDK 21+, otherwise a fixed pool of daemon threads.
+     * Looked up reflectively because the project compiles for Java 11.
+     */
+    static ExecutorService newWorkerExecutor(int threads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threadCount = new AtomicInteger();
+            return Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "scenario-worker-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+    
+    /**
+     * A running set of scenarios
+     */
+    public class ScenarioRun {
+        private final Map<String, JenkinsTestRunner.TestScenario> scenarios;
+        private final Queue<String> pending;
+        private final ScenarioTask task;
+        private final Map<String, JenkinsTestRunner.TestResult> results = new ConcurrentHashMap<>();
+        private final List<Future<?>> workers = new ArrayList<>();
+        private final ExecutorService executor;
+        private final long deadline;
+        
+        ScenarioRun(Map<String, JenkinsTestRunner.TestScenario> scenarios, List<String> order, ScenarioTask task) {
+            this.scenarios = scenarios;
+            this.pending = new ConcurrentLinkedQueue<>(order);
+            this.task = task;
+            this.executor = newWorkerExecutor(parallelism);
+            this.deadline = System.currentTimeMillis() + deadlineMillis;
+        }
+        
+        private void startWorkers() {
+            int workerCount = Math.min(parallelism, scenarios.size());
+            logger.info("Running {} scenarios with {} workers", scenarios.size(), workerCount);
+            for (int i = 0; i < workerCount; i++) {
+                workers.add(executor.submit(this::work));
+            }
+            executor.shutdown();
+        }
+        
+        private void work() {
+            String scenarioName;
+            while (!Thread.currentThread().isInterrupted() && (scenarioName = pending.poll()) != null) {
+                JenkinsTestRunner.TestScenario scenario = scenarios.get(scenarioName);
+                logger.info("Running scenario: {} ({})", scenarioName, scenario.getBrowser());
+                JenkinsTestRunner.TestResult result;
+                try {
+                    result = task.run(scenarioName, scenario);
+                } catch (RuntimeException e) {
+                    logger.error("Scenario '{}' threw an exception", scenarioName, e);
+                    result = new JenkinsTestRunner.TestResult(false, "Scenario failed: " + e.getMessage(), e);
+                }
+                results.put(scenarioName, result);
+            }
+        }
+        
+        /**
+         * Results of the scenarios that have finished so far. Safe to read while the run is in progress.
+         */
+        public Map<String, JenkinsTestRunner.TestResult> getResults() {
+            return results;
+        }
+        
+        public boolean isDone() {
+            return executor.isTerminated();
+        }
+        
+        /**
+         * Wait for the run to finish. At the deadline, in-flight scenarios are interrupted and
+         * every scenario without a result is reported as cancelled.
+         */
+        public Map<String, JenkinsTestRunner.TestResult> await() {
+            try {
+                long remaining = deadline - System.currentTimeMillis();
+                if (!executor.awaitTermination(Math.max(0, remaining), TimeUnit.MILLISECONDS)) {
+                    logger.warn("Scenario deadline reached, cancelling {} unfinished scenarios", scenarios.size() - results.size());
+                    cancel();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel();
+            }
+            return results;
+        }
+        
+        /**
+         * Interrupt in-flight scenarios and mark unfinished ones as cancelled
+         */
+        public void cancel() {
+            pending.clear();
+            workers.forEach(worker -> worker.cancel(true));
+            executor.shutdownNow();
+            try {
+                // Give interrupted waits a moment to record their own result
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            for (String scenarioName : scenarios.keySet()) {
+                results.putIfAbsent(scenarioName,
+                    new JenkinsTestRunner.TestResult(false, "Scenario cancelled: overall deadline reached", null));
+            }
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.jenkins.selenium;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes screenshots to disk on a background thread.
+ *
+ * The test thread only grabs the PNG bytes and hands them over; one writer thread drains the queue
+ * in batches, converts to JPEG if configured and writes the files. The queue is bounded: when the
+ * disk falls behind, {@link #submit} waits up to {@code offerTimeoutMillis} for a free slot and
+ * then drops the screenshot, so a failure-heavy run never stalls on screenshots or fills memory.
+ */
+public class ScreenshotWriter implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ScreenshotWriter.class);
+    
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+    private static final int BATCH_SIZE = 16;
+    private static volatile ScreenshotWriter shared;
+    
+    public enum Format {
+        PNG("png"), JPEG("jpg");
+        
+        private final String extension;
+        
+        Format(String extension) {
+            this.extension = extension;
+        }
+    }
+    
+    private final Path directory;
+    private final Format format;
+    private final float jpegQuality;
+    private final long offerTimeoutMillis;
+    private final BlockingQueue<Screenshot> queue;
+    private final Thread writerThread;
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile boolean closed;
+    private boolean directoryCreated;
+    
+    /**
+     * Writer configured by {@code selenium.screenshot.dir} (default {@code build/screenshots}),
+     * {@code selenium.screenshot.format} ({@code png} or {@code jpeg}), {@code selenium.screenshot.queue}
+     * (default 32) and {@code selenium.screenshot.offerTimeout} (default 200 ms)
+     */
+    public ScreenshotWriter() {
+        this(Paths.get(System.getProperty("selenium.screenshot.dir", "build/screenshots")),
+            "jpeg".equalsIgnoreCase(System.getProperty("selenium.screenshot.format"))
+                || "jpg".equalsIgnoreCase(System.getProperty("selenium.screenshot.format")) ? Format.JPEG : Format.PNG,
+            Integer.getInteger("selenium.screenshot.queue", 32),
+            Long.getLong("selenium.screenshot.offerTimeout", 200));
+    }
+    
+    public ScreenshotWriter(Path directory, Format format, int queueCapacity, long offerTimeoutMillis) {
+        this.directory = directory;
+        this.format = format;
+        this.jpegQuality = Float.parseFloat(System.getProperty("selenium.screenshot.jpegQuality", "0.8"));
+        this.offerTimeoutMillis = Math.max(0, offerTimeoutMillis);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.writerThread = new Thread(this::writeLoop, "screenshot-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+    
+    /**
+     * Writer shared by all tests of the JVM; pending screenshots are written before the JVM exits
+     */
+    public static ScreenshotWriter shared() {
+        if (shared == null) {
+            synchronized (ScreenshotWriter.class) {
+                if (shared == null) {
+                    ScreenshotWriter writer = new ScreenshotWriter();
+                    Runtime.getRuntime().addShutdownHook(new Thread(writer::close, "screenshot-shutdown"));
+                    shared = writer;
+                }
+            }
+        }
+        return shared;
+    }
+    
+    /**
+     * Wait for the shared writer, if one was started, to write everything queued so far
+     */
+    public static void flushShared(long timeoutMillis) {
+        ScreenshotWriter writer = shared;
+        if (writer != null) {
+            writer.flush(timeoutMillis);
+        }
+    }
+    
+    /**
+     * Queue a PNG screenshot for writing
+     *
+     * @return Path the file will be written to, or null if the queue stayed full and it was dropped
+     */
+    public Path submit(String name, byte[] png) {
+        if (closed) {
+            logger.warn("Screenshot writer is closed, dropping screenshot {}", name);
+            dropped.incrementAndGet();
+            return null;
+        }
+        String fileName = String.format("%s_%s_%d.%s", name, LocalDateTime.now().format(TIMESTAMP),
+            sequence.incrementAndGet(), format.extension);
+        Screenshot screenshot = new Screenshot(directory.resolve(fileName), png);
+        
+        pending.incrementAndGet();
+        try {
+            if (queue.offer(screenshot, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                return screenshot.path;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        pending.decrementAndGet();
+        dropped.incrementAndGet();
+        logger.warn("Screenshot queue full, dropping screenshot {}", name);
+        return null;
+    }
+    
+    /**
+     * Wait until every queued screenshot is written
+     *
+     * @return false if the timeout elapsed first
+     */
+    public boolean flush(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (pending) {
+            while (pending.get() > 0) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    pending.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    private void writeLoop() {
+        List<Screenshot> batch = new ArrayList<>(BATCH_SIZE);
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                if (closed && queue.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+            queue.drainTo(batch, BATCH_SIZE - 1);
+            for (Screenshot screenshot : batch) {
+                write(screenshot);
+            }
+            
+            synchronized (pending) {
+                pending.addAndGet(-batch.size());
+                pending.notifyAll();
+            }
+            batch.clear();
+        }
+    }
+    
+    private void write(Screenshot screenshot) {
+        try {
+            if (!directoryCreated) {
+                Files.createDirectories(directory);
+                directoryCreated = true;
+            }
+            if (format == Format.JPEG) {
+                writeJpeg(screenshot);
+            } else {
+                Files.write(screenshot.path, screenshot.png);
+            }
+            written.incrementAndGet();
+            logger.info("Screenshot captured: {}", screenshot.path);
+        } catch (IOException | RuntimeException e) {
+            failed.incrementAndGet();
+            logger.error("Failed to write screenshot {}: {}", screenshot.path, e.getMessage());
+        }
+    }
+    
+    private void writeJpeg(Screenshot screenshot) throws IOException {
+        BufferedImage source = ImageIO.read(new ByteArrayInputStream(screenshot.png));
+        if (source == null) {
+            throw new IOException("Screenshot is not a readable image");
+        }
+        // JPEG has no alpha channel
+        BufferedImage rgb = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rgb.createGraphics();
+        graphics.drawImage(source, 0, 0, Color.WHITE, null);
+        graphics.dispose();
+        
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (OutputStream out = Files.newOutputStream(screenshot.path);
+             ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.setOutput(imageOut);
+            writer.write(null, new IIOImage(rgb, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+    
+    /**
+     * Stop accepting screenshots and write the ones already queued
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (!flush(Long.getLong("selenium.screenshot.closeTimeout", 10_000))) {
+            logger.warn("{} screenshots were not written before close", pending.get());
+        }
+        writerThread.interrupt();
+        if (dropped.get() > 0 || failed.get() > 0) {
+            logger.warn("Screenshots written: {}, dropped: {}, failed: {}", written.get(), dropped.get(), failed.get());
+        }
+    }
+    
+    // Getters
+    public long getWrittenCount() { return written.get(); }
+    public long getDroppedCount() { return dropped.get(); }
+    public long getFailedCount() { return failed.get(); }
+    public int getQueuedCount() { return queue.size(); }
+    
+    private static class Screenshot {
+        private final Path path;
+        private final byte[] png;
+        
+        Screenshot(Path path, byte[] png) {
+            this.path = path;
+            this.png = png;
+        }
+    }
+}
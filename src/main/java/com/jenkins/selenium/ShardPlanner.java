@@ -0,0 +1,239 @@
+package com.jenkins.selenium;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Splits a CSV data set into shards so that N builds can each run one slice.
+ *
+ * Every shard reads the same file and keeps only its own rows, so nothing has to be copied to the
+ * agents. With {@link Strategy#COUNT} rows are dealt round-robin by position, which keeps shards
+ * within one row of each other and needs a single streaming pass. With {@link Strategy#DURATION}
+ * every row gets a weight (its expected duration), and rows are assigned longest first to the
+ * least loaded shard. This takes a first pass over the file to collect the weights, which must be
+ * the same on every shard for the slices to fit together. The coordinator therefore takes one
+ * {@link WeightSnapshot} of its duration history before any shard starts and hands the same
+ * snapshot to every build; shards never weight rows from their own, still growing, history.
+ * A sharded duration run without a snapshot falls back to count sharding.
+ *
+ * The shard comes from the {@code SHARD_INDEX} / {@code SHARD_TOTAL} / {@code SHARD_STRATEGY} /
+ * {@code SHARD_WEIGHTS} build parameters, which Jenkins exports as environment variables, or from
+ * the {@code shard.index} / {@code shard.total} / {@code shard.strategy} / {@code shard.weights}
+ * system properties.
+ */
+public class ShardPlanner {
+    private static final Logger logger = LoggerFactory.getLogger(ShardPlanner.class);
+    
+    public enum Strategy {
+        COUNT, DURATION;
+        
+        /**
+         * Strategy by its name in any case
+         *
+         * @throws IllegalArgumentException listing the strategies if none has that name
+         */
+        public static Strategy of(String name) {
+            for (Strategy strategy : values()) {
+                if (strategy.name().equalsIgnoreCase(name.trim())) {
+                    return strategy;
+                }
+            }
+            String names = Arrays.stream(values()).map(strategy -> strategy.name().toLowerCase()).collect(Collectors.joining(", "));
+            throw new IllegalArgumentException("Unknown shard strategy '" + name + "', expected one of: " + names);
+        }
+    }
+    
+    /**
+     * Expected cost of a row, e.g. its duration in milliseconds
+     */
+    @FunctionalInterface
+    public interface RowWeights {
+        long weightOf(TestData row);
+    }
+    
+    private final int shardIndex;
+    private final int shardCount;
+    private final Strategy strategy;
+    private final RowWeights weights;
+    
+    public ShardPlanner(int shardIndex, int shardCount, Strategy strategy, RowWeights weights) {
+        if (shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount) {
+            throw new IllegalArgumentException("Invalid shard " + shardIndex + " of " + shardCount);
+        }
+        this.shardIndex = shardIndex;
+        this.shardCount = shardCount;
+        this.strategy = strategy;
+        this.weights = weights;
+    }
+    
+    /**
+     * Shard of this build; a single shard holding every row if none is configured. Duration
+     * sharding weights rows by the snapshot in {@code SHARD_WEIGHTS}.
+     */
+    public static ShardPlanner fromEnvironment() {
+        int shardIndex = Integer.parseInt(setting("shard.index", "SHARD_INDEX", "0"));
+        int shardCount = Integer.parseInt(setting("shard.total", "SHARD_TOTAL", "1"));
+        Strategy strategy = Strategy.of(setting("shard.strategy", "SHARD_STRATEGY", "count"));
+        RowWeights weights = row -> 1;
+        if (strategy == Strategy.DURATION) {
+            String snapshot = setting("shard.weights", "SHARD_WEIGHTS", "");
+            if (!snapshot.isEmpty()) {
+                weights = WeightSnapshot.decode(snapshot);
+            } else if (shardCount > 1) {
+                logger.warn("Duration sharding without SHARD_WEIGHTS, falling back to count sharding");
+                strategy = Strategy.COUNT;
+            }
+        }
+        return new ShardPlanner(shardIndex, shardCount, strategy, weights);
+    }
+    
+    private static String setting(String property, String environmentVariable, String defaultValue) {
+        String value = System.getProperty(property);
+        if (value == null || value.isEmpty()) {
+            value = System.getenv(environmentVariable);
+        }
+        return value == null || value.isEmpty() ? defaultValue : value.trim();
+    }
+    
+    public int getShardIndex() { return shardIndex; }
+    public int getShardCount() { return shardCount; }
+    public Strategy getStrategy() { return strategy; }
+    
+    public boolean isSharded() {
+        return shardCount > 1;
+    }
+    
+    /**
+     * Rows of this shard, streamed from the file. The stream must be closed.
+     */
+    public Stream<TestData> select(String csvFilePath) {
+        if (!isSharded()) {
+            return TestDataReader.stream(csvFilePath);
+        }
+        logger.info("Selecting shard {} of {} from {} by {}", shardIndex + 1, shardCount, csvFilePath, strategy.name().toLowerCase());
+        
+        AtomicLong position = new AtomicLong();
+        if (strategy == Strategy.COUNT) {
+            return TestDataReader.stream(csvFilePath)
+                .filter(row -> position.getAndIncrement() % shardCount == shardIndex);
+        }
+        
+        long[] rowWeights;
+        try (Stream<TestData> rows = TestDataReader.stream(csvFilePath)) {
+            rowWeights = rows.mapToLong(weights::weightOf).toArray();
+        }
+        int[] assignment = assign(rowWeights, shardCount);
+        return TestDataReader.stream(csvFilePath)
+            .filter(row -> {
+                long index = position.getAndIncrement();
+                return index < assignment.length && assignment[(int) index] == shardIndex;
+            });
+    }
+    
+    /**
+     * Rows of this shard as a list
+     */
+    public List<TestData> readTestData(String csvFilePath) {
+        try (Stream<TestData> rows = select(csvFilePath)) {
+            return rows.collect(Collectors.toList());
+        }
+    }
+    
+    /**
+     * Longest-processing-time-first assignment: each row, heaviest first, goes to the shard with
+     * the smallest total so far. Ties are broken by row and shard position, so every shard
+     * computes the same assignment.
+     *
+     * @return shard of each row
+     */
+    static int[] assign(long[] rowWeights, int shardCount) {
+        Integer[] order = IntStream.range(0, rowWeights.length).boxed().toArray(Integer[]::new);
+        Arrays.sort(order, Comparator.<Integer>comparingLong(row -> rowWeights[row]).reversed()
+            .thenComparingInt(row -> row));
+        
+        long[] loads = new long[shardCount];
+        PriorityQueue<Integer> shards = new PriorityQueue<>(shardCount,
+            Comparator.<Integer>comparingLong(shard -> loads[shard]).thenComparingInt(shard -> shard));
+        for (int shard = 0; shard < shardCount; shard++) {
+            shards.add(shard);
+        }
+        
+        int[] assignment = new int[rowWeights.length];
+        for (int row : order) {
+            int shard = shards.poll();
+            assignment[row] = shard;
+            loads[shard] += Math.max(0, rowWeights[row]);
+            shards.add(shard);
+        }
+        return assignment;
+    }
+    
+    /**
+     * Row weights by test name, frozen when taken, so every shard that decodes the same snapshot
+     * computes the same assignment. Rows not in the snapshot weigh {@code unknownWeight}.
+     */
+    public static final class WeightSnapshot implements RowWeights {
+        private final Map<String, Long> weights;
+        private final long unknownWeight;
+        
+        public WeightSnapshot(Map<String, Long> weights, long unknownWeight) {
+            this.weights = Collections.unmodifiableMap(new HashMap<>(weights));
+            this.unknownWeight = unknownWeight;
+        }
+        
+        @Override
+        public long weightOf(TestData row) {
+            return weights.getOrDefault(row.getTestName(), unknownWeight);
+        }
+        
+        public int size() {
+            return weights.size();
+        }
+        
+        /**
+         * Form-encoded {@code =unknown&name=weight&...}, sorted by name, for the {@code SHARD_WEIGHTS} parameter
+         */
+        public String encode() {
+            StringBuilder encoded = new StringBuilder("=").append(unknownWeight);
+            weights.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> encoded.append('&').append(URLEncoder.encode(entry.getKey(), StandardCharsets.UTF_8))
+                    .append('=').append(entry.getValue()));
+            return encoded.toString();
+        }
+        
+        public static WeightSnapshot decode(String encoded) {
+            Map<String, Long> weights = new HashMap<>();
+            long unknownWeight = 1;
+            for (String pair : encoded.split("&")) {
+                int separator = pair.lastIndexOf('=');
+                if (separator < 0) {
+                    throw new IllegalArgumentException("Invalid shard weight: " + pair);
+                }
+                String name = URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8);
+                long weight = Long.parseLong(pair.substring(separator + 1));
+                if (name.isEmpty()) {
+                    unknownWeight = weight;
+                } else {
+                    weights.put(name, weight);
+                }
+            }
+            return new WeightSnapshot(weights, unknownWeight);
+        }
+    }
+}
@@ -1,50 +1,204 @@
 package com.jenkins.selenium;
 
 import com.opencsv.CSVReader;
-import com.opencsv.exceptions.CsvException;
+import com.opencsv.exceptions.CsvValidationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+/**
+ * Reads test data rows from CSV.
+ *
+ * {@link #stream(String)} parses rows on demand, so memory use does not grow with the file. The
+ * first row is a header and columns are found by name ({@code searchTerm}, {@code expectedResult},
+ * {@code testName}, {@code browser}, case-insensitive) in any order; extra columns are ignored.
+ * A header that names some of these columns must name all of them, otherwise reading fails with
+ * the missing names. A file whose header has none of these names is read by position, as before.
+ */
 public class TestDataReader {
     private static final Logger logger = LoggerFactory.getLogger(TestDataReader.class);
     
+    private static final String[] COLUMNS = {"searchTerm", "expectedResult", "testName", "browser"};
+    
+    /**
+     * Read the whole file into a list. Use {@link #stream(String)} for large files.
+     */
     public static List<TestData> readTestData(String csvFilePath) {
-        List<TestData> testDataList = new ArrayList<>();
-        
-        try (FileReader fileReader = new FileReader(csvFilePath);
-             CSVReader csvReader = new CSVReader(fileReader)) {
-            
-            List<String[]> records = csvReader.readAll();
+        try (Stream<TestData> rows = stream(csvFilePath)) {
+            List<TestData> testDataList = rows.collect(Collectors.toList());
+            logger.info("Successfully loaded {} test data records", testDataList.size());
+            return testDataList;
+        }
+    }
+    
+    /**
+     * Rows of the file, parsed as the stream is consumed. The stream must be closed to release the
+     * file. Parallel streams split it into batches of {@code csv.batchSize} rows (default 1024).
+     */
+    public static Stream<TestData> stream(String csvFilePath) {
+        try {
+            Reader reader = Files.newBufferedReader(Paths.get(csvFilePath), StandardCharsets.UTF_8);
+            RowSpliterator rows = new RowSpliterator(new CSVReader(reader), csvFilePath,
+                Integer.getInteger("csv.batchSize", 1024));
+            return StreamSupport.stream(rows, false).onClose(rows::close);
             
-            // Skip header row
-            for (int i = 1; i < records.size(); i++) {
-                String[] record = records.get(i);
-                if (record.length >= 4) {
-                    TestData testData = new TestData(
-                        record[0].trim(), // searchTerm
-                        record[1].trim(), // expectedResult
-                        record[2].trim(), // testName
-                        record[3].trim()  // browser
-                    );
-                    testDataList.add(testData);
-                    logger.info("Loaded test data: {}", testData);
-                } else {
-                    logger.warn("Skipping invalid record at line {}: {}", i + 1, String.join(",", record));
+        } catch (IOException e) {
+            logger.error("Error reading CSV file: {}", csvFilePath, e);
+            throw new RuntimeException("Failed to read CSV file", e);
+        }
+    }
+    
+    /**
+     * Reads one row at a time; {@link #trySplit()} hands a fixed-size batch to another thread
+     */
+    private static class RowSpliterator implements Spliterator<TestData> {
+        private final CSVReader csvReader;
+        private final String csvFilePath;
+        private final int batchSize;
+        private int[] columnIndexes;
+        private int requiredLength;
+        private boolean finished;
+        
+        RowSpliterator(CSVReader csvReader, String csvFilePath, int batchSize) {
+            this.csvReader = csvReader;
+            this.csvFilePath = csvFilePath;
+            this.batchSize = Math.max(1, batchSize);
+        }
+        
+        @Override
+        public boolean tryAdvance(Consumer<? super TestData> action) {
+            TestData testData = nextRow();
+            if (testData == null) {
+                return false;
+            }
+            action.accept(testData);
+            return true;
+        }
+        
+        @Override
+        public Spliterator<TestData> trySplit() {
+            TestData[] batch = new TestData[batchSize];
+            int count = 0;
+            TestData testData;
+            while (count < batchSize && (testData = nextRow()) != null) {
+                batch[count++] = testData;
+            }
+            return count == 0 ? null : Spliterators.spliterator(batch, 0, count, characteristics());
+        }
+        
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+        
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+        
+        private synchronized TestData nextRow() {
+            if (finished) {
+                return null;
+            }
+            try {
+                if (columnIndexes == null) {
+                    readHeader();
+                }
+                String[] record;
+                while ((record = csvReader.readNext()) != null) {
+                    if (record.length >= requiredLength) {
+                        TestData testData = new TestData(
+                            column(record, 0), // searchTerm
+                            column(record, 1), // expectedResult
+                            column(record, 2), // testName
+                            column(record, 3)  // browser
+                        );
+                        logger.debug("Loaded test data: {}", testData);
+                        return testData;
+                    }
+                    if (record.length > 1 || !record[0].isEmpty()) {
+                        logger.warn("Skipping invalid record at line {}: {}", csvReader.getLinesRead(), String.join(",", record));
+                    }
                 }
+                finished = true;
+                close();
+                return null;
+                
+            } catch (IOException e) {
+                finished = true;
+                close();
+                throw new UncheckedIOException("Failed to read CSV file: " + csvFilePath, e);
+            } catch (CsvValidationException e) {
+                finished = true;
+                close();
+                throw new RuntimeException("Failed to read CSV file: " + csvFilePath, e);
             }
+        }
+        
+        private void readHeader() throws IOException, CsvValidationException {
+            String[] header = csvReader.readNext();
+            columnIndexes = new int[COLUMNS.length];
             
-            logger.info("Successfully loaded {} test data records", testDataList.size());
+            Map<String, Integer> positions = new HashMap<>();
+            if (header != null) {
+                for (int i = 0; i < header.length; i++) {
+                    // A UTF-8 byte order mark would otherwise stick to the first name
+                    positions.putIfAbsent(header[i].replace("\uFEFF", "").trim().toLowerCase(), i);
+                }
+            }
             
-        } catch (IOException | CsvException e) {
-            logger.error("Error reading CSV file: {}", csvFilePath, e);
-            throw new RuntimeException("Failed to read CSV file", e);
+            boolean named = false;
+            List<String> missing = new ArrayList<>();
+            for (int i = 0; i < COLUMNS.length; i++) {
+                Integer position = positions.get(COLUMNS[i].toLowerCase());
+                columnIndexes[i] = position != null ? position : -1;
+                named |= position != null;
+                if (position == null) {
+                    missing.add(COLUMNS[i]);
+                }
+            }
+            if (named && !missing.isEmpty()) {
+                finished = true;
+                close();
+                throw new IllegalArgumentException("CSV header of " + csvFilePath + " is missing column(s): " + String.join(", ", missing));
+            }
+            if (!named) {
+                logger.warn("CSV header of {} has no known column names, reading columns by position", csvFilePath);
+                for (int i = 0; i < COLUMNS.length; i++) {
+                    columnIndexes[i] = i;
+                }
+            }
+            for (int index : columnIndexes) {
+                requiredLength = Math.max(requiredLength, index + 1);
+            }
+        }
+        
+        private String column(String[] record, int column) {
+            return record[columnIndexes[column]].trim();
         }
         
-        return testDataList;
+        void close() {
+            try {
+                csvReader.close();
+            } catch (IOException e) {
+                logger.debug("Error closing CSV file {}: {}", csvFilePath, e.getMessage());
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,9 +1,10 @@
 package com.jenkins.selenium;
 
+import org.openqa.selenium.WebDriver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.List;
+import java.util.stream.Stream;
 
 public class TestRunner {
     private static final Logger logger = LoggerFactory.getLogger(TestRunner.class);
@@ -18,30 +19,26 @@ public class TestRunner {
         logger.info("Starting test execution with CSV file: {}", csvFilePath);
         
         try {
-            // Read test data from CSV
-            List<TestData> testDataList = TestDataReader.readTestData(csvFilePath);
-            logger.info("Loaded {} test cases from CSV", testDataList.size());
-            
-            int passedTests = 0;
-            int failedTests = 0;
-            
-            // Execute each test
-            for (TestData testData : testDataList) {
-                logger.info("Executing test: {}", testData.getTestName());
-                
-                try {
-                    executeTest(testData);
-                    passedTests++;
-                    logger.info("Test passed: {}", testData.getTestName());
-                } catch (Exception e) {
-                    failedTests++;
-                    logger.error("Test failed: {} - Error: {}", testData.getTestName(), e.getMessage());
+            // Stream this shard's rows from CSV and execute them in parallel on pooled drivers
+            ParallelRowExecutor.Summary summary;
+            try (DurationHistoryStore history = DurationHistoryStore.open()) {
+                ShardPlanner shard = ShardPlanner.fromEnvironment();
+                // Recently failed and flaky rows first with -Dselenium.order=failfast
+                try (Stream<TestData> rows = RowOrdering.order(RowOrdering.modeFromSystemProperties(), () -> shard.select(csvFilePath), history);
+                     WebDriverPool pool = new WebDriverPool(new BrowserDriverFactory())) {
+                    summary = new ParallelRowExecutor(pool, history).run(rows, TestRunner::executeTest);
                 }
             }
+            int passedTests = summary.getPassed();
+            int failedTests = summary.getFailed();
             
             // Print summary
-            logger.info("Test execution completed. Passed: {}, Failed: {}", passedTests, failedTests);
-            System.exit(failedTests > 0 ? 1 : 0);
+            if (summary.isAborted()) {
+                logger.error("Test execution aborted: {}. {} tests were not run", summary.getAbortReason(), summary.getSkipped());
+            }
+            logger.info("Test execution completed. Passed: {}, Failed: {}, Skipped: {}", passedTests, failedTests, summary.getSkipped());
+            logger.info("Time spent waiting: {}", WaitTimings.shared().getSummary());
+            System.exit(failedTests > 0 || summary.isAborted() ? 1 : 0);
             
         } catch (Exception e) {
             logger.error("Error during test execution", e);
@@ -49,47 +46,44 @@ public class TestRunner {
         }
     }
     
-    private static void executeTest(TestData testData) throws Exception {
-        BaseTest baseTest = new BaseTest();
-        baseTest.setupDriver(testData.getBrowser());
+    /**
+     * Runs one row on a driver owned by the caller; the driver is not quit afterwards
+     */
+    static void executeTest(WebDriver driver, TestData testData) throws Exception {
+        // Navigate to Saucedemo (e-commerce demo site)
+        driver.get("https://www.saucedemo.com");
+        logger.info("Navigated to Saucedemo homepage");
         
-        try {
-            // Navigate to Saucedemo (e-commerce demo site)
-            baseTest.driver.get("https://www.saucedemo.com");
-            logger.info("Navigated to Saucedemo homepage");
-            
-            // Login with demo credentials
-            baseTest.driver.findElement(org.openqa.selenium.By.id("user-name")).sendKeys("standard_user");
-            baseTest.driver.findElement(org.openqa.selenium.By.id("password")).sendKeys("secret_sauce");
-            baseTest.driver.findElement(org.openqa.selenium.By.id("login-button")).click();
-            logger.info("Logged in successfully");
-            
-            // Wait for products page to load
-            Thread.sleep(2000);
-            
-            // Verify we're on the products page
-            String currentUrl = baseTest.driver.getCurrentUrl();
-            logger.info("Current URL: {}", currentUrl);
-            if (!currentUrl.contains("inventory")) {
-                throw new AssertionError("Should be on products page for test: " + testData.getTestName());
-            }
-            
-            // Verify page title
-            String title = baseTest.driver.getTitle();
-            logger.info("Page title: {}", title);
-            if (!title.toLowerCase().contains("swag labs")) {
-                throw new AssertionError("Page title should contain 'Swag Labs' for test: " + testData.getTestName());
-            }
-            
-            // Verify products are displayed
-            var products = baseTest.driver.findElements(org.openqa.selenium.By.cssSelector(".inventory_item"));
-            logger.info("Found {} products", products.size());
-            if (products.size() == 0) {
-                throw new AssertionError("Should have products displayed for test: " + testData.getTestName());
-            }
-            
-        } finally {
-            baseTest.teardownDriver();
+        // Login with demo credentials
+        driver.findElement(org.openqa.selenium.By.id("user-name")).sendKeys("standard_user");
+        driver.findElement(org.openqa.selenium.By.id("password")).sendKeys("secret_sauce");
+        driver.findElement(org.openqa.selenium.By.id("login-button")).click();
+        logger.info("Logged in successfully");
+        
+        // Wait for products page to load
+        PageWaits waits = new PageWaits(driver);
+        waits.urlContains("inventory");
+        waits.elementCount(org.openqa.selenium.By.cssSelector(".inventory_item"), 1);
+        
+        // Verify we're on the products page
+        String currentUrl = driver.getCurrentUrl();
+        logger.info("Current URL: {}", currentUrl);
+        if (!currentUrl.contains("inventory")) {
+            throw new AssertionError("Should be on products page for test: " + testData.getTestName());
+        }
+        
+        // Verify page title
+        String title = driver.getTitle();
+        logger.info("Page title: {}", title);
+        if (!title.toLowerCase().contains("swag labs")) {
+            throw new AssertionError("Page title should contain 'Swag Labs' for test: " + testData.getTestName());
+        }
+        
+        // Verify products are displayed
+        var products = driver.findElements(org.openqa.selenium.By.cssSelector(".inventory_item"));
+        logger.info("Found {} products", products.size());
+        if (products.size() == 0) {
+            throw new AssertionError("Should have products displayed for test: " + testData.getTestName());
         }
     }
 }
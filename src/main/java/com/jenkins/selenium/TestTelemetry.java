@@ -0,0 +1,346 @@
+package com.jenkins.selenium;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-test timings and JVM resource samples of one test run, written as JSON lines.
+ *
+ * Test code adds the time it spends in each {@link Phase} to the current thread with
+ * {@link #addPhase(Phase, long)}: {@link BaseTest} for starting the browser and {@link BaseTest#navigateTo(String)},
+ * {@link PageWaits} for waits. Whatever is left of the test method is counted as {@code assertion}
+ * (element lookups, checks and assertions). A background thread samples heap, thread count and GC
+ * time every {@code selenium.telemetry.sampleMillis}.
+ *
+ * The file ({@code build/telemetry/tests-<timestamp>.jsonl} by default) has one {@code test} line
+ * per test method invocation and one {@code sample} line per sample. On close it gets a {@code summary}
+ * line per test method with p50/p95/p99 durations and phase totals, and a final {@code run} line.
+ */
+public class TestTelemetry implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(TestTelemetry.class);
+    
+    public enum Phase { DRIVER_STARTUP, NAVIGATION, WAIT, ASSERTION }
+    
+    private static final ThreadLocal<TestClock> clock = ThreadLocal.withInitial(TestClock::new);
+    
+    private final Path file;
+    private final BufferedWriter writer;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ScheduledExecutorService sampler;
+    private final Map<String, TestStats> stats = new ConcurrentHashMap<>();
+    private final long startMillis = System.currentTimeMillis();
+    private final long startGcMillis = gcMillis();
+    private long peakHeapBytes;
+    private int peakThreads;
+    private long lastGcCount;
+    private long lastGcMillis;
+    private boolean closed;
+    
+    public TestTelemetry(Path file, long sampleMillis) throws IOException {
+        this.file = file;
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        this.lastGcCount = gcCount();
+        this.lastGcMillis = gcMillis();
+        
+        this.sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "telemetry-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (sampleMillis > 0) {
+            sampler.scheduleAtFixedRate(this::sample, 0, sampleMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    /**
+     * Telemetry for a test run as configured by {@code selenium.telemetry} (default true),
+     * {@code selenium.telemetry.dir} and {@code selenium.telemetry.sampleMillis}, or null if it is
+     * disabled or the file cannot be created
+     */
+    public static TestTelemetry open() {
+        if (!Boolean.parseBoolean(System.getProperty("selenium.telemetry", "true"))) {
+            return null;
+        }
+        Path dir = Paths.get(System.getProperty("selenium.telemetry.dir", "build/telemetry"));
+        Path file = dir.resolve("tests-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".jsonl");
+        try {
+            return new TestTelemetry(file, Long.getLong("selenium.telemetry.sampleMillis", 1000));
+        } catch (IOException e) {
+            logger.warn("Test telemetry disabled, cannot write {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Start timing a test on the current thread, dropping phases recorded since the last test
+     */
+    public static void beginTest() {
+        TestClock current = clock.get();
+        Arrays.fill(current.phaseNanos, 0);
+        current.gcMillisAtStart = gcMillis();
+    }
+    
+    /**
+     * Add time spent in a phase to the test running on the current thread
+     */
+    public static void addPhase(Phase phase, long nanos) {
+        clock.get().phaseNanos[phase.ordinal()] += nanos;
+    }
+    
+    /**
+     * Record a finished test of the current thread. {@code name} groups invocations in the summary,
+     * e.g. all rows of a data-driven method.
+     */
+    public void recordTest(String name, String status, long startMillis, long durationMillis) {
+        TestClock current = clock.get();
+        long[] phaseMillis = new long[Phase.values().length];
+        long measured = 0;
+        for (Phase phase : Phase.values()) {
+            if (phase != Phase.ASSERTION) {
+                phaseMillis[phase.ordinal()] = TimeUnit.NANOSECONDS.toMillis(current.phaseNanos[phase.ordinal()]);
+                measured += phaseMillis[phase.ordinal()];
+            }
+        }
+        phaseMillis[Phase.ASSERTION.ordinal()] = Math.max(0, durationMillis - measured);
+        long gcMillis = gcMillis() - current.gcMillisAtStart;
+        
+        stats.computeIfAbsent(name, key -> new TestStats()).add(durationMillis, phaseMillis);
+        
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("type", "test");
+        line.put("name", name);
+        line.put("status", status);
+        line.put("thread", Thread.currentThread().getName());
+        line.put("start", startMillis);
+        line.put("durationMs", durationMillis);
+        putPhases(line, phaseMillis);
+        line.put("gcMs", gcMillis);
+        write(line);
+        Arrays.fill(current.phaseNanos, 0);
+    }
+    
+    /**
+     * Duration percentiles and phase totals per test name, ordered by name
+     */
+    public Map<String, Summary> getSummaries() {
+        Map<String, Summary> summaries = new TreeMap<>();
+        stats.forEach((name, testStats) -> summaries.put(name, testStats.summarize()));
+        return summaries;
+    }
+    
+    public Path getFile() { return file; }
+    
+    void sample() {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        int threads = ManagementFactory.getThreadMXBean().getThreadCount();
+        long gcCount = gcCount();
+        long gcMillis = gcMillis();
+        
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("type", "sample");
+        line.put("time", System.currentTimeMillis());
+        line.put("heapUsedMb", heap.getUsed() / (1024 * 1024));
+        line.put("heapCommittedMb", heap.getCommitted() / (1024 * 1024));
+        line.put("threads", threads);
+        synchronized (this) {
+            // GC activity since the previous sample
+            line.put("gcCount", gcCount - lastGcCount);
+            line.put("gcMs", gcMillis - lastGcMillis);
+            lastGcCount = gcCount;
+            lastGcMillis = gcMillis;
+            peakHeapBytes = Math.max(peakHeapBytes, heap.getUsed());
+            peakThreads = Math.max(peakThreads, threads);
+        }
+        write(line);
+    }
+    
+    /**
+     * Stop sampling, append the summaries and close the file
+     */
+    @Override
+    public void close() {
+        sampler.shutdownNow();
+        try {
+            sampler.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sample();
+        
+        Map<String, Summary> summaries = getSummaries();
+        long[] phaseTotals = new long[Phase.values().length];
+        long testMillis = 0;
+        int tests = 0;
+        for (Map.Entry<String, Summary> entry : summaries.entrySet()) {
+            Summary summary = entry.getValue();
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("type", "summary");
+            line.put("name", entry.getKey());
+            line.put("count", summary.getCount());
+            line.put("p50Ms", summary.getP50Millis());
+            line.put("p95Ms", summary.getP95Millis());
+            line.put("p99Ms", summary.getP99Millis());
+            line.put("maxMs", summary.getMaxMillis());
+            line.put("totalMs", summary.getTotalMillis());
+            putPhases(line, summary.phaseMillis);
+            write(line);
+            
+            for (int i = 0; i < phaseTotals.length; i++) {
+                phaseTotals[i] += summary.phaseMillis[i];
+            }
+            testMillis += summary.getTotalMillis();
+            tests += summary.getCount();
+        }
+        
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("type", "run");
+        run.put("tests", tests);
+        run.put("wallClockMs", System.currentTimeMillis() - startMillis);
+        run.put("testMs", testMillis);
+        putPhases(run, phaseTotals);
+        synchronized (this) {
+            run.put("peakHeapMb", peakHeapBytes / (1024 * 1024));
+            run.put("peakThreads", peakThreads);
+        }
+        run.put("gcMs", gcMillis() - startGcMillis);
+        write(run);
+        
+        synchronized (this) {
+            closed = true;
+            try {
+                writer.close();
+            } catch (IOException e) {
+                logger.warn("Could not close test telemetry {}: {}", file, e.getMessage());
+            }
+        }
+        logger.info("Test telemetry: {} tests, {} ms in tests (driver startup {} ms, navigation {} ms, wait {} ms, assertion {} ms), written to {}",
+            tests, testMillis, phaseTotals[Phase.DRIVER_STARTUP.ordinal()], phaseTotals[Phase.NAVIGATION.ordinal()],
+            phaseTotals[Phase.WAIT.ordinal()], phaseTotals[Phase.ASSERTION.ordinal()], file);
+        summaries.entrySet().stream()
+            .sorted(Comparator.comparingLong((Map.Entry<String, Summary> entry) -> entry.getValue().getTotalMillis()).reversed())
+            .limit(5)
+            .forEach(entry -> logger.info("Slowest: {} {}", entry.getKey(), entry.getValue()));
+    }
+    
+    private static void putPhases(Map<String, Object> line, long[] phaseMillis) {
+        line.put("driverStartupMs", phaseMillis[Phase.DRIVER_STARTUP.ordinal()]);
+        line.put("navigationMs", phaseMillis[Phase.NAVIGATION.ordinal()]);
+        line.put("waitMs", phaseMillis[Phase.WAIT.ordinal()]);
+        line.put("assertionMs", phaseMillis[Phase.ASSERTION.ordinal()]);
+    }
+    
+    private synchronized void write(Map<String, Object> line) {
+        if (closed) {
+            return;
+        }
+        try {
+            writer.write(objectMapper.writeValueAsString(line));
+            writer.newLine();
+        } catch (IOException e) {
+            logger.warn("Could not write test telemetry to {}: {}", file, e.getMessage());
+        }
+    }
+    
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+    
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+    
+    private static class TestClock {
+        private final long[] phaseNanos = new long[Phase.values().length];
+        private long gcMillisAtStart;
+    }
+    
+    private static class TestStats {
+        private final List<Long> durations = new ArrayList<>();
+        private final long[] phaseMillis = new long[Phase.values().length];
+        
+        synchronized void add(long durationMillis, long[] phases) {
+            durations.add(durationMillis);
+            for (int i = 0; i < phases.length; i++) {
+                phaseMillis[i] += phases[i];
+            }
+        }
+        
+        synchronized Summary summarize() {
+            long[] sorted = durations.stream().mapToLong(Long::longValue).sorted().toArray();
+            return new Summary(sorted, phaseMillis.clone());
+        }
+    }
+    
+    /**
+     * Durations of all invocations of one test
+     */
+    public static class Summary {
+        private final long[] sortedMillis;
+        private final long[] phaseMillis;
+        
+        Summary(long[] sortedMillis, long[] phaseMillis) {
+            this.sortedMillis = sortedMillis;
+            this.phaseMillis = phaseMillis;
+        }
+        
+        /**
+         * Nearest-rank percentile in milliseconds
+         */
+        public long percentileMillis(double percentile) {
+            if (sortedMillis.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100 * sortedMillis.length);
+            return sortedMillis[Math.max(0, rank - 1)];
+        }
+        
+        public int getCount() { return sortedMillis.length; }
+        public long getP50Millis() { return percentileMillis(50); }
+        public long getP95Millis() { return percentileMillis(95); }
+        public long getP99Millis() { return percentileMillis(99); }
+        public long getMaxMillis() { return percentileMillis(100); }
+        public long getTotalMillis() { return Arrays.stream(sortedMillis).sum(); }
+        public long getPhaseMillis(Phase phase) { return phaseMillis[phase.ordinal()]; }
+        
+        @Override
+        public String toString() {
+            return String.format("count=%d p50=%dms p95=%dms p99=%dms max=%dms total=%dms",
+                getCount(), getP50Millis(), getP95Millis(), getP99Millis(), getMaxMillis(), getTotalMillis());
+        }
+    }
+}
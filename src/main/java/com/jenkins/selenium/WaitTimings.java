@@ -0,0 +1,80 @@
+package com.jenkins.selenium;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * How long page waits took, per kind of condition.
+ *
+ * Every {@link PageWaits} call records its duration here, so the summary shows where tests spend
+ * time waiting for the browser and which conditions time out.
+ */
+public class WaitTimings {
+    
+    private static final WaitTimings SHARED = new WaitTimings();
+    
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+    
+    /**
+     * Timings shared by all waits that were not given their own instance
+     */
+    public static WaitTimings shared() {
+        return SHARED;
+    }
+    
+    public void record(String condition, long millis, boolean timedOut) {
+        Stats conditionStats = stats.computeIfAbsent(condition, key -> new Stats());
+        conditionStats.count.increment();
+        conditionStats.totalMillis.add(millis);
+        conditionStats.maxMillis.accumulate(millis);
+        if (timedOut) {
+            conditionStats.timeouts.increment();
+        }
+    }
+    
+    public long getCount(String condition) {
+        Stats conditionStats = stats.get(condition);
+        return conditionStats != null ? conditionStats.count.sum() : 0;
+    }
+    
+    public long getTotalMillis(String condition) {
+        Stats conditionStats = stats.get(condition);
+        return conditionStats != null ? conditionStats.totalMillis.sum() : 0;
+    }
+    
+    public long getTimeoutCount(String condition) {
+        Stats conditionStats = stats.get(condition);
+        return conditionStats != null ? conditionStats.timeouts.sum() : 0;
+    }
+    
+    public void reset() {
+        stats.clear();
+    }
+    
+    /**
+     * Count, total, average and max per condition as one line for logging
+     */
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder("WaitTimings{");
+        new TreeMap<>(stats).forEach((condition, conditionStats) -> {
+            long count = conditionStats.count.sum();
+            long total = conditionStats.totalMillis.sum();
+            if (summary.length() > "WaitTimings{".length()) {
+                summary.append(", ");
+            }
+            summary.append(String.format("%s: count=%d total=%dms avg=%dms max=%dms timeouts=%d",
+                condition, count, total, count > 0 ? total / count : 0, conditionStats.maxMillis.get(), conditionStats.timeouts.sum()));
+        });
+        return summary.append('}').toString();
+    }
+    
+    private static class Stats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalMillis = new LongAdder();
+        private final LongAccumulator maxMillis = new LongAccumulator(Math::max, 0);
+        private final LongAdder timeouts = new LongAdder();
+    }
+}
@@ -0,0 +1,12 @@
+package com.jenkins.selenium;
+
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Creates WebDriver instances for a browser name such as "chrome" or "firefox"
+ */
+@FunctionalInterface
+public interface WebDriverFactory {
+    
+    WebDriver create(String browser);
+}
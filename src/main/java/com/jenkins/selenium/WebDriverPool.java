@@ -0,0 +1,236 @@
+package com.jenkins.selenium;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of WebDriver sessions, keyed by browser.
+ *
+ * Starting a browser costs seconds, so sessions are reused between tests. At most
+ * {@code maxPerBrowser} sessions exist per browser; callers wait for a free one. A session is
+ * checked with a cheap command before it is handed out, and replaced when the check fails. When a
+ * lease is returned its cookies and local and session storage are cleared and it is navigated to
+ * {@code about:blank}, so one test cannot see another's login. Sessions that fail the reset, were
+ * marked broken, or reached {@code maxUses} are quit instead of being returned to the pool.
+ */
+public class WebDriverPool implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(WebDriverPool.class);
+    
+    private final WebDriverFactory factory;
+    private final int maxPerBrowser;
+    private final int maxUses;
+    private final long acquireTimeoutMillis;
+    private final Map<String, BrowserSlots> browsers = new ConcurrentHashMap<>();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+    private final LongAdder replaced = new LongAdder();
+    private volatile boolean closed;
+    
+    public WebDriverPool(WebDriverFactory factory) {
+        this(factory, Integer.getInteger("selenium.pool.maxPerBrowser", 4),
+            Integer.getInteger("selenium.pool.maxUses", 50),
+            Long.getLong("selenium.pool.acquireTimeout", 300_000));
+    }
+    
+    /**
+     * @param maxPerBrowser maximum number of live sessions per browser
+     * @param maxUses leases after which a session is recycled; 0 means no limit
+     * @param acquireTimeoutMillis how long {@link #acquire(String)} waits for a free session
+     */
+    public WebDriverPool(WebDriverFactory factory, int maxPerBrowser, int maxUses, long acquireTimeoutMillis) {
+        this.factory = factory;
+        this.maxPerBrowser = Math.max(1, maxPerBrowser);
+        this.maxUses = maxUses;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+    
+    /**
+     * Lease a healthy session for the browser, waiting if all of them are in use
+     */
+    public PooledDriver acquire(String browser) throws InterruptedException {
+        String key = browser == null || browser.isEmpty() ? "chrome" : browser.toLowerCase();
+        if (closed) {
+            throw new IllegalStateException("WebDriver pool is closed");
+        }
+        
+        BrowserSlots slots = browsers.computeIfAbsent(key, name -> new BrowserSlots());
+        if (!slots.permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("Timed out waiting for a " + key + " driver");
+        }
+        
+        try {
+            PooledDriver idle;
+            while ((idle = slots.pollIdle()) != null) {
+                if (isHealthy(idle.driver)) {
+                    reused.increment();
+                    idle.broken = false;
+                    idle.returned = false;
+                    idle.uses++;
+                    return idle;
+                }
+                logger.warn("Replacing unresponsive {} driver", key);
+                replaced.increment();
+                quietQuit(idle.driver);
+            }
+            
+            WebDriver driver = factory.create(key);
+            created.increment();
+            logger.debug("Started new {} driver", key);
+            PooledDriver lease = new PooledDriver(key, driver, slots);
+            lease.uses++;
+            return lease;
+            
+        } catch (RuntimeException e) {
+            slots.permits.release();
+            throw e;
+        }
+    }
+    
+    private void release(PooledDriver lease) {
+        BrowserSlots slots = lease.slots;
+        try {
+            if (closed || lease.broken || (maxUses > 0 && lease.uses >= maxUses) || !reset(lease.driver)) {
+                if (lease.broken) {
+                    replaced.increment();
+                }
+                quietQuit(lease.driver);
+            } else {
+                slots.offerIdle(lease);
+            }
+        } finally {
+            slots.permits.release();
+        }
+    }
+    
+    /**
+     * A session counts as healthy if it still answers a command
+     */
+    private static boolean isHealthy(WebDriver driver) {
+        try {
+            return driver.getWindowHandle() != null;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Clear per-test state; false if the session did not survive it
+     */
+    static boolean reset(WebDriver driver) {
+        try {
+            if (driver instanceof JavascriptExecutor) {
+                try {
+                    ((JavascriptExecutor) driver).executeScript("window.localStorage.clear(); window.sessionStorage.clear();");
+                } catch (RuntimeException e) {
+                    // Pages such as about:blank have no storage
+                    logger.debug("Could not clear web storage: {}", e.getMessage());
+                }
+            }
+            driver.manage().deleteAllCookies();
+            driver.navigate().to("about:blank");
+            return true;
+        } catch (RuntimeException e) {
+            logger.warn("Failed to reset driver, discarding it: {}", e.getMessage());
+            return false;
+        }
+    }
+    
+    private static void quietQuit(WebDriver driver) {
+        try {
+            driver.quit();
+        } catch (RuntimeException e) {
+            logger.debug("Error quitting driver: {}", e.getMessage());
+        }
+    }
+    
+    public long getCreatedCount() { return created.sum(); }
+    public long getReusedCount() { return reused.sum(); }
+    public long getReplacedCount() { return replaced.sum(); }
+    
+    public int getIdleCount() {
+        return browsers.values().stream().mapToInt(BrowserSlots::idleCount).sum();
+    }
+    
+    /**
+     * Created, reused and replaced counts as one line for logging
+     */
+    public String getPoolStats() {
+        return String.format("PoolStats{created=%d, reused=%d, replaced=%d, idle=%d}",
+            getCreatedCount(), getReusedCount(), getReplacedCount(), getIdleCount());
+    }
+    
+    /**
+     * Quit all idle sessions. Sessions still leased are quit when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (BrowserSlots slots : browsers.values()) {
+            PooledDriver idle;
+            while ((idle = slots.pollIdle()) != null) {
+                quietQuit(idle.driver);
+            }
+        }
+        logger.info("WebDriver pool closed: {}", getPoolStats());
+    }
+    
+    private class BrowserSlots {
+        private final Semaphore permits = new Semaphore(maxPerBrowser, true);
+        private final Deque<PooledDriver> idle = new ArrayDeque<>();
+        
+        synchronized PooledDriver pollIdle() { return idle.pollFirst(); }
+        synchronized void offerIdle(PooledDriver lease) { idle.addFirst(lease); }
+        synchronized int idleCount() { return idle.size(); }
+    }
+    
+    /**
+     * A leased session. Close it to return the session to the pool.
+     */
+    public class PooledDriver implements AutoCloseable {
+        private final String browser;
+        private final WebDriver driver;
+        private final BrowserSlots slots;
+        private int uses;
+        private boolean broken;
+        private boolean returned;
+        
+        PooledDriver(String browser, WebDriver driver, BrowserSlots slots) {
+            this.browser = browser;
+            this.driver = driver;
+            this.slots = slots;
+        }
+        
+        public WebDriver getDriver() {
+            return driver;
+        }
+        
+        public String getBrowser() {
+            return browser;
+        }
+        
+        /**
+         * Quit the session on return instead of reusing it
+         */
+        public void markBroken() {
+            broken = true;
+        }
+        
+        @Override
+        public void close() {
+            if (!returned) {
+                returned = true;
+                release(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.jenkins.selenium;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the async build manager against the in-process fake controller
+ */
+public class AsyncJenkinsBuildManagerTest {
+    
+    @Test
+    public void testStreamConsoleOutput() throws Exception {
+        try (FakeJenkinsServer server = new FakeJenkinsServer(2)) {
+            server.setBuildDurations(FakeJenkinsServer.DurationDistribution.fixed(200));
+            server.setConsoleLines(5000);
+            server.addJob("team/app");
+            server.start();
+            
+            AsyncJenkinsBuildManager manager = new AsyncJenkinsBuildManager(server.getUrl(), "admin", "token");
+            try {
+                JenkinsBuildManager.BuildResult triggered = manager.triggerJobWithParameters("team/app", Map.of("BROWSER", "chrome"))
+                    .get(10, TimeUnit.SECONDS);
+                Assert.assertTrue(triggered.isSuccess(), triggered.getMessage());
+                JenkinsBuildManager.BuildResult completed = manager.waitForJobCompletion((JenkinsBuildManager.QueuedBuild) triggered.getData(), 1)
+                    .get(30, TimeUnit.SECONDS);
+                Assert.assertTrue(completed.isSuccess(), completed.getMessage());
+                
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                long offset = manager.streamConsoleOutput("team/app", 1, 0, out).get(10, TimeUnit.SECONDS);
+                String console = out.toString(StandardCharsets.UTF_8);
+                Assert.assertTrue(console.endsWith("Finished: SUCCESS\n"), console.substring(Math.max(0, console.length() - 200)));
+                Assert.assertEquals(offset, out.size());
+                
+                // Resuming at the end returns nothing new
+                ByteArrayOutputStream rest = new ByteArrayOutputStream();
+                Assert.assertEquals((long) manager.streamConsoleOutput("team/app", 1, offset, rest).get(10, TimeUnit.SECONDS), offset);
+                Assert.assertEquals(rest.size(), 0);
+                
+                Assert.assertNull(manager.streamConsoleOutput("team/app", 99, 0, new ByteArrayOutputStream()).get(10, TimeUnit.SECONDS));
+            } finally {
+                manager.close();
+            }
+        }
+    }
+    
+    @Test
+    public void testCloseEndsRunningWaits() throws Exception {
+        try (FakeJenkinsServer server = new FakeJenkinsServer(2)) {
+            server.setBuildDurations(FakeJenkinsServer.DurationDistribution.fixed(60_000));
+            server.setQueueDelayMillis(0);
+            server.addJob("selenium-tests");
+            server.start();
+            
+            AsyncJenkinsBuildManager manager = new AsyncJenkinsBuildManager(server.getUrl(), "admin", "token");
+            JenkinsBuildManager.BuildResult triggered = manager.triggerJobWithParameters("selenium-tests", Map.of())
+                .get(10, TimeUnit.SECONDS);
+            CompletableFuture<JenkinsBuildManager.BuildResult> wait = manager.waitForJobCompletion(
+                (JenkinsBuildManager.QueuedBuild) triggered.getData(), 1);
+            for (int i = 0; i < 100 && manager.getPollMetrics().getPollCount() < 1; i++) {
+                Thread.sleep(20);
+            }
+            
+            manager.close();
+            JenkinsBuildManager.BuildResult result = wait.get(10, TimeUnit.SECONDS);
+            Assert.assertFalse(result.isSuccess());
+            Assert.assertEquals(result.getMessage(), "Client is closed");
+            
+            // A wait started after close ends as well instead of hanging
+            result = manager.waitForJobCompletion("selenium-tests", 1).get(10, TimeUnit.SECONDS);
+            Assert.assertFalse(result.isSuccess());
+        }
+    }
+    
+    @Test
+    public void testRequestsAreAdmittedByGovernor() throws Exception {
+        try (FakeJenkinsServer server = new FakeJenkinsServer(8)) {
+            server.addJob("selenium-tests");
+            server.setLatency(500, 0);
+            server.start();
+            
+            ControllerGovernor.GovernorConfig config = new ControllerGovernor.GovernorConfig();
+            config.setMaxInFlight(2);
+            config.setStatusRate(1000);
+            ControllerGovernor governor = new ControllerGovernor(config);
+            AsyncJenkinsBuildManager manager = new AsyncJenkinsBuildManager(server.getUrl(), "admin", "token",
+                JenkinsHttpTransport.TransportConfig.fromSystemProperties(), governor);
+            try {
+                long start = System.nanoTime();
+                List<CompletableFuture<JenkinsBuildManager.JobInfo>> jobs = new ArrayList<>();
+                for (int i = 0; i < 6; i++) {
+                    jobs.add(manager.getJobInfo("selenium-tests"));
+                }
+                // A blocking admission would have returned the last calls only after earlier requests finished
+                Assert.assertTrue(jobs.stream().noneMatch(CompletableFuture::isDone), "Callers are not blocked");
+                for (CompletableFuture<JenkinsBuildManager.JobInfo> job : jobs) {
+                    Assert.assertNotNull(job.get(10, TimeUnit.SECONDS));
+                }
+                long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                Assert.assertTrue(elapsed >= 1400, "6 requests of 500 ms, 2 at a time, took " + elapsed + " ms");
+                Assert.assertEquals(governor.getInFlight(), 0);
+                
+                // A 429 from the async client pauses the governor like one from the blocking client
+                server.setLatency(0, 0);
+                server.setThrottleRate(1.0);
+                server.setRetryAfterSeconds(2);
+                Assert.assertNull(manager.getJobInfo("selenium-tests").get(10, TimeUnit.SECONDS));
+                Assert.assertTrue(governor.getPauseMillis() > 1000, "Pause: " + governor.getPauseMillis());
+                
+                long faults = server.getFaultCount(429);
+                config.setMaxWaitMillis(200);
+                Assert.assertNull(manager.getJobInfo("selenium-tests").get(10, TimeUnit.SECONDS));
+                Assert.assertEquals(server.getFaultCount(429), faults, "Rejected without a request");
+                Assert.assertEquals(governor.getInFlight(), 0);
+            } finally {
+                manager.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.jenkins.selenium;
+
+import org.openqa.selenium.WebDriver;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs BaseTest's per-thread driver handling in parallel against stub drivers
+ */
+public class BaseTestThreadingTest extends BaseTest {
+    
+    private final AtomicInteger created = new AtomicInteger();
+    private final Map<WebDriver, String> ownerThreads = new ConcurrentHashMap<>();
+    private final Set<String> threads = ConcurrentHashMap.newKeySet();
+    
+    @BeforeClass
+    public void useStubDrivers() {
+        setDriverFactory(browser -> {
+            created.incrementAndGet();
+            return new WebDriverPoolTest.StubDriver();
+        });
+    }
+    
+    @AfterClass(alwaysRun = true)
+    public void restoreDriverFactory() {
+        quitAllDrivers();
+        setDriverFactory(new BrowserDriverFactory());
+    }
+    
+    @Test(invocationCount = 40, threadPoolSize = 4)
+    public void testEachThreadHasItsOwnDriver() throws InterruptedException {
+        setupDriver("chrome");
+        try {
+            WebDriver driver = getDriver();
+            String thread = Thread.currentThread().getName();
+            threads.add(thread);
+            
+            String owner = ownerThreads.putIfAbsent(driver, thread);
+            Assert.assertTrue(owner == null || owner.equals(thread), "Driver shared between " + owner + " and " + thread);
+            
+            driver.get("https://example.com/" + thread);
+            Thread.sleep(5);
+            Assert.assertEquals(driver.getCurrentUrl(), "https://example.com/" + thread);
+            Assert.assertSame(getDriver(), driver, "Same thread should get the same driver");
+        } finally {
+            teardownDriver();
+        }
+    }
+    
+    @Test(dependsOnMethods = "testEachThreadHasItsOwnDriver")
+    public void testDriversAreReusedPerThread() {
+        Assert.assertTrue(created.get() <= threads.size(), created.get() + " drivers for " + threads.size() + " threads");
+    }
+    
+    @Test(dependsOnMethods = "testDriversAreReusedPerThread")
+    public void testBrowserChangeReplacesSession() {
+        setupDriver("chrome");
+        WebDriver chrome = getDriver();
+        setupDriver("firefox");
+        WebDriver firefox = getDriver();
+        
+        Assert.assertNotSame(firefox, chrome);
+        Assert.assertTrue(((WebDriverPoolTest.StubDriver) chrome).quit, "Previous browser should be quit");
+        quitDriver();
+        Assert.assertFalse(hasDriver());
+    }
+}
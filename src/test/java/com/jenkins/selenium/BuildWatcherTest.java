@@ -0,0 +1,140 @@
+package com.jenkins.selenium;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs the build watcher against the in-process fake controller
+ */
+public class BuildWatcherTest {
+    
+    private static JenkinsBuildManager.QueuedBuild trigger(JenkinsBuildManager manager, String jobName) throws InterruptedException {
+        JenkinsBuildManager.BuildResult triggered = manager.triggerJob(jobName);
+        Assert.assertTrue(triggered.isSuccess(), triggered.getMessage());
+        JenkinsBuildManager.QueuedBuild queuedBuild = (JenkinsBuildManager.QueuedBuild) triggered.getData();
+        for (int i = 0; i < 100 && !queuedBuild.isResolved(); i++) {
+            Thread.sleep(20);
+            manager.refreshQueuedBuild(queuedBuild);
+        }
+        Assert.assertTrue(queuedBuild.isResolved(), "Queue item should start a build");
+        return queuedBuild;
+    }
+    
+    private static void awaitWatchCount(BuildWatcher watcher, int expected) throws InterruptedException {
+        for (int i = 0; i < 100 && watcher.getWatchCount() != expected; i++) {
+            Thread.sleep(20);
+        }
+        Assert.assertEquals(watcher.getWatchCount(), expected);
+    }
+    
+    @Test
+    public void testWatchCompletesBuildsInBatches() throws Exception {
+        try (FakeJenkinsServer server = new FakeJenkinsServer(4)) {
+            server.setBuildDurations(FakeJenkinsServer.DurationDistribution.fixed(300));
+            server.addJob("selenium-tests");
+            server.addJob("team/app");
+            server.start();
+            
+            try (JenkinsHttpTransport transport = new JenkinsHttpTransport(server.getUrl(), "admin", "token")) {
+                JenkinsBuildManager manager = new JenkinsBuildManager(transport);
+                BuildWatcher watcher = new BuildWatcher(transport, 100, 25);
+                try {
+                    List<CompletableFuture<JenkinsBuildManager.BuildResult>> results = new ArrayList<>();
+                    for (String jobName : List.of("selenium-tests", "selenium-tests", "team/app")) {
+                        JenkinsBuildManager.QueuedBuild queuedBuild = trigger(manager, jobName);
+                        results.add(watcher.waitForCompletion(jobName, queuedBuild.getBuildNumber(), 10, TimeUnit.SECONDS));
+                    }
+                    // A second caller on the same build shares its registration
+                    results.add(watcher.waitForCompletion("selenium-tests", 1, 10, TimeUnit.SECONDS));
+                    Assert.assertEquals(watcher.getWatchCount(), 3);
+                    
+                    for (CompletableFuture<JenkinsBuildManager.BuildResult> result : results) {
+                        JenkinsBuildManager.BuildResult completed = result.get(10, TimeUnit.SECONDS);
+                        Assert.assertTrue(completed.isSuccess(), completed.getMessage());
+                    }
+                    // One request per watched folder and tick
+                    Assert.assertTrue(watcher.getRequestCount() <= 2 * watcher.getTickCount(),
+                        watcher.getRequestCount() + " requests in " + watcher.getTickCount() + " ticks");
+                    awaitWatchCount(watcher, 0);
+                } finally {
+                    watcher.close();
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void testTimedOutAndCancelledWatchesAreReleased() throws Exception {
+        try (FakeJenkinsServer server = new FakeJenkinsServer(2)) {
+            server.setBuildDurations(FakeJenkinsServer.DurationDistribution.fixed(60_000));
+            server.addJob("selenium-tests");
+            server.start();
+            
+            try (JenkinsHttpTransport transport = new JenkinsHttpTransport(server.getUrl(), "admin", "token")) {
+                JenkinsBuildManager manager = new JenkinsBuildManager(transport);
+                BuildWatcher watcher = new BuildWatcher(transport, 50, 25);
+                try {
+                    int buildNumber = trigger(manager, "selenium-tests").getBuildNumber();
+                    
+                    JenkinsBuildManager.BuildResult timedOut = watcher.waitForCompletion("selenium-tests", buildNumber, 200, TimeUnit.MILLISECONDS)
+                        .get(5, TimeUnit.SECONDS);
+                    Assert.assertFalse(timedOut.isSuccess());
+                    Assert.assertEquals(timedOut.getMessage(), "Job did not complete within timeout period");
+                    awaitWatchCount(watcher, 0);
+                    
+                    // The registration stays until the last of its callers gives up
+                    CompletableFuture<JenkinsBuildManager.BuildResult> first = watcher.waitForCompletion("selenium-tests", buildNumber, 1, TimeUnit.MINUTES);
+                    CompletableFuture<JenkinsBuildManager.BuildStatus> second = watcher.watch("selenium-tests", buildNumber);
+                    Assert.assertEquals(watcher.getWatchCount(), 1);
+                    first.cancel(true);
+                    Assert.assertEquals(watcher.getWatchCount(), 1);
+                    Assert.assertFalse(second.isDone());
+                    second.cancel(true);
+                    awaitWatchCount(watcher, 0);
+                    
+                    long requests = watcher.getRequestCount();
+                    Thread.sleep(300);
+                    Assert.assertEquals(watcher.getRequestCount(), requests, "Nothing is watched, so ticks send no requests");
+                } finally {
+                    watcher.close();
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void testInterruptedWaitReleasesWatch() throws Exception {
+        try (FakeJenkinsServer server = new FakeJenkinsServer(2)) {
+            server.setBuildDurations(FakeJenkinsServer.DurationDistribution.fixed(60_000));
+            server.addJob("selenium-tests");
+            server.start();
+            
+            try (JenkinsHttpTransport transport = new JenkinsHttpTransport(server.getUrl(), "admin", "token")) {
+                JenkinsBuildManager manager = new JenkinsBuildManager(transport);
+                BuildWatcher watcher = new BuildWatcher(transport, 50, 25);
+                manager.setBuildWatcher(watcher);
+                try {
+                    int buildNumber = trigger(manager, "selenium-tests").getBuildNumber();
+                    
+                    AtomicReference<JenkinsBuildManager.BuildResult> result = new AtomicReference<>();
+                    Thread waiter = new Thread(() -> result.set(manager.waitForBuildCompletion("selenium-tests", buildNumber, 5)));
+                    waiter.start();
+                    awaitWatchCount(watcher, 1);
+                    waiter.interrupt();
+                    waiter.join(5000);
+                    
+                    Assert.assertEquals(result.get().getMessage(), "Wait interrupted");
+                    awaitWatchCount(watcher, 0);
+                } finally {
+                    watcher.close();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.jenkins.selenium;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Runs the caching build manager against the in-process fake controller
+ */
+public class CachingJenkinsBuildManagerTest {
+    
+    private static CachingJenkinsBuildManager.CacheConfig config(long jobTtlMillis) {
+        CachingJenkinsBuildManager.CacheConfig config = new CachingJenkinsBuildManager.CacheConfig();
+        config.setJobTtlMillis(jobTtlMillis);
+        config.setRunningBuildTtlMillis(0);
+        return config;
+    }
+    
+    @Test
+    public void testExpiredEntryIsRevalidated() throws Exception {
+        try (FakeJenkinsServer server = new FakeJenkinsServer(2)) {
+            server.addJob("selenium-tests");
+            server.start();
+            
+            try (JenkinsHttpTransport transport = new JenkinsHttpTransport(server.getUrl(), "admin", "token")) {
+                CachingJenkinsBuildManager manager = new CachingJenkinsBuildManager(transport, config(200));
+                Assert.assertEquals(manager.getJobInfo("selenium-tests").getName(), "selenium-tests");
+                Assert.assertEquals(manager.getJobInfo("selenium-tests").getName(), "selenium-tests");
+                Assert.assertEquals(server.getRequestCount("api/json"), 1, "Second call is served within the TTL");
+                
+                Thread.sleep(300);
+                Assert.assertEquals(manager.getJobInfo("selenium-tests").getName(), "selenium-tests");
+                Assert.assertEquals(server.getRequestCount("api/json"), 2, "Expired entry goes back to the controller");
+                Assert.assertEquals(server.getRequestCount("notModified"), 1, "Refresh is conditional on the ETag");
+                
+                Assert.assertEquals(manager.getHitCount(), 1);
+                Assert.assertEquals(manager.getRevalidatedCount(), 1);
+                Assert.assertEquals(manager.getMissCount(), 1, "A 304 is not a miss");
+                Assert.assertEquals(manager.getHitRate(), 2.0 / 3, 1e-9);
+            }
+        }
+    }
+    
+    @Test
+    public void testFinishedBuildsArePinnedAndRunningBuildsAreNot() throws Exception {
+        try (FakeJenkinsServer server = new FakeJenkinsServer(2)) {
+            server.setQueueDelayMillis(0);
+            server.setBuildDurations(FakeJenkinsServer.DurationDistribution.fixed(0));
+            server.addJob("selenium-tests");
+            server.addJob("team/app");
+            server.start();
+            
+            try (JenkinsHttpTransport transport = new JenkinsHttpTransport(server.getUrl(), "admin", "token")) {
+                CachingJenkinsBuildManager manager = new CachingJenkinsBuildManager(transport, config(30_000));
+                Assert.assertTrue(manager.triggerJob("selenium-tests").isSuccess());
+                server.setBuildDurations(FakeJenkinsServer.DurationDistribution.fixed(60_000));
+                Assert.assertTrue(manager.triggerJob("team/app").isSuccess());
+                Thread.sleep(50);
+                
+                for (int i = 0; i < 3; i++) {
+                    Assert.assertEquals(manager.getBuildStatus("selenium-tests", 1).getResult(), "SUCCESS");
+                }
+                Assert.assertEquals(server.getRequestCount("build"), 1, "Finished build is fetched once");
+                
+                for (int i = 0; i < 3; i++) {
+                    Assert.assertTrue(manager.getBuildStatus("team/app", 1).isBuilding());
+                }
+                Assert.assertEquals(server.getRequestCount("build"), 4, "Running build is checked on every call");
+                Assert.assertEquals(manager.getRevalidatedCount(), 2, "Unchanged running build answers 304");
+                Assert.assertEquals(server.getRequestCount("notModified"), 2);
+            }
+        }
+    }
+    
+    @Test
+    public void testCallersGetTheirOwnCopy() throws Exception {
+        try (FakeJenkinsServer server = new FakeJenkinsServer(2)) {
+            server.addJob("selenium-tests");
+            server.start();
+            
+            try (JenkinsHttpTransport transport = new JenkinsHttpTransport(server.getUrl(), "admin", "token")) {
+                CachingJenkinsBuildManager manager = new CachingJenkinsBuildManager(transport, config(30_000));
+                JenkinsBuildManager.JobInfo first = manager.getJobInfo("selenium-tests");
+                first.setColor("red");
+                JenkinsBuildManager.JobInfo second = manager.getJobInfo("selenium-tests");
+                Assert.assertNotSame(second, first);
+                Assert.assertEquals(second.getColor(), "notbuilt");
+                
+                JenkinsBuildManager.JobList jobs = manager.listJobs();
+                jobs.getJobs().clear();
+                Assert.assertEquals(manager.listJobs().size(), 1);
+                Assert.assertEquals(manager.getHitCount(), 2);
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.jenkins.selenium;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Drives the Jenkins client against a {@link FakeJenkinsServer} and reports throughput and latency.
+ *
+ * Each client thread loops over one scenario until the run ends: trigger a build, wait for that
+ * build through the queue item, read its console, then fetch the last build status and the job
+ * list. Latency is recorded per operation; an operation counts as an error if the client reports
+ * failure. Run with {@code gradle jenkinsLoadTest}, settings are system properties:
+ * {@code load.clients}, {@code load.seconds}, {@code load.jobs}, {@code load.latencyMillis},
+ * {@code load.errorRate}, {@code load.throttleRate}, {@code load.unavailableRate} and
+ * {@code load.buildMillis} (median of a log-normal build duration). The client's own metrics are
+ * written to {@code jenkins.metrics.file} at the end, see {@link JenkinsMetrics}.
+ */
+public class ClientLoadDriver {
+    private static final Logger logger = LoggerFactory.getLogger(ClientLoadDriver.class);
+    
+    public static void main(String[] args) throws Exception {
+        int clients = Integer.getInteger("load.clients", 16);
+        int seconds = Integer.getInteger("load.seconds", 30);
+        int jobCount = Integer.getInteger("load.jobs", 8);
+        // The fake controller answers in milliseconds; poll it like a fast real one
+        System.setProperty("jenkins.poll.minDelay", System.getProperty("jenkins.poll.minDelay", "100"));
+        System.setProperty("jenkins.console.pollMillis", System.getProperty("jenkins.console.pollMillis", "100"));
+        
+        try (FakeJenkinsServer server = new FakeJenkinsServer(clients * 2)) {
+            server.setLatency(Long.getLong("load.latencyMillis", 20), Long.getLong("load.latencyMillis", 20) / 2);
+            server.setErrorRate(Double.parseDouble(System.getProperty("load.errorRate", "0.01")));
+            server.setThrottleRate(Double.parseDouble(System.getProperty("load.throttleRate", "0.02")));
+            server.setUnavailableRate(Double.parseDouble(System.getProperty("load.unavailableRate", "0.01")));
+            server.setBuildDurations(FakeJenkinsServer.DurationDistribution.logNormal(Long.getLong("load.buildMillis", 500), 0.5));
+            List<String> jobNames = new ArrayList<>();
+            for (int i = 0; i < jobCount; i++) {
+                jobNames.add(i % 2 == 0 ? "selenium-tests-" + i : "team/selenium-tests-" + i);
+                server.addJob(jobNames.get(i));
+            }
+            server.start();
+            
+            Report report = run(server, jobNames, clients, seconds);
+            logger.info("Load test against fake Jenkins: {} clients for {} s, {} requests ({} injected faults)",
+                clients, seconds, server.getRequestCount(), server.getFaultCount());
+            for (String line : report.format()) {
+                logger.info(line);
+            }
+            JenkinsMetrics.writePrometheusFile();
+        }
+    }
+    
+    /**
+     * Run the scenario with {@code clients} threads for {@code seconds}, spreading builds over the jobs
+     */
+    public static Report run(FakeJenkinsServer server, List<String> jobNames, int clients, int seconds) throws InterruptedException {
+        Report report = new Report(seconds);
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(seconds);
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        
+        try (JenkinsHttpTransport transport = new JenkinsHttpTransport(server.getUrl(), "load", "token")) {
+            for (int client = 0; client < clients; client++) {
+                int id = client;
+                executor.submit(() -> {
+                    JenkinsBuildManager manager = new JenkinsBuildManager(transport);
+                    int iteration = 0;
+                    while (System.currentTimeMillis() < deadline && !Thread.currentThread().isInterrupted()) {
+                        scenario(manager, jobNames.get((id + iteration++) % jobNames.size()), report);
+                    }
+                });
+            }
+            executor.shutdown();
+            if (!executor.awaitTermination(seconds + 120L, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        }
+        return report;
+    }
+    
+    private static void scenario(JenkinsBuildManager manager, String jobName, Report report) {
+        JenkinsBuildManager.BuildResult[] triggered = new JenkinsBuildManager.BuildResult[1];
+        report.time("trigger", () -> {
+            triggered[0] = manager.triggerJobWithParameters(jobName, Map.of("BROWSER", "chrome"));
+            return triggered[0].isSuccess() && triggered[0].getData() != null;
+        });
+        if (triggered[0].isSuccess() && triggered[0].getData() != null) {
+            JenkinsBuildManager.QueuedBuild queuedBuild = (JenkinsBuildManager.QueuedBuild) triggered[0].getData();
+            boolean completed = report.time("waitForCompletion", () -> manager.waitForJobCompletion(queuedBuild, 5).getData() instanceof JenkinsBuildManager.BuildStatus);
+            if (completed) {
+                report.time("console", () -> manager.getConsoleOutput(jobName, queuedBuild.getBuildNumber()) != null);
+            }
+        }
+        report.time("lastBuildStatus", () -> manager.getLastBuildStatus(jobName) != null);
+        report.time("listJobs", () -> manager.listJobs() != null);
+    }
+    
+    /**
+     * Latencies of each operation
+     */
+    public static class Report {
+        private final int seconds;
+        private final Map<String, Operation> operations = new LinkedHashMap<>();
+        
+        Report(int seconds) {
+            this.seconds = seconds;
+        }
+        
+        boolean time(String name, BooleanSupplier call) {
+            long start = System.nanoTime();
+            boolean success;
+            try {
+                success = call.getAsBoolean();
+            } catch (RuntimeException e) {
+                success = false;
+            }
+            operation(name).record(System.nanoTime() - start, success);
+            return success;
+        }
+        
+        private synchronized Operation operation(String name) {
+            return operations.computeIfAbsent(name, key -> new Operation());
+        }
+        
+        public synchronized Operation get(String name) {
+            return operations.get(name);
+        }
+        
+        synchronized List<String> format() {
+            List<String> lines = new ArrayList<>();
+            lines.add(String.format("%-18s %8s %7s %9s %9s %9s %9s", "operation", "count", "errors", "ops/s", "p50 ms", "p99 ms", "max ms"));
+            for (Map.Entry<String, Operation> entry : operations.entrySet()) {
+                Operation operation = entry.getValue();
+                lines.add(String.format("%-18s %8d %7d %9.1f %9.1f %9.1f %9.1f", entry.getKey(), operation.getCount(),
+                    operation.getErrors(), (double) operation.getCount() / seconds,
+                    operation.percentileMillis(50), operation.percentileMillis(99), operation.percentileMillis(100)));
+            }
+            return lines;
+        }
+    }
+    
+    public static class Operation {
+        private long[] latencies = new long[1024];
+        private int count;
+        private int errors;
+        
+        synchronized void record(long nanos, boolean success) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+            if (!success) {
+                errors++;
+            }
+        }
+        
+        public synchronized int getCount() { return count; }
+        public synchronized int getErrors() { return errors; }
+        
+        /**
+         * Nearest-rank percentile in milliseconds, 0 if nothing was recorded
+         */
+        public synchronized double percentileMillis(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(percentile / 100 * count);
+            return sorted[Math.max(0, rank - 1)] / 1_000_000.0;
+        }
+    }
+}
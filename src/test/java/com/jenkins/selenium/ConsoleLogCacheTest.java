@@ -0,0 +1,87 @@
+package com.jenkins.selenium;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Caches console logs of the in-process fake controller on disk
+ */
+public class ConsoleLogCacheTest {
+    
+    private static List<Path> files(Path dir) throws Exception {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+    }
+    
+    @Test
+    public void testFinishedBuildIsFetchedOnce() throws Exception {
+        try (FakeJenkinsServer server = new FakeJenkinsServer(2)) {
+            server.setBuildDurations(FakeJenkinsServer.DurationDistribution.fixed(0));
+            server.setQueueDelayMillis(0);
+            server.setConsoleLines(100);
+            server.addJob("team/app");
+            server.start();
+            
+            try (JenkinsHttpTransport transport = new JenkinsHttpTransport(server.getUrl(), "admin", "token")) {
+                JenkinsBuildManager manager = new JenkinsBuildManager(transport);
+                Assert.assertTrue(manager.triggerJob("team/app").isSuccess());
+                Thread.sleep(50);
+                
+                try (TempDirectory tempDirectory = new TempDirectory("console-cache")) {
+                    Path cacheDir = tempDirectory.getPath();
+                    ConsoleLogCache cache = new ConsoleLogCache(manager, cacheDir);
+                    Assert.assertEquals(cache.findFirst("team/app", 1, "step 42 of").get().getLineNumber(), 43);
+                    Assert.assertEquals(cache.grep("team/app", 1, "[build 1]", 1000).size(), 100);
+                    Assert.assertTrue(cache.readConsole("team/app", 1).endsWith("Finished: SUCCESS\n"));
+                    Path logFile = cache.getConsoleLog("team/app", 1).get();
+                    
+                    Assert.assertEquals(cache.getFetchCount(), 1);
+                    Assert.assertEquals(cache.getHitCount(), 3);
+                    Assert.assertEquals(files(cacheDir), List.of(logFile));
+                    Assert.assertEquals(server.getRequestCount("console"), 1);
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void testRunningBuildSnapshotsAreDeletedOnClose() throws Exception {
+        try (FakeJenkinsServer server = new FakeJenkinsServer(2)) {
+            server.setBuildDurations(FakeJenkinsServer.DurationDistribution.fixed(60_000));
+            server.setQueueDelayMillis(0);
+            server.addJob("selenium-tests");
+            server.start();
+            
+            try (JenkinsHttpTransport transport = new JenkinsHttpTransport(server.getUrl(), "admin", "token")) {
+                JenkinsBuildManager manager = new JenkinsBuildManager(transport);
+                Assert.assertTrue(manager.triggerJob("selenium-tests").isSuccess());
+                Thread.sleep(50);
+                
+                try (TempDirectory tempDirectory = new TempDirectory("console-cache")) {
+                    Path cacheDir = tempDirectory.getPath();
+                    ConsoleLogCache cache = new ConsoleLogCache(manager, cacheDir);
+                    Assert.assertFalse(cache.getConsoleLog("selenium-tests", 1).isPresent(), "A running build's log is not final");
+                    
+                    // Two readers of the same running build get snapshots of their own
+                    try (FileChannel first = cache.openConsoleLog("selenium-tests", 1);
+                         FileChannel second = cache.openConsoleLog("selenium-tests", 1)) {
+                        Assert.assertEquals(ConsoleLogCache.search(first, "Started by remote API", 1).size(), 1);
+                        Assert.assertEquals(ConsoleLogCache.search(second, "Started by remote API", 1).size(), 1);
+                    }
+                    Assert.assertEquals(files(cacheDir), List.of());
+                    Assert.assertTrue(cache.grep("selenium-tests", 1, "Finished", 1).isEmpty());
+                    Assert.assertEquals(files(cacheDir), List.of());
+                    Assert.assertEquals(cache.getHitCount(), 0);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.jenkins.selenium;
+
+import org.apache.hc.client5.http.utils.DateUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks the governor's rate limits, in-flight cap, Retry-After pauses and AIMD adjustments
+ */
+public class ControllerGovernorTest {
+    
+    private static ControllerGovernor.GovernorConfig config() {
+        ControllerGovernor.GovernorConfig config = new ControllerGovernor.GovernorConfig();
+        config.setMaxWaitMillis(5000);
+        return config;
+    }
+    
+    @Test
+    public void testTokenBucketLimitsRate() throws Exception {
+        ControllerGovernor.GovernorConfig config = config();
+        config.setStatusRate(10);
+        ControllerGovernor governor = new ControllerGovernor(config);
+        
+        long start = System.nanoTime();
+        for (int i = 0; i < 25; i++) {
+            governor.acquire(ControllerGovernor.EndpointClass.STATUS);
+            governor.release();
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        // A burst of 10, then 15 more at 10 per second
+        Assert.assertTrue(elapsed >= 1300, "25 status requests took " + elapsed + " ms");
+        
+        // Whatever refilled since is taken; then the next status token is at most 1/10 s away
+        long now = System.nanoTime();
+        long wait = 0;
+        for (int i = 0; i <= 10 && wait == 0; i++) {
+            wait = governor.tryAcquire(ControllerGovernor.EndpointClass.STATUS, now);
+            if (wait == 0) {
+                governor.release();
+            }
+        }
+        Assert.assertTrue(wait > 0 && wait <= TimeUnit.MILLISECONDS.toNanos(100), "Next status token in " + wait + " ns");
+        Assert.assertEquals(governor.tryAcquire(ControllerGovernor.EndpointClass.TRIGGER, now), 0, "Trigger tokens are separate");
+        governor.release();
+    }
+    
+    @Test
+    public void testInFlightCap() throws Exception {
+        ControllerGovernor.GovernorConfig config = config();
+        config.setMaxInFlight(2);
+        config.setMaxWaitMillis(200);
+        ControllerGovernor governor = new ControllerGovernor(config);
+        
+        governor.acquire(ControllerGovernor.EndpointClass.STATUS);
+        governor.acquire(ControllerGovernor.EndpointClass.CONSOLE);
+        Assert.assertEquals(governor.getInFlight(), 2);
+        Assert.assertThrows(ControllerGovernor.ThrottledException.class, () -> governor.acquire(ControllerGovernor.EndpointClass.STATUS));
+        
+        governor.release();
+        governor.acquire(ControllerGovernor.EndpointClass.STATUS);
+        Assert.assertEquals(governor.getInFlight(), 2);
+    }
+    
+    @Test
+    public void testRetryAfterPausesAllClasses() throws Exception {
+        ControllerGovernor governor = new ControllerGovernor(config());
+        
+        governor.onResponse(ControllerGovernor.EndpointClass.STATUS, 429, TimeUnit.MILLISECONDS.toNanos(5), "1");
+        Assert.assertTrue(governor.getPauseMillis() > 0 && governor.getPauseMillis() <= 1000, "Pause: " + governor.getPauseMillis());
+        Assert.assertEquals(governor.getRate(ControllerGovernor.EndpointClass.TRIGGER), 2.5);
+        Assert.assertEquals(governor.getRate(ControllerGovernor.EndpointClass.STATUS), 10.0);
+        
+        long waited = TimeUnit.NANOSECONDS.toMillis(governor.acquire(ControllerGovernor.EndpointClass.TRIGGER));
+        governor.release();
+        Assert.assertTrue(waited >= 800, "Trigger waited " + waited + " ms");
+    }
+    
+    @Test
+    public void testAdditiveIncreaseMultiplicativeDecrease() {
+        ControllerGovernor.GovernorConfig config = config();
+        config.setStatusRate(8);
+        config.setLatencyTargetMillis(100);
+        config.setDecreaseIntervalMillis(60_000);
+        ControllerGovernor governor = new ControllerGovernor(config);
+        ControllerGovernor.EndpointClass status = ControllerGovernor.EndpointClass.STATUS;
+        
+        governor.onResponse(status, 200, TimeUnit.MILLISECONDS.toNanos(500), null);
+        Assert.assertEquals(governor.getRate(status), 4.0);
+        // One decrease per interval, however many slow responses arrive in it
+        governor.onResponse(status, 200, TimeUnit.MILLISECONDS.toNanos(500), null);
+        Assert.assertEquals(governor.getRate(status), 4.0);
+        Assert.assertEquals(governor.getRate(ControllerGovernor.EndpointClass.TRIGGER), 5.0, "Other classes keep their rate");
+        
+        governor.onResponse(status, 200, TimeUnit.MILLISECONDS.toNanos(10), null);
+        Assert.assertEquals(governor.getRate(status), 4.25);
+        for (int i = 0; i < 100; i++) {
+            governor.onResponse(status, 200, TimeUnit.MILLISECONDS.toNanos(10), null);
+        }
+        Assert.assertEquals(governor.getRate(status), 8.0, "Rate recovers up to the configured rate");
+    }
+    
+    @Test
+    public void testRetryAfterValues() {
+        Assert.assertEquals(ControllerGovernor.retryAfterMillis("5", 120_000), 5000);
+        Assert.assertEquals(ControllerGovernor.retryAfterMillis(" 600 ", 120_000), 120_000);
+        Assert.assertEquals(ControllerGovernor.retryAfterMillis(null, 120_000), 0);
+        Assert.assertEquals(ControllerGovernor.retryAfterMillis("soon", 120_000), 0);
+        long millis = ControllerGovernor.retryAfterMillis(DateUtils.formatStandardDate(Instant.now().plusSeconds(30)), 120_000);
+        Assert.assertTrue(millis > 28_000 && millis <= 30_000, "HTTP date: " + millis);
+    }
+    
+    @Test
+    public void testTransportHonoursRetryAfter() throws Exception {
+        try (FakeJenkinsServer server = new FakeJenkinsServer(2)) {
+            server.addJob("selenium-tests");
+            server.setThrottleRate(1.0);
+            server.setRetryAfterSeconds(2);
+            server.start();
+            
+            ControllerGovernor.GovernorConfig config = config();
+            config.setMaxWaitMillis(500);
+            ControllerGovernor governor = new ControllerGovernor(config);
+            try (JenkinsHttpTransport transport = new JenkinsHttpTransport(server.getUrl(), "admin", "token",
+                    JenkinsHttpTransport.TransportConfig.fromSystemProperties(), governor)) {
+                JenkinsBuildManager manager = new JenkinsBuildManager(transport);
+                Assert.assertNull(manager.getLastBuildStatus("selenium-tests"));
+                Assert.assertEquals(server.getFaultCount(429), 2);
+                Assert.assertTrue(governor.getPauseMillis() > 1000, "Pause: " + governor.getPauseMillis());
+                
+                // The controller asked for 2 s, longer than this governor waits: rejected without a request
+                Assert.assertNull(manager.getLastBuildStatus("selenium-tests"));
+                Assert.assertEquals(server.getFaultCount(429), 2);
+                PrometheusRegistry registry = (PrometheusRegistry) JenkinsMetrics.getRegistry();
+                Assert.assertEquals(registry.getCount(JenkinsMetrics.ERRORS, "controller", transport.getMetrics().getController(),
+                    "endpoint", "lastBuild", "kind", "throttled"), 1);
+                Assert.assertEquals(governor.getInFlight(), 0);
+            }
+        }
+    }
+    
+    @Test
+    public void testTryAcquireNeverBlocks() throws Exception {
+        ControllerGovernor.GovernorConfig config = config();
+        config.setMaxInFlight(1);
+        // One token, then one every 20 s, so no refill happens during the test
+        config.setStatusRate(0.05);
+        config.setMinRate(0.05);
+        config.setMaxWaitMillis(60_000);
+        ControllerGovernor governor = new ControllerGovernor(config);
+        ControllerGovernor.EndpointClass status = ControllerGovernor.EndpointClass.STATUS;
+        
+        long start = System.nanoTime();
+        Assert.assertEquals(governor.tryAcquire(status, start), 0);
+        Assert.assertTrue(governor.tryAcquire(status, start) > 0, "No in-flight permit left");
+        governor.release();
+        long wait = governor.tryAcquire(status, start);
+        Assert.assertTrue(wait > TimeUnit.SECONDS.toNanos(10) && wait <= TimeUnit.SECONDS.toNanos(20), "Wait " + wait);
+        Assert.assertEquals(governor.getInFlight(), 0, "A refused attempt holds no permit");
+        
+        // Waiting another 20 s would exceed the 60 s allowed to a request that has waited 50 s already
+        Assert.assertThrows(ControllerGovernor.ThrottledException.class,
+            () -> governor.tryAcquire(status, System.nanoTime() - TimeUnit.SECONDS.toNanos(50)));
+    }
+    
+    @Test
+    public void testPoolWaitIsNotControllerLatency() throws Exception {
+        try (FakeJenkinsServer server = new FakeJenkinsServer(4)) {
+            server.addJob("selenium-tests");
+            server.setLatency(100, 0);
+            server.start();
+            
+            ControllerGovernor.GovernorConfig config = config();
+            config.setLatencyTargetMillis(250);
+            ControllerGovernor governor = new ControllerGovernor(config);
+            JenkinsHttpTransport.TransportConfig transportConfig = JenkinsHttpTransport.TransportConfig.fromSystemProperties();
+            transportConfig.setMaxPerRoute(1);
+            try (JenkinsHttpTransport transport = new JenkinsHttpTransport(server.getUrl(), "admin", "token", transportConfig, governor)) {
+                JenkinsBuildManager manager = new JenkinsBuildManager(transport);
+                double rate = governor.getRate(ControllerGovernor.EndpointClass.STATUS);
+                
+                // One connection: the last of these waits about 500 ms for it, but each exchange takes 100 ms
+                List<CompletableFuture<JenkinsBuildManager.JobInfo>> jobs = new ArrayList<>();
+                for (int i = 0; i < 6; i++) {
+                    jobs.add(CompletableFuture.supplyAsync(() -> manager.getJobInfo("selenium-tests")));
+                }
+                for (CompletableFuture<JenkinsBuildManager.JobInfo> job : jobs) {
+                    Assert.assertNotNull(job.get(10, TimeUnit.SECONDS));
+                }
+                Assert.assertTrue(governor.getRate(ControllerGovernor.EndpointClass.STATUS) >= rate,
+                    "Waiting for a pooled connection lowered the rate to " + governor.getRate(ControllerGovernor.EndpointClass.STATUS));
+            }
+        }
+    }
+}
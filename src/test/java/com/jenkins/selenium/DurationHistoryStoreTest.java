@@ -0,0 +1,102 @@
+package com.jenkins.selenium;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Records, reloads and compacts a history file in a temporary directory
+ */
+public class DurationHistoryStoreTest {
+    
+    @Test
+    public void testHistoryIsReloaded() throws IOException {
+        try (TempDirectory tempDirectory = new TempDirectory("history")) {
+            Path file = tempDirectory.getPath().resolve("durations.tsv");
+            try (DurationHistoryStore store = DurationHistoryStore.open(file, 5)) {
+                store.record(DurationHistoryStore.Kind.TEST, "login\twith tab", 1000, DurationHistoryStore.Outcome.PASSED);
+                store.record(DurationHistoryStore.Kind.TEST, "login\twith tab", 3000, DurationHistoryStore.Outcome.PASSED);
+                store.record(DurationHistoryStore.Kind.TEST, "login\twith tab", 2000, DurationHistoryStore.Outcome.PASSED);
+                store.record(DurationHistoryStore.Kind.TEST, "login\twith tab", 9000, DurationHistoryStore.Outcome.ERROR);
+                store.record(DurationHistoryStore.Kind.BUILD, "selenium-tests", 60_000, DurationHistoryStore.Outcome.FAILED);
+            }
+            
+            try (DurationHistoryStore store = DurationHistoryStore.open(file, 5)) {
+                DurationHistoryStore.History history = store.get(DurationHistoryStore.Kind.TEST, "login\twith tab");
+                Assert.assertEquals(history.getCount(), 4);
+                Assert.assertEquals(history.getMedianDuration(0), 2000, "Median of passing runs only");
+                Assert.assertEquals(history.getLastOutcome(), DurationHistoryStore.Outcome.ERROR);
+                Assert.assertEquals(history.getFailureRate(), 0.25);
+                Assert.assertEquals(store.expectedDuration(DurationHistoryStore.Kind.BUILD, "selenium-tests", 42), 42,
+                    "Failed builds give no duration estimate");
+                Assert.assertNull(store.get(DurationHistoryStore.Kind.TEST, "unknown"));
+            }
+        }
+    }
+    
+    @Test
+    public void testRowWeightsAreASnapshot() throws IOException {
+        try (TempDirectory tempDirectory = new TempDirectory("history")) {
+            Path file = tempDirectory.getPath().resolve("durations.tsv");
+            try (DurationHistoryStore store = DurationHistoryStore.open(file, 5)) {
+                store.record(DurationHistoryStore.Kind.TEST, "slow", 60_000, DurationHistoryStore.Outcome.PASSED);
+                store.record(DurationHistoryStore.Kind.TEST, "fast", 1000, DurationHistoryStore.Outcome.PASSED);
+                ShardPlanner.WeightSnapshot weights = store.rowWeights();
+                
+                // Rows recorded while shards run must not move rows between shards
+                for (int i = 0; i < 5; i++) {
+                    store.record(DurationHistoryStore.Kind.TEST, "slow", 1, DurationHistoryStore.Outcome.PASSED);
+                    store.record(DurationHistoryStore.Kind.TEST, "new", 90_000, DurationHistoryStore.Outcome.PASSED);
+                }
+                Assert.assertEquals(weights.weightOf(new TestData("t", "r", "slow", "chrome")), 60_000);
+                Assert.assertEquals(weights.weightOf(new TestData("t", "r", "new", "chrome")),
+                    weights.weightOf(new TestData("t", "r", "never ran", "chrome")), "Tests recorded later weigh as unknown");
+                Assert.assertEquals(weights.size(), 2);
+                Assert.assertEquals(store.rowWeights().weightOf(new TestData("t", "r", "slow", "chrome")), 1);
+            }
+        }
+    }
+    
+    @Test
+    public void testCompactionKeepsOnlyTheWindow() throws IOException {
+        try (TempDirectory tempDirectory = new TempDirectory("history")) {
+            Path file = tempDirectory.getPath().resolve("durations.tsv");
+            try (DurationHistoryStore store = DurationHistoryStore.open(file, 3)) {
+                for (int i = 0; i < 2000; i++) {
+                    store.record(DurationHistoryStore.Kind.TEST, "row" + (i % 10), i, DurationHistoryStore.Outcome.PASSED);
+                }
+            }
+            
+            Assert.assertEquals(Files.readAllLines(file).size(), 30, "Close should compact to 3 runs for each of 10 keys");
+            try (DurationHistoryStore store = DurationHistoryStore.open(file, 3)) {
+                // Runs 1979, 1989, 1999 are the last three of row9
+                Assert.assertEquals(store.expectedDuration(DurationHistoryStore.Kind.TEST, "row9", 0), 1989);
+            }
+        }
+    }
+    
+    @Test
+    public void testLongestFirstAndFlipRate() throws IOException {
+        try (TempDirectory tempDirectory = new TempDirectory("history")) {
+            Path file = tempDirectory.getPath().resolve("durations.tsv");
+            try (DurationHistoryStore store = DurationHistoryStore.open(file, 10)) {
+                store.record(DurationHistoryStore.Kind.TEST, "short", 100, DurationHistoryStore.Outcome.PASSED);
+                store.record(DurationHistoryStore.Kind.TEST, "long", 5000, DurationHistoryStore.Outcome.PASSED);
+                store.record(DurationHistoryStore.Kind.TEST, "medium", 1000, DurationHistoryStore.Outcome.PASSED);
+                store.record(DurationHistoryStore.Kind.TEST, "medium", 1000, DurationHistoryStore.Outcome.FAILED);
+                store.record(DurationHistoryStore.Kind.TEST, "medium", 1000, DurationHistoryStore.Outcome.PASSED);
+                
+                List<String> ordered = store.longestFirst(Arrays.asList("short", "new", "long", "medium"),
+                    DurationHistoryStore.Kind.TEST, name -> name);
+                Assert.assertEquals(ordered, Arrays.asList("long", "new", "medium", "short"),
+                    "Unknown tests count as the median known duration");
+                Assert.assertEquals(store.get(DurationHistoryStore.Kind.TEST, "medium").getFlipRate(), 1.0);
+            }
+        }
+    }
+}
@@ -0,0 +1,544 @@
+package com.jenkins.selenium;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process stand-in for a Jenkins controller, for load and latency tests of the client.
+ *
+ * It serves the endpoints the client uses: {@code build} / {@code buildWithParameters} (answering
+ * with a queue item Location), {@code queue/item/N/api/json}, job and folder {@code api/json},
+ * {@code N/api/json} and {@code lastBuild/api/json}, and {@code logText/progressiveText}, whose
+ * log grows while the build runs. {@code tree} filters are ignored; every response carries the
+ * fields the client reads. JSON responses carry an {@code ETag} and answer a matching
+ * {@code If-None-Match} with 304. A triggered build waits {@code queueDelayMillis} in the queue, then
+ * runs for a duration drawn from the configured distribution.
+ *
+ * Every request first sleeps the configured latency, then may be answered with an injected
+ * 429 or 503 (with {@code Retry-After}) or 500 instead.
+ */
+public class FakeJenkinsServer implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(FakeJenkinsServer.class);
+    
+    private static final int BUILDS_LISTED = 50;
+    
+    /**
+     * Build durations in milliseconds
+     */
+    @FunctionalInterface
+    public interface DurationDistribution {
+        long sample(Random random);
+        
+        static DurationDistribution fixed(long millis) {
+            return random -> millis;
+        }
+        
+        static DurationDistribution uniform(long minMillis, long maxMillis) {
+            return random -> minMillis + (long) (random.nextDouble() * (maxMillis - minMillis));
+        }
+        
+        /**
+         * Long-tailed, like real build times: half the builds take less than {@code medianMillis}
+         */
+        static DurationDistribution logNormal(long medianMillis, double sigma) {
+            return random -> Math.round(medianMillis * Math.exp(sigma * random.nextGaussian()));
+        }
+    }
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final Map<Integer, QueueItem> queue = new ConcurrentHashMap<>();
+    private final AtomicInteger nextQueueId = new AtomicInteger(1);
+    private final Map<String, LongAdder> requests = new ConcurrentHashMap<>();
+    private final Map<Integer, LongAdder> faults = new ConcurrentHashMap<>();
+    
+    private volatile long latencyMillis;
+    private volatile long latencyJitterMillis;
+    private volatile double errorRate;
+    private volatile double throttleRate;
+    private volatile double unavailableRate;
+    private volatile int retryAfterSeconds = 1;
+    private volatile long queueDelayMillis = 100;
+    private volatile DurationDistribution buildDurations = DurationDistribution.fixed(1000);
+    private volatile double buildFailureRate;
+    private volatile int consoleLines = 20;
+    
+    /**
+     * Server on a free local port with one handler thread per expected concurrent client
+     */
+    public FakeJenkinsServer(int threads) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "fake-jenkins");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+    
+    public FakeJenkinsServer start() {
+        server.start();
+        logger.info("Fake Jenkins listening on {}", getUrl());
+        return this;
+    }
+    
+    /**
+     * Base URL, ending with a slash
+     */
+    public String getUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/";
+    }
+    
+    /**
+     * Add a job; folders are implied by the full name, e.g. {@code team/app}
+     */
+    public void addJob(String fullName) {
+        jobs.putIfAbsent(fullName, new Job(fullName));
+    }
+    
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        try (InputStream body = exchange.getRequestBody()) {
+            body.readAllBytes();
+            String[] path = Arrays.stream(exchange.getRequestURI().getRawPath().split("/"))
+                .filter(segment -> !segment.isEmpty())
+                .map(segment -> URLDecoder.decode(segment, StandardCharsets.UTF_8))
+                .toArray(String[]::new);
+            
+            simulateLatency();
+            int fault = injectedFault();
+            if (fault != 0) {
+                faults.computeIfAbsent(fault, code -> new LongAdder()).increment();
+                if (fault != 500) {
+                    exchange.getResponseHeaders().set("Retry-After", String.valueOf(retryAfterSeconds));
+                }
+                send(exchange, fault, "text/plain", new byte[0]);
+                return;
+            }
+            route(exchange, path);
+        } catch (RuntimeException e) {
+            logger.error("Fake Jenkins failed on {}", exchange.getRequestURI(), e);
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    private void route(HttpExchange exchange, String[] path) throws IOException {
+        if (path.length >= 3 && path[0].equals("queue") && path[1].equals("item")) {
+            count("queue");
+            QueueItem item = queue.get(Integer.parseInt(path[2]));
+            if (item == null) {
+                send(exchange, 404, "text/plain", new byte[0]);
+            } else {
+                sendJson(exchange, queueItemJson(item));
+            }
+            return;
+        }
+        
+        // Job path: job/a/job/b/... followed by the request
+        int index = 0;
+        StringBuilder fullName = new StringBuilder();
+        while (index + 1 < path.length && path[index].equals("job")) {
+            fullName.append(fullName.length() > 0 ? "/" : "").append(path[index + 1]);
+            index += 2;
+        }
+        String name = fullName.toString();
+        List<String> rest = Arrays.asList(path).subList(index, path.length);
+        Job job = jobs.get(name);
+        
+        if (rest.equals(List.of("api", "json"))) {
+            count("api/json");
+            if (job != null) {
+                sendJson(exchange, jobJson(job, true));
+            } else if (name.isEmpty() || isFolder(name)) {
+                sendJson(exchange, folderJson(name));
+            } else {
+                send(exchange, 404, "text/plain", new byte[0]);
+            }
+            return;
+        }
+        if (job == null) {
+            send(exchange, 404, "text/plain", new byte[0]);
+            return;
+        }
+        
+        if (rest.size() == 1 && (rest.get(0).equals("build") || rest.get(0).equals("buildWithParameters"))) {
+            count("trigger");
+            if (!exchange.getRequestMethod().equals("POST")) {
+                send(exchange, 405, "text/plain", new byte[0]);
+                return;
+            }
+            QueueItem item = trigger(job);
+            exchange.getResponseHeaders().set("Location", getUrl() + "queue/item/" + item.id + "/");
+            send(exchange, 201, "text/plain", new byte[0]);
+            return;
+        }
+        
+        if (rest.size() >= 2) {
+            Build build = rest.get(0).equals("lastBuild") ? job.lastStarted() : job.started(parseInt(rest.get(0)));
+            if (build == null) {
+                send(exchange, 404, "text/plain", new byte[0]);
+            } else if (rest.subList(1, rest.size()).equals(List.of("api", "json"))) {
+                count("build");
+                sendJson(exchange, buildJson(job, build));
+            } else if (rest.subList(1, rest.size()).equals(List.of("logText", "progressiveText"))) {
+                count("console");
+                sendConsole(exchange, build);
+            } else {
+                send(exchange, 404, "text/plain", new byte[0]);
+            }
+            return;
+        }
+        send(exchange, 404, "text/plain", new byte[0]);
+    }
+    
+    private QueueItem trigger(Job job) {
+        Random random = ThreadLocalRandom.current();
+        long now = System.currentTimeMillis();
+        Build build = new Build(job.nextBuild.getAndIncrement(), now + queueDelayMillis,
+            Math.max(0, buildDurations.sample(random)), random.nextDouble() < buildFailureRate ? "FAILURE" : "SUCCESS");
+        job.builds.put(build.number, build);
+        QueueItem item = new QueueItem(nextQueueId.getAndIncrement(), job, build);
+        queue.put(item.id, item);
+        return item;
+    }
+    
+    private void simulateLatency() {
+        long jitter = latencyJitterMillis;
+        long delay = latencyMillis + (jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter + 1) : 0);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    private int injectedFault() {
+        double roll = ThreadLocalRandom.current().nextDouble();
+        if (roll < throttleRate) {
+            return 429;
+        }
+        if (roll < throttleRate + unavailableRate) {
+            return 503;
+        }
+        if (roll < throttleRate + unavailableRate + errorRate) {
+            return 500;
+        }
+        return 0;
+    }
+    
+    private boolean isFolder(String name) {
+        String prefix = name + "/";
+        return jobs.keySet().stream().anyMatch(job -> job.startsWith(prefix));
+    }
+    
+    private ObjectNode queueItemJson(QueueItem item) {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("_class", "hudson.model.Queue$WaitingItem");
+        node.put("id", item.id);
+        node.put("cancelled", false);
+        if (System.currentTimeMillis() < item.build.startedAt) {
+            node.put("why", "Waiting for next available executor");
+            node.putNull("executable");
+        } else {
+            node.putNull("why");
+            ObjectNode executable = node.putObject("executable");
+            executable.put("number", item.build.number);
+            executable.put("url", buildUrl(item.job, item.build));
+        }
+        return node;
+    }
+    
+    private ObjectNode folderJson(String folder) {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("_class", folder.isEmpty() ? "hudson.model.Hudson" : "com.cloudbees.hudson.plugins.folder.Folder");
+        ArrayNode children = node.putArray("jobs");
+        String prefix = folder.isEmpty() ? "" : folder + "/";
+        List<String> subFolders = new ArrayList<>();
+        for (Job job : jobs.values()) {
+            if (!job.fullName.startsWith(prefix)) {
+                continue;
+            }
+            String relative = job.fullName.substring(prefix.length());
+            int slash = relative.indexOf('/');
+            if (slash < 0) {
+                children.add(jobJson(job, true));
+            } else if (!subFolders.contains(relative.substring(0, slash))) {
+                String subFolder = relative.substring(0, slash);
+                subFolders.add(subFolder);
+                ObjectNode child = children.addObject();
+                child.put("_class", "com.cloudbees.hudson.plugins.folder.Folder");
+                child.put("name", subFolder);
+                child.put("url", getUrl() + JobPath.of(prefix + subFolder));
+            }
+        }
+        return node;
+    }
+    
+    private ObjectNode jobJson(Job job, boolean withBuilds) {
+        long now = System.currentTimeMillis();
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("_class", "hudson.model.FreeStyleProject");
+        node.put("name", job.fullName.substring(job.fullName.lastIndexOf('/') + 1));
+        node.put("fullName", job.fullName);
+        node.put("url", getUrl() + JobPath.of(job.fullName));
+        node.put("buildable", true);
+        
+        Build last = job.lastStarted();
+        node.put("color", last == null ? "notbuilt"
+            : (last.result.equals("SUCCESS") ? "blue" : "red") + (last.isBuilding(now) ? "_anime" : ""));
+        if (last == null) {
+            node.putNull("lastBuild");
+        } else {
+            ObjectNode lastBuild = node.putObject("lastBuild");
+            lastBuild.put("number", last.number);
+            lastBuild.put("url", buildUrl(job, last));
+            lastBuild.put("building", last.isBuilding(now));
+            if (last.isBuilding(now)) {
+                lastBuild.putNull("result");
+            } else {
+                lastBuild.put("result", last.result);
+            }
+        }
+        if (withBuilds) {
+            ArrayNode builds = node.putArray("builds");
+            int listed = 0;
+            for (Build build : job.builds.descendingMap().values()) {
+                if (build.startedAt <= now && listed++ < BUILDS_LISTED) {
+                    builds.add(buildJson(job, build));
+                }
+            }
+        }
+        return node;
+    }
+    
+    private ObjectNode buildJson(Job job, Build build) {
+        long now = System.currentTimeMillis();
+        boolean building = build.isBuilding(now);
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("_class", "hudson.model.FreeStyleBuild");
+        node.put("number", build.number);
+        node.put("url", buildUrl(job, build));
+        node.put("building", building);
+        if (building) {
+            node.putNull("result");
+        } else {
+            node.put("result", build.result);
+        }
+        node.put("duration", building ? 0 : build.durationMillis);
+        node.put("estimatedDuration", job.estimatedDuration(now));
+        node.put("timestamp", build.startedAt);
+        return node;
+    }
+    
+    private String buildUrl(Job job, Build build) {
+        return getUrl() + JobPath.of(job.fullName) + build.number + "/";
+    }
+    
+    private void sendConsole(HttpExchange exchange, Build build) throws IOException {
+        long now = System.currentTimeMillis();
+        byte[] log = build.consoleText(now, consoleLines).getBytes(StandardCharsets.UTF_8);
+        long start = 0;
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null && query.startsWith("start=")) {
+            start = Math.max(0, Math.min(log.length, Long.parseLong(query.substring("start=".length()))));
+        }
+        exchange.getResponseHeaders().set("X-Text-Size", String.valueOf(log.length));
+        if (build.isBuilding(now)) {
+            exchange.getResponseHeaders().set("X-More-Data", "true");
+        }
+        send(exchange, 200, "text/plain;charset=UTF-8", Arrays.copyOfRange(log, (int) start, log.length));
+    }
+    
+    private void sendJson(HttpExchange exchange, ObjectNode node) throws IOException {
+        byte[] body = objectMapper.writeValueAsBytes(node);
+        String etag = "\"" + Integer.toHexString(Arrays.hashCode(body)) + "\"";
+        exchange.getResponseHeaders().set("ETag", etag);
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            count("notModified");
+            send(exchange, 304, "application/json;charset=UTF-8", new byte[0]);
+        } else {
+            send(exchange, 200, "application/json;charset=UTF-8", body);
+        }
+    }
+    
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+    
+    private void count(String endpoint) {
+        requests.computeIfAbsent(endpoint, key -> new LongAdder()).increment();
+    }
+    
+    private static int parseInt(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+    
+    // Configuration
+    public void setLatency(long latencyMillis, long jitterMillis) {
+        this.latencyMillis = latencyMillis;
+        this.latencyJitterMillis = jitterMillis;
+    }
+    
+    public void setErrorRate(double errorRate) { this.errorRate = errorRate; }
+    public void setThrottleRate(double throttleRate) { this.throttleRate = throttleRate; }
+    public void setUnavailableRate(double unavailableRate) { this.unavailableRate = unavailableRate; }
+    public void setRetryAfterSeconds(int retryAfterSeconds) { this.retryAfterSeconds = retryAfterSeconds; }
+    public void setQueueDelayMillis(long queueDelayMillis) { this.queueDelayMillis = queueDelayMillis; }
+    public void setBuildDurations(DurationDistribution buildDurations) { this.buildDurations = buildDurations; }
+    public void setBuildFailureRate(double buildFailureRate) { this.buildFailureRate = buildFailureRate; }
+    public void setConsoleLines(int consoleLines) { this.consoleLines = consoleLines; }
+    
+    /**
+     * Requests answered normally, by endpoint: trigger, queue, api/json, build, console
+     */
+    public long getRequestCount(String endpoint) {
+        LongAdder count = requests.get(endpoint);
+        return count != null ? count.sum() : 0;
+    }
+    
+    public long getRequestCount() {
+        return requests.values().stream().mapToLong(LongAdder::sum).sum() + getFaultCount();
+    }
+    
+    /**
+     * Requests answered with an injected status code
+     */
+    public long getFaultCount(int status) {
+        LongAdder count = faults.get(status);
+        return count != null ? count.sum() : 0;
+    }
+    
+    public long getFaultCount() {
+        return faults.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+    
+    private static class Job {
+        private final String fullName;
+        private final AtomicInteger nextBuild = new AtomicInteger(1);
+        private final ConcurrentSkipListMap<Integer, Build> builds = new ConcurrentSkipListMap<>();
+        
+        Job(String fullName) {
+            this.fullName = fullName;
+        }
+        
+        Build started(int number) {
+            Build build = builds.get(number);
+            return build != null && build.startedAt <= System.currentTimeMillis() ? build : null;
+        }
+        
+        Build lastStarted() {
+            long now = System.currentTimeMillis();
+            for (Build build : builds.descendingMap().values()) {
+                if (build.startedAt <= now) {
+                    return build;
+                }
+            }
+            return null;
+        }
+        
+        /**
+         * Duration of the last completed build, as Jenkins estimates it; -1 before the first one
+         */
+        long estimatedDuration(long now) {
+            for (Build build : builds.descendingMap().values()) {
+                if (build.startedAt <= now && !build.isBuilding(now)) {
+                    return build.durationMillis;
+                }
+            }
+            return -1;
+        }
+    }
+    
+    private static class Build {
+        private final int number;
+        private final long startedAt;
+        private final long durationMillis;
+        private final String result;
+        
+        Build(int number, long startedAt, long durationMillis, String result) {
+            this.number = number;
+            this.startedAt = startedAt;
+            this.durationMillis = durationMillis;
+            this.result = result;
+        }
+        
+        boolean isBuilding(long now) {
+            return now < startedAt + durationMillis;
+        }
+        
+        /**
+         * Log written so far: a share of the lines matching the elapsed share of the duration
+         */
+        String consoleText(long now, int lines) {
+            boolean building = isBuilding(now);
+            int written = building && durationMillis > 0
+                ? (int) (lines * (now - startedAt) / durationMillis) : lines;
+            StringBuilder text = new StringBuilder("Started by remote API\n");
+            for (int i = 1; i <= written; i++) {
+                text.append("[build ").append(number).append("] step ").append(i).append(" of ").append(lines).append('\n');
+            }
+            if (!building) {
+                text.append("Finished: ").append(result).append('\n');
+            }
+            return text.toString();
+        }
+    }
+    
+    private static class QueueItem {
+        private final int id;
+        private final Job job;
+        private final Build build;
+        
+        QueueItem(int id, Job job, Build build) {
+            this.id = id;
+            this.job = job;
+            this.build = build;
+        }
+    }
+}
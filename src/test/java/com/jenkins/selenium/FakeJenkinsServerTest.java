@@ -0,0 +1,81 @@
+package com.jenkins.selenium;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the build manager and the load driver against the in-process fake controller
+ */
+public class FakeJenkinsServerTest {
+    
+    @Test
+    public void testBuildFlow() throws Exception {
+        try (FakeJenkinsServer server = new FakeJenkinsServer(4)) {
+            server.setBuildDurations(FakeJenkinsServer.DurationDistribution.fixed(300));
+            server.addJob("selenium-tests");
+            server.addJob("team/app");
+            server.start();
+            
+            try (JenkinsHttpTransport transport = new JenkinsHttpTransport(server.getUrl(), "admin", "token")) {
+                JenkinsBuildManager manager = new JenkinsBuildManager(transport);
+                JenkinsBuildManager.BuildResult triggered = manager.triggerJobWithParameters("team/app", Map.of("BROWSER", "chrome"));
+                Assert.assertTrue(triggered.isSuccess(), triggered.getMessage());
+                JenkinsBuildManager.QueuedBuild queuedBuild = (JenkinsBuildManager.QueuedBuild) triggered.getData();
+                
+                JenkinsBuildManager.BuildResult completed = manager.waitForJobCompletion(queuedBuild, 1);
+                Assert.assertTrue(completed.isSuccess(), completed.getMessage());
+                Assert.assertEquals(queuedBuild.getBuildNumber(), 1);
+                Assert.assertTrue(manager.getConsoleOutput("team/app", 1).endsWith("Finished: SUCCESS\n"));
+                Assert.assertEquals(manager.getLastBuildStatus("team/app").getResult(), "SUCCESS");
+                
+                List<String> names = manager.listJobs().getJobs().stream()
+                    .map(JenkinsBuildManager.JobInfo::getName)
+                    .collect(Collectors.toList());
+                Assert.assertTrue(names.contains("selenium-tests") && names.contains("team"), "Top level lists jobs and folders: " + names);
+                Assert.assertNull(manager.getLastBuildStatus("selenium-tests"), "A job that never ran has no last build");
+            }
+        }
+    }
+    
+    @Test
+    public void testInjectedThrottling() throws Exception {
+        try (FakeJenkinsServer server = new FakeJenkinsServer(2)) {
+            server.addJob("selenium-tests");
+            server.setThrottleRate(1.0);
+            server.setRetryAfterSeconds(0);
+            server.start();
+            
+            try (JenkinsHttpTransport transport = new JenkinsHttpTransport(server.getUrl(), "admin", "token")) {
+                JenkinsBuildManager manager = new JenkinsBuildManager(transport);
+                Assert.assertFalse(manager.triggerJob("selenium-tests").isSuccess());
+                Assert.assertNull(manager.listJobs());
+            }
+            // The HTTP client retries a 429 once after Retry-After
+            Assert.assertEquals(server.getFaultCount(429), 4);
+            Assert.assertEquals(server.getRequestCount("trigger"), 0);
+        }
+    }
+    
+    @Test
+    public void testLoadDriverReportsLatency() throws Exception {
+        try (FakeJenkinsServer server = new FakeJenkinsServer(8)) {
+            server.setLatency(5, 5);
+            server.setBuildDurations(FakeJenkinsServer.DurationDistribution.uniform(100, 300));
+            server.addJob("selenium-tests");
+            server.addJob("team/app");
+            server.start();
+            
+            ClientLoadDriver.Report report = ClientLoadDriver.run(server, List.of("selenium-tests", "team/app"), 4, 2);
+            ClientLoadDriver.Operation triggers = report.get("trigger");
+            Assert.assertTrue(triggers.getCount() >= 4, "Every client should trigger at least once");
+            Assert.assertEquals(triggers.getErrors(), 0);
+            Assert.assertEquals(report.get("waitForCompletion").getCount(), triggers.getCount());
+            Assert.assertTrue(triggers.percentileMillis(50) >= 5, "Injected latency should show in the percentiles");
+            Assert.assertTrue(triggers.percentileMillis(99) >= triggers.percentileMillis(50));
+        }
+    }
+}
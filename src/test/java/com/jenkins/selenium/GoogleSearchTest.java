@@ -39,38 +39,39 @@ public class GoogleSearchTest extends BaseTest {
         
         try {
             // Navigate to Saucedemo (e-commerce demo site)
-            driver.get("https://www.saucedemo.com");
+            navigateTo("https://www.saucedemo.com");
             logger.info("Navigated to Saucedemo homepage");
             
             // Login with demo credentials
-            driver.findElement(By.id("user-name")).sendKeys("standard_user");
-            driver.findElement(By.id("password")).sendKeys("secret_sauce");
-            driver.findElement(By.id("login-button")).click();
+            getDriver().findElement(By.id("user-name")).sendKeys("standard_user");
+            getDriver().findElement(By.id("password")).sendKeys("secret_sauce");
+            getDriver().findElement(By.id("login-button")).click();
             logger.info("Logged in successfully");
             
             // Wait for products page to load
-            Thread.sleep(2000);
+            waits().urlContains("inventory");
+            waits().elementCount(By.cssSelector(".inventory_item"), 1);
             
             // Verify we're on the products page
-            String currentUrl = driver.getCurrentUrl();
+            String currentUrl = getDriver().getCurrentUrl();
             logger.info("Current URL: {}", currentUrl);
             Assert.assertTrue(currentUrl.contains("inventory"), "Should be on products page");
             
             // Verify page title
-            String title = driver.getTitle();
+            String title = getDriver().getTitle();
             logger.info("Page title: {}", title);
             Assert.assertTrue(title.toLowerCase().contains("swag labs"), "Page title should contain 'Swag Labs'");
             
             // Verify products are displayed
-            List<WebElement> products = driver.findElements(By.cssSelector(".inventory_item"));
+            List<WebElement> products = getDriver().findElements(By.cssSelector(".inventory_item"));
             logger.info("Found {} products", products.size());
             Assert.assertTrue(products.size() > 0, "Should have products displayed");
             
             // Verify specific product elements
-            List<WebElement> productNames = driver.findElements(By.cssSelector(".inventory_item_name"));
+            List<WebElement> productNames = getDriver().findElements(By.cssSelector(".inventory_item_name"));
             Assert.assertTrue(productNames.size() > 0, "Should have product names");
             
-            List<WebElement> addToCartButtons = driver.findElements(By.cssSelector("button[class*='btn_inventory']"));
+            List<WebElement> addToCartButtons = getDriver().findElements(By.cssSelector("button[class*='btn_inventory']"));
             Assert.assertTrue(addToCartButtons.size() > 0, "Should have add to cart buttons");
             
             logger.info("Test passed: {}", testName);
@@ -84,7 +85,7 @@ public class GoogleSearchTest extends BaseTest {
     @Test
     public void testEcommerceWithCSVData() {
         String csvFilePath = System.getProperty("csv.file", "src/test/resources/testdata.csv");
-        List<TestData> testDataList = TestDataReader.readTestData(csvFilePath);
+        List<TestData> testDataList = ShardPlanner.fromEnvironment().readTestData(csvFilePath);
         
         for (TestData testData : testDataList) {
             logger.info("Running test with CSV data: {}", testData);
@@ -94,30 +95,31 @@ public class GoogleSearchTest extends BaseTest {
             
             try {
                 // Navigate to Saucedemo
-                driver.get("https://www.saucedemo.com");
+                navigateTo("https://www.saucedemo.com");
                 logger.info("Navigated to Saucedemo homepage");
                 
                 // Login with demo credentials
-                driver.findElement(By.id("user-name")).sendKeys("standard_user");
-                driver.findElement(By.id("password")).sendKeys("secret_sauce");
-                driver.findElement(By.id("login-button")).click();
+                getDriver().findElement(By.id("user-name")).sendKeys("standard_user");
+                getDriver().findElement(By.id("password")).sendKeys("secret_sauce");
+                getDriver().findElement(By.id("login-button")).click();
                 logger.info("Logged in successfully");
                 
                 // Wait for products page to load
-                Thread.sleep(2000);
+                waits().urlContains("inventory");
+                waits().elementCount(By.cssSelector(".inventory_item"), 1);
                 
                 // Verify we're on the products page
-                String currentUrl = driver.getCurrentUrl();
+                String currentUrl = getDriver().getCurrentUrl();
                 logger.info("Current URL: {}", currentUrl);
                 Assert.assertTrue(currentUrl.contains("inventory"), "Should be on products page for test: " + testData.getTestName());
                 
                 // Verify page title
-                String title = driver.getTitle();
+                String title = getDriver().getTitle();
                 logger.info("Page title: {}", title);
                 Assert.assertTrue(title.toLowerCase().contains("swag labs"), "Page title should contain 'Swag Labs' for test: " + testData.getTestName());
                 
                 // Verify products are displayed
-                List<WebElement> products = driver.findElements(By.cssSelector(".inventory_item"));
+                List<WebElement> products = getDriver().findElements(By.cssSelector(".inventory_item"));
                 logger.info("Found {} products", products.size());
                 Assert.assertTrue(products.size() > 0, "Should have products displayed for test: " + testData.getTestName());
                 
@@ -0,0 +1,114 @@
+package com.jenkins.selenium;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Checks the streaming parsers against the tree-based ones they replaced
+ */
+public class JenkinsJsonParserTest {
+    
+    private static final String JOBS = "{\"_class\":\"hudson.model.Hudson\",\"assignedLabels\":[{\"name\":\"built-in\"}],"
+        + "\"jobs\":["
+        + "{\"_class\":\"hudson.model.FreeStyleProject\",\"name\":\"selenium-tests\",\"url\":\"http://jenkins/job/selenium-tests/\","
+        + "\"color\":\"blue\",\"description\":\"UI tests\",\"buildable\":true,\"healthReport\":[{\"score\":100,\"iconUrl\":\"health-80plus.png\"}],"
+        + "\"lastBuild\":{\"_class\":\"hudson.model.FreeStyleBuild\",\"number\":42,\"url\":\"http://jenkins/job/selenium-tests/42/\","
+        + "\"result\":\"SUCCESS\",\"building\":false,\"actions\":[{\"causes\":[{\"shortDescription\":\"Started by remote API\"}]},{}]}},"
+        + "{\"name\":\"nightly\",\"url\":\"http://jenkins/job/nightly/\",\"color\":\"notbuilt\",\"description\":null,"
+        + "\"buildable\":true,\"lastBuild\":null},"
+        + "{\"name\":\"smoke\",\"fullName\":\"team/smoke\",\"url\":\"http://jenkins/job/team/job/smoke/\",\"color\":\"red_anime\","
+        + "\"buildable\":false,\"lastBuild\":{\"number\":7,\"result\":null,\"building\":true}}"
+        + "],\"views\":[{\"name\":\"all\"}]}";
+    
+    private static final String BUILD = "{\"_class\":\"hudson.model.FreeStyleBuild\",\"actions\":[{\"parameters\":[{\"name\":\"BROWSER\",\"value\":\"chrome\"}]}],"
+        + "\"artifacts\":[],\"building\":false,\"description\":null,\"duration\":183000,\"estimatedDuration\":175000,"
+        + "\"fullDisplayName\":\"selenium-tests #42\",\"number\":42,\"result\":\"UNSTABLE\",\"timestamp\":1700000000000,"
+        + "\"url\":\"http://jenkins/job/selenium-tests/42/\",\"changeSet\":{\"items\":[],\"kind\":null}}";
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    private static String describe(JenkinsBuildManager.JobInfo job) {
+        return Arrays.asList(job.getName(), job.getFullName(), job.getDescription(), job.getUrl(), job.getColor(),
+            job.isBuildable(), job.getLastBuildNumber(), job.getLastBuildUrl(), job.getLastBuildResult(), job.isLastBuildBuilding()).toString();
+    }
+    
+    private static String describe(JenkinsBuildManager.BuildStatus status) {
+        return Arrays.asList(status.getBuildNumber(), status.getResult(), status.isBuilding(), status.getDuration(),
+            status.getEstimatedDuration(), status.getTimestamp(), status.getUrl()).toString();
+    }
+    
+    private static List<String> describe(JenkinsBuildManager.JobList jobList) {
+        return jobList.getJobs().stream().map(JenkinsJsonParserTest::describe).collect(Collectors.toList());
+    }
+    
+    @Test
+    public void testJobListMatchesTreeParser() throws Exception {
+        byte[] body = JOBS.getBytes(StandardCharsets.UTF_8);
+        JenkinsBuildManager.JobList streamed = JenkinsJsonParser.readJobList(body);
+        Assert.assertEquals(describe(streamed), describe(JenkinsBuildManager.parseJobList(objectMapper.readTree(body))));
+        Assert.assertEquals(describe(JenkinsJsonParser.readJobList(new ByteArrayInputStream(body))), describe(streamed));
+        
+        List<JenkinsBuildManager.JobInfo> jobs = streamed.getJobs();
+        Assert.assertEquals(jobs.size(), 3);
+        // Unknown nested fields such as healthReport and lastBuild.actions are skipped
+        Assert.assertEquals(describe(jobs.get(0)), "[selenium-tests, selenium-tests, UI tests, http://jenkins/job/selenium-tests/, blue, true, "
+            + "42, http://jenkins/job/selenium-tests/42/, SUCCESS, false]");
+        Assert.assertEquals(jobs.get(1).getLastBuildNumber(), 0, "A null lastBuild leaves the defaults");
+        Assert.assertNull(jobs.get(1).getLastBuildResult());
+        Assert.assertEquals(jobs.get(2).getFullName(), "team/smoke");
+        Assert.assertTrue(jobs.get(2).isLastBuildBuilding());
+        Assert.assertNull(jobs.get(2).getLastBuildUrl());
+    }
+    
+    @Test
+    public void testEmptyJobList() throws Exception {
+        Assert.assertTrue(JenkinsJsonParser.readJobList("{\"jobs\":[]}".getBytes(StandardCharsets.UTF_8)).getJobs().isEmpty());
+        Assert.assertTrue(JenkinsJsonParser.readJobList("{\"_class\":\"hudson.model.Hudson\"}".getBytes(StandardCharsets.UTF_8)).getJobs().isEmpty());
+        
+        List<String> names = new ArrayList<>();
+        int count = JenkinsJsonParser.forEachJob(new ByteArrayInputStream("{\"jobs\":[]}".getBytes(StandardCharsets.UTF_8)),
+            job -> names.add(job.getName()));
+        Assert.assertEquals(count, 0);
+        Assert.assertTrue(names.isEmpty());
+    }
+    
+    @Test
+    public void testForEachJobStreamsEveryJob() throws Exception {
+        List<String> names = new ArrayList<>();
+        int count = JenkinsJsonParser.forEachJob(new ByteArrayInputStream(JOBS.getBytes(StandardCharsets.UTF_8)),
+            job -> names.add(job.getFullName()));
+        Assert.assertEquals(count, 3);
+        Assert.assertEquals(names, List.of("selenium-tests", "nightly", "team/smoke"));
+    }
+    
+    @Test
+    public void testBuildStatusMatchesTreeParser() throws Exception {
+        byte[] body = BUILD.getBytes(StandardCharsets.UTF_8);
+        JenkinsBuildManager.BuildStatus streamed = JenkinsJsonParser.readBuildStatus(body);
+        Assert.assertEquals(describe(streamed), describe(JenkinsBuildManager.parseBuildStatus(objectMapper.readTree(body))));
+        Assert.assertEquals(describe(streamed), "[42, UNSTABLE, false, 183000, 175000, 1700000000000, http://jenkins/job/selenium-tests/42/]");
+        
+        // Running build: result is null, and fields the tree parser defaults are missing
+        byte[] running = "{\"number\":43,\"building\":true,\"result\":null,\"url\":\"http://jenkins/job/selenium-tests/43/\"}"
+            .getBytes(StandardCharsets.UTF_8);
+        JenkinsBuildManager.BuildStatus status = JenkinsJsonParser.readBuildStatus(new ByteArrayInputStream(running));
+        Assert.assertEquals(describe(status), describe(JenkinsBuildManager.parseBuildStatus(objectMapper.readTree(running))));
+        Assert.assertTrue(status.isBuilding());
+        Assert.assertEquals(status.getEstimatedDuration(), 0);
+    }
+    
+    @Test
+    public void testRejectsNonObject() {
+        Assert.expectThrows(JsonParseException.class,
+            () -> JenkinsJsonParser.readBuildStatus("[]".getBytes(StandardCharsets.UTF_8)));
+    }
+}
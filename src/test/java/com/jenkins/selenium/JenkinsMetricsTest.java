@@ -0,0 +1,95 @@
+package com.jenkins.selenium;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Checks the request metrics recorded by the transport and the Prometheus text rendering
+ */
+public class JenkinsMetricsTest {
+    
+    @Test
+    public void testEndpointClassification() {
+        Assert.assertEquals(JenkinsMetrics.endpointOf("/job/team/job/app/buildWithParameters"), "trigger");
+        Assert.assertEquals(JenkinsMetrics.endpointOf("/job/app/build?delay=0"), "trigger");
+        Assert.assertEquals(JenkinsMetrics.endpointOf("/queue/item/42/api/json?tree=id"), "queue");
+        Assert.assertEquals(JenkinsMetrics.endpointOf("/job/app/7/logText/progressiveText?start=0"), "console");
+        Assert.assertEquals(JenkinsMetrics.endpointOf("/job/app/lastBuild/api/json"), "lastBuild");
+        Assert.assertEquals(JenkinsMetrics.endpointOf("/jenkins/job/app/7/api/json"), "build");
+        Assert.assertEquals(JenkinsMetrics.endpointOf("/job/team/api/json?tree=jobs[name]"), "job");
+        Assert.assertEquals(JenkinsMetrics.endpointOf("/api/json?tree=jobs[name]"), "jobs");
+        Assert.assertEquals(JenkinsMetrics.endpointOf("/crumbIssuer/api/xml"), "other");
+    }
+    
+    @Test
+    public void testTransportRecordsRequests() throws Exception {
+        // Each fake server listens on its own port, so its controller tag keeps these counts separate from other tests
+        Assert.assertTrue(JenkinsMetrics.getRegistry() instanceof PrometheusRegistry);
+        PrometheusRegistry registry = (PrometheusRegistry) JenkinsMetrics.getRegistry();
+        
+        try (FakeJenkinsServer server = new FakeJenkinsServer(2)) {
+            server.setBuildDurations(FakeJenkinsServer.DurationDistribution.fixed(200));
+            server.setQueueDelayMillis(100);
+            server.addJob("selenium-tests");
+            server.start();
+            
+            try (JenkinsHttpTransport transport = new JenkinsHttpTransport(server.getUrl(), "admin", "token")) {
+                String controller = transport.getMetrics().getController();
+                JenkinsBuildManager manager = new JenkinsBuildManager(transport);
+                JenkinsBuildManager.BuildResult triggered = manager.triggerJobWithParameters("selenium-tests", Map.of("BROWSER", "chrome"));
+                Assert.assertTrue(triggered.isSuccess(), triggered.getMessage());
+                Assert.assertTrue(manager.waitForJobCompletion((JenkinsBuildManager.QueuedBuild) triggered.getData(), 1).isSuccess());
+                Assert.assertNotNull(manager.getConsoleOutput("selenium-tests", 1));
+                
+                Assert.assertEquals(registry.getCount(JenkinsMetrics.RESPONSES, "controller", controller, "endpoint", "trigger", "status", "201"), 1);
+                Assert.assertEquals(registry.getTimerCount(JenkinsMetrics.REQUEST_DURATION, "controller", controller, "endpoint", "trigger", "method", "POST"), 1);
+                long queuePolls = registry.getCount(JenkinsMetrics.POLL_ITERATIONS, "controller", controller, "loop", "queue");
+                Assert.assertTrue(queuePolls >= 1, "Queue polls: " + queuePolls);
+                Assert.assertEquals(registry.getCount(JenkinsMetrics.RESPONSES, "controller", controller, "endpoint", "queue", "status", "200"), queuePolls);
+                Assert.assertTrue(registry.getCount(JenkinsMetrics.POLL_ITERATIONS, "controller", controller, "loop", "build") >= 1);
+                Assert.assertTrue(registry.getCount(JenkinsMetrics.RECEIVED_BYTES, "controller", controller, "endpoint", "console") > 0);
+                Assert.assertTrue(registry.getTimerCount(JenkinsMetrics.CONNECTION_ACQUIRE, "controller", controller) >= 1);
+                
+                server.setThrottleRate(1.0);
+                server.setRetryAfterSeconds(0);
+                Assert.assertNull(manager.getLastBuildStatus("selenium-tests"));
+                // Both attempts of the retried request are visible
+                Assert.assertEquals(registry.getCount(JenkinsMetrics.RESPONSES, "controller", controller, "endpoint", "lastBuild", "status", "429"), 2);
+            }
+            try (JenkinsHttpTransport transport = new JenkinsHttpTransport("http://127.0.0.1:1/", "admin", "token")) {
+                Assert.assertNull(new JenkinsBuildManager(transport).listJobs());
+                Assert.assertEquals(registry.getCount(JenkinsMetrics.ERRORS, "controller", transport.getMetrics().getController(), "endpoint", "jobs", "kind", "connect"), 1);
+            }
+        }
+    }
+    
+    @Test
+    public void testPrometheusText() throws Exception {
+        PrometheusRegistry registry = new PrometheusRegistry();
+        registry.increment("jenkins_http_responses_total", 2, "endpoint", "job \"a\"", "status", "200");
+        registry.record("jenkins_http_request_duration_seconds", 30_000_000, "endpoint", "job");
+        registry.record("jenkins_http_request_duration_seconds", 2_000_000_000L, "endpoint", "job");
+        
+        String text = registry.scrape();
+        Assert.assertTrue(text.contains("# TYPE jenkins_http_responses_total counter\n"), text);
+        Assert.assertTrue(text.contains("jenkins_http_responses_total{endpoint=\"job \\\"a\\\"\",status=\"200\"} 2\n"), text);
+        Assert.assertTrue(text.contains("# TYPE jenkins_http_request_duration_seconds histogram\n"), text);
+        Assert.assertTrue(text.contains("jenkins_http_request_duration_seconds_bucket{endpoint=\"job\",le=\"0.025\"} 0\n"), text);
+        Assert.assertTrue(text.contains("jenkins_http_request_duration_seconds_bucket{endpoint=\"job\",le=\"0.05\"} 1\n"), text);
+        Assert.assertTrue(text.contains("jenkins_http_request_duration_seconds_bucket{endpoint=\"job\",le=\"2.5\"} 2\n"), text);
+        Assert.assertTrue(text.contains("jenkins_http_request_duration_seconds_bucket{endpoint=\"job\",le=\"+Inf\"} 2\n"), text);
+        Assert.assertTrue(text.contains("jenkins_http_request_duration_seconds_sum{endpoint=\"job\"} 2.03\n"), text);
+        Assert.assertTrue(text.contains("jenkins_http_request_duration_seconds_count{endpoint=\"job\"} 2\n"), text);
+        
+        try (TempDirectory tempDirectory = new TempDirectory("metrics")) {
+            Path file = tempDirectory.getPath().resolve("client.prom");
+            registry.writeTo(file);
+            Assert.assertEquals(new String(Files.readAllBytes(file), StandardCharsets.UTF_8), text);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.jenkins.selenium;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.TimeoutException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Checks that waits return as soon as their condition holds and record their duration
+ */
+public class PageWaitsTest {
+    
+    @Test
+    public void testUrlWaitReturnsWhenConditionHolds() {
+        CountDownLatch polling = new CountDownLatch(1);
+        WebDriverPoolTest.StubDriver driver = new WebDriverPoolTest.StubDriver() {
+            @Override
+            public String getCurrentUrl() {
+                polling.countDown();
+                return super.getCurrentUrl();
+            }
+        };
+        WaitTimings timings = new WaitTimings();
+        PageWaits waits = new PageWaits(driver, Duration.ofSeconds(5), Duration.ofMillis(10), timings);
+        
+        // The URL changes 100 ms after the wait has started polling, however late this thread gets scheduled
+        CompletableFuture.runAsync(() -> {
+            try {
+                polling.await();
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            driver.get("https://www.saucedemo.com/inventory.html");
+        });
+        
+        long start = System.currentTimeMillis();
+        String url = waits.urlContains("inventory");
+        long elapsed = System.currentTimeMillis() - start;
+        
+        Assert.assertEquals(url, "https://www.saucedemo.com/inventory.html");
+        Assert.assertTrue(elapsed < 2000, "Wait should end soon after the condition holds, took " + elapsed + "ms");
+        Assert.assertEquals(timings.getCount("urlContains"), 1);
+        Assert.assertTrue(timings.getTotalMillis("urlContains") >= 100, "Recorded " + timings.getTotalMillis("urlContains") + "ms");
+        Assert.assertEquals(timings.getTimeoutCount("urlContains"), 0);
+    }
+    
+    @Test
+    public void testTimeoutIsRecorded() {
+        WaitTimings timings = new WaitTimings();
+        PageWaits waits = new PageWaits(new WebDriverPoolTest.StubDriver(), Duration.ofSeconds(5), Duration.ofMillis(10), timings);
+        
+        Assert.assertThrows(TimeoutException.class,
+            () -> waits.elementCount(Duration.ofMillis(150), By.cssSelector(".inventory_item"), 1));
+        Assert.assertEquals(timings.getCount("elementCount"), 1);
+        Assert.assertEquals(timings.getTimeoutCount("elementCount"), 1);
+        Assert.assertTrue(timings.getSummary().contains("elementCount: count=1"), timings.getSummary());
+    }
+}
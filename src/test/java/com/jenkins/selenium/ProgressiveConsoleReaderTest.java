@@ -0,0 +1,65 @@
+package com.jenkins.selenium;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Follows console logs of the in-process fake controller
+ */
+public class ProgressiveConsoleReaderTest {
+    
+    @Test
+    public void testFollowLastBuildStaysOnOneBuild() throws Exception {
+        try (FakeJenkinsServer server = new FakeJenkinsServer(2)) {
+            server.setBuildDurations(FakeJenkinsServer.DurationDistribution.fixed(1500));
+            server.setQueueDelayMillis(0);
+            server.setConsoleLines(30);
+            server.addJob("selenium-tests");
+            server.start();
+            
+            try (JenkinsHttpTransport transport = new JenkinsHttpTransport(server.getUrl(), "admin", "token")) {
+                JenkinsBuildManager manager = new JenkinsBuildManager(transport);
+                Assert.assertTrue(manager.triggerJob("selenium-tests").isSuccess());
+                Thread.sleep(200);
+                
+                ProgressiveConsoleReader reader = new ProgressiveConsoleReader(transport, 50);
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                try (ProgressiveConsoleReader.ConsoleInputStream in = reader.open(JobPath.of("selenium-tests") + "lastBuild/", 0, true)) {
+                    byte[] buffer = new byte[256];
+                    int read = in.read(buffer);
+                    out.write(buffer, 0, read);
+                    
+                    // A newer build becomes lastBuild while the first one is still being followed
+                    Assert.assertTrue(manager.triggerJob("selenium-tests").isSuccess());
+                    while ((read = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, read);
+                    }
+                    Assert.assertEquals(in.getOffset(), out.size());
+                }
+                
+                String console = out.toString(StandardCharsets.UTF_8);
+                Assert.assertTrue(console.startsWith("Started by remote API\n[build 1] step 1 of 30\n"), console);
+                Assert.assertFalse(console.contains("[build 2]"), console);
+                Assert.assertTrue(console.endsWith("[build 1] step 30 of 30\nFinished: SUCCESS\n"), console);
+            }
+        }
+    }
+    
+    @Test
+    public void testMissingLastBuildFails() throws Exception {
+        try (FakeJenkinsServer server = new FakeJenkinsServer(2)) {
+            server.addJob("selenium-tests");
+            server.start();
+            
+            try (JenkinsHttpTransport transport = new JenkinsHttpTransport(server.getUrl(), "admin", "token")) {
+                JenkinsBuildManager manager = new JenkinsBuildManager(transport);
+                Assert.expectThrows(IOException.class,
+                    () -> manager.streamLastBuildConsoleOutput("selenium-tests", 0, true, new ByteArrayOutputStream()));
+            }
+        }
+    }
+}
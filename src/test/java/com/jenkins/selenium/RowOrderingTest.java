@@ -0,0 +1,113 @@
+package com.jenkins.selenium;
+
+import org.openqa.selenium.SessionNotCreatedException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Fail-fast ordering from a temporary history file, and aborting after infrastructure failures
+ */
+public class RowOrderingTest {
+    
+    @Test
+    public void testRiskyRowsRunFirst() throws IOException {
+        try (TempDirectory tempDirectory = new TempDirectory("history")) {
+            Path file = tempDirectory.getPath().resolve("durations.tsv");
+            try (DurationHistoryStore history = DurationHistoryStore.open(file, 10)) {
+                record(history, "steady", DurationHistoryStore.Outcome.PASSED, DurationHistoryStore.Outcome.PASSED);
+                record(history, "flaky", DurationHistoryStore.Outcome.PASSED, DurationHistoryStore.Outcome.FAILED,
+                    DurationHistoryStore.Outcome.PASSED, DurationHistoryStore.Outcome.FAILED, DurationHistoryStore.Outcome.PASSED);
+                record(history, "broken", DurationHistoryStore.Outcome.PASSED, DurationHistoryStore.Outcome.FAILED);
+                List<TestData> rows = rows("new", "steady", "flaky", "broken", "other");
+                
+                Assert.assertEquals(names(RowOrdering.order(RowOrdering.Mode.FILE, rows::stream, history)),
+                    Arrays.asList("new", "steady", "flaky", "broken", "other"));
+                Assert.assertEquals(names(RowOrdering.order(RowOrdering.Mode.FAIL_FAST, rows::stream, history)),
+                    Arrays.asList("broken", "flaky", "new", "steady", "other"),
+                    "Last failed first, then flaky, then the rest in file order");
+            }
+        }
+    }
+    
+    @Test
+    public void testRunAbortsAfterConsecutiveInfraFailures() throws Exception {
+        List<TestData> rows = rows("a", "b", "c", "d", "e", "f", "g", "h");
+        try (WebDriverPool pool = new WebDriverPool(browser -> {
+            throw new SessionNotCreatedException("no browser");
+        }, 1, 0, 1000)) {
+            ParallelRowExecutor executor = new ParallelRowExecutor(pool, 1);
+            executor.setAbortAfterInfraFailures(3);
+            ParallelRowExecutor.Summary summary = executor.run(rows, (driver, row) -> Assert.fail("no driver expected"));
+            
+            Assert.assertTrue(summary.isAborted());
+            Assert.assertEquals(summary.getFailed(), 3);
+            Assert.assertEquals(summary.getPassed(), 0);
+            Assert.assertEquals(summary.getFailed() + summary.getSkipped(), rows.size(), "Every row not run is counted as skipped");
+        }
+    }
+    
+    @Test
+    public void testRowsBeyondReadAheadAreCountedAsSkipped() throws Exception {
+        AtomicInteger ran = new AtomicInteger();
+        try (WebDriverPool pool = new WebDriverPool(browser -> {
+            throw new SessionNotCreatedException("no browser");
+        }, 1, 0, 1000)) {
+            ParallelRowExecutor executor = new ParallelRowExecutor(pool, 2);
+            executor.setAbortAfterInfraFailures(2);
+            // Far more rows than the read-ahead window of 4
+            Stream<TestData> rows = IntStream.range(0, 100).mapToObj(i -> new TestData("term", "result", "row" + i, "chrome"));
+            ParallelRowExecutor.Summary summary = executor.run(rows, (driver, row) -> ran.incrementAndGet());
+            
+            Assert.assertTrue(summary.isAborted());
+            Assert.assertEquals(ran.get(), 0);
+            Assert.assertTrue(summary.getFailed() >= 2 && summary.getFailed() <= 4, "Failed: " + summary.getFailed());
+            Assert.assertEquals(summary.getFailed() + summary.getSkipped(), 100);
+        }
+    }
+    
+    @Test
+    public void testTestFailuresDoNotAbort() throws Exception {
+        List<TestData> rows = rows("a", "b", "c", "d", "e");
+        try (WebDriverPool pool = new WebDriverPool(browser -> new WebDriverPoolTest.StubDriver(), 1, 0, 1000)) {
+            ParallelRowExecutor executor = new ParallelRowExecutor(pool, 1);
+            executor.setAbortAfterInfraFailures(2);
+            ParallelRowExecutor.Summary summary = executor.run(rows, (driver, row) -> {
+                throw new AssertionError("wrong result");
+            });
+            
+            Assert.assertFalse(summary.isAborted());
+            Assert.assertEquals(summary.getFailed(), 5);
+        }
+    }
+    
+    private static void record(DurationHistoryStore history, String name, DurationHistoryStore.Outcome... outcomes) {
+        for (DurationHistoryStore.Outcome outcome : outcomes) {
+            history.record(DurationHistoryStore.Kind.TEST, name, 100, outcome);
+        }
+    }
+    
+    private static List<TestData> rows(String... names) {
+        List<TestData> rows = new ArrayList<>();
+        for (String name : names) {
+            rows.add(new TestData("term", "result", name, "chrome"));
+        }
+        return rows;
+    }
+    
+    private static List<String> names(Stream<TestData> rows) {
+        try (Stream<TestData> stream = rows) {
+            return stream.map(TestData::getTestName).collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.jenkins.selenium;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs scenarios with stand-in tasks and against the in-process fake controller
+ */
+public class ScenarioExecutorTest {
+    
+    private static Map<String, JenkinsTestRunner.TestScenario> scenarios(String... browsers) {
+        Map<String, JenkinsTestRunner.TestScenario> scenarios = new LinkedHashMap<>();
+        for (int i = 0; i < browsers.length; i++) {
+            scenarios.put("scenario-" + i, JenkinsTestRunner.TestScenario.create(browsers[i], "data.csv"));
+        }
+        return scenarios;
+    }
+    
+    @Test
+    public void testFairOrderInterleavesBrowsers() {
+        Assert.assertEquals(ScenarioExecutor.fairOrder(scenarios("chrome", "chrome", "chrome", "firefox", "Edge", "firefox")),
+            List.of("scenario-0", "scenario-3", "scenario-4", "scenario-1", "scenario-5", "scenario-2"));
+    }
+    
+    @Test
+    public void testRunCapsParallelismAndCollectsResults() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Map<String, JenkinsTestRunner.TestResult> results = new ScenarioExecutor(2, 10_000).run(
+            scenarios("chrome", "firefox", "chrome", "firefox", "chrome"), (name, scenario) -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    running.decrementAndGet();
+                }
+                if (name.equals("scenario-4")) {
+                    throw new IllegalStateException("no driver");
+                }
+                return new JenkinsTestRunner.TestResult(true, name, null);
+            });
+        
+        Assert.assertEquals(results.size(), 5);
+        Assert.assertTrue(maxRunning.get() <= 2, "At most two scenarios at once, saw " + maxRunning.get());
+        Assert.assertTrue(results.get("scenario-0").isSuccess());
+        Assert.assertFalse(results.get("scenario-4").isSuccess());
+        Assert.assertEquals(results.get("scenario-4").getMessage(), "Scenario failed: no driver");
+    }
+    
+    @Test
+    public void testDeadlineInterruptsAndCancels() {
+        AtomicInteger interrupted = new AtomicInteger();
+        long started = System.currentTimeMillis();
+        Map<String, JenkinsTestRunner.TestResult> results = new ScenarioExecutor(1, 200).run(
+            scenarios("chrome", "firefox"), (name, scenario) -> {
+                try {
+                    Thread.sleep(60_000);
+                    return new JenkinsTestRunner.TestResult(true, name, null);
+                } catch (InterruptedException e) {
+                    interrupted.incrementAndGet();
+                    return new JenkinsTestRunner.TestResult(false, "Interrupted", null);
+                }
+            });
+        
+        Assert.assertTrue(System.currentTimeMillis() - started < 10_000);
+        Assert.assertEquals(interrupted.get(), 1);
+        Assert.assertEquals(results.get("scenario-0").getMessage(), "Interrupted", "In-flight scenario records its own result");
+        Assert.assertEquals(results.get("scenario-1").getMessage(), "Scenario cancelled: overall deadline reached");
+    }
+    
+    @Test
+    public void testCancelStopsWatcherWaits() throws Exception {
+        try (FakeJenkinsServer server = new FakeJenkinsServer(4)) {
+            server.setBuildDurations(FakeJenkinsServer.DurationDistribution.fixed(60_000));
+            server.setQueueDelayMillis(0);
+            server.addJob("selenium-tests");
+            server.start();
+            
+            try (JenkinsHttpTransport transport = new JenkinsHttpTransport(server.getUrl(), "admin", "token")) {
+                JenkinsBuildManager manager = new JenkinsBuildManager(transport);
+                BuildWatcher watcher = new BuildWatcher(transport, 50, 25);
+                manager.setBuildWatcher(watcher);
+                try {
+                    ScenarioExecutor.ScenarioRun run = new ScenarioExecutor(2, 60_000).start(scenarios("chrome", "firefox"),
+                        (name, scenario) -> {
+                            JenkinsBuildManager.BuildResult triggered = manager.triggerJob("selenium-tests");
+                            JenkinsBuildManager.QueuedBuild queuedBuild = (JenkinsBuildManager.QueuedBuild) triggered.getData();
+                            JenkinsBuildManager.BuildResult completed = manager.waitForJobCompletion(queuedBuild, scenario.getTimeoutMinutes());
+                            return new JenkinsTestRunner.TestResult(completed.isSuccess(), completed.getMessage(), null);
+                        });
+                    for (int i = 0; i < 100 && watcher.getWatchCount() < 2; i++) {
+                        Thread.sleep(20);
+                    }
+                    Assert.assertEquals(watcher.getWatchCount(), 2, "Both scenarios wait on the watcher");
+                    
+                    run.cancel();
+                    Assert.assertTrue(run.isDone());
+                    Assert.assertEquals(run.getResults().size(), 2);
+                    for (JenkinsTestRunner.TestResult result : run.getResults().values()) {
+                        Assert.assertEquals(result.getMessage(), "Wait interrupted");
+                    }
+                    for (int i = 0; i < 100 && watcher.getWatchCount() > 0; i++) {
+                        Thread.sleep(20);
+                    }
+                    Assert.assertEquals(watcher.getWatchCount(), 0, "Interrupted waits release their watches");
+                } finally {
+                    watcher.close();
+                }
+            }
+        }
+    }
+}
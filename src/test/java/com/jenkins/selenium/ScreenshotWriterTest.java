@@ -0,0 +1,80 @@
+package com.jenkins.selenium;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes generated images through the background writer into a temporary directory
+ */
+public class ScreenshotWriterTest {
+    
+    @Test
+    public void testScreenshotsAreWrittenInBackground() throws IOException {
+        try (TempDirectory tempDirectory = new TempDirectory("screenshots")) {
+            Path directory = tempDirectory.getPath().resolve("nested");
+            try (ScreenshotWriter writer = new ScreenshotWriter(directory, ScreenshotWriter.Format.PNG, 8, 1000)) {
+                Path first = writer.submit("login_FAILED", png(20, 10));
+                Path second = writer.submit("login_FAILED", png(20, 10));
+                Assert.assertNotEquals(first, second, "Screenshots taken in the same second need distinct names");
+                
+                Assert.assertTrue(writer.flush(5000));
+                Assert.assertEquals(writer.getWrittenCount(), 2);
+                Assert.assertEquals(ImageIO.read(first.toFile()).getWidth(), 20);
+                Assert.assertTrue(first.getFileName().toString().endsWith(".png"));
+            }
+        }
+    }
+    
+    @Test
+    public void testJpegConversion() throws IOException {
+        try (TempDirectory tempDirectory = new TempDirectory("screenshots")) {
+            Path directory = tempDirectory.getPath();
+            try (ScreenshotWriter writer = new ScreenshotWriter(directory, ScreenshotWriter.Format.JPEG, 8, 1000)) {
+                Path path = writer.submit("search", png(64, 48));
+                Assert.assertTrue(writer.flush(5000));
+                
+                Assert.assertTrue(path.getFileName().toString().endsWith(".jpg"));
+                BufferedImage image = ImageIO.read(path.toFile());
+                Assert.assertEquals(image.getWidth(), 64);
+                Assert.assertEquals(image.getHeight(), 48);
+            }
+        }
+    }
+    
+    @Test
+    public void testEveryScreenshotIsWrittenOrDropped() throws IOException {
+        try (TempDirectory tempDirectory = new TempDirectory("screenshots")) {
+            Path directory = tempDirectory.getPath();
+            int submitted = 200;
+            try (ScreenshotWriter writer = new ScreenshotWriter(directory, ScreenshotWriter.Format.JPEG, 1, 0)) {
+                byte[] image = png(400, 300);
+                for (int i = 0; i < submitted; i++) {
+                    writer.submit("burst", image);
+                }
+                Assert.assertTrue(writer.flush(30_000));
+                Assert.assertEquals(writer.getWrittenCount() + writer.getDroppedCount(), submitted);
+                Assert.assertEquals(writer.getFailedCount(), 0);
+            }
+            ScreenshotWriter closed = new ScreenshotWriter(directory, ScreenshotWriter.Format.PNG, 1, 0);
+            closed.close();
+            Assert.assertNull(closed.submit("late", png(1, 1)), "Closed writer should drop screenshots");
+        }
+    }
+    
+    private static byte[] png(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int x = 0; x < width; x++) {
+            image.setRGB(x, 0, 0xFF336699);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,152 @@
+package com.jenkins.selenium;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Checks that shards cover every row once and are balanced
+ */
+public class ShardPlannerTest {
+    
+    @Test
+    public void testCountShardsCoverEveryRowOnce() throws IOException {
+        Path csv = writeRows(10);
+        Set<String> seen = new HashSet<>();
+        for (int shard = 0; shard < 3; shard++) {
+            List<TestData> rows = new ShardPlanner(shard, 3, ShardPlanner.Strategy.COUNT, row -> 1).readTestData(csv.toString());
+            Assert.assertTrue(rows.size() == 3 || rows.size() == 4, "Unbalanced shard of " + rows.size());
+            for (TestData row : rows) {
+                Assert.assertTrue(seen.add(row.getTestName()), "Row in two shards: " + row.getTestName());
+            }
+        }
+        Assert.assertEquals(seen.size(), 10);
+    }
+    
+    @Test
+    public void testDurationShardsAreBalanced() throws IOException {
+        Path csv = writeRows(9);
+        // One long row and many short ones: count sharding would put the long row next to three others
+        Map<String, Long> durations = new HashMap<>();
+        durations.put("test0", 60_000L);
+        for (int i = 1; i < 9; i++) {
+            durations.put("test" + i, 10_000L);
+        }
+        
+        long[] totals = new long[3];
+        Set<String> seen = new HashSet<>();
+        for (int shard = 0; shard < 3; shard++) {
+            ShardPlanner planner = new ShardPlanner(shard, 3, ShardPlanner.Strategy.DURATION, row -> durations.get(row.getTestName()));
+            for (TestData row : planner.readTestData(csv.toString())) {
+                totals[shard] += durations.get(row.getTestName());
+                Assert.assertTrue(seen.add(row.getTestName()));
+            }
+        }
+        Assert.assertEquals(seen.size(), 9);
+        Assert.assertEquals(totals, new long[]{60_000, 40_000, 40_000});
+    }
+    
+    @Test
+    public void testWeightSnapshotRoundTrip() {
+        Map<String, Long> weights = new HashMap<>();
+        weights.put("Login & checkout", 60_000L);
+        weights.put("price=10%", 5_000L);
+        weights.put("ümlaut test", 7L);
+        ShardPlanner.WeightSnapshot decoded = ShardPlanner.WeightSnapshot.decode(new ShardPlanner.WeightSnapshot(weights, 1234).encode());
+        
+        Assert.assertEquals(decoded.size(), 3);
+        for (Map.Entry<String, Long> entry : weights.entrySet()) {
+            Assert.assertEquals(decoded.weightOf(new TestData("t", "r", entry.getKey(), "chrome")), (long) entry.getValue());
+        }
+        Assert.assertEquals(decoded.weightOf(new TestData("t", "r", "new test", "chrome")), 1234);
+        Assert.assertEquals(decoded.encode(), new ShardPlanner.WeightSnapshot(weights, 1234).encode());
+    }
+    
+    @Test
+    public void testShardsFromEnvironmentShareOneSnapshot() throws IOException {
+        Path csv = writeRows(9);
+        Map<String, Long> durations = new HashMap<>();
+        durations.put("test0", 60_000L);
+        String snapshot = new ShardPlanner.WeightSnapshot(durations, 10_000).encode();
+        
+        long[] totals = new long[3];
+        Set<String> seen = new HashSet<>();
+        try {
+            System.setProperty("shard.total", "3");
+            System.setProperty("shard.strategy", "duration");
+            System.setProperty("shard.weights", snapshot);
+            for (int shard = 0; shard < 3; shard++) {
+                System.setProperty("shard.index", String.valueOf(shard));
+                ShardPlanner planner = ShardPlanner.fromEnvironment();
+                Assert.assertEquals(planner.getStrategy(), ShardPlanner.Strategy.DURATION);
+                for (TestData row : planner.readTestData(csv.toString())) {
+                    totals[shard] += durations.getOrDefault(row.getTestName(), 10_000L);
+                    Assert.assertTrue(seen.add(row.getTestName()));
+                }
+            }
+            
+            System.clearProperty("shard.weights");
+            Assert.assertEquals(ShardPlanner.fromEnvironment().getStrategy(), ShardPlanner.Strategy.COUNT,
+                "Without a snapshot shards fall back to count sharding");
+        } finally {
+            System.clearProperty("shard.index");
+            System.clearProperty("shard.total");
+            System.clearProperty("shard.strategy");
+            System.clearProperty("shard.weights");
+        }
+        Assert.assertEquals(seen.size(), 9);
+        Assert.assertEquals(totals, new long[]{60_000, 40_000, 40_000});
+    }
+    
+    @Test
+    public void testStrategyNames() {
+        Assert.assertEquals(ShardPlanner.Strategy.of("Duration"), ShardPlanner.Strategy.DURATION);
+        Assert.assertEquals(ShardPlanner.Strategy.of("count"), ShardPlanner.Strategy.COUNT);
+        IllegalArgumentException error = Assert.expectThrows(IllegalArgumentException.class,
+            () -> ShardPlanner.Strategy.of("durations"));
+        Assert.assertEquals(error.getMessage(), "Unknown shard strategy 'durations', expected one of: count, duration");
+    }
+    
+    @Test
+    public void testLongestFirstAssignment() {
+        int[] assignment = ShardPlanner.assign(new long[]{5, 1, 4, 2, 3}, 2);
+        long[] loads = new long[2];
+        long[] weights = {5, 1, 4, 2, 3};
+        for (int row = 0; row < assignment.length; row++) {
+            loads[assignment[row]] += weights[row];
+        }
+        Assert.assertTrue(Math.abs(loads[0] - loads[1]) <= 1, "Loads " + loads[0] + " / " + loads[1]);
+    }
+    
+    @Test
+    public void testShardResultsAreMerged() {
+        Map<String, JenkinsTestRunner.TestResult> results = new HashMap<>();
+        results.put("shard-0", new JenkinsTestRunner.TestResult(true, "ok", null));
+        results.put("shard-1", new JenkinsTestRunner.TestResult(false, "Tests failed: FAILURE", null));
+        results.put("shard-2", new JenkinsTestRunner.TestResult(true, "ok", null));
+        
+        JenkinsTestRunner.TestResult merged = JenkinsTestRunner.mergeShardResults(results);
+        Assert.assertFalse(merged.isSuccess());
+        Assert.assertTrue(merged.getMessage().startsWith("2 of 3 shards passed"), merged.getMessage());
+        Assert.assertTrue(merged.getMessage().contains("shard-1"), merged.getMessage());
+    }
+    
+    private static Path writeRows(int count) throws IOException {
+        StringBuilder csv = new StringBuilder("searchTerm,expectedResult,testName,browser\n");
+        for (int i = 0; i < count; i++) {
+            csv.append("term,result,test").append(i).append(",chrome\n");
+        }
+        Path file = Files.createTempFile("shards", ".csv");
+        file.toFile().deleteOnExit();
+        Files.writeString(file, csv);
+        return file;
+    }
+}
@@ -0,0 +1,35 @@
+package com.jenkins.selenium;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Temporary directory of one test, deleted with everything in it on close
+ */
+class TempDirectory implements AutoCloseable {
+    private final Path path;
+    
+    TempDirectory(String prefix) throws IOException {
+        this.path = Files.createTempDirectory(prefix);
+    }
+    
+    Path getPath() {
+        return path;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(path)) {
+            paths = walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        }
+        for (Path entry : paths) {
+            Files.deleteIfExists(entry);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.jenkins.selenium;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Reads generated CSV files through the streaming reader
+ */
+public class TestDataReaderTest {
+    
+    @Test
+    public void testColumnsAreMappedByHeaderName() throws IOException {
+        Path csv = write("browser,testName,extra,searchTerm,expectedResult\n"
+            + "firefox,Reordered,ignored,Cart,Swag Labs\n"
+            + "short,row\n");
+        
+        List<TestData> rows = TestDataReader.readTestData(csv.toString());
+        
+        Assert.assertEquals(rows.size(), 1, "Rows missing mapped columns should be skipped");
+        TestData row = rows.get(0);
+        Assert.assertEquals(row.getSearchTerm(), "Cart");
+        Assert.assertEquals(row.getExpectedResult(), "Swag Labs");
+        Assert.assertEquals(row.getTestName(), "Reordered");
+        Assert.assertEquals(row.getBrowser(), "firefox");
+    }
+    
+    @Test
+    public void testUnknownHeaderFallsBackToPositions() throws IOException {
+        Path csv = write("a,b,c,d\nterm,result,name,chrome\n");
+        
+        TestData row = TestDataReader.readTestData(csv.toString()).get(0);
+        Assert.assertEquals(row.getSearchTerm(), "term");
+        Assert.assertEquals(row.getBrowser(), "chrome");
+    }
+    
+    @Test
+    public void testMissingNamedColumnFails() throws IOException {
+        Path csv = write("testName,searchTerm,expectedResult\nNo browser,Cart,Swag Labs\n");
+        
+        IllegalArgumentException error = Assert.expectThrows(IllegalArgumentException.class,
+            () -> TestDataReader.readTestData(csv.toString()));
+        Assert.assertTrue(error.getMessage().endsWith("is missing column(s): browser"), error.getMessage());
+    }
+    
+    @Test
+    public void testRowsAreParsedOnDemand() throws IOException {
+        Path csv = write("searchTerm,expectedResult,testName,browser\nt,r,first,chrome\n\"unterminated\n");
+        
+        try (Stream<TestData> rows = TestDataReader.stream(csv.toString())) {
+            Iterator<TestData> iterator = rows.iterator();
+            // The broken last row is only reached if the stream reads ahead
+            Assert.assertEquals(iterator.next().getTestName(), "first");
+        }
+    }
+    
+    @Test
+    public void testParallelStreamSplitsLargeFile() throws IOException {
+        int rowCount = 50_000;
+        Path csv = Files.createTempFile("testdata", ".csv");
+        csv.toFile().deleteOnExit();
+        try (BufferedWriter writer = Files.newBufferedWriter(csv)) {
+            writer.write("searchTerm,expectedResult,testName,browser\n");
+            for (int i = 0; i < rowCount; i++) {
+                writer.write("term" + i + ",result,test" + i + "," + (i % 2 == 0 ? "chrome" : "firefox") + "\n");
+            }
+        }
+        
+        try (Stream<TestData> rows = TestDataReader.stream(csv.toString())) {
+            long checksum = rows.parallel().mapToLong(row -> Long.parseLong(row.getTestName().substring(4))).sum();
+            Assert.assertEquals(checksum, (long) rowCount * (rowCount - 1) / 2, "Every row should be read exactly once");
+        }
+    }
+    
+    private static Path write(String content) throws IOException {
+        Path csv = Files.createTempFile("testdata", ".csv");
+        csv.toFile().deleteOnExit();
+        Files.writeString(csv, content);
+        return csv;
+    }
+}
@@ -2,30 +2,85 @@ package com.jenkins.selenium;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.testng.IAlterSuiteListener;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
 import org.testng.ITestListener;
 import org.testng.ITestResult;
+import org.testng.xml.XmlSuite;
+
+import java.util.Arrays;
+import java.util.List;
 
 /**
- * TestNG listener for enhanced test reporting
+ * TestNG listener for enhanced test reporting.
+ *
+ * It also sizes the suite's thread pool from {@code -Dselenium.threads} ({@code auto} means one
+ * thread per core), records every test's duration and outcome in the {@link DurationHistoryStore}
+ * and quits every thread's WebDriver session when the suite finishes. Phase timings and resource
+ * samples of the run go to a {@link TestTelemetry} file.
  */
-public class TestNGListener implements ITestListener {
+public class TestNGListener implements ITestListener, ISuiteListener, IAlterSuiteListener {
     private static final Logger logger = LoggerFactory.getLogger(TestNGListener.class);
-
+    
+    private volatile DurationHistoryStore history;
+    private volatile TestTelemetry telemetry;
+    
+    @Override
+    public void alter(List<XmlSuite> suites) {
+        String threads = System.getProperty("selenium.threads");
+        if (threads == null || threads.isEmpty()) {
+            return;
+        }
+        int threadCount = "auto".equalsIgnoreCase(threads)
+            ? Runtime.getRuntime().availableProcessors()
+            : Integer.parseInt(threads);
+        for (XmlSuite suite : suites) {
+            suite.setThreadCount(threadCount);
+            logger.info("Suite '{}' thread count set to {}", suite.getName(), threadCount);
+        }
+    }
+    
+    @Override
+    public void onStart(ISuite suite) {
+        history = DurationHistoryStore.open();
+        telemetry = TestTelemetry.open();
+    }
+    
+    @Override
+    public void onFinish(ISuite suite) {
+        logger.info("Suite '{}' waits: {}", suite.getName(), WaitTimings.shared().getSummary());
+        BaseTest.quitAllDrivers();
+        // Failure screenshots are written in the background; make sure they are on disk for the report
+        ScreenshotWriter.flushShared(Long.getLong("selenium.screenshot.closeTimeout", 10_000));
+        if (history != null) {
+            history.close();
+        }
+        if (telemetry != null) {
+            telemetry.close();
+        }
+    }
+    
     @Override
     public void onTestStart(ITestResult result) {
+        // Tags every log line of the test thread in the log file
+        MDC.put("test", testName(result));
+        TestTelemetry.beginTest();
         logger.info("Starting test: {} in class: {}", 
             result.getMethod().getMethodName(), 
             result.getTestClass().getName());
     }
-
+    
     @Override
     public void onTestSuccess(ITestResult result) {
         logger.info("Test PASSED: {} in class: {} (Duration: {}ms)", 
             result.getMethod().getMethodName(),
             result.getTestClass().getName(),
             result.getEndMillis() - result.getStartMillis());
+        record(result, DurationHistoryStore.Outcome.PASSED);
     }
-
+    
     @Override
     public void onTestFailure(ITestResult result) {
         logger.error("Test FAILED: {} in class: {} (Duration: {}ms)", 
@@ -37,12 +92,42 @@ public class TestNGListener implements ITestListener {
         if (result.getThrowable() != null) {
             logger.error("Failure reason: {}", result.getThrowable().getMessage());
         }
+        record(result, ParallelRowExecutor.isSessionFailure(result.getThrowable())
+            ? DurationHistoryStore.Outcome.ERROR : DurationHistoryStore.Outcome.FAILED);
     }
-
+    
     @Override
     public void onTestSkipped(ITestResult result) {
         logger.warn("Test SKIPPED: {} in class: {}", 
             result.getMethod().getMethodName(),
             result.getTestClass().getName());
+        record(result, DurationHistoryStore.Outcome.SKIPPED);
+    }
+    
+    /**
+     * History key is the class and method, plus the parameters of data-driven invocations
+     */
+    static String historyKey(ITestResult result) {
+        String key = result.getTestClass().getName() + "#" + result.getMethod().getMethodName();
+        Object[] parameters = result.getParameters();
+        return parameters == null || parameters.length == 0 ? key : key + Arrays.toString(parameters);
+    }
+    
+    /**
+     * Short test name used in log lines and telemetry, data-driven invocations share it
+     */
+    static String testName(ITestResult result) {
+        return result.getTestClass().getRealClass().getSimpleName() + "#" + result.getMethod().getMethodName();
+    }
+    
+    private void record(ITestResult result, DurationHistoryStore.Outcome outcome) {
+        long duration = result.getEndMillis() - result.getStartMillis();
+        if (history != null) {
+            history.record(DurationHistoryStore.Kind.TEST, historyKey(result), duration, outcome);
+        }
+        if (telemetry != null) {
+            telemetry.recordTest(testName(result), outcome.name(), result.getStartMillis(), duration);
+        }
+        MDC.remove("test");
     }
 }
@@ -0,0 +1,88 @@
+package com.jenkins.selenium;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks phase accounting, percentiles and the JSON lines written by TestTelemetry
+ */
+public class TestTelemetryTest {
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    @Test
+    public void testPhasesAndPercentiles() throws Exception {
+        try (TempDirectory tempDirectory = new TempDirectory("telemetry")) {
+            Path file = tempDirectory.getPath().resolve("tests.jsonl");
+            TestTelemetry telemetry = new TestTelemetry(file, 10);
+            
+            TestTelemetry.beginTest();
+            TestTelemetry.addPhase(TestTelemetry.Phase.DRIVER_STARTUP, TimeUnit.MILLISECONDS.toNanos(30));
+            TestTelemetry.addPhase(TestTelemetry.Phase.NAVIGATION, TimeUnit.MILLISECONDS.toNanos(20));
+            TestTelemetry.addPhase(TestTelemetry.Phase.WAIT, TimeUnit.MILLISECONDS.toNanos(6));
+            TestTelemetry.addPhase(TestTelemetry.Phase.WAIT, TimeUnit.MILLISECONDS.toNanos(4));
+            telemetry.recordTest("SearchTest#search", "PASSED", System.currentTimeMillis(), 100);
+            for (int duration = 1; duration < 100; duration++) {
+                TestTelemetry.beginTest();
+                telemetry.recordTest("SearchTest#search", "PASSED", System.currentTimeMillis(), duration);
+            }
+            Thread.sleep(50);
+            
+            TestTelemetry.Summary summary = telemetry.getSummaries().get("SearchTest#search");
+            Assert.assertEquals(summary.getCount(), 100);
+            Assert.assertEquals(summary.getP50Millis(), 50);
+            Assert.assertEquals(summary.getP95Millis(), 95);
+            Assert.assertEquals(summary.getP99Millis(), 99);
+            Assert.assertEquals(summary.getMaxMillis(), 100);
+            Assert.assertEquals(summary.getPhaseMillis(TestTelemetry.Phase.DRIVER_STARTUP), 30);
+            Assert.assertEquals(summary.getPhaseMillis(TestTelemetry.Phase.ASSERTION), 40 + 99 * 100 / 2);
+            telemetry.close();
+            
+            List<JsonNode> lines = new ArrayList<>();
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                lines.add(objectMapper.readTree(line));
+            }
+            JsonNode first = lines.stream().filter(line -> line.get("type").asText().equals("test")).findFirst().get();
+            Assert.assertEquals(first.get("durationMs").asLong(), 100);
+            Assert.assertEquals(first.get("driverStartupMs").asLong(), 30);
+            Assert.assertEquals(first.get("navigationMs").asLong(), 20);
+            Assert.assertEquals(first.get("waitMs").asLong(), 10);
+            Assert.assertEquals(first.get("assertionMs").asLong(), 40);
+            
+            Assert.assertTrue(lines.stream().anyMatch(line -> line.get("type").asText().equals("sample") && line.get("threads").asInt() > 0));
+            JsonNode summaryLine = lines.stream().filter(line -> line.get("type").asText().equals("summary")).findFirst().get();
+            Assert.assertEquals(summaryLine.get("p95Ms").asLong(), 95);
+            JsonNode run = lines.get(lines.size() - 1);
+            Assert.assertEquals(run.get("type").asText(), "run");
+            Assert.assertEquals(run.get("tests").asInt(), 100);
+        }
+    }
+    
+    @Test
+    public void testBeginTestDropsEarlierPhases() throws Exception {
+        try (TempDirectory tempDirectory = new TempDirectory("telemetry")) {
+            Path file = tempDirectory.getPath().resolve("tests.jsonl");
+            TestTelemetry telemetry = new TestTelemetry(file, 0);
+            
+            // e.g. a browser started in a configuration method of the previous test
+            TestTelemetry.addPhase(TestTelemetry.Phase.DRIVER_STARTUP, TimeUnit.SECONDS.toNanos(2));
+            TestTelemetry.beginTest();
+            telemetry.recordTest("SearchTest#search", "FAILED", System.currentTimeMillis(), 15);
+            telemetry.close();
+            
+            TestTelemetry.Summary summary = telemetry.getSummaries().get("SearchTest#search");
+            Assert.assertEquals(summary.getPhaseMillis(TestTelemetry.Phase.DRIVER_STARTUP), 0);
+            Assert.assertEquals(summary.getPhaseMillis(TestTelemetry.Phase.ASSERTION), 15);
+            Assert.assertTrue(Files.readAllLines(file, StandardCharsets.UTF_8).get(0).contains("\"status\":\"FAILED\""));
+        }
+    }
+}
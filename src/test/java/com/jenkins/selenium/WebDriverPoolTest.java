@@ -0,0 +1,335 @@
+package com.jenkins.selenium;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.NoSuchSessionException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the pool and the row executor against stub drivers, no browser needed
+ */
+public class WebDriverPoolTest {
+    
+    @Test
+    public void testDriverIsReusedAndReset() throws Exception {
+        List<StubDriver> started = new ArrayList<>();
+        try (WebDriverPool pool = new WebDriverPool(browser -> add(started, new StubDriver()), 2, 0, 1000)) {
+            WebDriverPool.PooledDriver first = pool.acquire("chrome");
+            WebDriver driver = first.getDriver();
+            first.close();
+            
+            WebDriverPool.PooledDriver second = pool.acquire("chrome");
+            Assert.assertSame(second.getDriver(), driver, "Idle driver should be reused");
+            second.close();
+            
+            StubDriver stub = started.get(0);
+            Assert.assertEquals(started.size(), 1);
+            Assert.assertEquals(stub.cookieResets.get(), 2, "Cookies should be cleared on every return");
+            Assert.assertEquals(stub.storageResets.get(), 2, "Storage should be cleared on every return");
+            Assert.assertEquals(stub.url, "about:blank");
+            Assert.assertEquals(pool.getReusedCount(), 1);
+        }
+        Assert.assertTrue(started.get(0).quit, "Idle drivers should be quit when the pool closes");
+    }
+    
+    @Test
+    public void testDriversAreKeyedByBrowser() throws Exception {
+        List<String> browsers = Collections.synchronizedList(new ArrayList<>());
+        try (WebDriverPool pool = new WebDriverPool(browser -> {
+            browsers.add(browser);
+            return new StubDriver();
+        }, 2, 0, 1000)) {
+            pool.acquire("chrome").close();
+            pool.acquire("Firefox").close();
+            pool.acquire("chrome").close();
+            
+            Assert.assertEquals(browsers, Arrays.asList("chrome", "firefox"));
+        }
+    }
+    
+    @Test
+    public void testUnhealthyDriverIsReplaced() throws Exception {
+        List<StubDriver> started = new ArrayList<>();
+        try (WebDriverPool pool = new WebDriverPool(browser -> add(started, new StubDriver()), 2, 0, 1000)) {
+            pool.acquire("chrome").close();
+            started.get(0).dead = true;
+            
+            WebDriverPool.PooledDriver lease = pool.acquire("chrome");
+            Assert.assertSame(lease.getDriver(), started.get(1), "Dead driver should be replaced by a new one");
+            Assert.assertTrue(started.get(0).quit);
+            Assert.assertEquals(pool.getReplacedCount(), 1);
+            lease.close();
+        }
+    }
+    
+    @Test
+    public void testBrokenDriverIsNotReused() throws Exception {
+        List<StubDriver> started = new ArrayList<>();
+        try (WebDriverPool pool = new WebDriverPool(browser -> add(started, new StubDriver()), 2, 0, 1000)) {
+            WebDriverPool.PooledDriver lease = pool.acquire("chrome");
+            lease.markBroken();
+            lease.close();
+            
+            Assert.assertTrue(started.get(0).quit);
+            Assert.assertEquals(pool.getIdleCount(), 0);
+        }
+    }
+    
+    @Test
+    public void testMaxUsesRecyclesDriver() throws Exception {
+        List<StubDriver> started = new ArrayList<>();
+        try (WebDriverPool pool = new WebDriverPool(browser -> add(started, new StubDriver()), 1, 2, 1000)) {
+            pool.acquire("chrome").close();
+            pool.acquire("chrome").close();
+            pool.acquire("chrome").close();
+            
+            Assert.assertEquals(started.size(), 2, "Driver should be recycled after two uses");
+            Assert.assertTrue(started.get(0).quit);
+        }
+    }
+    
+    @Test
+    public void testPoolIsBounded() throws Exception {
+        try (WebDriverPool pool = new WebDriverPool(browser -> new StubDriver(), 1, 0, 100)) {
+            WebDriverPool.PooledDriver lease = pool.acquire("chrome");
+            Assert.assertThrows(IllegalStateException.class, () -> pool.acquire("chrome"));
+            lease.close();
+            pool.acquire("chrome").close();
+        }
+    }
+    
+    @Test
+    public void testRowsRunInParallelOnPooledDrivers() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<TestData> rows = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            rows.add(new TestData("term", "result", "row" + i, i % 2 == 0 ? "chrome" : "firefox"));
+        }
+        
+        try (WebDriverPool pool = new WebDriverPool(browser -> {
+            created.incrementAndGet();
+            return new StubDriver();
+        }, 2, 0, 5000)) {
+            ParallelRowExecutor.Summary summary = new ParallelRowExecutor(pool, 4).run(rows, (driver, row) -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(20);
+                running.decrementAndGet();
+                if (row.getTestName().equals("row5")) {
+                    throw new AssertionError("expected failure");
+                }
+                if (row.getTestName().equals("row7")) {
+                    throw new NoSuchSessionException("session died");
+                }
+            });
+            
+            Assert.assertEquals(summary.getPassed(), 10);
+            Assert.assertEquals(summary.getFailed(), 2);
+            Assert.assertTrue(maxRunning.get() > 1, "Rows should run concurrently");
+            Assert.assertTrue(created.get() <= 5, "At most two drivers per browser plus one replacement, was " + created.get());
+            Assert.assertEquals(pool.getReplacedCount(), 1);
+        }
+    }
+    
+    @Test
+    public void testElementFailureKeepsDriver() throws Exception {
+        List<StubDriver> started = new ArrayList<>();
+        List<TestData> rows = Arrays.asList(
+            new TestData("term", "result", "missing", "chrome"),
+            new TestData("term", "result", "next", "chrome"));
+        
+        try (WebDriverPool pool = new WebDriverPool(browser -> add(started, new StubDriver()), 1, 0, 1000)) {
+            ParallelRowExecutor.Summary summary = new ParallelRowExecutor(pool, 1).run(rows, (driver, row) -> {
+                if (row.getTestName().equals("missing")) {
+                    throw new NoSuchElementException("no such element: #result");
+                }
+            });
+            
+            Assert.assertEquals(summary.getFailedTests(), List.of("missing"));
+            Assert.assertEquals(summary.getPassed(), 1);
+            Assert.assertEquals(started.size(), 1, "A missing element is a test failure, not a lost session");
+            Assert.assertFalse(started.get(0).quit);
+            Assert.assertEquals(pool.getReplacedCount(), 0);
+        }
+    }
+    
+    @Test
+    public void testTimeoutIsNotAnInfrastructureFailure() throws Exception {
+        List<StubDriver> started = new ArrayList<>();
+        List<TestData> rows = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            rows.add(new TestData("term", "result", "slow" + i, "chrome"));
+        }
+        rows.add(new TestData("term", "result", "lost", "chrome"));
+        rows.add(new TestData("term", "result", "after", "chrome"));
+        
+        // Assertions inside a row would only fail that row, so observations are checked afterwards
+        List<Integer> infraFailuresSeen = Collections.synchronizedList(new ArrayList<>());
+        List<Boolean> driverQuitSeen = Collections.synchronizedList(new ArrayList<>());
+        try (WebDriverPool pool = new WebDriverPool(browser -> add(started, new StubDriver()), 1, 0, 1000)) {
+            ParallelRowExecutor executor = new ParallelRowExecutor(pool, 1);
+            executor.setAbortAfterInfraFailures(1);
+            ParallelRowExecutor.Summary summary = executor.run(rows, (driver, row) -> {
+                infraFailuresSeen.add(executor.getConsecutiveInfraFailures());
+                driverQuitSeen.add(((StubDriver) driver).quit);
+                if (row.getTestName().startsWith("slow")) {
+                    throw new TimeoutException("Expected condition failed: waiting for #result");
+                }
+                if (row.getTestName().equals("lost")) {
+                    throw new NoSuchSessionException("session died");
+                }
+            });
+            
+            Assert.assertEquals(infraFailuresSeen, List.of(0, 0, 0, 0), "Timeouts must not count as infrastructure failures");
+            Assert.assertEquals(driverQuitSeen, List.of(false, false, false, false));
+            Assert.assertEquals(started.size(), 1, "Timed out rows keep their driver");
+            Assert.assertEquals(summary.getFailedTests(), List.of("slow0", "slow1", "slow2", "lost"));
+            Assert.assertEquals(summary.getFailed(), 4, "Timed out rows are FAILED");
+            Assert.assertEquals(executor.getConsecutiveInfraFailures(), 1);
+            // The lost session alone reaches the limit of 1 and aborts the run
+            Assert.assertTrue(summary.isAborted());
+            Assert.assertEquals(summary.getSkipped(), 1);
+            Assert.assertTrue(started.get(0).quit, "Lost session is quit");
+        }
+    }
+    
+    private static StubDriver add(List<StubDriver> started, StubDriver driver) {
+        synchronized (started) {
+            started.add(driver);
+        }
+        return driver;
+    }
+    
+    /**
+     * Records resets and quits; fails every command once marked dead
+     */
+    static class StubDriver implements WebDriver, JavascriptExecutor {
+        final AtomicInteger cookieResets = new AtomicInteger();
+        final AtomicInteger storageResets = new AtomicInteger();
+        volatile String url = "about:blank";
+        volatile boolean dead;
+        volatile boolean quit;
+        
+        private void check() {
+            if (dead || quit) {
+                throw new NoSuchSessionException("Session is gone");
+            }
+        }
+        
+        @Override
+        public void get(String url) {
+            check();
+            this.url = url;
+        }
+        
+        @Override
+        public String getCurrentUrl() {
+            check();
+            return url;
+        }
+        
+        @Override
+        public String getTitle() {
+            check();
+            return "";
+        }
+        
+        @Override
+        public List<WebElement> findElements(By by) {
+            check();
+            return Collections.emptyList();
+        }
+        
+        @Override
+        public WebElement findElement(By by) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public String getPageSource() {
+            check();
+            return "";
+        }
+        
+        @Override
+        public void close() {
+            quit = true;
+        }
+        
+        @Override
+        public void quit() {
+            quit = true;
+        }
+        
+        @Override
+        public Set<String> getWindowHandles() {
+            return Collections.singleton(getWindowHandle());
+        }
+        
+        @Override
+        public String getWindowHandle() {
+            check();
+            return "window-1";
+        }
+        
+        @Override
+        public TargetLocator switchTo() {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public Navigation navigate() {
+            check();
+            return stub(Navigation.class, (proxy, method, args) -> {
+                if (method.getName().equals("to") && args[0] instanceof String) {
+                    get((String) args[0]);
+                }
+                return null;
+            });
+        }
+        
+        @Override
+        public Options manage() {
+            check();
+            return stub(Options.class, (proxy, method, args) -> {
+                if (method.getName().equals("deleteAllCookies")) {
+                    check();
+                    cookieResets.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        
+        @Override
+        public Object executeScript(String script, Object... args) {
+            check();
+            if (script.contains("localStorage.clear()")) {
+                storageResets.incrementAndGet();
+            }
+            return null;
+        }
+        
+        @Override
+        public Object executeAsyncScript(String script, Object... args) {
+            return executeScript(script, args);
+        }
+        
+        private static <T> T stub(Class<T> type, java.lang.reflect.InvocationHandler handler) {
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+        }
+    }
+}